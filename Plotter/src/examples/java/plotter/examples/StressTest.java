@@ -24,7 +24,9 @@ package plotter.examples;
 import java.awt.Color;
 import java.awt.Container;
 import java.awt.Dimension;
+import java.awt.Graphics2D;
 import java.awt.GridLayout;
+import java.awt.image.BufferedImage;
 import java.util.Timer;
 import java.util.TimerTask;
 
@@ -45,15 +47,21 @@ import plotter.xy.XYGrid;
 import plotter.xy.XYPlot;
 import plotter.xy.XYPlotContents;
 
+/**
+ * Displays a grid of scrolling plots.
+ * The optional argument sets the number of points per line (900 by default).
+ * Each second, the time taken to paint every plot offscreen is printed.
+ */
 public class StressTest {
 	public static void main(String[] args) {
+		final int pointsPerLine = args.length > 0 ? Integer.parseInt(args[0]) : 900;
 		final JFrame frame = new JFrame();
 		frame.setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
 		Container contentPane = frame.getContentPane();
 		int plotsx = 32;
 		int plotsy = 32;
 		final int linesPerPlot = 2;
-		JPanel container = new JPanel();
+		final JPanel container = new JPanel();
 		container.setLayout(new GridLayout(plotsx, plotsy));
 		contentPane.add(new JScrollPane(container));
 		Timer timer = new Timer();
@@ -92,13 +100,13 @@ public class StressTest {
 				final LinearXYPlotLine line = new LinearXYPlotLine(xAxis, yAxis, XYDimension.X);
 				line.setForeground(Color.white);
 				final SimpleXYDataset d = new SimpleXYDataset(line);
-				d.setMaxCapacity(1000);
+				d.setMaxCapacity(pointsPerLine + 100);
 				d.setXData(line.getXData());
 				d.setYData(line.getYData());
 				contents.add(line);
 
-				for(int x = 0; x < 900; x++) {
-					double x2 = x / 10.0;
+				for(int x = 0; x < pointsPerLine; x++) {
+					double x2 = x * 90.0 / pointsPerLine;
 					double y2 = Math.sin(x2 / 10.0 + Math.PI * j / (double) linesPerPlot);
 					d.add(x2, y2);
 				}
@@ -121,6 +129,9 @@ public class StressTest {
 		timer.schedule(new TimerTask() {
 			int x = 0;
 
+			long paintNanos;
+
+			int paints;
 
 			@Override
 			public void run() {
@@ -137,6 +148,30 @@ public class StressTest {
 								datasets[i][j].add(x2, y2);
 							}
 						}
+						timePaint();
+					}
+
+
+					private void timePaint() {
+						int width = container.getWidth();
+						int height = container.getHeight();
+						if(width == 0 || height == 0) {
+							return;
+						}
+						BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+						Graphics2D g = image.createGraphics();
+						long elapsed;
+						try {
+							long start = System.nanoTime();
+							container.paint(g);
+							elapsed = System.nanoTime() - start;
+						} finally {
+							g.dispose();
+						}
+						paintNanos += elapsed;
+						paints++;
+						System.out.printf("Painted %d lines of %d points in %.1f ms (average %.1f ms)%n", numPlots * linesPerPlot,
+								pointsPerLine, elapsed / 1e6, paintNanos / 1e6 / paints);
 					}
 				});
 			}
@@ -209,6 +209,46 @@ public abstract class DoubleData implements Cloneable {
 	public abstract int dictionarySearch(double d);
 
 
+	/**
+	 * Returns the smallest value in a range, ignoring NaNs.
+	 * This implementation scans the range; subclasses may keep summaries to do better.
+	 * @param start index of the first element of the range
+	 * @param end index just past the last element of the range
+	 * @return the smallest value, or positive infinity if the range has no values
+	 */
+	public double getMin(int start, int end) {
+		checkRange(start, end);
+		double min = Double.POSITIVE_INFINITY;
+		for(int i = start; i < end; i++) {
+			double d = get(i);
+			if(d < min) {
+				min = d;
+			}
+		}
+		return min;
+	}
+
+
+	/**
+	 * Returns the largest value in a range, ignoring NaNs.
+	 * This implementation scans the range; subclasses may keep summaries to do better.
+	 * @param start index of the first element of the range
+	 * @param end index just past the last element of the range
+	 * @return the largest value, or negative infinity if the range has no values
+	 */
+	public double getMax(int start, int end) {
+		checkRange(start, end);
+		double max = Double.NEGATIVE_INFINITY;
+		for(int i = start; i < end; i++) {
+			double d = get(i);
+			if(d > max) {
+				max = d;
+			}
+		}
+		return max;
+	}
+
+
 	/**
 	 * Removes everything from the buffer.
 	 */
@@ -227,6 +267,35 @@ public abstract class DoubleData implements Cloneable {
 	}
 
 
+	/**
+	 * Checks that a range lies within the buffer.
+	 * @param start index of the first element of the range
+	 * @param end index just past the last element of the range
+	 * @throws IndexOutOfBoundsException if the range does not lie within the buffer
+	 */
+	protected void checkRange(int start, int end) {
+		if(start < 0 || end < start || end > length) {
+			throw new IndexOutOfBoundsException("start = " + start + ", end = " + end + ", length is " + length);
+		}
+	}
+
+
+	/**
+	 * Copies elements into a new array, for copying between buffers of different types.
+	 * @param d buffer to copy from
+	 * @param off index of the first element to copy
+	 * @param len number of elements to copy
+	 * @return the elements
+	 */
+	protected static double[] toArray(DoubleData d, int off, int len) {
+		double[] a = new double[len];
+		for(int i = 0; i < len; i++) {
+			a[i] = d.get(off + i);
+		}
+		return a;
+	}
+
+
 	protected static int wrap(int x, int len) {
         while(x >= len) {
             x -= len;
@@ -0,0 +1,805 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter;
+
+/**
+ * Stores doubles in a list of fixed-size chunks.
+ * Unlike {@link DoubleDataDouble}, growing never copies the existing data,
+ * and inserting, prepending, and removing from the front only touch the chunks involved,
+ * so this suits long histories that receive out-of-order or historical data.
+ * Each chunk caches the minimum and maximum of its values,
+ * which speeds up {@link #getMin(int, int)}, {@link #getMax(int, int)}, and searches.
+ */
+public class DoubleDataChunked extends DoubleData {
+	/** Default number of elements per chunk. */
+	public static final int DEFAULT_CHUNK_SIZE = 4096;
+
+	/** Number of elements per chunk. */
+	private final int chunkSize;
+
+	/** The chunks, in order.  None of them are empty. */
+	private Chunk[] chunks = new Chunk[DEFAULT_CAPACITY];
+
+	/** Number of chunks in use. */
+	private int chunkCount;
+
+	/** Chunk found by the last lookup, which speeds up sequential access. */
+	private int lastChunk;
+
+	/** Most recently removed chunk, kept so that a sliding window does not allocate a new chunk each time it crosses a boundary. */
+	private Chunk spare;
+
+
+	/**
+	 * Part of the data.
+	 */
+	private static final class Chunk implements Cloneable {
+		/** Holds the values, which occupy <code>[off, off + size)</code>. */
+		double[] data;
+
+		/** Offset within data where values start. */
+		int off;
+
+		/** Number of values. */
+		int size;
+
+		/**
+		 * Position of the first value.
+		 * Positions only change relative to each other, so an index is converted to a position by adding the position of the first chunk.
+		 */
+		int start;
+
+		/** True if {@link #min} and {@link #max} are up to date. */
+		boolean summarized;
+
+		/** Smallest value, ignoring NaNs. */
+		double min;
+
+		/** Largest value, ignoring NaNs. */
+		double max;
+
+
+		Chunk(int chunkSize) {
+			data = new double[chunkSize];
+		}
+
+
+		void summarize() {
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			double[] data = this.data;
+			int end = off + size;
+			for(int i = off; i < end; i++) {
+				double d = data[i];
+				if(d < min) {
+					min = d;
+				}
+				if(d > max) {
+					max = d;
+				}
+			}
+			this.min = min;
+			this.max = max;
+			summarized = true;
+		}
+
+
+		@Override
+		public Chunk clone() {
+			try {
+				Chunk c = (Chunk) super.clone();
+				c.data = data.clone();
+				return c;
+			} catch(CloneNotSupportedException e) {
+				throw new RuntimeException(e); // should never happen
+			}
+		}
+	}
+
+
+	/**
+	 * Creates a buffer with the specified chunk size.
+	 * @param chunkSize number of elements per chunk, at least 2
+	 */
+	public DoubleDataChunked(int chunkSize) {
+		if(chunkSize < 2) {
+			throw new IllegalArgumentException("Chunk size must be at least 2: " + chunkSize);
+		}
+		this.chunkSize = chunkSize;
+	}
+
+
+	/**
+	 * Creates a buffer with the default chunk size.
+	 */
+	public DoubleDataChunked() {
+		this(DEFAULT_CHUNK_SIZE);
+	}
+
+
+	/**
+	 * Returns the number of elements per chunk.
+	 * @return the number of elements per chunk
+	 */
+	public int getChunkSize() {
+		return chunkSize;
+	}
+
+
+	/**
+	 * Adds an element to the buffer.
+	 * @param d element to add
+	 */
+	public void add(double d) {
+		Chunk c = chunkCount == 0 ? null : chunks[chunkCount - 1];
+		if(c == null || c.off + c.size == chunkSize) {
+			c = newChunk(chunkCount, 0);
+		}
+		c.data[c.off + c.size] = d;
+		c.size++;
+		if(c.summarized) {
+			if(d < c.min) {
+				c.min = d;
+			}
+			if(d > c.max) {
+				c.max = d;
+			}
+		}
+		length++;
+	}
+
+
+	/**
+	 * Adds elements to the buffer.
+	 * @param d data to add
+	 * @param off offset within <code>d</code> to start copying from
+	 * @param len number of elements to copy
+	 */
+	public void add(double[] d, int off, int len) {
+		if(off < 0 || len < 0 || off + len > d.length) {
+			throw new IndexOutOfBoundsException("d.length = " + d.length + ", off = " + off + ", len = " + len);
+		}
+		int copied = 0;
+		while(copied < len) {
+			Chunk c = chunkCount == 0 ? null : chunks[chunkCount - 1];
+			if(c == null || c.off + c.size == chunkSize) {
+				c = newChunk(chunkCount, 0);
+			}
+			int n = Math.min(len - copied, chunkSize - c.off - c.size);
+			System.arraycopy(d, off + copied, c.data, c.off + c.size, n);
+			c.size += n;
+			c.summarized = false;
+			copied += n;
+			length += n;
+		}
+	}
+
+
+	/**
+	 * Adds elements to the buffer.
+	 * @param d data to add
+	 * @param off offset within <code>d</code> to start copying from
+	 * @param len number of elements to copy
+	 */
+	public void add(DoubleData d, int off, int len) {
+		if(off < 0 || len < 0 || off + len > d.length) {
+			throw new IndexOutOfBoundsException("d.getLength() = " + d.length + ", off = " + off + ", len = " + len);
+		}
+		add(toArray(d, off, len), 0, len);
+	}
+
+
+	/**
+	 * Copies data from the source object.
+	 * @param src object to copy data from
+	 * @param srcoff index within src to copy data from
+	 * @param dstoff index within this to copy data to
+	 * @param len number of elements to copy
+	 */
+	public void copyFrom(DoubleData src, int srcoff, int dstoff, int len) {
+		if(srcoff < 0 || len < 0 || srcoff + len > src.length) {
+			throw new IndexOutOfBoundsException("src.getLength() = " + src.length + ", srcoff = " + srcoff + ", len = " + len);
+		}
+		if(dstoff < 0 || dstoff + len > length) {
+			throw new IndexOutOfBoundsException("dstoff = " + dstoff + ", len = " + len + ", getLength() = " + length);
+		}
+		copyFrom(toArray(src, srcoff, len), 0, dstoff, len);
+	}
+
+
+	/**
+	 * Copies data from the source object.
+	 * @param src object to copy data from
+	 * @param srcoff index within src to copy data from
+	 * @param dstoff index within this to copy data to
+	 * @param len number of elements to copy
+	 */
+	public void copyFrom(double[] src, int srcoff, int dstoff, int len) {
+		if(srcoff < 0 || len < 0 || srcoff + len > src.length) {
+			throw new IndexOutOfBoundsException("d.length = " + src.length + ", srcoff = " + srcoff + ", len = " + len);
+		}
+		if(dstoff < 0 || dstoff + len > length) {
+			throw new IndexOutOfBoundsException("dstoff = " + dstoff + ", len = " + len + ", getLength() = " + length);
+		}
+		int copied = 0;
+		while(copied < len) {
+			int k = findChunk(dstoff + copied);
+			Chunk c = chunks[k];
+			int pos = position(dstoff + copied) - c.start;
+			int n = Math.min(len - copied, c.size - pos);
+			System.arraycopy(src, srcoff + copied, c.data, c.off + pos, n);
+			c.summarized = false;
+			copied += n;
+		}
+	}
+
+
+	/**
+	 * Inserts a value into the buffer.
+	 * @param index position for the new value
+	 * @param d value to add
+	 */
+	public void insert(int index, double d) {
+		if(index < 0 || index > length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index + ", length is " + length);
+		}
+		if(index == length) {
+			add(d);
+			return;
+		}
+		int k = findChunk(index);
+		Chunk c = chunks[k];
+		int pos = position(index) - c.start;
+		if(c.size == chunkSize) {
+			// Split the chunk in half, and insert into whichever half holds the index.
+			split(k, c.size / 2);
+			if(pos >= c.size) {
+				pos -= c.size;
+				k++;
+				c = chunks[k];
+			}
+		}
+		if(c.off + c.size < chunkSize) {
+			System.arraycopy(c.data, c.off + pos, c.data, c.off + pos + 1, c.size - pos);
+		} else {
+			System.arraycopy(c.data, c.off, c.data, c.off - 1, pos);
+			c.off--;
+		}
+		c.data[c.off + pos] = d;
+		c.size++;
+		if(c.summarized) {
+			if(d < c.min) {
+				c.min = d;
+			}
+			if(d > c.max) {
+				c.max = d;
+			}
+		}
+		for(int i = k + 1; i < chunkCount; i++) {
+			chunks[i].start++;
+		}
+		length++;
+	}
+
+
+	/**
+	 * Inserts elements into the buffer.
+	 * @param index position for the new value
+	 * @param d data to add
+	 * @param off offset within d to start copying data from
+	 * @param len number of elements to insert
+	 */
+	public void insert(int index, DoubleData d, int off, int len) {
+		if(index < 0 || index > length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index + ", length is " + length);
+		}
+		if(off < 0 || len < 0 || off + len > d.length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: off = " + off + ", len = " + len + ", d.length = " + d.length);
+		}
+		double[] values = toArray(d, off, len);
+		if(index == length) {
+			add(values, 0, len);
+			return;
+		}
+		if(index == 0) {
+			prepend(values, 0, len);
+			return;
+		}
+		int k = findChunk(index);
+		Chunk c = chunks[k];
+		int pos = position(index) - c.start;
+		if(c.size + len <= chunkSize) {
+			// Fits in the chunk; move the values to the front of the chunk to make room at the end.
+			System.arraycopy(c.data, c.off, c.data, 0, c.size);
+			c.off = 0;
+			System.arraycopy(c.data, pos, c.data, pos + len, c.size - pos);
+			System.arraycopy(values, 0, c.data, pos, len);
+			c.size += len;
+			c.summarized = false;
+		} else {
+			if(pos > 0) {
+				split(k, pos);
+				k++;
+			}
+			int start = chunks[k].start;
+			int count = (len + chunkSize - 1) / chunkSize;
+			for(int i = 0; i < count; i++) {
+				Chunk n = newChunk(k + i, 0);
+				n.size = Math.min(chunkSize, len - i * chunkSize);
+				System.arraycopy(values, i * chunkSize, n.data, 0, n.size);
+				n.start = start + i * chunkSize;
+			}
+		}
+		for(int i = k + 1; i < chunkCount; i++) {
+			chunks[i].start = chunks[i - 1].start + chunks[i - 1].size;
+		}
+		length += len;
+	}
+
+
+	/**
+	 * Adds elements to the beginning of the buffer.
+	 * @param d data to add
+	 * @param off offset within <code>d</code> to start copying from
+	 * @param len number of elements to add
+	 */
+	public void prepend(double[] d, int off, int len) {
+		if(len < 0 || off < 0 || off + len > d.length) {
+			throw new IndexOutOfBoundsException("d.length = " + d.length + ", off = " + off + ", len = " + len);
+		}
+		// Copy from the end of the input, filling chunks from their ends.
+		int remaining = len;
+		while(remaining > 0) {
+			Chunk c = chunkCount == 0 ? null : chunks[0];
+			if(c == null || c.off == 0) {
+				int start = c == null ? 0 : c.start;
+				c = newChunk(0, chunkSize);
+				c.start = start;
+			}
+			int n = Math.min(remaining, c.off);
+			System.arraycopy(d, off + remaining - n, c.data, c.off - n, n);
+			c.off -= n;
+			c.size += n;
+			c.start -= n;
+			c.summarized = false;
+			remaining -= n;
+			length += n;
+		}
+	}
+
+
+	/**
+	 * Adds elements to the beginning of the buffer.
+	 * @param d data to add
+	 * @param off offset within <code>d</code> to start copying from
+	 * @param len number of elements to add
+	 */
+	public void prepend(DoubleData d, int off, int len) {
+		if(len < 0 || off < 0 || off + len > d.length) {
+			throw new IndexOutOfBoundsException("d.getLength() = " + d.length + ", off = " + off + ", len = " + len);
+		}
+		prepend(toArray(d, off, len), 0, len);
+	}
+
+
+	/**
+	 * Returns the element at the given index.
+	 * @param index index of the element
+	 * @return value at that index
+	 */
+	public double get(int index) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index + ", length is " + length);
+		}
+		Chunk c = chunks[findChunk(index)];
+		return c.data[c.off + position(index) - c.start];
+	}
+
+
+	/**
+	 * Sets the element at the given index
+	 * @param index index of the element
+	 * @param d value to set at that index
+	 */
+	public void set(int index, double d) {
+		if(index < 0 || index >= length) {
+			throw new IndexOutOfBoundsException("Index out of bounds: " + index + ", length is " + length);
+		}
+		Chunk c = chunks[findChunk(index)];
+		c.data[c.off + position(index) - c.start] = d;
+		c.summarized = false;
+	}
+
+
+	/**
+	 * Returns the capacity, or the maximum length the buffer can grow to without allocating another chunk.
+	 * @return the capacity
+	 */
+	public int getCapacity() {
+		if(chunkCount == 0) {
+			return 0;
+		}
+		Chunk last = chunks[chunkCount - 1];
+		return length + chunkSize - last.off - last.size;
+	}
+
+
+	/**
+	 * Checks the capacity.
+	 * Chunks are allocated as data is added, so this does not allocate anything.
+	 * @param capacity new capacity
+	 * @throws IllegalArgumentException if the requested capacity is less than the length
+	 */
+	public void setCapacity(int capacity) {
+		if(capacity < length) {
+			throw new IllegalArgumentException("Cannot set capacity less than the current length.  Remove elements first.  length = " + length
+					+ ", new capacity = " + capacity);
+		}
+	}
+
+
+	/**
+	 * Removes elements from the front of the buffer.
+	 * @param count number of elements to remove
+	 */
+	public void removeFirst(int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("Count cannot be negative: " + count);
+		}
+		if(count > length) {
+			throw new IllegalArgumentException("Trying to remove " + count + " elements, but only contains " + length);
+		}
+		length -= count;
+		int drop = 0;
+		while(drop < chunkCount && chunks[drop].size <= count) {
+			count -= chunks[drop].size;
+			drop++;
+		}
+		removeChunks(0, drop);
+		if(count > 0) {
+			Chunk c = chunks[0];
+			c.off += count;
+			c.size -= count;
+			c.start += count;
+			c.summarized = false;
+		}
+	}
+
+
+	@Override
+	public void removeLast(int count) {
+		if(count < 0) {
+			throw new IllegalArgumentException("Count cannot be negative: " + count);
+		}
+		if(count > length) {
+			throw new IllegalArgumentException("Trying to remove " + count + " elements, but only contains " + length);
+		}
+		length -= count;
+		int keep = chunkCount;
+		while(keep > 0 && chunks[keep - 1].size <= count) {
+			count -= chunks[keep - 1].size;
+			keep--;
+		}
+		removeChunks(keep, chunkCount);
+		if(count > 0) {
+			Chunk c = chunks[chunkCount - 1];
+			c.size -= count;
+			c.summarized = false;
+		}
+	}
+
+
+	@Override
+	public void removeAll() {
+		removeChunks(0, chunkCount);
+		length = 0;
+	}
+
+
+	/**
+	 * Returns the smallest value in a range, ignoring NaNs.
+	 * Chunks entirely within the range use their cached minimum.
+	 * @param start index of the first element of the range
+	 * @param end index just past the last element of the range
+	 * @return the smallest value, or positive infinity if the range has no values
+	 */
+	@Override
+	public double getMin(int start, int end) {
+		checkRange(start, end);
+		double min = Double.POSITIVE_INFINITY;
+		int i = start;
+		while(i < end) {
+			Chunk c = chunks[findChunk(i)];
+			int pos = position(i) - c.start;
+			int n = Math.min(end - i, c.size - pos);
+			if(n == c.size) {
+				if(!c.summarized) {
+					c.summarize();
+				}
+				if(c.min < min) {
+					min = c.min;
+				}
+			} else {
+				double[] data = c.data;
+				int stop = c.off + pos + n;
+				for(int j = c.off + pos; j < stop; j++) {
+					if(data[j] < min) {
+						min = data[j];
+					}
+				}
+			}
+			i += n;
+		}
+		return min;
+	}
+
+
+	/**
+	 * Returns the largest value in a range, ignoring NaNs.
+	 * Chunks entirely within the range use their cached maximum.
+	 * @param start index of the first element of the range
+	 * @param end index just past the last element of the range
+	 * @return the largest value, or negative infinity if the range has no values
+	 */
+	@Override
+	public double getMax(int start, int end) {
+		checkRange(start, end);
+		double max = Double.NEGATIVE_INFINITY;
+		int i = start;
+		while(i < end) {
+			Chunk c = chunks[findChunk(i)];
+			int pos = position(i) - c.start;
+			int n = Math.min(end - i, c.size - pos);
+			if(n == c.size) {
+				if(!c.summarized) {
+					c.summarize();
+				}
+				if(c.max > max) {
+					max = c.max;
+				}
+			} else {
+				double[] data = c.data;
+				int stop = c.off + pos + n;
+				for(int j = c.off + pos; j < stop; j++) {
+					if(data[j] > max) {
+						max = data[j];
+					}
+				}
+			}
+			i += n;
+		}
+		return max;
+	}
+
+
+	/**
+	 * Searches the data for an insertion point.
+	 * Assumes the data is sorted.
+	 * Assumes the data does not contain NaNs and that the argument is not NaN.
+	 * Runs in O(log(n)) time, where n is the length (as defined by {@link #getLength()}).
+	 * The chunk is found from the cached chunk maximums, then the chunk is searched.
+	 * @param d value to search for
+	 * @return index of the search key, if it is contained in the array; otherwise, <tt>(-(<i>insertion point</i>) - 1)</tt>.
+	 * The <i>insertion point</i> is defined as the point at which the key would be inserted into the array:
+	 * the index of the first element greater than the key, or <tt>a.length</tt> if all elements in the array are less than the specified key.
+	 * Note that this guarantees that the return value will be &gt;= 0 if and only if the key is found.
+	 */
+	public int binarySearch(double d) {
+		if(length == 0) {
+			return -1;
+		}
+		// Find the first chunk whose maximum is at least d.
+		int min = 0;
+		int max = chunkCount;
+		while(min < max) {
+			int mid = (min + max) >>> 1;
+			Chunk c = chunks[mid];
+			if(!c.summarized) {
+				c.summarize();
+			}
+			if(c.max < d) {
+				min = mid + 1;
+			} else {
+				max = mid;
+			}
+		}
+		if(min == chunkCount) {
+			return -length - 1;
+		}
+		Chunk c = chunks[min];
+		int base = c.start - chunks[0].start;
+		int lo = c.off;
+		int hi = c.off + c.size - 1;
+		while(lo <= hi) {
+			int mid = (lo + hi) >>> 1;
+			double x = c.data[mid];
+			if(x < d) {
+				lo = mid + 1;
+			} else if(x > d) {
+				hi = mid - 1;
+			} else {
+				return base + mid - c.off;
+			}
+		}
+		return -(base + lo - c.off) - 1;
+	}
+
+
+	/**
+	 * Searches the data for an insertion point.
+	 * Assumes the data is sorted.
+	 * Assumes the data does not contain NaNs and that the argument is not NaN.
+	 * Runs on average in O(log(log(n))) time, where n is the length (as defined by {@link #getLength()}).
+	 * However, in the worst case (where the values are exponentially distributed), may run in O(n) time.
+	 * @param d value to search for
+	 * @return index of the search key, if it is contained in the array; otherwise, <tt>(-(<i>insertion point</i>) - 1)</tt>.
+	 * The <i>insertion point</i> is defined as the point at which the key would be inserted into the array:
+	 * the index of the first element greater than the key, or <tt>a.length</tt> if all elements in the array are less than the specified key.
+	 * Note that this guarantees that the return value will be &gt;= 0 if and only if the key is found.
+	 */
+	public int dictionarySearch(double d) {
+		if(length == 0) {
+			return -1;
+		}
+
+		int min = 0;
+		int max = length - 1;
+		while(true) {
+			double minval = get(min);
+			if(minval > d) {
+				return -min - 1;
+			}
+			double maxval = get(max);
+			if(maxval < d) {
+				return -max - 2;
+			}
+			int mid = min + (int) ((d - minval) * (max - min) / (maxval - minval));
+			double midval = get(mid);
+			if(midval < d) {
+				min = mid + 1;
+			} else if(midval > d) {
+				max = mid - 1;
+			} else {
+				return mid;
+			}
+		}
+	}
+
+
+	@Override
+	public DoubleDataChunked clone() {
+		DoubleDataChunked d = (DoubleDataChunked) super.clone();
+		d.chunks = new Chunk[chunks.length];
+		for(int i = 0; i < chunkCount; i++) {
+			d.chunks[i] = chunks[i].clone();
+		}
+		d.spare = null;
+		return d;
+	}
+
+
+	/**
+	 * Converts an index to a position.
+	 * @param index index of an element
+	 * @return the position of the element
+	 */
+	private int position(int index) {
+		return index + chunks[0].start;
+	}
+
+
+	/**
+	 * Finds the chunk containing an element.
+	 * @param index index of the element, which must be valid
+	 * @return index of the chunk
+	 */
+	private int findChunk(int index) {
+		int pos = position(index);
+		if(lastChunk < chunkCount) {
+			Chunk c = chunks[lastChunk];
+			if(pos >= c.start && pos < c.start + c.size) {
+				return lastChunk;
+			}
+		}
+		int min = 0;
+		int max = chunkCount - 1;
+		while(min < max) {
+			int mid = (min + max + 1) >>> 1;
+			if(chunks[mid].start <= pos) {
+				min = mid;
+			} else {
+				max = mid - 1;
+			}
+		}
+		lastChunk = min;
+		return min;
+	}
+
+
+	/**
+	 * Creates an empty chunk and inserts it into the list.
+	 * The caller is responsible for setting its start unless it is the last chunk.
+	 * @param k index for the new chunk
+	 * @param off offset within the chunk where values will start
+	 * @return the new chunk
+	 */
+	private Chunk newChunk(int k, int off) {
+		if(chunkCount == chunks.length) {
+			Chunk[] chunks2 = new Chunk[chunks.length * 2];
+			System.arraycopy(chunks, 0, chunks2, 0, chunkCount);
+			chunks = chunks2;
+		}
+		System.arraycopy(chunks, k, chunks, k + 1, chunkCount - k);
+		Chunk c = spare;
+		if(c == null) {
+			c = new Chunk(chunkSize);
+		} else {
+			spare = null;
+			c.size = 0;
+			c.start = 0;
+			c.summarized = false;
+		}
+		c.off = off;
+		if(k > 0) {
+			Chunk prev = chunks[k - 1];
+			c.start = prev.start + prev.size;
+		}
+		chunks[k] = c;
+		chunkCount++;
+		return c;
+	}
+
+
+	/**
+	 * Splits a chunk in two.
+	 * @param k index of the chunk
+	 * @param pos number of values to leave in the first part
+	 */
+	private void split(int k, int pos) {
+		Chunk c = chunks[k];
+		Chunk c2 = newChunk(k + 1, 0);
+		c2.size = c.size - pos;
+		System.arraycopy(c.data, c.off + pos, c2.data, 0, c2.size);
+		c2.start = c.start + pos;
+		c.size = pos;
+		c.summarized = false;
+	}
+
+
+	/**
+	 * Removes chunks from the list.
+	 * @param from index of the first chunk to remove
+	 * @param to index just past the last chunk to remove
+	 */
+	private void removeChunks(int from, int to) {
+		if(to == from) {
+			return;
+		}
+		spare = chunks[from];
+		System.arraycopy(chunks, to, chunks, from, chunkCount - to);
+		for(int i = chunkCount - (to - from); i < chunkCount; i++) {
+			chunks[i] = null;
+		}
+		chunkCount -= to - from;
+		lastChunk = 0;
+	}
+}
@@ -102,7 +102,11 @@ public class DoubleDataDouble extends DoubleData {
 		if(off < 0 || len < 0 || off + len > d.length) {
 			throw new IndexOutOfBoundsException("d.getLength() = " + d.length + ", off = " + off + ", len = " + len);
 		}
-		DoubleDataDouble d2 = (DoubleDataDouble) d; // TODO: What if it is a different type?
+		if(!(d instanceof DoubleDataDouble)) {
+			add(toArray(d, off, len), 0, len);
+			return;
+		}
+		DoubleDataDouble d2 = (DoubleDataDouble) d;
 		int off2 = wrap(d.offset + off, d2.data.length);
 		int available = d2.data.length - off2;
 		if(available < len) {
@@ -128,7 +132,11 @@ public class DoubleDataDouble extends DoubleData {
 		if(dstoff < 0 || dstoff + len > length) {
 			throw new IndexOutOfBoundsException("dstoff = " + dstoff + ", len = " + len + ", getLength() = " + length);
 		}
-		DoubleDataDouble src2 = (DoubleDataDouble) src; // TODO: What if it is a different type?
+		if(!(src instanceof DoubleDataDouble)) {
+			copyFrom(toArray(src, srcoff, len), 0, dstoff, len);
+			return;
+		}
+		DoubleDataDouble src2 = (DoubleDataDouble) src;
 		int off2 = wrap(src.offset + srcoff, src2.data.length);
 		int available = src2.data.length - off2;
 		if(available < len) {
@@ -311,7 +319,11 @@ public class DoubleDataDouble extends DoubleData {
 		if(len < 0 || off < 0 || off + len > d.length) {
 			throw new IndexOutOfBoundsException("d.getLength() = " + d.length + ", off = " + off + ", len = " + len);
 		}
-		DoubleDataDouble d2 = (DoubleDataDouble) d; // TODO: What if it is a different type?
+		if(!(d instanceof DoubleDataDouble)) {
+			prepend(toArray(d, off, len), 0, len);
+			return;
+		}
+		DoubleDataDouble d2 = (DoubleDataDouble) d;
 		int off2 = wrap(d.offset + off, d2.data.length);
 		int available = d2.data.length - off2;
 		if(available < len) {
@@ -140,7 +140,11 @@ public class DoubleDataFloat extends DoubleData {
 		if(off < 0 || len < 0 || off + len > d.length) {
 			throw new IndexOutOfBoundsException("d.getLength() = " + d.length + ", off = " + off + ", len = " + len);
 		}
-		DoubleDataFloat d2 = (DoubleDataFloat) d; // TODO: What if it is a different type?
+		if(!(d instanceof DoubleDataFloat)) {
+			add(toArray(d, off, len), 0, len);
+			return;
+		}
+		DoubleDataFloat d2 = (DoubleDataFloat) d;
 		int off2 = wrap(d.offset + off, d2.data.length);
 		int available = d2.data.length - off2;
 		if(available < len) {
@@ -166,7 +170,11 @@ public class DoubleDataFloat extends DoubleData {
 		if(dstoff < 0 || dstoff + len > length) {
 			throw new IndexOutOfBoundsException("dstoff = " + dstoff + ", len = " + len + ", getLength() = " + length);
 		}
-		DoubleDataFloat src2 = (DoubleDataFloat) src; // TODO: What if it is a different type?
+		if(!(src instanceof DoubleDataFloat)) {
+			copyFrom(toArray(src, srcoff, len), 0, dstoff, len);
+			return;
+		}
+		DoubleDataFloat src2 = (DoubleDataFloat) src;
 		int off2 = wrap(src.offset + srcoff, src2.data.length);
 		int available = src2.data.length - off2;
 		if(available < len) {
@@ -411,7 +419,11 @@ public class DoubleDataFloat extends DoubleData {
 		if(len < 0 || off < 0 || off + len > d.length) {
 			throw new IndexOutOfBoundsException("d.getLength() = " + d.length + ", off = " + off + ", len = " + len);
 		}
-		DoubleDataFloat d2 = (DoubleDataFloat) d; // TODO: What if it is a different type?
+		if(!(d instanceof DoubleDataFloat)) {
+			prepend(toArray(d, off, len), 0, len);
+			return;
+		}
+		DoubleDataFloat d2 = (DoubleDataFloat) d;
 		int off2 = wrap(d.offset + off, d2.data.length);
 		int available = d2.data.length - off2;
 		if(available < len) {
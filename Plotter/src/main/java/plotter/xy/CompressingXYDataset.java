@@ -25,6 +25,7 @@ import java.util.HashSet;
 import java.util.Set;
 
 import plotter.DoubleData;
+import plotter.DoubleDataChunked;
 import plotter.xy.Compressor.StreamingCompressor;
 
 /**
@@ -88,12 +89,21 @@ public class CompressingXYDataset implements XYDataset {
 	/** Performs the streaming compression. */
 	private StreamingCompressor streamingCompressor;
 
+	/** Receives the output of {@link #streamingCompressor}. */
+	private final LineOutput lineOutput = new LineOutput();
+
 	/** Offset to use for compression. */
 	private double compressionOffset;
 
 	/** Scale to use for compression. */
 	private double compressionScale;
 
+	/** Keeps the data at several resolutions for {@link #resample()}.  May be null. */
+	private MinMaxPyramid pyramid;
+
+	/** Number of levels in {@link #pyramid}, or zero if it is disabled. */
+	private int pyramidLevels;
+
 
 	/**
 	 * Creates a dataset.
@@ -111,6 +121,27 @@ public class CompressingXYDataset implements XYDataset {
 	}
 
 
+	/**
+	 * Creates a dataset whose data is stored in chunks.
+	 * The line's data is moved into {@link DoubleDataChunked} buffers,
+	 * which makes prepending, truncating, and finding the min and max of long histories cheaper.
+	 * @param line line to plot the data
+	 * @param compressor performs the compression
+	 * @param chunkSize number of points per chunk
+	 */
+	public CompressingXYDataset(LinearXYPlotLine line, Compressor compressor, int chunkSize) {
+		this(line, compressor);
+		DoubleData x = new DoubleDataChunked(chunkSize);
+		DoubleData y = new DoubleDataChunked(chunkSize);
+		x.add(xData, 0, xData.getLength());
+		y.add(yData, 0, yData.getLength());
+		line.setXData(x);
+		line.setYData(y);
+		xData = x;
+		yData = y;
+	}
+
+
 	/**
 	 * Adds a point, truncating the buffer if necessary.
 	 * For the independent dimension, the coordinate must be must be greater than or equal to all other values in the dataset for that dimension. 
@@ -122,27 +153,77 @@ public class CompressingXYDataset implements XYDataset {
 		preMod();
 
 		truncate();
-		if(streamingCompressor == null) {
-			XYDataset out;
+		StreamingCompressor streaming = getStreamingCompressor();
+		createPyramidIfNeeded();
+		if(line.getIndependentDimension() == XYDimension.X) {
+			streaming.add(x, y);
+			if(pyramid != null) {
+				pyramid.add(x, y);
+			}
+		} else {
+			streaming.add(y, x);
+			if(pyramid != null) {
+				pyramid.add(y, x);
+			}
+		}
+		updateMinMax(x, y);
+
+		postMod();
+	}
+
+
+	/**
+	 * Adds points, truncating the buffer if necessary.
+	 * The points are compressed as a batch, and the plot line is repainted and listeners are notified once for all of them.
+	 * For the independent dimension, the coordinates must be in increasing order and greater than or equal to all other values in the dataset for that dimension.
+	 * @param x the X coordinates of the points
+	 * @param xoff offset within the x array to copy data from
+	 * @param y the Y coordinates of the points
+	 * @param yoff offset within the y array to copy data from
+	 * @param len number of points
+	 */
+	public void add(double[] x, int xoff, double[] y, int yoff, int len) {
+		if(len == 0) {
+			return;
+		}
+		preMod();
+
+		truncate();
+		StreamingCompressor streaming = getStreamingCompressor();
+		lineOutput.startBatch();
+		try {
 			if(line.getIndependentDimension() == XYDimension.X) {
-				out = line;
+				streaming.add(x, xoff, y, yoff, len);
 			} else {
-				out = new XYReversingDataset(line);
+				streaming.add(y, yoff, x, xoff, len);
 			}
-			streamingCompressor = compressor.createStreamingCompressor(out, compressionOffset, compressionScale);
+		} finally {
+			lineOutput.endBatch();
 		}
-		int updateSize;
-		if(line.getIndependentDimension() == XYDimension.X) {
-			updateSize = streamingCompressor.add(x, y);
-		} else {
-			updateSize = streamingCompressor.add(y, x);
+		createPyramidIfNeeded();
+		if(pyramid != null) {
+			if(line.getIndependentDimension() == XYDimension.X) {
+				pyramid.add(x, xoff, y, yoff, len);
+			} else {
+				pyramid.add(y, yoff, x, xoff, len);
+			}
+		}
+		for(int i = 0; i < len; i++) {
+			updateMinMax(x[xoff + i], y[yoff + i]);
 		}
-		updateMinMax(x, y);
 
 		postMod();
 	}
 
 
+	private StreamingCompressor getStreamingCompressor() {
+		if(streamingCompressor == null) {
+			streamingCompressor = compressor.createStreamingCompressor(lineOutput, compressionOffset, compressionScale);
+		}
+		return streamingCompressor;
+	}
+
+
 	/**
 	 * Called after a modification.
 	 * Notifies any relevant listeners of changes.
@@ -189,6 +270,9 @@ public class CompressingXYDataset implements XYDataset {
 		i -= truncationOffset;
 		if(i > 0) {
 			_removeFirst(i);
+			if(pyramid != null) {
+				pyramid.truncate(data.getLength() > 0 ? data.get(0) : truncationPoint);
+			}
 		}
 	}
 
@@ -199,7 +283,6 @@ public class CompressingXYDataset implements XYDataset {
 	 * @param removeCount number of points to remove
 	 */
 	private void _removeFirst(int removeCount) {
-		// TODO: Use a more efficient method than rescanning the entire arrays.  For example, cache min/max values for subranges.
 		int length = xData.getLength();
 		boolean rescanX = false;
 		boolean rescanY = false;
@@ -224,17 +307,8 @@ public class CompressingXYDataset implements XYDataset {
 					maxX = Double.NEGATIVE_INFINITY;
 				}
 			} else {
-				minX = Double.POSITIVE_INFINITY;
-				maxX = Double.NEGATIVE_INFINITY;
-				for(int i = removeCount; i < length; i++) {
-					double xd = xData.get(i);
-					if(xd > maxX) {
-						maxX = xd;
-					}
-					if(xd < minX) {
-						minX = xd;
-					}
-				}
+				minX = xData.getMin(removeCount, length);
+				maxX = xData.getMax(removeCount, length);
 			}
 		}
 		if(rescanY) {
@@ -247,17 +321,8 @@ public class CompressingXYDataset implements XYDataset {
 					maxY = Double.NEGATIVE_INFINITY;
 				}
 			} else {
-				minY = Double.POSITIVE_INFINITY;
-				maxY = Double.NEGATIVE_INFINITY;
-				for(int i = removeCount; i < length; i++) {
-					double yd = yData.get(i);
-					if(yd > maxY) {
-						maxY = yd;
-					}
-					if(yd < minY) {
-						minY = yd;
-					}
-				}
+				minY = yData.getMin(removeCount, length);
+				maxY = yData.getMax(removeCount, length);
 			}
 		}
 		line.removeFirst(removeCount);
@@ -279,6 +344,10 @@ public class CompressingXYDataset implements XYDataset {
 		}
 		PointData output = new PointData();
 		compressor.compress(input, output, compressionOffset, compressionScale);
+		createPyramidIfNeeded();
+		if(pyramid != null) {
+			pyramid.prepend(input.getX(), input.getY());
+		}
 
 		DoubleData outx;
 		DoubleData outy;
@@ -306,6 +375,10 @@ public class CompressingXYDataset implements XYDataset {
 		PointData input = new PointData(x, y);
 		PointData output = new PointData();
 		compressor.compress(input, output, compressionOffset, compressionScale);
+		createPyramidIfNeeded();
+		if(pyramid != null) {
+			pyramid.prepend(x, y);
+		}
 
 		DoubleData outx;
 		DoubleData outy;
@@ -353,6 +426,8 @@ public class CompressingXYDataset implements XYDataset {
 	public void removeAllPoints() {
 		preMod();
 		line.removeAllPoints();
+		streamingCompressor = null;
+		pyramid = null;
 		minX = Double.POSITIVE_INFINITY;
 		maxX = Double.NEGATIVE_INFINITY;
 		minY = Double.POSITIVE_INFINITY;
@@ -364,16 +439,98 @@ public class CompressingXYDataset implements XYDataset {
 	/**
 	 * Recompresses the existing data.
 	 * This is useful if the compression scale has increased since data was added.
-	 * Data may lose fidelity if compressed multiple times.
+	 * Data may lose fidelity if compressed multiple times, unless it is redrawn from the pyramid.
+	 * @see #resample()
 	 */
 	public void recompress() {
+		if(resample()) {
+			return;
+		}
 		DoubleData newx =xData.clone();
 		DoubleData newy =yData.clone();
 		line.removeAllPoints();
+		streamingCompressor = null;
 		prepend(newx, newy);
 	}
 
 
+	/**
+	 * Redraws the data at the current compression offset and scale from the level of detail pyramid.
+	 * The data is compressed from the coarsest level that is at least as fine as the compression scale,
+	 * so zooming out does not lose fidelity and zooming in shows the finest data available.
+	 * @return false if there is no pyramid to redraw from
+	 * @see #setPyramidLevels(int)
+	 */
+	public boolean resample() {
+		if(pyramid == null) {
+			return false;
+		}
+		PointData output = new PointData();
+		pyramid.compress(output, compressionOffset, compressionScale);
+		DoubleData outx;
+		DoubleData outy;
+		if(line.getIndependentDimension() == XYDimension.X) {
+			outx = output.getX();
+			outy = output.getY();
+		} else {
+			outy = output.getX();
+			outx = output.getY();
+		}
+		line.removeAllPoints();
+		streamingCompressor = null;
+		line.prepend(outx, outy);
+		return true;
+	}
+
+
+	/**
+	 * Creates the level of detail pyramid if it is enabled and does not exist yet.
+	 * The pyramid uses the current compression offset and scale as its offset and base scale.
+	 */
+	private void createPyramidIfNeeded() {
+		if(pyramid == null && pyramidLevels > 0 && compressionScale > 0) {
+			pyramid = new MinMaxPyramid(compressor, compressionOffset, compressionScale, pyramidLevels);
+		}
+	}
+
+
+	/**
+	 * Returns the level of detail pyramid.
+	 * @return the pyramid, or null if it is disabled or no data has been added since it was enabled
+	 */
+	public MinMaxPyramid getPyramid() {
+		return pyramid;
+	}
+
+
+	/**
+	 * Returns the number of levels in the level of detail pyramid.
+	 * @return the number of levels, or zero if the pyramid is disabled
+	 */
+	public int getPyramidLevels() {
+		return pyramidLevels;
+	}
+
+
+	/**
+	 * Sets the number of levels in the level of detail pyramid.
+	 * When enabled, a pyramid is started with the next data added,
+	 * using the compression offset and scale at that time.
+	 * Each level is half the resolution of the previous one, so the data can be redrawn by {@link #resample()}
+	 * at scales up to <code>2<sup>levels - 1</sup></code> times coarser without losing fidelity.
+	 * @param pyramidLevels number of levels, or zero to disable the pyramid
+	 */
+	public void setPyramidLevels(int pyramidLevels) {
+		if(pyramidLevels < 0) {
+			throw new IllegalArgumentException("Pyramid levels cannot be negative: " + pyramidLevels);
+		}
+		if(this.pyramidLevels != pyramidLevels) {
+			this.pyramidLevels = pyramidLevels;
+			pyramid = null;
+		}
+	}
+
+
 	@Override
 	public int getPointCount() {
 		return xData.getLength();
@@ -585,6 +742,78 @@ public class CompressingXYDataset implements XYDataset {
 	}
 
 
+	/**
+	 * Writes the compressed data to the plot line, with the independent dimension first.
+	 * During a batch, points are written to the line's data directly and repainted together when the batch ends.
+	 */
+	private class LineOutput implements CompressionOutput {
+		/** Index of the first point added or removed during the current batch, or -1 outside of a batch. */
+		private int batchStart = -1;
+
+
+		@Override
+		public void add(double independentValue, double dependentValue) {
+			double x;
+			double y;
+			if(line.getIndependentDimension() == XYDimension.X) {
+				x = independentValue;
+				y = dependentValue;
+			} else {
+				x = dependentValue;
+				y = independentValue;
+			}
+			if(batchStart < 0) {
+				line.add(x, y);
+			} else {
+				line.getXData().add(x);
+				line.getYData().add(y);
+			}
+		}
+
+
+		@Override
+		public int getPointCount() {
+			return line.getPointCount();
+		}
+
+
+		@Override
+		public void removeLast(int count) {
+			if(batchStart < 0) {
+				line.removeLast(count);
+				return;
+			}
+			DoubleData x = line.getXData();
+			int index = x.getLength() - count;
+			if(index < batchStart) {
+				// These points were painted before the batch started.
+				line.repaintData(index, batchStart - index);
+				batchStart = index;
+			}
+			x.removeLast(count);
+			line.getYData().removeLast(count);
+		}
+
+
+		/**
+		 * Starts writing points without repainting them.
+		 */
+		void startBatch() {
+			batchStart = line.getPointCount();
+		}
+
+
+		/**
+		 * Repaints the points written since {@link #startBatch()} and returns to repainting points as they are written.
+		 */
+		void endBatch() {
+			int start = batchStart;
+			batchStart = -1;
+			line.repaintData(start, line.getPointCount() - start);
+		}
+	}
+
+
 	/**
 	 * Listens to min/max changes.
 	 * @author Adam Crume
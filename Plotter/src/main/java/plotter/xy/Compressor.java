@@ -67,5 +67,19 @@ public interface Compressor {
 		 * @return number of points at the end of the output that were modified
 		 */
 		public int add(double independentValue, double dependentValue);
+
+
+		/**
+		 * Adds data points to the end.
+		 * This produces the same output as adding the points one at a time, but only updates the work in progress area once.
+		 * Returns the number of points at the end of the output that were added or modified.
+		 * @param independentValues coordinates of the points along the independent dimension
+		 * @param ioff index within <code>independentValues</code> to start reading from
+		 * @param dependentValues coordinates of the points along the dependent dimension
+		 * @param doff index within <code>dependentValues</code> to start reading from
+		 * @param len number of points
+		 * @return number of points at the end of the output that were modified
+		 */
+		public int add(double[] independentValues, int ioff, double[] dependentValues, int doff, int len);
 	}
 }
@@ -255,13 +255,41 @@ public class DefaultCompressor implements Compressor {
 
 		@Override
 		public int add(double x, double y) {
+			out.removeLast(tmpPoints);
+			int sizeBeforeModification = out.getPointCount();
+			accumulate(x, y);
+			flushWorkInProgress();
+			return out.getPointCount() - sizeBeforeModification;
+		}
+
+
+		@Override
+		public int add(double[] independentValues, int ioff, double[] dependentValues, int doff, int len) {
+			if(len == 0) {
+				return 0;
+			}
+			out.removeLast(tmpPoints);
+			int sizeBeforeModification = out.getPointCount();
+			for(int i = 0; i < len; i++) {
+				accumulate(independentValues[ioff + i], dependentValues[doff + i]);
+			}
+			flushWorkInProgress();
+			return out.getPointCount() - sizeBeforeModification;
+		}
+
+
+		/**
+		 * Adds a point to the current bucket, first writing out the current bucket if the point is past it.
+		 * The caller must remove the work in progress area from the output beforehand.
+		 * @param x coordinate of the point along the independent dimension
+		 * @param y coordinate of the point along the dependent dimension
+		 */
+		private void accumulate(double x, double y) {
 			if(first) {
 				bucket = (long) ((x - offset) / scale);
 				nextx = (bucket + 1) * scale + offset;
 				first = false;
 			}
-			out.removeLast(tmpPoints);
-			int sizeBeforeModification = out.getPointCount();
 			if(x >= nextx) {
 				double bucketx = bucket * scale + offset;
 				flushBucket(out, bucketx, firsty, r, oldy, bucketSize);
@@ -295,11 +323,17 @@ public class DefaultCompressor implements Compressor {
 			}
 			oldy = y;
 			bucketSize++;
+		}
+
+
+		/**
+		 * Writes the current bucket to the output as the work in progress area.
+		 */
+		private void flushWorkInProgress() {
 			int sizeWithoutTempArea = out.getPointCount();
 			double bucketx = bucket * scale + offset;
-			flushBucket(out, bucketx, firsty, r, y, bucketSize);
+			flushBucket(out, bucketx, firsty, r, oldy, bucketSize);
 			tmpPoints = out.getPointCount() - sizeWithoutTempArea;
-			return out.getPointCount() - sizeBeforeModification;
 		}
 	}
 }
@@ -23,6 +23,7 @@ package plotter.xy;
 
 import java.awt.Graphics;
 import java.awt.Graphics2D;
+import java.awt.Rectangle;
 import java.awt.Stroke;
 
 import plotter.DoubleData;
@@ -61,6 +62,12 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	/** The independent dimension stores data in increasing or decreasing order.  May be null for a scatter plot or parametric plot, although this is not supported yet. */
 	private XYDimension independentDimension;
 
+	/** Scratch buffer for the X coordinates of the polylines, reused across paints. */
+	private transient int[] pointsx;
+
+	/** Scratch buffer for the Y coordinates of the polylines, reused across paints. */
+	private transient int[] pointsy;
+
 
 	/**
 	 * Creates a plot line.
@@ -92,14 +99,15 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 		}
 
 		// Skip the points that are outside our clipping area
-		// TODO: Support a stop index, not just a start index
+		Rectangle clip = g.getClipBounds();
 		int index;
+		int stop;
 		if(independentDimension == XYDimension.X) {
 			int clipx;
 			if(xstart < xend) {
-				clipx = g.getClipBounds().x;
+				clipx = clip.x;
 			} else {
-				clipx = (int) g.getClipBounds().getMaxX();
+				clipx = (int) clip.getMaxX();
 			}
 			clipx = toAxisX(clipx) - 1;
 			double min = xAxis.toLogical(clipx);
@@ -108,12 +116,14 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 				index = -index - 1;
 			}
 			index--;
+			double max = Math.max(xAxis.toLogical(toAxisX(clip.x) - 1), xAxis.toLogical(toAxisX((int) clip.getMaxX()) + 1));
+			stop = getStopIndex(xData, max);
 		} else {
 			int clipy;
 			if(ystart < yend) {
-				clipy = (int) g.getClipBounds().getMaxY();
+				clipy = (int) clip.getMaxY();
 			} else {
-				clipy = (int) g.getClipBounds().getMinY();
+				clipy = (int) clip.getMinY();
 			}
 			clipy = toAxisY(clipy) - 1;
 			double min = yAxis.toLogical(clipy);
@@ -122,21 +132,34 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 				index = -index - 1;
 			}
 			index--;
+			double max = Math.max(yAxis.toLogical(toAxisY(clip.y) - 1), yAxis.toLogical(toAxisY((int) clip.getMaxY()) + 1));
+			stop = getStopIndex(yData, max);
 		}
 
 		int i = Math.max(0, index);
 		double xscale = width / (xend - xstart);
 		double yscale = height / (yend - ystart);
-		int[] pointsx = new int[(n - i) * 2];
-		int[] pointsy = new int[pointsx.length];
+		// Step modes emit two coordinates per point, and the missing point modes one more at either end.
+		int capacity = Math.max(0, stop - i) * 2 + 2;
+		if(pointsx == null || pointsx.length < capacity) {
+			pointsx = new int[capacity];
+			pointsy = new int[capacity];
+		}
+		int[] pointsx = this.pointsx;
+		int[] pointsy = this.pointsy;
 
 		DoubleData dependentData = independentDimension == XYDimension.Y ? xData : yData;
+		// When several points fall into the same pixel column (or row, if Y is independent),
+		// only the first, lowest, highest, and last of them affect what a straight line looks like.
+		boolean reduce = lineMode == LineMode.STRAIGHT && independentDimension != null;
+		int[] independentPoints = independentDimension == XYDimension.Y ? pointsy : pointsx;
+		int[] dependentPoints = independentDimension == XYDimension.Y ? pointsx : pointsy;
 		// Loop through all the points to draw.
-		outer: while(i < n - 1) {
+		outer: while(i < stop - 1) {
 			// Find the first non-NaN point.
 			while(Double.isNaN(dependentData.get(i))) {
 				i++;
-				if(i == n) {
+				if(i == stop) {
 					break outer;
 				}
 			}
@@ -160,8 +183,11 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 			pointsy[points]=y;
 			points++;
 			i++;
+			// Index of the first coordinate in the current pixel column.
+			// This is the segment's first point, not a missing point extension before it.
+			int run = points - 1;
 			// Add points until we come to the end or a NaN point.
-			while(i < n) {
+			while(i < stop) {
 				if(Double.isNaN(dependentData.get(i))) {
 					if(missingPointMode == MissingPointMode.BOTH || missingPointMode == MissingPointMode.LEFT) {
 						if(independentDimension == XYDimension.X) {
@@ -189,6 +215,20 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 				if(lineMode == LineMode.STRAIGHT) {
 					pointsx[points]=x2;
 					pointsy[points]=y2;
+					if(reduce) {
+						if(independentPoints[points] != independentPoints[points - 1]) {
+							run = points;
+						} else if(points - run == 4) {
+							// The column already holds first, low, high, and last; fold the old last into low and high.
+							int a = dependentPoints[run + 1];
+							int b = dependentPoints[run + 2];
+							int c = dependentPoints[run + 3];
+							dependentPoints[run + 1] = Math.min(a, Math.min(b, c));
+							dependentPoints[run + 2] = Math.max(a, Math.max(b, c));
+							dependentPoints[run + 3] = dependentPoints[points];
+							points--;
+						}
+					}
 					points++;
 				} else if(lineMode == LineMode.STEP_XY) {
 					pointsx[points]=x2;
@@ -218,7 +258,7 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 		if(pointFill != null || pointOutline != null || pointIcon != null) {
 			int oldx = 0;
 			int oldy = 0;
-			for(i = Math.max(0, index); i < n; i++) {
+			for(i = Math.max(0, index); i < stop; i++) {
 				double xx = xData.get(i);
 				double yy = yData.get(i);
 				if(!Double.isNaN(xx) && !Double.isNaN(yy)) {
@@ -242,6 +282,22 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	}
 
 
+	/**
+	 * Returns the index just past the data to paint, which includes the first point beyond <code>max</code>
+	 * so that the line runs off the edge of the clip.
+	 * @param data sorted independent data
+	 * @param max largest logical value within the clip
+	 * @return the exclusive stop index
+	 */
+	private static int getStopIndex(DoubleData data, double max) {
+		int stop = data.binarySearch(max);
+		if(stop < 0) {
+			stop = -stop - 1;
+		}
+		return Math.min(data.getLength(), stop + 2);
+	}
+
+
 	private int toAxisX(int x) {
 		// Assumption: plot line is contained in an XYPlotContents, which is contained in an XYPlot.  xAxis is contained in the XYPlot.
 		return x + getParent().getX() - xAxis.getX();
@@ -449,6 +505,7 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setXData(DoubleData xData) {
 		this.xData = xData;
+		repaint();
 	}
 
 
@@ -468,6 +525,7 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setYData(DoubleData yData) {
 		this.yData = yData;
+		repaint();
 	}
 
 
@@ -504,6 +562,7 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setLineMode(LineMode lineMode) {
 		this.lineMode = lineMode;
+		repaint();
 	}
 
 
@@ -522,6 +581,7 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setStroke(Stroke stroke) {
 		this.stroke = stroke;
+		repaint();
 	}
 
 
@@ -540,6 +600,7 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setMissingPointMode(MissingPointMode missingPointMode) {
 		this.missingPointMode = missingPointMode;
+		repaint();
 	}
 
 
@@ -595,6 +656,14 @@ public class LinearXYPlotLine extends XYPlotLine implements XYDataset {
 	}
 
 
+	@Override
+	public void add(double[] x, int xoff, double[] y, int yoff, int len) {
+		xData.add(x, xoff, len);
+		yData.add(y, yoff, len);
+		repaintData(xData.getLength() - len, len);
+	}
+
+
 	@Override
 	public void removeFirst(int removeCount) {
 		repaintData(0, removeCount);
@@ -0,0 +1,255 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter.xy;
+
+import plotter.DoubleData;
+import plotter.xy.Compressor.StreamingCompressor;
+
+/**
+ * Keeps data compressed at several resolutions, so that it can be redrawn at a new scale without the original data.
+ * Level <code>k</code> holds the data compressed with a scale of <code>baseScale * 2<sup>k</sup></code>.
+ * Every level keeps the first, last, minimum, and maximum values of each of its buckets,
+ * so compressing a level at a coarser scale looks nearly the same as compressing the original data.
+ * The levels are updated incrementally as data is added.
+ * Note that in the input and output, X is assumed to be the independent dimension.
+ */
+public class MinMaxPyramid {
+	/** Performs the compression. */
+	private final Compressor compressor;
+
+	/** Compression offset shared by all levels. */
+	private final double offset;
+
+	/** Compression scale of level 0. */
+	private final double baseScale;
+
+	/** Compressed data for each level. */
+	private final PointData[] levels;
+
+	/** Streaming compressors that append to each level.  Individual elements may be null. */
+	private final StreamingCompressor[] streamingCompressors;
+
+
+	/**
+	 * Creates an empty pyramid.
+	 * @param compressor performs the compression
+	 * @param offset compression offset shared by all levels
+	 * @param baseScale compression scale of the finest level
+	 * @param levelCount number of levels
+	 */
+	public MinMaxPyramid(Compressor compressor, double offset, double baseScale, int levelCount) {
+		if(levelCount < 1) {
+			throw new IllegalArgumentException("Level count must be positive: " + levelCount);
+		}
+		if(!(baseScale > 0) || Double.isInfinite(baseScale)) {
+			throw new IllegalArgumentException("Base scale must be positive and finite: " + baseScale);
+		}
+		this.compressor = compressor;
+		this.offset = offset;
+		this.baseScale = baseScale;
+		levels = new PointData[levelCount];
+		for(int i = 0; i < levelCount; i++) {
+			levels[i] = new PointData();
+		}
+		streamingCompressors = new StreamingCompressor[levelCount];
+	}
+
+
+	/**
+	 * Adds a point to the end of every level.
+	 * @param independentValue coordinate of the point along the independent dimension
+	 * @param dependentValue coordinate of the point along the dependent dimension
+	 */
+	public void add(double independentValue, double dependentValue) {
+		for(int i = 0; i < levels.length; i++) {
+			getStreamingCompressor(i).add(independentValue, dependentValue);
+		}
+	}
+
+
+	/**
+	 * Adds points to the end of every level.
+	 * The independent values must be in increasing order and greater than or equal to all others in the pyramid.
+	 * @param independentValues coordinates of the points along the independent dimension
+	 * @param ioff index within <code>independentValues</code> to start reading from
+	 * @param dependentValues coordinates of the points along the dependent dimension
+	 * @param doff index within <code>dependentValues</code> to start reading from
+	 * @param len number of points
+	 */
+	public void add(double[] independentValues, int ioff, double[] dependentValues, int doff, int len) {
+		if(len == 0) {
+			return;
+		}
+		for(int i = 0; i < levels.length; i++) {
+			getStreamingCompressor(i).add(independentValues, ioff, dependentValues, doff, len);
+		}
+	}
+
+
+	/**
+	 * Adds points to the beginning of every level.
+	 * The independent values must be in increasing order and less than or equal to all others in the pyramid.
+	 * @param independentValues coordinates of the points along the independent dimension
+	 * @param dependentValues coordinates of the points along the dependent dimension
+	 */
+	public void prepend(DoubleData independentValues, DoubleData dependentValues) {
+		if(independentValues.getLength() == 0) {
+			return;
+		}
+		PointData input = new PointData(independentValues, dependentValues);
+		PointData output = new PointData();
+		for(int i = 0; i < levels.length; i++) {
+			output.removeAll();
+			compressor.compress(input, output, offset, getScale(i));
+			int length = output.getPointCount();
+			levels[i].getX().prepend(output.getX(), 0, length);
+			levels[i].getY().prepend(output.getY(), 0, length);
+		}
+	}
+
+
+	/**
+	 * Removes data before a point along the independent dimension.
+	 * In each level, the bucket containing the point is kept.
+	 * @param independentValue coordinate along the independent dimension of the earliest data to keep
+	 */
+	public void truncate(double independentValue) {
+		for(int i = 0; i < levels.length; i++) {
+			double scale = getScale(i);
+			double bucketStart = Math.floor((independentValue - offset) / scale) * scale + offset;
+			DoubleData x = levels[i].getX();
+			int index = x.binarySearch(bucketStart);
+			if(index < 0) {
+				index = -index - 1;
+			} else {
+				while(index > 0 && x.get(index - 1) == bucketStart) {
+					index--;
+				}
+			}
+			if(index == x.getLength()) {
+				// The work in progress area is gone, so the streaming compressor has to start over.
+				levels[i].removeAll();
+				streamingCompressors[i] = null;
+			} else if(index > 0) {
+				x.removeFirst(index);
+				levels[i].getY().removeFirst(index);
+			}
+		}
+	}
+
+
+	/**
+	 * Removes all data.
+	 */
+	public void removeAll() {
+		for(int i = 0; i < levels.length; i++) {
+			levels[i].removeAll();
+			streamingCompressors[i] = null;
+		}
+	}
+
+
+	/**
+	 * Compresses the data at the given scale, starting from the coarsest level that is at least as fine.
+	 * If the scale is finer than the base scale, the finest level is used.
+	 * @param output receives the compressed data
+	 * @param offset logical coordinate of the first pixel
+	 * @param scale width of a pixel, in logical units
+	 */
+	public void compress(PointData output, double offset, double scale) {
+		compressor.compress(levels[getLevelForScale(scale)], output, offset, scale);
+	}
+
+
+	/**
+	 * Returns the coarsest level whose scale is less than or equal to the given scale, or 0 if there is none.
+	 * @param scale compression scale
+	 * @return level index
+	 */
+	public int getLevelForScale(double scale) {
+		int level = 0;
+		// Allow for rounding error in scales computed from axis spans
+		while(level + 1 < levels.length && getScale(level + 1) <= scale * (1 + 1e-9)) {
+			level++;
+		}
+		return level;
+	}
+
+
+	/**
+	 * Returns the compression scale of a level.
+	 * @param level level index
+	 * @return the compression scale of the level
+	 */
+	public double getScale(int level) {
+		return Math.scalb(baseScale, level);
+	}
+
+
+	/**
+	 * Returns the data of a level.
+	 * The data must not be modified.
+	 * @param level level index
+	 * @return the data of the level
+	 */
+	public PointData getLevel(int level) {
+		return levels[level];
+	}
+
+
+	/**
+	 * Returns the number of levels.
+	 * @return the number of levels
+	 */
+	public int getLevelCount() {
+		return levels.length;
+	}
+
+
+	/**
+	 * Returns the compression offset shared by all levels.
+	 * @return the compression offset
+	 */
+	public double getOffset() {
+		return offset;
+	}
+
+
+	/**
+	 * Returns the compression scale of the finest level.
+	 * Redrawing the data at a finer scale than this cannot restore detail that was compressed away.
+	 * @return the compression scale of level 0
+	 */
+	public double getBaseScale() {
+		return baseScale;
+	}
+
+
+	private StreamingCompressor getStreamingCompressor(int level) {
+		StreamingCompressor c = streamingCompressors[level];
+		if(c == null) {
+			c = compressor.createStreamingCompressor(levels[level], offset, getScale(level));
+			streamingCompressors[level] = c;
+		}
+		return c;
+	}
+}
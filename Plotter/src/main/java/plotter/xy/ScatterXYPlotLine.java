@@ -448,6 +448,7 @@ public class ScatterXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setXData(DoubleData xData) {
 		this.xData = xData;
+		repaint();
 	}
 
 
@@ -467,6 +468,7 @@ public class ScatterXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setYData(DoubleData yData) {
 		this.yData = yData;
+		repaint();
 	}
 
 
@@ -503,6 +505,7 @@ public class ScatterXYPlotLine extends XYPlotLine implements XYDataset {
 	 */
 	public void setStroke(Stroke stroke) {
 		this.stroke = stroke;
+		repaint();
 	}
 
 
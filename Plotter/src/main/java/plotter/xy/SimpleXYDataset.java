@@ -108,6 +108,37 @@ public class SimpleXYDataset implements XYDataset {
 	}
 
 
+	/**
+	 * Adds points, truncating the buffer if necessary.
+	 * Listeners are notified once for all the points.
+	 * The X values must be in increasing order and greater than or equal to all other X values in the dataset.
+	 * @param x the X coordinates of the points
+	 * @param xoff offset within the x array to copy data from
+	 * @param y the Y coordinates of the points
+	 * @param yoff offset within the y array to copy data from
+	 * @param len number of points
+	 */
+	public void add(double[] x, int xoff, double[] y, int yoff, int len) {
+		preMod();
+
+		if(len > maxCapacity) {
+			xoff += len - maxCapacity;
+			yoff += len - maxCapacity;
+			len = maxCapacity;
+		}
+		int length = xData.getLength() + len; // length after add
+		if(length > maxCapacity) {
+			_removeFirst(length - maxCapacity);
+		}
+		line.add(x, xoff, y, yoff, len);
+		for(int i = 0; i < len; i++) {
+			updateMinMax(x[xoff + i], y[yoff + i]);
+		}
+
+		postMod();
+	}
+
+
 	/**
 	 * Called after a modification.
 	 * Notifies any relevant listeners of changes.
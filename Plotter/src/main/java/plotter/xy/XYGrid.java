@@ -23,6 +23,7 @@ package plotter.xy;
 
 import java.awt.BasicStroke;
 import java.awt.Color;
+import java.awt.Container;
 import java.awt.Graphics;
 import java.awt.Graphics2D;
 import java.awt.Rectangle;
@@ -122,6 +123,19 @@ public class XYGrid extends JComponent implements TicksChangedListener {
 	}
 
 
+	/**
+	 * Also tells a buffered {@link XYPlotContents} to render the area again.
+	 */
+	@Override
+	public void repaint(long tm, int x, int y, int width, int height) {
+		Container parent = getParent();
+		if(parent instanceof XYPlotContents) {
+			((XYPlotContents) parent).childRepainted(this, x, y, width, height);
+		}
+		super.repaint(tm, x, y, width, height);
+	}
+
+
 	/**
 	 * Returns the stroke used to draw the lines.
 	 * @return the stroke used to draw the lines
@@ -147,5 +161,6 @@ public class XYGrid extends JComponent implements TicksChangedListener {
 		} else {
 			this.strokeLength = 0;
 		}
+		repaint();
 	}
 }
@@ -21,21 +21,72 @@
  *******************************************************************************/
 package plotter.xy;
 
+import java.awt.AlphaComposite;
+import java.awt.Color;
 import java.awt.Component;
 import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.GraphicsConfiguration;
 import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.Transparency;
 import java.awt.geom.Point2D;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 import javax.swing.JComponent;
 import javax.swing.SwingUtilities;
 
 /**
  * Contains the grid and plot lines.
+ * <p>
+ * If buffered, the background and grids are rendered into one cached image and the plot lines into another,
+ * and painting mostly copies the images to the screen.
+ * Only the areas that the grids and lines repaint are rendered again.
+ * When the plot's axes scroll without changing their spans, the cached lines are shifted
+ * and only the newly exposed area is rendered, so the cached lines may be up to half a pixel
+ * from where a full render would put them.
+ * Other children, such as markers, are painted on top of the cached images every time.
+ * Plot lines are assumed to use the plot's axes; if they use other axes, call {@link #invalidateBuffers()}
+ * when those change.
  * @author Adam Crume
  */
 public class XYPlotContents extends JComponent {
 	private static final long serialVersionUID = 1L;
 
+	/** Cached images are not used for the grid and plot lines. */
+	private static final int LIVE = 0;
+
+	/** The component is cached in the chrome buffer. */
+	private static final int CHROME = 1;
+
+	/** The component is cached in the data buffer. */
+	private static final int DATA = 2;
+
+	/** True if the grid and plot lines are rendered through cached images. */
+	private boolean buffered;
+
+	/** Cached background and grids. */
+	private transient BufferedImage chromeBuffer;
+
+	/** Cached plot lines, transparent elsewhere. */
+	private transient BufferedImage dataBuffer;
+
+	/** Area of the chrome buffer that needs to be rendered, or null. */
+	private transient Rectangle chromeDirty;
+
+	/** Area of the data buffer that needs to be rendered, or null. */
+	private transient Rectangle dataDirty;
+
+	/** Background and cached children (with their visibility) that the buffers were rendered with. */
+	private transient Object[] bufferState;
+
+	/** Start and end of the X and Y axes that the data buffer was rendered with, or null. */
+	private transient double[] bufferBounds;
+
+
 	@Override
 	public void doLayout() {
 		int width = getWidth();
@@ -64,9 +115,307 @@ public class XYPlotContents extends JComponent {
 	}
 
 
+	/**
+	 * Returns true if the grid and plot lines are rendered through cached images.
+	 * @return true if the grid and plot lines are buffered
+	 */
+	public boolean isBuffered() {
+		return buffered;
+	}
+
+
+	/**
+	 * Sets whether the grid and plot lines are rendered through cached images.
+	 * @param buffered true to buffer the grid and plot lines
+	 */
+	public void setBuffered(boolean buffered) {
+		if(buffered != this.buffered) {
+			this.buffered = buffered;
+			chromeBuffer = null;
+			dataBuffer = null;
+			repaint();
+		}
+	}
+
+
+	/**
+	 * Causes the cached images to be fully rendered on the next paint.
+	 * Changes that the grid and plot lines do not repaint themselves for, such as a change to a shared point icon, require this.
+	 */
+	public synchronized void invalidateBuffers() {
+		chromeDirty = new Rectangle(0, 0, getWidth(), getHeight());
+		dataDirty = new Rectangle(chromeDirty);
+		repaint();
+	}
+
+
+	/**
+	 * Notes that a child needs to be rendered again.
+	 * Called by children that may be cached when they are repainted.
+	 * @param c the child
+	 * @param x X coordinate of the area
+	 * @param y Y coordinate of the area
+	 * @param width width of the area
+	 * @param height height of the area
+	 */
+	synchronized void childRepainted(Component c, int x, int y, int width, int height) {
+		if(!buffered) {
+			return;
+		}
+		Rectangle r = new Rectangle(x + c.getX(), y + c.getY(), width, height);
+		int layer = getLayer(c);
+		if(layer == CHROME) {
+			chromeDirty = union(chromeDirty, r);
+		} else if(layer == DATA) {
+			dataDirty = union(dataDirty, r);
+		}
+	}
+
+
 	@Override
 	protected void paintComponent(Graphics g) {
+		if(buffered) {
+			paintBuffers(g);
+			return;
+		}
 		g.setColor(getBackground());
 		g.fillRect(0, 0, getWidth(), getHeight());
 	}
+
+
+	@Override
+	protected void paintChildren(Graphics g) {
+		if(!buffered) {
+			super.paintChildren(g);
+			return;
+		}
+		// Children are painted from the last to the first, so the first is on top.
+		for(int i = getComponentCount() - 1; i >= 0; i--) {
+			Component c = getComponent(i);
+			if(c.isVisible() && getLayer(c) == LIVE) {
+				Graphics cg = g.create(c.getX(), c.getY(), c.getWidth(), c.getHeight());
+				try {
+					c.paint(cg);
+				} finally {
+					cg.dispose();
+				}
+			}
+		}
+	}
+
+
+	/**
+	 * Brings the cached images up to date and copies them to the screen.
+	 * @param g graphics to paint on
+	 */
+	private void paintBuffers(Graphics g) {
+		int width = getWidth();
+		int height = getHeight();
+		if(width <= 0 || height <= 0) {
+			return;
+		}
+		Rectangle chromeArea;
+		Rectangle dataArea;
+		synchronized(this) {
+			if(chromeBuffer == null || chromeBuffer.getWidth() != width || chromeBuffer.getHeight() != height) {
+				chromeBuffer = createBuffer(width, height, Transparency.OPAQUE);
+				dataBuffer = createBuffer(width, height, Transparency.TRANSLUCENT);
+				bufferState = null;
+			}
+			Object[] state = getBufferState();
+			double[] bounds = getBufferBounds();
+			Rectangle all = new Rectangle(0, 0, width, height);
+			if(!Arrays.equals(state, bufferState)) {
+				chromeDirty = all;
+				dataDirty = new Rectangle(all);
+			} else if(bounds == null || !Arrays.equals(bounds, bufferBounds)) {
+				bounds = shiftData(bounds);
+			}
+			bufferState = state;
+			bufferBounds = bounds;
+			chromeArea = chromeDirty == null ? null : chromeDirty.intersection(all);
+			dataArea = dataDirty == null ? null : dataDirty.intersection(all);
+			chromeDirty = null;
+			dataDirty = null;
+		}
+		if(chromeArea != null && !chromeArea.isEmpty()) {
+			render(chromeBuffer, chromeArea, CHROME, g);
+		}
+		if(dataArea != null && !dataArea.isEmpty()) {
+			render(dataBuffer, dataArea, DATA, g);
+		}
+		g.drawImage(chromeBuffer, 0, 0, null);
+		g.drawImage(dataBuffer, 0, 0, null);
+	}
+
+
+	/**
+	 * Moves the cached plot lines to match the axes, if the axes have only scrolled.
+	 * Otherwise, marks the data buffer as needing to be fully rendered.
+	 * @param bounds current start and end of the X and Y axes
+	 * @return the bounds the data buffer corresponds to after shifting
+	 */
+	private double[] shiftData(double[] bounds) {
+		int width = dataBuffer.getWidth();
+		int height = dataBuffer.getHeight();
+		Rectangle all = new Rectangle(0, 0, width, height);
+		if(bounds == null || bufferBounds == null || !sameSpan(bounds[0], bounds[1], bufferBounds[0], bufferBounds[1])
+				|| !sameSpan(bounds[2], bounds[3], bufferBounds[2], bufferBounds[3])) {
+			dataDirty = all;
+			return bounds;
+		}
+		double xspan = bufferBounds[1] - bufferBounds[0];
+		double yspan = bufferBounds[3] - bufferBounds[2];
+		// Data moves left as the X axis start increases, and down as the Y axis start increases.
+		int dx = -(int) Math.round((bounds[0] - bufferBounds[0]) / xspan * width);
+		int dy = (int) Math.round((bounds[2] - bufferBounds[2]) / yspan * height);
+		if(Math.abs(dx) >= width || Math.abs(dy) >= height) {
+			dataDirty = all;
+			return bounds;
+		}
+		if(dx != 0 || dy != 0) {
+			Graphics2D g = dataBuffer.createGraphics();
+			try {
+				g.setComposite(AlphaComposite.Src);
+				g.copyArea(0, 0, width, height, dx, dy);
+			} finally {
+				g.dispose();
+			}
+			if(dataDirty != null) {
+				// The area may have been measured before or after the axes moved.
+				Rectangle moved = new Rectangle(dataDirty);
+				moved.translate(dx, dy);
+				dataDirty.add(moved);
+			}
+			if(dx > 0) {
+				dataDirty = union(dataDirty, new Rectangle(0, 0, dx, height));
+			} else if(dx < 0) {
+				dataDirty = union(dataDirty, new Rectangle(width + dx, 0, -dx, height));
+			}
+			if(dy > 0) {
+				dataDirty = union(dataDirty, new Rectangle(0, 0, width, dy));
+			} else if(dy < 0) {
+				dataDirty = union(dataDirty, new Rectangle(0, height + dy, width, -dy));
+			}
+		}
+		// Keep the bounds the buffer actually shows, so rounding errors do not accumulate.
+		double[] shifted = bufferBounds.clone();
+		shifted[0] -= dx * xspan / width;
+		shifted[1] -= dx * xspan / width;
+		shifted[2] += dy * yspan / height;
+		shifted[3] += dy * yspan / height;
+		return shifted;
+	}
+
+
+	/**
+	 * Renders the children of a layer into part of a buffer.
+	 * @param buffer buffer to render into
+	 * @param area area to render
+	 * @param layer layer to render
+	 * @param screen graphics being painted on, used for its rendering hints
+	 */
+	private void render(BufferedImage buffer, Rectangle area, int layer, Graphics screen) {
+		Graphics2D g = buffer.createGraphics();
+		try {
+			if(screen instanceof Graphics2D) {
+				g.setRenderingHints(((Graphics2D) screen).getRenderingHints());
+			}
+			g.setClip(area);
+			if(layer == CHROME) {
+				g.setColor(getBackground());
+				g.fillRect(area.x, area.y, area.width, area.height);
+			} else {
+				g.setComposite(AlphaComposite.Clear);
+				g.fillRect(area.x, area.y, area.width, area.height);
+				g.setComposite(AlphaComposite.SrcOver);
+			}
+			for(int i = getComponentCount() - 1; i >= 0; i--) {
+				Component c = getComponent(i);
+				if(c.isVisible() && getLayer(c) == layer) {
+					Graphics cg = g.create(c.getX(), c.getY(), c.getWidth(), c.getHeight());
+					try {
+						c.paint(cg);
+					} finally {
+						cg.dispose();
+					}
+				}
+			}
+		} finally {
+			g.dispose();
+		}
+	}
+
+
+	/**
+	 * Returns the background and the cached children with their visibility.
+	 * @return the state the buffers depend on, other than the axes
+	 */
+	private Object[] getBufferState() {
+		List<Object> state = new ArrayList<Object>();
+		Color background = getBackground();
+		state.add(background);
+		for(Component c : getComponents()) {
+			if(getLayer(c) != LIVE) {
+				state.add(c);
+				state.add(Boolean.valueOf(c.isVisible()));
+			}
+		}
+		return state.toArray();
+	}
+
+
+	/**
+	 * Returns the start and end of the plot's X and Y axes.
+	 * @return the axis bounds, or null if they are not known
+	 */
+	private double[] getBufferBounds() {
+		if(!(getParent() instanceof XYPlot)) {
+			return null;
+		}
+		XYPlot plot = (XYPlot) getParent();
+		XYAxis xAxis = plot.getXAxis();
+		XYAxis yAxis = plot.getYAxis();
+		if(xAxis == null || yAxis == null) {
+			return null;
+		}
+		return new double[] { xAxis.getStart(), xAxis.getEnd(), yAxis.getStart(), yAxis.getEnd() };
+	}
+
+
+	private BufferedImage createBuffer(int width, int height, int transparency) {
+		GraphicsConfiguration gc = getGraphicsConfiguration();
+		if(gc != null) {
+			return gc.createCompatibleImage(width, height, transparency);
+		}
+		return new BufferedImage(width, height, transparency == Transparency.OPAQUE ? BufferedImage.TYPE_INT_RGB
+				: BufferedImage.TYPE_INT_ARGB);
+	}
+
+
+	private static int getLayer(Component c) {
+		if(c instanceof XYGrid) {
+			return CHROME;
+		} else if(c instanceof XYPlotLine) {
+			return DATA;
+		} else {
+			return LIVE;
+		}
+	}
+
+
+	private static boolean sameSpan(double start, double end, double oldStart, double oldEnd) {
+		double span = end - start;
+		double oldSpan = oldEnd - oldStart;
+		return span != 0 && Math.abs(span - oldSpan) <= Math.abs(oldSpan) * 1e-9;
+	}
+
+
+	private static Rectangle union(Rectangle r, Rectangle r2) {
+		if(r == null) {
+			return r2;
+		}
+		r.add(r2);
+		return r;
+	}
 }
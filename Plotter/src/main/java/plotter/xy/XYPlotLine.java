@@ -21,6 +21,7 @@
  *******************************************************************************/
 package plotter.xy;
 
+import java.awt.Container;
 import java.awt.Shape;
 
 import javax.swing.Icon;
@@ -68,6 +69,22 @@ public abstract class XYPlotLine extends JComponent {
 	public abstract void add(double x, double y);
 
 
+	/**
+	 * Adds data points.
+	 * This implementation adds them one at a time; subclasses may add them in a single operation.
+	 * @param x X data to add
+	 * @param xoff index within <code>x</code> to start copying from
+	 * @param y Y data to add
+	 * @param yoff index within <code>y</code> to start copying from
+	 * @param len number of points to add
+	 */
+	public void add(double[] x, int xoff, double[] y, int yoff, int len) {
+		for(int i = 0; i < len; i++) {
+			add(x[xoff + i], y[yoff + i]);
+		}
+	}
+
+
 	/**
 	 * Repaints a data point and adjoining line segments.
 	 * @param index index of the data point
@@ -144,6 +161,7 @@ public abstract class XYPlotLine extends JComponent {
 	 */
 	public void setPointOutline(Shape pointOutline) {
 		this.pointOutline = pointOutline;
+		repaint();
 	}
 
 
@@ -162,6 +180,7 @@ public abstract class XYPlotLine extends JComponent {
 	 */
 	public void setPointFill(Shape pointFill) {
 		this.pointFill = pointFill;
+		repaint();
 	}
 
 
@@ -178,5 +197,19 @@ public abstract class XYPlotLine extends JComponent {
 	 */
 	public void setPointIcon(Icon pointIcon) {
 		this.pointIcon = pointIcon;
+		repaint();
+	}
+
+
+	/**
+	 * Also tells a buffered {@link XYPlotContents} to render the area again.
+	 */
+	@Override
+	public void repaint(long tm, int x, int y, int width, int height) {
+		Container parent = getParent();
+		if(parent instanceof XYPlotContents) {
+			((XYPlotContents) parent).childRepainted(this, x, y, width, height);
+		}
+		super.repaint(tm, x, y, width, height);
 	}
 }
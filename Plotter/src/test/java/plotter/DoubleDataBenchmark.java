@@ -0,0 +1,226 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter;
+
+import java.util.Random;
+
+/**
+ * Compares the {@link DoubleData} implementations on the operations plots use most.
+ * Not a unit test; run it by hand with a warm JVM, e.g.
+ * <code>java -cp target/classes:target/test-classes plotter.DoubleDataBenchmark [points]</code>.
+ * Each operation is run for a number of warmup iterations and then timed over a number of measurement iterations,
+ * and the average time per operation is printed.
+ */
+public class DoubleDataBenchmark {
+	private static final int WARMUP_ITERATIONS = 5;
+
+	private static final int MEASUREMENT_ITERATIONS = 10;
+
+	/** Prevents the JIT from discarding results. */
+	private static double sink;
+
+
+	public static void main(String[] args) {
+		int points = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+		Factory[] factories = new Factory[] { new Factory("DoubleDataDouble") {
+			@Override
+			DoubleData create() {
+				return new DoubleDataDouble();
+			}
+		}, new Factory("DoubleDataChunked") {
+			@Override
+			DoubleData create() {
+				return new DoubleDataChunked();
+			}
+		} };
+		Operation[] operations = new Operation[] { new Append(), new Prepend(), new InsertMiddle(), new RemoveFirst(),
+				new BinarySearch(), new MinMax() };
+		for(Operation operation : operations) {
+			for(Factory factory : factories) {
+				run(operation, factory, points);
+			}
+		}
+		if(sink == 42) {
+			System.out.println();
+		}
+	}
+
+
+	private static void run(Operation operation, Factory factory, int points) {
+		for(int i = 0; i < WARMUP_ITERATIONS; i++) {
+			operation.run(factory.create(), points);
+		}
+		long total = 0;
+		long ops = 0;
+		for(int i = 0; i < MEASUREMENT_ITERATIONS; i++) {
+			DoubleData data = factory.create();
+			operation.setUp(data, points);
+			long start = System.nanoTime();
+			ops += operation.run(data, points);
+			total += System.nanoTime() - start;
+		}
+		System.out.printf("%-14s %-18s %12.1f ns/op%n", operation.getClass().getSimpleName(), factory.name,
+				total / (double) ops);
+	}
+
+
+	private static void fill(DoubleData data, int points) {
+		for(int i = 0; i < points; i++) {
+			data.add(i);
+		}
+	}
+
+
+	private static abstract class Factory {
+		final String name;
+
+
+		Factory(String name) {
+			this.name = name;
+		}
+
+
+		abstract DoubleData create();
+	}
+
+
+	private static abstract class Operation {
+		/**
+		 * Prepares the data before the timed portion.
+		 * @param data data to prepare
+		 * @param points benchmark size
+		 */
+		void setUp(DoubleData data, int points) {
+		}
+
+
+		/**
+		 * Runs the operation.
+		 * The data has not been set up during warmup, so implementations must cope with either state.
+		 * @param data data to operate on
+		 * @param points benchmark size
+		 * @return number of operations performed
+		 */
+		abstract int run(DoubleData data, int points);
+	}
+
+
+	private static class Append extends Operation {
+		@Override
+		int run(DoubleData data, int points) {
+			fill(data, points);
+			return points;
+		}
+	}
+
+
+	private static class Prepend extends Operation {
+		@Override
+		int run(DoubleData data, int points) {
+			double[] d = new double[1];
+			for(int i = 0; i < points; i++) {
+				d[0] = -i;
+				data.prepend(d, 0, 1);
+			}
+			return points;
+		}
+	}
+
+
+	private static class InsertMiddle extends Operation {
+		@Override
+		int run(DoubleData data, int points) {
+			int count = Math.max(1, points / 10);
+			for(int i = 0; i < count; i++) {
+				data.insert(data.getLength() / 2, i);
+			}
+			return count;
+		}
+	}
+
+
+	private static class RemoveFirst extends Operation {
+		@Override
+		void setUp(DoubleData data, int points) {
+			fill(data, points);
+		}
+
+
+		@Override
+		int run(DoubleData data, int points) {
+			// Sliding window: append one point and drop the oldest, as a scrolling plot does.
+			if(data.getLength() == 0) {
+				fill(data, points);
+			}
+			for(int i = 0; i < points; i++) {
+				data.add(points + i);
+				data.removeFirst(1);
+			}
+			return points;
+		}
+	}
+
+
+	private static class BinarySearch extends Operation {
+		@Override
+		void setUp(DoubleData data, int points) {
+			fill(data, points);
+		}
+
+
+		@Override
+		int run(DoubleData data, int points) {
+			if(data.getLength() == 0) {
+				fill(data, points);
+			}
+			Random random = new Random(0);
+			int count = points;
+			for(int i = 0; i < count; i++) {
+				sink += data.binarySearch(random.nextDouble() * points);
+			}
+			return count;
+		}
+	}
+
+
+	private static class MinMax extends Operation {
+		@Override
+		void setUp(DoubleData data, int points) {
+			fill(data, points);
+		}
+
+
+		@Override
+		int run(DoubleData data, int points) {
+			if(data.getLength() == 0) {
+				fill(data, points);
+			}
+			int count = 1000;
+			int length = data.getLength();
+			for(int i = 0; i < count; i++) {
+				int start = i % (length / 2);
+				sink += data.getMin(start, length) + data.getMax(start, length);
+			}
+			return count;
+		}
+	}
+}
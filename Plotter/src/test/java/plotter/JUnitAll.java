@@ -29,6 +29,7 @@ public class JUnitAll extends TestSuite {
 	public static TestSuite suite() {
 		TestSuite suite = new TestSuite("Plotter");
 		suite.addTestSuite(JUnitDateNumberFormat.class);
+		suite.addTestSuite(JUnitDoubleDataChunked.class);
 		suite.addTestSuite(JUnitDoubleDataDouble.class);
 		suite.addTestSuite(JUnitDoubleDataFloat.class);
 		suite.addTestSuite(JUnitExpFormat.class);
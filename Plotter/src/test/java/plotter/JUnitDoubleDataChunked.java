@@ -0,0 +1,377 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+
+public class JUnitDoubleDataChunked extends TestCase {
+	public void testAdd() {
+		DoubleData data = new DoubleDataChunked(4);
+		for(int i = 0; i < 10; i++) {
+			data.add(i);
+			assertEquals(i + 1, data.getLength());
+		}
+		assertRange(data, 0, 10, 0);
+		assertEquals(12, data.getCapacity());
+	}
+
+
+	public void testAddMultiple() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(0);
+		data.add(sequence(1, 10), 0, 10);
+		assertEquals(11, data.getLength());
+		assertRange(data, 0, 11, 0);
+	}
+
+
+	public void testAddOutOfRange() {
+		DoubleData data = new DoubleDataChunked(4);
+		double[] d = new double[10];
+		try {
+			data.add(d, 5, 6);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+		try {
+			data.add(d, -1, 1);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+		assertEquals(0, data.getLength());
+	}
+
+
+	public void testAddDoubleData() {
+		DoubleData data = new DoubleDataChunked(4);
+		DoubleDataDouble data2 = new DoubleDataDouble();
+		data2.add(sequence(0, 10), 0, 10);
+		data.add(data2, 2, 5);
+		assertEquals(5, data.getLength());
+		assertRange(data, 0, 5, 2);
+	}
+
+
+	public void testPrepend() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(10);
+		data.prepend(sequence(3, 7), 0, 7);
+		data.prepend(sequence(0, 3), 0, 3);
+		assertEquals(11, data.getLength());
+		assertRange(data, 0, 11, 0);
+	}
+
+
+	public void testInsert() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(sequence(0, 8), 0, 8);
+		data.insert(2, 1.5);
+		data.insert(0, -1);
+		data.insert(10, 10);
+		assertEquals(11, data.getLength());
+		assertEquals(-1.0, data.get(0));
+		assertEquals(1.0, data.get(2));
+		assertEquals(1.5, data.get(3));
+		assertEquals(2.0, data.get(4));
+		assertEquals(7.0, data.get(9));
+		assertEquals(10.0, data.get(10));
+	}
+
+
+	public void testInsertDoubleData() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(sequence(0, 3), 0, 3);
+		data.add(sequence(10, 3), 0, 3);
+		DoubleData data2 = new DoubleDataDouble();
+		data2.add(sequence(3, 7), 0, 7);
+		data.insert(3, data2, 0, 7);
+		assertEquals(13, data.getLength());
+		assertRange(data, 0, 13, 0);
+
+		data.insert(1, data2, 0, 1);
+		assertEquals(14, data.getLength());
+		assertEquals(3.0, data.get(1));
+		assertEquals(1.0, data.get(2));
+	}
+
+
+	public void testInsertOutOfRange() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(0);
+		try {
+			data.insert(2, 1);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+		try {
+			data.insert(-1, 1);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+	}
+
+
+	public void testRemoveFirst() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(sequence(0, 10), 0, 10);
+		data.removeFirst(1);
+		assertEquals(9, data.getLength());
+		assertRange(data, 0, 9, 1);
+		data.removeFirst(5);
+		assertEquals(4, data.getLength());
+		assertRange(data, 0, 4, 6);
+
+		try {
+			data.removeFirst(5);
+			fail("Should have thrown an exception");
+		} catch(IllegalArgumentException e) {
+			// should happen
+		}
+		assertEquals(4, data.getLength());
+
+		data.removeFirst(4);
+		assertEquals(0, data.getLength());
+		data.add(1);
+		assertEquals(1.0, data.get(0));
+	}
+
+
+	public void testRemoveLast() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(sequence(0, 10), 0, 10);
+		data.removeLast(1);
+		assertEquals(9, data.getLength());
+		data.removeLast(5);
+		assertEquals(4, data.getLength());
+		assertRange(data, 0, 4, 0);
+		data.add(4);
+		assertRange(data, 0, 5, 0);
+
+		try {
+			data.removeLast(-1);
+			fail("Should have thrown an exception");
+		} catch(IllegalArgumentException e) {
+			// should happen
+		}
+		data.removeLast(5);
+		assertEquals(0, data.getLength());
+	}
+
+
+	public void testCopyFrom() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(new double[10], 0, 10);
+		data.copyFrom(sequence(3, 5), 0, 3, 5);
+		assertRange(data, 3, 5, 3);
+		assertEquals(0.0, data.get(2));
+		assertEquals(0.0, data.get(8));
+
+		data.copyFrom(data, 3, 0, 5);
+		assertRange(data, 0, 5, 3);
+	}
+
+
+	public void testGetOutOfRange() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(0);
+		try {
+			data.get(1);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+		try {
+			data.set(-1, 0);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+	}
+
+
+	public void testMinMax() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(new double[] { 5, Double.NaN, 3, 8, 1, 9, Double.NaN, 2, 7, 4 }, 0, 10);
+		assertEquals(1.0, data.getMin(0, 10));
+		assertEquals(9.0, data.getMax(0, 10));
+		assertEquals(3.0, data.getMin(1, 4));
+		assertEquals(8.0, data.getMax(1, 4));
+		assertEquals(2.0, data.getMin(6, 10));
+		assertEquals(Double.POSITIVE_INFINITY, data.getMin(1, 2));
+		assertEquals(Double.NEGATIVE_INFINITY, data.getMax(3, 3));
+
+		// Cached summaries must follow changes.
+		data.set(4, 10);
+		assertEquals(2.0, data.getMin(0, 10));
+		assertEquals(10.0, data.getMax(0, 10));
+		data.add(-1);
+		data.insert(0, 11);
+		assertEquals(-1.0, data.getMin(0, 12));
+		assertEquals(11.0, data.getMax(0, 12));
+		data.removeFirst(1);
+		data.removeLast(1);
+		assertEquals(2.0, data.getMin(0, 10));
+		assertEquals(10.0, data.getMax(0, 10));
+
+		try {
+			data.getMin(5, 11);
+			fail("Should have thrown an IndexOutOfBoundsException");
+		} catch(IndexOutOfBoundsException e) {
+		}
+	}
+
+
+	public void testBinarySearch() {
+		DoubleData data = new DoubleDataChunked(4);
+		assertEquals(-1, data.binarySearch(0));
+		for(int i = 0; i < 10; i++) {
+			data.add(i * 2);
+		}
+		for(int i = 0; i < 10; i++) {
+			assertEquals(i, data.binarySearch(i * 2));
+			assertEquals(-i - 2, data.binarySearch(i * 2 + 1));
+			assertEquals(i, data.dictionarySearch(i * 2));
+			assertEquals(-i - 2, data.dictionarySearch(i * 2 + 1));
+		}
+		assertEquals(-1, data.binarySearch(-1));
+		data.removeFirst(3);
+		assertEquals(0, data.binarySearch(6));
+		assertEquals(-1, data.binarySearch(5));
+		assertEquals(-8, data.binarySearch(20));
+	}
+
+
+	public void testClone() {
+		DoubleData data = new DoubleDataChunked(4);
+		data.add(sequence(0, 10), 0, 10);
+		DoubleData data2 = data.clone();
+		data.set(0, 5);
+		data.add(10);
+		assertEquals(10, data2.getLength());
+		assertRange(data2, 0, 10, 0);
+	}
+
+
+	public void testCompareToDoubleDataDouble() {
+		Random random = new Random(0);
+		for(int chunkSize = 2; chunkSize <= 16; chunkSize *= 2) {
+			DoubleData expected = new DoubleDataDouble();
+			DoubleData actual = new DoubleDataChunked(chunkSize);
+			for(int step = 0; step < 2000; step++) {
+				int length = expected.getLength();
+				int len = random.nextInt(20);
+				double[] values = new double[len];
+				for(int i = 0; i < len; i++) {
+					values[i] = random.nextInt(1000);
+				}
+				DoubleData d = new DoubleDataDouble();
+				d.add(values, 0, len);
+				switch(random.nextInt(8)) {
+				case 0:
+					double value = random.nextInt(1000);
+					expected.add(value);
+					actual.add(value);
+					break;
+				case 1:
+					expected.add(values, 0, len);
+					actual.add(values, 0, len);
+					break;
+				case 2:
+					expected.prepend(values, 0, len);
+					actual.prepend(d, 0, len);
+					break;
+				case 3:
+					int index = random.nextInt(length + 1);
+					expected.insert(index, len);
+					actual.insert(index, len);
+					break;
+				case 4:
+					index = random.nextInt(length + 1);
+					expected.insert(index, d, 0, len);
+					actual.insert(index, d, 0, len);
+					break;
+				case 5:
+					int count = random.nextInt(Math.min(length, 30) + 1);
+					expected.removeFirst(count);
+					actual.removeFirst(count);
+					break;
+				case 6:
+					count = random.nextInt(Math.min(length, 30) + 1);
+					expected.removeLast(count);
+					actual.removeLast(count);
+					break;
+				default:
+					if(length > len) {
+						index = random.nextInt(length - len + 1);
+						expected.copyFrom(values, 0, index, len);
+						actual.copyFrom(values, 0, index, len);
+					}
+				}
+				length = expected.getLength();
+				assertEquals(length, actual.getLength());
+				for(int i = 0; i < length; i++) {
+					assertEquals(expected.get(i), actual.get(i));
+				}
+				if(length > 0) {
+					int start = random.nextInt(length);
+					int end = start + random.nextInt(length - start + 1);
+					assertEquals(expected.getMin(start, end), actual.getMin(start, end));
+					assertEquals(expected.getMax(start, end), actual.getMax(start, end));
+				}
+			}
+		}
+	}
+
+
+	public void testCompareSearchToDoubleDataDouble() {
+		Random random = new Random(0);
+		DoubleData expected = new DoubleDataDouble();
+		DoubleData actual = new DoubleDataChunked(8);
+		double x = 0;
+		for(int i = 0; i < 500; i++) {
+			x += 1 + random.nextInt(3);
+			expected.add(x);
+			actual.add(x);
+		}
+		expected.removeFirst(13);
+		actual.removeFirst(13);
+		for(double d = -1; d < x + 2; d += .5) {
+			assertEquals(expected.binarySearch(d), actual.binarySearch(d));
+		}
+	}
+
+
+	private static double[] sequence(double start, int count) {
+		double[] d = new double[count];
+		for(int i = 0; i < count; i++) {
+			d[i] = start + i;
+		}
+		return d;
+	}
+
+
+	private static void assertRange(DoubleData data, int off, int len, double start) {
+		for(int i = 0; i < len; i++) {
+			assertEquals(start + i, data.get(off + i));
+		}
+	}
+}
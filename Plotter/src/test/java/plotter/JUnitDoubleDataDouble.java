@@ -157,6 +157,27 @@ public class JUnitDoubleDataDouble extends TestCase {
 	}
 
 
+	public void testAddDoubleDataOtherType() {
+		DoubleDataDouble data = new DoubleDataDouble(4);
+		data.add(0);
+		DoubleDataFloat data2 = new DoubleDataFloat();
+		data2.add(new double[] { 2, 3, 4 }, 0, 3);
+		data.add(data2, 1, 2);
+		data.prepend(data2, 0, 1);
+		data.insert(1, data2, 2, 1);
+		assertEquals(5, data.getLength());
+		assertEquals(2.0, data.get(0));
+		assertEquals(4.0, data.get(1));
+		assertEquals(0.0, data.get(2));
+		assertEquals(3.0, data.get(3));
+		assertEquals(4.0, data.get(4));
+		data.copyFrom(data2, 0, 0, 3);
+		assertEquals(2.0, data.get(0));
+		assertEquals(3.0, data.get(1));
+		assertEquals(4.0, data.get(2));
+	}
+
+
 	public void testAddDoubleDataWithCycle() {
 		DoubleDataDouble data = new DoubleDataDouble(4);
 		data.add(0);
@@ -26,6 +26,7 @@ import java.lang.reflect.InvocationTargetException;
 
 import junit.framework.TestCase;
 import plotter.DoubleData;
+import plotter.DoubleDataChunked;
 import plotter.PropertyTester;
 import plotter.xy.CompressingXYDataset.MinMaxChangeListener;
 
@@ -104,6 +105,55 @@ public class JUnitCompressingXYDataset extends TestCase {
 	}
 
 
+	public void testAddBulk() {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		double[] x = new double[] { -1, .1, .2, .3, 1.1, 1.2 };
+		double[] y = new double[] { -1, 2.1, 2.2, 2.3, 3.1, 3.2 };
+		dataset.add(x, 1, y, 1, 3);
+		dataset.add(x, 4, y, 4, 2);
+		DoubleData xData = dataset.getXData();
+		DoubleData yData = dataset.getYData();
+		assertEquals(4, xData.getLength());
+		assertEquals(4, yData.getLength());
+		assertEquals(0.0, xData.get(0));
+		assertEquals(2.1, yData.get(0));
+		assertEquals(0.0, xData.get(1));
+		assertEquals(2.3, yData.get(1));
+		assertEquals(1.0, xData.get(2));
+		assertEquals(3.1, yData.get(2));
+		assertEquals(1.0, xData.get(3));
+		assertEquals(3.2, yData.get(3));
+		assertEquals(.1, dataset.getMinX());
+		assertEquals(1.2, dataset.getMaxX());
+		assertEquals(2.1, dataset.getMinY());
+		assertEquals(3.2, dataset.getMaxY());
+	}
+
+
+	public void testAddBulkYIndependent() {
+		CompressingXYDataset dataset = createDataset(XYDimension.Y);
+		double[] y = new double[] { .1, .2, .3, 1.1, 1.2 };
+		double[] x = new double[] { 2.1, 2.2, 2.3, 3.1, 3.2 };
+		dataset.add(x, 0, y, 0, x.length);
+		DoubleData xData = dataset.getXData();
+		DoubleData yData = dataset.getYData();
+		assertEquals(4, yData.getLength());
+		assertEquals(4, xData.getLength());
+		assertEquals(0.0, yData.get(0));
+		assertEquals(2.1, xData.get(0));
+		assertEquals(0.0, yData.get(1));
+		assertEquals(2.3, xData.get(1));
+		assertEquals(1.0, yData.get(2));
+		assertEquals(3.1, xData.get(2));
+		assertEquals(1.0, yData.get(3));
+		assertEquals(3.2, xData.get(3));
+		assertEquals(.1, dataset.getMinY());
+		assertEquals(1.2, dataset.getMaxY());
+		assertEquals(2.1, dataset.getMinX());
+		assertEquals(3.2, dataset.getMaxX());
+	}
+
+
 	public void testAddYIndependent() {
 		CompressingXYDataset dataset = createDataset(XYDimension.Y);
 		double[] y = new double[] { .1, .2, .3, 1.1, 1.2 };
@@ -177,6 +227,14 @@ public class JUnitCompressingXYDataset extends TestCase {
 		dataset.removeAllPoints();
 		assertEquals(6, x.count);
 		assertEquals(4, y.count);
+
+		dataset.add(new double[] { 0, 1, 2 }, 0, new double[] { 0, 1, 2 }, 0, 3);
+		assertEquals(7, x.count);
+		assertEquals(5, y.count);
+
+		dataset.add(new double[0], 0, new double[0], 0, 0);
+		assertEquals(7, x.count);
+		assertEquals(5, y.count);
 	}
 
 
@@ -280,6 +338,135 @@ public class JUnitCompressingXYDataset extends TestCase {
 		t.test("compressionOffset", -10.0, 0.0, 10.0);
 	}
 
+	public void testChunked() {
+		CompressingXYDataset expected = createDataset(XYDimension.X);
+		XYAxis xAxis = new LinearXYAxis(XYDimension.X);
+		XYAxis yAxis = new LinearXYAxis(XYDimension.Y);
+		LinearXYPlotLine plotLine = new LinearXYPlotLine(xAxis, yAxis, XYDimension.X);
+		XYPlotContents contents = new XYPlotContents();
+		contents.add(plotLine);
+		CompressingXYDataset actual = new CompressingXYDataset(plotLine, new DefaultCompressor(), 4);
+		actual.setCompressionOffset(0);
+		actual.setCompressionScale(1);
+		assertTrue(actual.getXData() instanceof DoubleDataChunked);
+		assertSame(actual.getXData(), plotLine.getXData());
+		assertSame(actual.getYData(), plotLine.getYData());
+		expected.setTruncationPoint(10);
+		actual.setTruncationPoint(10);
+		for(int i = 0; i < 50; i++) {
+			double y = (i * 7) % 13;
+			expected.add(i, y);
+			actual.add(i, y);
+			if(i == 25) {
+				expected.setTruncationPoint(30);
+				actual.setTruncationPoint(30);
+			}
+			assertEquals(expected.getPointCount(), actual.getPointCount());
+			assertEquals(expected.getMinX(), actual.getMinX());
+			assertEquals(expected.getMaxX(), actual.getMaxX());
+			assertEquals(expected.getMinY(), actual.getMinY());
+			assertEquals(expected.getMaxY(), actual.getMaxY());
+		}
+		for(int i = 0; i < expected.getPointCount(); i++) {
+			assertEquals(expected.getXData().get(i), actual.getXData().get(i));
+			assertEquals(expected.getYData().get(i), actual.getYData().get(i));
+		}
+	}
+
+
+	public void testResample() {
+		checkResample(XYDimension.X);
+	}
+
+
+	public void testResampleYIndependent() {
+		checkResample(XYDimension.Y);
+	}
+
+
+	private void checkResample(XYDimension independentDimension) {
+		CompressingXYDataset dataset = createDataset(independentDimension);
+		assertFalse(dataset.resample());
+		dataset.setPyramidLevels(4);
+		assertEquals(4, dataset.getPyramidLevels());
+		assertNull(dataset.getPyramid());
+		for(int i = 0; i < 64; i++) {
+			add(dataset, independentDimension, i, i % 5);
+		}
+		assertEquals(64, dataset.getPointCount());
+		MinMaxPyramid pyramid = dataset.getPyramid();
+		assertNotNull(pyramid);
+		assertEquals(1.0, pyramid.getBaseScale());
+
+		// Zoom out, then back in.  The original data should come back.
+		dataset.setCompressionScale(8);
+		assertTrue(dataset.resample());
+		int zoomedOut = dataset.getPointCount();
+		assertTrue(zoomedOut < 64);
+		DoubleData independent = independentDimension == XYDimension.X ? dataset.getXData() : dataset.getYData();
+		DoubleData dependent = independentDimension == XYDimension.X ? dataset.getYData() : dataset.getXData();
+		assertEquals(0.0, independent.get(0));
+		assertEquals(56.0, independent.get(zoomedOut - 1));
+		assertEquals(0.0, dependent.getMin(0, zoomedOut));
+		assertEquals(4.0, dependent.getMax(0, zoomedOut));
+
+		dataset.setCompressionScale(1);
+		assertTrue(dataset.resample());
+		assertEquals(64, dataset.getPointCount());
+		for(int i = 0; i < 64; i++) {
+			assertEquals((double) i, independent.get(i));
+			assertEquals((double) (i % 5), dependent.get(i));
+		}
+
+		// New data keeps streaming in at the current scale
+		add(dataset, independentDimension, 64, 9);
+		assertEquals(65, dataset.getPointCount());
+		assertEquals(9.0, dependent.get(64));
+
+		// Truncation applies to the pyramid too
+		dataset.setTruncationPoint(32);
+		dataset.setTruncationOffset(0);
+		add(dataset, independentDimension, 65, 0);
+		dataset.setCompressionScale(4);
+		dataset.resample();
+		assertEquals(32.0, independent.get(0));
+
+		dataset.removeAllPoints();
+		assertNull(dataset.getPyramid());
+		assertFalse(dataset.resample());
+	}
+
+
+	/**
+	 * Adds a point given its coordinates along the dataset's independent and dependent dimensions.
+	 */
+	private static void add(CompressingXYDataset dataset, XYDimension independentDimension, double independent,
+			double dependent) {
+		if(independentDimension == XYDimension.X) {
+			dataset.add(independent, dependent);
+		} else {
+			dataset.add(dependent, independent);
+		}
+	}
+
+
+	public void testRecompressWithPyramid() {
+		CompressingXYDataset dataset = createDataset(XYDimension.X);
+		dataset.setPyramidLevels(3);
+		for(int i = 0; i < 10; i++) {
+			dataset.add(i, i);
+		}
+		dataset.setCompressionScale(5);
+		dataset.recompress();
+		assertEquals(4, dataset.getPointCount());
+
+		// Unlike recompressing the compressed data, going back to a finer scale restores the detail.
+		dataset.setCompressionScale(1);
+		dataset.recompress();
+		assertEquals(10, dataset.getPointCount());
+	}
+
+
 
 	private CompressingXYDataset createDataset(XYDimension independentDimension) {
 		XYAxis xAxis = new LinearXYAxis(XYDimension.X);
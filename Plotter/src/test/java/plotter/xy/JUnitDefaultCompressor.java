@@ -477,6 +477,33 @@ public class JUnitDefaultCompressor extends TestCase {
 	}
 
 
+	public void testStreamingBulk() {
+		double[] x = new double[200];
+		double[] y = new double[x.length];
+		for(int i = 0; i < x.length; i++) {
+			x[i] = i * .07;
+			y[i] = i % 13 == 0 ? Double.NaN : Math.sin(i * .3);
+		}
+		StreamingCompressor single = compressor.createStreamingCompressor(expected, 0, 1);
+		for(int i = 0; i < x.length; i++) {
+			single.add(x[i], y[i]);
+		}
+
+		StreamingCompressor bulk = compressor.createStreamingCompressor(outdata, 0, 1);
+		int[] batches = { 1, 0, 5, 2, 37, 60, 95 };
+		int off = 0;
+		for(int len : batches) {
+			int sizeBefore = outdata.getPointCount();
+			int modified = bulk.add(x, off, y, off, len);
+			assertTrue(modified <= outdata.getPointCount());
+			assertTrue(outdata.getPointCount() - sizeBefore <= modified);
+			off += len;
+		}
+		assertEquals(x.length, off);
+		checkNoCompress();
+	}
+
+
 	public void testFlatLine() {
 		in(.51, 3);
 		in(.52, 3);
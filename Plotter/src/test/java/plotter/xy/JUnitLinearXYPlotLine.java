@@ -316,6 +316,45 @@ public class JUnitLinearXYPlotLine extends TestCase {
 	}
 
 
+	public void testPaintClipStop() throws InterruptedException, InvocationTargetException {
+		add(.1, .1);
+		add(.5, .5);
+		add(.6, .6);
+		add(.7, .7);
+		add(.8, .8);
+		add(.9, .9);
+		CountingGraphics g = paint(new Rectangle(0, 0, 50, 200));
+		assertTrue(g.getPointCount() < 6);
+
+		LineChecker c = new LineChecker();
+		c.require(19, 180, 99, 100);
+		c.allow(99, 100, 119, 80);
+		c.check(g.getLines());
+	}
+
+
+	public void testPaintPixelColumn() throws InterruptedException, InvocationTargetException {
+		add(.1, .1);
+		add(.5, .3);
+		add(.5001, .6);
+		add(.5002, .4);
+		add(.5003, .2);
+		add(.5004, .7);
+		add(.5005, .5);
+		add(.9, .9);
+		CountingGraphics g = paint();
+		assertEquals(6, g.getPointCount());
+
+		LineChecker c = new LineChecker();
+		c.require(19, 180, 99, 140);
+		c.require(99, 140, 99, 60);
+		c.require(99, 60, 99, 160);
+		c.require(99, 160, 99, 100);
+		c.require(99, 100, 179, 20);
+		c.check(g.getLines());
+	}
+
+
 	public void testPaintMissingPointLeft() throws InterruptedException, InvocationTargetException {
 		line.setMissingPointMode(MissingPointMode.LEFT);
 		add(.1, .1);
@@ -352,6 +391,32 @@ public class JUnitLinearXYPlotLine extends TestCase {
 	}
 
 
+	public void testPaintMissingPointRightPixelColumn() throws InterruptedException, InvocationTargetException {
+		line.setMissingPointMode(MissingPointMode.RIGHT);
+		add(.1, .1);
+		add(.2, .2);
+		add(.5, Double.NaN);
+		add(.8, .8);
+		add(.8001, .3);
+		add(.8002, .6);
+		add(.8003, .2);
+		add(.8004, .7);
+		add(.8005, .5);
+		add(.9, .9);
+		CountingGraphics g = paint();
+		assertEquals(8, g.getPointCount());
+
+		LineChecker c = new LineChecker();
+		c.require(19, 180, 39, 160);
+		c.require(99, 40, 159, 40);
+		c.require(159, 40, 159, 60);
+		c.require(159, 60, 159, 160);
+		c.require(159, 160, 159, 100);
+		c.require(159, 100, 179, 20);
+		c.check(g.getLines());
+	}
+
+
 	public void testPaintMissingPointBoth() throws InterruptedException, InvocationTargetException {
 		line.setMissingPointMode(MissingPointMode.BOTH);
 		add(.1, .1);
@@ -285,6 +285,28 @@ public class JUnitLinearXYPlotLineYIndependent extends TestCase {
 	}
 
 
+	public void testPaintPixelRow() throws InterruptedException, InvocationTargetException {
+		add(.1, .1);
+		add(.5, .3);
+		add(.5001, .6);
+		add(.5002, .4);
+		add(.5003, .2);
+		add(.5004, .7);
+		add(.5005, .5);
+		add(.9, .9);
+		CountingGraphics g = paint();
+		assertEquals(6, g.getPointCount());
+
+		LineChecker c = new LineChecker();
+		c.require(19, 180, 59, 100);
+		c.require(59, 100, 39, 100);
+		c.require(39, 100, 139, 100);
+		c.require(139, 100, 99, 100);
+		c.require(99, 100, 179, 20);
+		c.check(g.getLines());
+	}
+
+
 	public void testPaintClipInverted() throws InterruptedException, InvocationTargetException {
 		plot.getYAxis().setStart(1);
 		plot.getYAxis().setEnd(0);
@@ -0,0 +1,229 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter.xy;
+
+import java.util.Random;
+
+import junit.framework.TestCase;
+import plotter.DoubleData;
+
+public class JUnitMinMaxPyramid extends TestCase {
+	public void testScales() {
+		MinMaxPyramid pyramid = new MinMaxPyramid(new DefaultCompressor(), 0, 1.5, 4);
+		assertEquals(4, pyramid.getLevelCount());
+		assertEquals(1.5, pyramid.getBaseScale());
+		assertEquals(1.5, pyramid.getScale(0));
+		assertEquals(3.0, pyramid.getScale(1));
+		assertEquals(12.0, pyramid.getScale(3));
+		assertEquals(0, pyramid.getLevelForScale(1));
+		assertEquals(0, pyramid.getLevelForScale(2.9));
+		assertEquals(1, pyramid.getLevelForScale(3));
+		assertEquals(2, pyramid.getLevelForScale(11.9));
+		assertEquals(3, pyramid.getLevelForScale(1000));
+	}
+
+
+	public void testInvalidArguments() {
+		try {
+			new MinMaxPyramid(new DefaultCompressor(), 0, 1, 0);
+			fail("Should have thrown an IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// should happen
+		}
+		try {
+			new MinMaxPyramid(new DefaultCompressor(), 0, 0, 1);
+			fail("Should have thrown an IllegalArgumentException");
+		} catch(IllegalArgumentException e) {
+			// should happen
+		}
+	}
+
+
+	public void testAdd() {
+		PointData raw = randomData(0, 1000);
+		MinMaxPyramid pyramid = new MinMaxPyramid(new DefaultCompressor(), .5, 1, 5);
+		DoubleData x = raw.getX();
+		DoubleData y = raw.getY();
+		int half = x.getLength() / 2;
+		for(int i = 0; i < half; i++) {
+			pyramid.add(x.get(i), y.get(i));
+		}
+		double[] xs = new double[x.getLength() - half];
+		double[] ys = new double[xs.length];
+		for(int i = 0; i < xs.length; i++) {
+			xs[i] = x.get(half + i);
+			ys[i] = y.get(half + i);
+		}
+		pyramid.add(xs, 0, ys, 0, xs.length);
+		for(int i = 0; i < pyramid.getLevelCount(); i++) {
+			PointData expected = new PointData();
+			new DefaultCompressor().compress(raw, expected, .5, pyramid.getScale(i));
+			assertSameData(expected, pyramid.getLevel(i));
+		}
+		assertTrue(pyramid.getLevel(4).getPointCount() < pyramid.getLevel(0).getPointCount());
+	}
+
+
+	public void testPrepend() {
+		PointData early = randomData(-500, 500);
+		PointData late = randomData(0, 500);
+		MinMaxPyramid pyramid = new MinMaxPyramid(new DefaultCompressor(), 0, 1, 4);
+		DoubleData x = late.getX();
+		DoubleData y = late.getY();
+		for(int i = 0; i < x.getLength(); i++) {
+			pyramid.add(x.get(i), y.get(i));
+		}
+		pyramid.prepend(early.getX(), early.getY());
+
+		PointData all = new PointData();
+		all.getX().add(early.getX(), 0, early.getPointCount());
+		all.getY().add(early.getY(), 0, early.getPointCount());
+		all.getX().add(x, 0, x.getLength());
+		all.getY().add(y, 0, y.getLength());
+		for(int i = 0; i < pyramid.getLevelCount(); i++) {
+			PointData expected = new PointData();
+			new DefaultCompressor().compress(all, expected, 0, pyramid.getScale(i));
+			assertSameData(expected, pyramid.getLevel(i));
+		}
+	}
+
+
+	public void testTruncate() {
+		MinMaxPyramid pyramid = new MinMaxPyramid(new DefaultCompressor(), 0, 1, 3);
+		for(int i = 0; i < 20; i++) {
+			pyramid.add(i + .5, i % 3);
+		}
+		pyramid.truncate(10.5);
+		assertEquals(10.0, pyramid.getLevel(0).getX().get(0));
+		assertEquals(10.0, pyramid.getLevel(1).getX().get(0));
+		assertEquals(8.0, pyramid.getLevel(2).getX().get(0));
+		double[] lastBuckets = new double[] { 19, 18, 16 };
+		for(int i = 0; i < pyramid.getLevelCount(); i++) {
+			DoubleData x = pyramid.getLevel(i).getX();
+			assertEquals(lastBuckets[i], x.get(x.getLength() - 1));
+		}
+
+		// Streaming must carry on normally afterwards
+		pyramid.add(20.5, 7);
+		assertEquals(20.0, pyramid.getLevel(0).getX().get(pyramid.getLevel(0).getPointCount() - 1));
+		assertEquals(7.0, pyramid.getLevel(2).getY().get(pyramid.getLevel(2).getPointCount() - 1));
+
+		// Truncating everything must leave the pyramid usable
+		pyramid.truncate(100);
+		for(int i = 0; i < pyramid.getLevelCount(); i++) {
+			assertEquals(0, pyramid.getLevel(i).getPointCount());
+		}
+		pyramid.add(100.5, 1);
+		assertEquals(1, pyramid.getLevel(0).getPointCount());
+		assertEquals(100.0, pyramid.getLevel(0).getX().get(0));
+	}
+
+
+	public void testRemoveAll() {
+		MinMaxPyramid pyramid = new MinMaxPyramid(new DefaultCompressor(), 0, 1, 3);
+		for(int i = 0; i < 20; i++) {
+			pyramid.add(i, i);
+		}
+		pyramid.removeAll();
+		for(int i = 0; i < pyramid.getLevelCount(); i++) {
+			assertEquals(0, pyramid.getLevel(i).getPointCount());
+		}
+		pyramid.add(0, 1);
+		assertEquals(1, pyramid.getLevel(2).getPointCount());
+	}
+
+
+	public void testCompress() {
+		PointData raw = randomData(0, 2000);
+		MinMaxPyramid pyramid = new MinMaxPyramid(new DefaultCompressor(), 0, 1, 6);
+		DoubleData x = raw.getX();
+		DoubleData y = raw.getY();
+		for(int i = 0; i < x.getLength(); i++) {
+			pyramid.add(x.get(i), y.get(i));
+		}
+		for(double scale = 1; scale <= 64; scale *= 2) {
+			PointData expected = new PointData();
+			new DefaultCompressor().compress(raw, expected, 0, scale);
+			PointData actual = new PointData();
+			pyramid.compress(actual, 0, scale);
+			assertSameExtremes(expected, actual);
+		}
+	}
+
+
+	/**
+	 * Returns points with increasing X and random Y, with a few NaNs.
+	 */
+	private static PointData randomData(double start, int count) {
+		Random random = new Random(count);
+		PointData data = new PointData();
+		double x = start;
+		for(int i = 0; i < count; i++) {
+			data.add(x, random.nextInt(20) == 0 ? Double.NaN : random.nextGaussian());
+			x += random.nextDouble() * .5;
+		}
+		return data;
+	}
+
+
+	private static void assertSameData(PointData expected, PointData actual) {
+		assertEquals(expected.getPointCount(), actual.getPointCount());
+		for(int i = 0; i < expected.getPointCount(); i++) {
+			assertEquals(expected.getX().get(i), actual.getX().get(i));
+			assertEquals(expected.getY().get(i), actual.getY().get(i));
+		}
+	}
+
+
+	/**
+	 * Checks that both sets of compressed data have the same buckets with the same minimum and maximum values, ignoring NaNs.
+	 */
+	private static void assertSameExtremes(PointData expected, PointData actual) {
+		int i = 0;
+		int j = 0;
+		while(i < expected.getPointCount()) {
+			double bucket = expected.getX().get(i);
+			assertEquals(bucket, actual.getX().get(j));
+			double emin = Double.POSITIVE_INFINITY;
+			double emax = Double.NEGATIVE_INFINITY;
+			for(; i < expected.getPointCount() && expected.getX().get(i) == bucket; i++) {
+				double y = expected.getY().get(i);
+				if(!Double.isNaN(y)) {
+					emin = Math.min(emin, y);
+					emax = Math.max(emax, y);
+				}
+			}
+			double amin = Double.POSITIVE_INFINITY;
+			double amax = Double.NEGATIVE_INFINITY;
+			for(; j < actual.getPointCount() && actual.getX().get(j) == bucket; j++) {
+				double y = actual.getY().get(j);
+				if(!Double.isNaN(y)) {
+					amin = Math.min(amin, y);
+					amax = Math.max(amax, y);
+				}
+			}
+			assertEquals(emin, amin);
+			assertEquals(emax, amax);
+		}
+		assertEquals(actual.getPointCount(), j);
+	}
+}
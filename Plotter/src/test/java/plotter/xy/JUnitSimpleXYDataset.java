@@ -152,6 +152,40 @@ public class JUnitSimpleXYDataset extends TestCase {
 	}
 
 
+	public void testAddBulk() {
+		SimpleXYDataset dataset = createDataset(XYDimension.X);
+		MinMaxTracker xTracker = new MinMaxTracker();
+		dataset.addXMinMaxChangeListener(xTracker);
+		dataset.setMaxCapacity(5);
+		dataset.add(new double[] { 0, 1, 2 }, 0, new double[] { 5, 4, 3 }, 0, 3);
+		assertEquals(3, dataset.getPointCount());
+		assertEquals(1, xTracker.count);
+
+		dataset.add(new double[] { -1, 3, 4, 5 }, 1, new double[] { -1, 2, 1, 0 }, 1, 3);
+		assertEquals(2, xTracker.count);
+		DoubleData x = dataset.getXData();
+		DoubleData y = dataset.getYData();
+		assertEquals(5, x.getLength());
+		assertEquals(5, y.getLength());
+		assertEquals(1.0, x.get(0));
+		assertEquals(4.0, y.get(0));
+		assertEquals(5.0, x.get(4));
+		assertEquals(0.0, y.get(4));
+		assertEquals(1.0, dataset.getMinX());
+		assertEquals(5.0, dataset.getMaxX());
+		assertEquals(0.0, dataset.getMinY());
+		assertEquals(4.0, dataset.getMaxY());
+
+		// more points than the capacity keeps only the last ones
+		dataset.add(new double[] { 6, 7, 8, 9, 10, 11, 12 }, 0, new double[] { 6, 7, 8, 9, 10, 11, 12 }, 0, 7);
+		assertEquals(5, x.getLength());
+		assertEquals(8.0, x.get(0));
+		assertEquals(12.0, x.get(4));
+		assertEquals(8.0, dataset.getMinX());
+		assertEquals(8.0, dataset.getMinY());
+	}
+
+
 	public void testTruncateSorted() {
 		SimpleXYDataset dataset = createDataset(XYDimension.X);
 		dataset.setMaxCapacity(5);
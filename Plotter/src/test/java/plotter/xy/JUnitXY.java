@@ -32,6 +32,7 @@ public class JUnitXY extends TestSuite {
 		suite.addTestSuite(JUnitLinearXYAxis.class);
 		suite.addTestSuite(JUnitLinearXYPlotLine.class);
 		suite.addTestSuite(JUnitLinearXYPlotLineYIndependent.class);
+		suite.addTestSuite(JUnitMinMaxPyramid.class);
 		suite.addTestSuite(JUnitScatterXYPlotLine.class);
 		suite.addTestSuite(JUnitSimpleXYDataset.class);
 		suite.addTestSuite(JUnitSlopeLine.class);
@@ -41,6 +42,7 @@ public class JUnitXY extends TestSuite {
 		suite.addTestSuite(JUnitXYLocationDisplay.class);
 		suite.addTestSuite(JUnitXYMarkerLine.class);
 		suite.addTestSuite(JUnitXYPlot.class);
+		suite.addTestSuite(JUnitXYPlotContents.class);
 		suite.addTestSuite(JUnitXYPlotLine.class);
 		suite.addTestSuite(JUnitXYReversingDataset.class);
 		return suite;
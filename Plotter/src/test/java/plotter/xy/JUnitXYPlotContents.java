@@ -0,0 +1,203 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package plotter.xy;
+
+import java.awt.BasicStroke;
+import java.awt.Color;
+import java.awt.Component;
+import java.awt.Container;
+import java.awt.Graphics;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+
+import junit.framework.TestCase;
+
+public class JUnitXYPlotContents extends TestCase {
+	private XYPlot plot;
+
+	private XYPlotContents contents;
+
+	private LinearXYPlotLine line;
+
+	private int linePaints;
+
+
+	@Override
+	protected void setUp() throws Exception {
+		XYAxis xAxis = new LinearXYAxis(XYDimension.X);
+		XYAxis yAxis = new LinearXYAxis(XYDimension.Y);
+		line = new LinearXYPlotLine(xAxis, yAxis, XYDimension.X) {
+			private static final long serialVersionUID = 1L;
+
+			@Override
+			protected void paintComponent(Graphics g) {
+				linePaints++;
+				super.paintComponent(g);
+			}
+		};
+		line.setForeground(Color.white);
+		XYGrid grid = new XYGrid(xAxis, yAxis);
+		grid.setForeground(Color.gray);
+		contents = new XYPlotContents();
+		contents.setBackground(Color.black);
+		contents.add(line);
+		contents.add(grid);
+		plot = new XYPlot();
+		plot.add(contents);
+		plot.add(xAxis);
+		plot.add(yAxis);
+		plot.setXAxis(xAxis);
+		plot.setYAxis(yAxis);
+		new DefaultXYLayoutGenerator().generateLayout(plot);
+		plot.setSize(300, 300);
+		layout(plot);
+		// One unit per pixel, so scrolling by whole units moves the data by whole pixels
+		xAxis.setStart(0);
+		xAxis.setEnd(contents.getWidth());
+		yAxis.setStart(-1);
+		yAxis.setEnd(1);
+		layout(plot);
+		for(int i = 0; i < 1000; i++) {
+			double x = i / 2.0;
+			line.add(x, Math.sin(x / 10));
+		}
+	}
+
+
+	public void testPaintMatchesUnbuffered() {
+		BufferedImage expected = paint();
+		contents.setBuffered(true);
+		assertSameImage(expected, paint());
+	}
+
+
+	public void testPaintReusesBuffer() {
+		contents.setBuffered(true);
+		paint();
+		assertEquals(1, linePaints);
+		paint();
+		assertEquals(1, linePaints);
+
+		line.setForeground(Color.red);
+		BufferedImage buffered = paint();
+		assertEquals(2, linePaints);
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+	}
+
+
+	public void testStyleChange() {
+		contents.setBuffered(true);
+		paint();
+		line.setStroke(new BasicStroke(3));
+		BufferedImage buffered = paint();
+		assertEquals(2, linePaints);
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+
+		contents.setBuffered(true);
+		paint();
+		line.setLineMode(LinearXYPlotLine.LineMode.STEP_XY);
+		buffered = paint();
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+	}
+
+
+	public void testPaintNewData() {
+		contents.setBuffered(true);
+		paint();
+		line.add(500, 0);
+		line.add(501, .5);
+		BufferedImage buffered = paint();
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+	}
+
+
+	public void testScroll() {
+		contents.setBuffered(true);
+		paint();
+		plot.getXAxis().shift(10);
+		layout(plot);
+		BufferedImage buffered = paint();
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+	}
+
+
+	public void testZoom() {
+		contents.setBuffered(true);
+		paint();
+		plot.getYAxis().setStart(-2);
+		layout(plot);
+		BufferedImage buffered = paint();
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+	}
+
+
+	public void testHide() {
+		contents.setBuffered(true);
+		paint();
+		line.setVisible(false);
+		BufferedImage buffered = paint();
+		contents.setBuffered(false);
+		assertSameImage(paint(), buffered);
+	}
+
+
+	// Components without a window are not validated, so lay them out directly.
+	private static void layout(Container c) {
+		c.doLayout();
+		for(Component child : c.getComponents()) {
+			if(child instanceof Container) {
+				layout((Container) child);
+			}
+		}
+	}
+
+
+	private BufferedImage paint() {
+		BufferedImage image = new BufferedImage(contents.getWidth(), contents.getHeight(), BufferedImage.TYPE_INT_RGB);
+		Graphics2D g = image.createGraphics();
+		try {
+			contents.paint(g);
+		} finally {
+			g.dispose();
+		}
+		return image;
+	}
+
+
+	private static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+		assertEquals(expected.getWidth(), actual.getWidth());
+		assertEquals(expected.getHeight(), actual.getHeight());
+		for(int y = 0; y < expected.getHeight(); y++) {
+			for(int x = 0; x < expected.getWidth(); x++) {
+				if(expected.getRGB(x, y) != actual.getRGB(x, y)) {
+					fail("Pixel (" + x + ", " + y + ") differs");
+				}
+			}
+		}
+	}
+}
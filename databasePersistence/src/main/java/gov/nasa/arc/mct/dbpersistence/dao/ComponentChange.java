@@ -0,0 +1,129 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.dbpersistence.dao;
+
+import java.io.Serializable;
+import java.util.Date;
+
+import javax.persistence.Basic;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.GenerationType;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+import javax.persistence.Table;
+import javax.persistence.Temporal;
+import javax.persistence.TemporalType;
+
+/**
+ * An entry in the append-only log of changes made to components. Entries are numbered in the order they
+ * were written, so that clients can read the changes made since they last looked.
+ */
+@Entity
+@Table(name = "component_change")
+@NamedQueries({
+    @NamedQuery(name = "ComponentChange.findAfter", query = "SELECT c FROM ComponentChange c WHERE c.seqNo > :seqNo ORDER BY c.seqNo"),
+    @NamedQuery(name = "ComponentChange.findLastSeqNo", query = "SELECT MAX(c.seqNo) FROM ComponentChange c"),
+    @NamedQuery(name = "ComponentChange.deleteBefore", query = "DELETE FROM ComponentChange c WHERE c.changeTime < :time")})
+public class ComponentChange implements Serializable {
+    private static final long serialVersionUID = 1L;
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @Basic(optional = false)
+    @Column(name = "seq_no")
+    private Long seqNo;
+
+    @Basic(optional = false)
+    @Column(name = "component_id",length=32)
+    private String componentId;
+
+    @Basic(optional = false)
+    @Column(name = "obj_version")
+    private int objVersion;
+
+    @Basic(optional = false)
+    @Column(name = "change_time", nullable=false)
+    @Temporal(TemporalType.TIMESTAMP)
+    private Date changeTime;
+
+    public ComponentChange() {
+    }
+
+    public Long getSeqNo() {
+        return seqNo;
+    }
+
+    public void setSeqNo(Long seqNo) {
+        this.seqNo = seqNo;
+    }
+
+    public String getComponentId() {
+        return componentId;
+    }
+
+    public void setComponentId(String componentId) {
+        this.componentId = componentId;
+    }
+
+    public int getObjVersion() {
+        return objVersion;
+    }
+
+    public void setObjVersion(int objVersion) {
+        this.objVersion = objVersion;
+    }
+
+    public Date getChangeTime() {
+        return changeTime;
+    }
+
+    public void setChangeTime(Date changeTime) {
+        this.changeTime = changeTime;
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 0;
+        hash += (seqNo != null ? seqNo.hashCode() : 0);
+        return hash;
+    }
+
+    @Override
+    public boolean equals(Object object) {
+        if (!(object instanceof ComponentChange)) {
+            return false;
+        }
+        ComponentChange other = (ComponentChange) object;
+        if ((this.seqNo == null && other.seqNo != null) || (this.seqNo != null && !this.seqNo.equals(other.seqNo))) {
+            return false;
+        }
+        return true;
+    }
+
+    @Override
+    public String toString() {
+        return "ComponentChange[ seqNo=" + seqNo + " ]";
+    }
+
+}
@@ -54,7 +54,10 @@ import javax.persistence.Version;
 @Cacheable
 @NamedQueries({
     @NamedQuery(name = "ComponentSpec.findAll", query = "SELECT c FROM ComponentSpec c"),
-    @NamedQuery(name = "ComponentSpec.findReferencingComponents", query = "SELECT c FROM ComponentSpec c JOIN c.referencedComponents refs WHERE refs.componentId = :component")})
+    @NamedQuery(name = "ComponentSpec.findByIds", query = "SELECT c FROM ComponentSpec c WHERE c.componentId IN (:components)"),
+    @NamedQuery(name = "ComponentSpec.findReferencingComponents", query = "SELECT c FROM ComponentSpec c JOIN c.referencedComponents refs WHERE refs.componentId = :component"),
+    @NamedQuery(name = "ComponentSpec.findWithReferencedComponents", query = "SELECT DISTINCT c FROM ComponentSpec c LEFT JOIN FETCH c.referencedComponents WHERE c.componentId IN (:components)"),
+    @NamedQuery(name = "ComponentSpec.findWithViewStates", query = "SELECT DISTINCT c FROM ComponentSpec c LEFT JOIN FETCH c.viewStateCollection WHERE c.componentId IN (:components)")})
 public class ComponentSpec implements Serializable {
     private static final long serialVersionUID = 1L;
     @Id
@@ -0,0 +1,60 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.dbpersistence.service;
+
+import gov.nasa.arc.mct.dbpersistence.service.PersistenceServiceImpl.ChangedComponentVisitor;
+
+import java.util.Date;
+import java.util.Map;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Tells clients which components have been changed by others. Changes are recorded
+ * in the transaction which makes them, and read incrementally, so that each read
+ * only returns the changes made since the previous one.
+ */
+interface ChangeFeed {
+	/**
+	 * Record changes to components, as part of the transaction of the entity manager.
+	 * @param em the entity manager making the changes
+	 * @param versions the versions of the changed components after the changes, by component id
+	 * @param time the time of the changes, as known to the database
+	 */
+	void recordChanges(EntityManager em, Map<String, Integer> versions, Date time);
+
+	/**
+	 * Visit the changes recorded since the last read, in the order they were made.
+	 * The first read only establishes where subsequent reads start.
+	 * @param em the entity manager to read with
+	 * @param visitor invoked for each change
+	 */
+	void readChanges(EntityManager em, ChangedComponentVisitor visitor);
+
+	/**
+	 * Discard changes which are too old to be of interest to any client,
+	 * as part of the transaction of the entity manager.
+	 * @param em the entity manager to discard with
+	 * @param cutoff changes made before this time are discarded
+	 */
+	void discardChanges(EntityManager em, Date cutoff);
+}
@@ -0,0 +1,149 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.dbpersistence.service;
+
+import gov.nasa.arc.mct.dbpersistence.dao.ComponentChange;
+import gov.nasa.arc.mct.dbpersistence.service.PersistenceServiceImpl.ChangedComponentVisitor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TemporalType;
+import javax.persistence.TypedQuery;
+
+import org.hibernate.SQLQuery;
+
+/**
+ * Records changes in the change log table shared by all clients of the database,
+ * and reads the entries added since the last read by sequence number, so that
+ * each read is a range scan of the primary key returning only new entries.
+ *
+ * Sequence numbers are assigned when an entry is written, but become visible
+ * when its transaction commits, so a read may see an entry before entries with
+ * lower numbers which are still being committed. Such gaps are read again until
+ * they are filled, or until they are old enough to belong to a transaction which
+ * was rolled back.
+ */
+class ChangeLogFeed implements ChangeFeed {
+	/** Number of entries read or written per statement. */
+	static final int PAGE_SIZE = 500;
+	/** How long a gap is read again before it is assumed never to be filled. */
+	static final long GAP_TIMEOUT = 60000L;
+	/** Maximum number of gaps read again. */
+	static final int MAX_GAPS = 1000;
+
+	/** Highest sequence number read, or -1 before the first read. */
+	private long lastSeqNo = -1;
+	/** Sequence numbers below the highest one read which have not been read yet, with the time they were noticed. */
+	private final SortedMap<Long, Long> gaps = new TreeMap<Long, Long>();
+
+	@Override
+	public void recordChanges(EntityManager em, Map<String, Integer> versions, Date time) {
+		// Identity keys keep the persistence provider from batching inserts of entities, 
+		// so insert many rows per statement instead
+		List<Entry<String, Integer>> entries = new ArrayList<Entry<String, Integer>>(versions.entrySet());
+		for (int i = 0; i < entries.size(); i += PAGE_SIZE) {
+			List<Entry<String, Integer>> batch = entries.subList(i, Math.min(entries.size(), i + PAGE_SIZE));
+			StringBuilder sql = new StringBuilder("INSERT INTO component_change (component_id, obj_version, change_time) VALUES ");
+			for (int j = 0; j < batch.size(); j++) {
+				sql.append(j == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+			}
+			Query q = em.createNativeQuery(sql.toString());
+			// without the table it writes, the native statement evicts every second level cache region
+			q.unwrap(SQLQuery.class).addSynchronizedEntityClass(ComponentChange.class);
+			int position = 1;
+			for (Entry<String, Integer> version : batch) {
+				q.setParameter(position++, version.getKey());
+				q.setParameter(position++, version.getValue());
+				q.setParameter(position++, time, TemporalType.TIMESTAMP);
+			}
+			q.executeUpdate();
+		}
+	}
+
+	@Override
+	public synchronized void readChanges(EntityManager em, ChangedComponentVisitor visitor) {
+		if (lastSeqNo < 0) {
+			Long seqNo = em.createNamedQuery("ComponentChange.findLastSeqNo", Long.class).getSingleResult();
+			lastSeqNo = seqNo == null ? 0 : seqNo;
+			return;
+		}
+
+		long now = System.currentTimeMillis();
+		long position = gaps.isEmpty() ? lastSeqNo : gaps.firstKey() - 1;
+		TypedQuery<ComponentChange> q = em.createNamedQuery("ComponentChange.findAfter", ComponentChange.class);
+		q.setMaxResults(PAGE_SIZE);
+		boolean done = false;
+		while (!done) {
+			q.setParameter("seqNo", position);
+			List<ComponentChange> changes = q.getResultList();
+			for (ComponentChange change : changes) {
+				long seqNo = change.getSeqNo();
+				if (seqNo > lastSeqNo) {
+					for (long missing = Math.max(lastSeqNo + 1, seqNo - MAX_GAPS); missing < seqNo; missing++) {
+						gaps.put(missing, now);
+					}
+					lastSeqNo = seqNo;
+					visitor.operateOnComponent(change.getComponentId(), change.getObjVersion());
+				} else if (gaps.remove(seqNo) != null) {
+					visitor.operateOnComponent(change.getComponentId(), change.getObjVersion());
+				}
+				position = seqNo;
+			}
+			done = changes.size() < PAGE_SIZE;
+			em.clear();
+		}
+
+		Iterator<Long> it = gaps.values().iterator();
+		while (it.hasNext()) {
+			if (now - it.next() > GAP_TIMEOUT) {
+				it.remove();
+			}
+		}
+		while (gaps.size() > MAX_GAPS) {
+			gaps.remove(gaps.firstKey());
+		}
+	}
+
+	@Override
+	public void discardChanges(EntityManager em, Date cutoff) {
+		em.createNamedQuery("ComponentChange.deleteBefore")
+		  .setParameter("time", cutoff, TemporalType.TIMESTAMP)
+		  .executeUpdate();
+	}
+
+	/**
+	 * Returns the number of gaps which will be read again.
+	 * @return the number of gaps
+	 */
+	synchronized int getGapCount() {
+		return gaps.size();
+	}
+}
@@ -0,0 +1,186 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.dbpersistence.service;
+
+import gov.nasa.arc.mct.components.AbstractComponent;
+
+import java.lang.ref.ReferenceQueue;
+import java.lang.ref.WeakReference;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Keeps track of the component instances loaded or saved by this client, by component
+ * id, so that changes made by other clients can be applied to them.
+ *
+ * Instances are held weakly, and forgotten as soon as they are collected, so the cache
+ * holds no more entries than there are instances in use. Each instance is held once,
+ * however often it is added. The instances of a component can be read without locking.
+ */
+class ComponentCache {
+	private final ConcurrentHashMap<String, Instances> instancesById =
+			new ConcurrentHashMap<String, Instances>();
+	private final ReferenceQueue<AbstractComponent> collected = new ReferenceQueue<AbstractComponent>();
+	private final AtomicLong hits = new AtomicLong();
+	private final AtomicLong misses = new AtomicLong();
+
+	/**
+	 * Add an instance of a component, unless it is already cached.
+	 * @param component the instance
+	 */
+	public void add(AbstractComponent component) {
+		expungeCollected();
+		String componentId = component.getComponentId();
+		while (true) {
+			Instances instances = instancesById.get(componentId);
+			if (instances == null) {
+				Instances created = new Instances();
+				instances = instancesById.putIfAbsent(componentId, created);
+				if (instances == null) {
+					instances = created;
+				}
+			}
+			synchronized (instances) {
+				if (instances.removed) {
+					// emptied and removed since it was looked up
+					continue;
+				}
+				for (ComponentReference ref : instances.refs) {
+					if (ref.get() == component) {
+						return;
+					}
+				}
+				ComponentReference[] refs = Arrays.copyOf(instances.refs, instances.refs.length + 1);
+				refs[refs.length - 1] = new ComponentReference(component, componentId, collected);
+				instances.refs = refs;
+				return;
+			}
+		}
+	}
+
+	/**
+	 * Get the instances of a component which are still in use.
+	 * @param componentId the id of the component
+	 * @return a new list of the instances, empty if there are none
+	 */
+	public List<AbstractComponent> get(String componentId) {
+		expungeCollected();
+		Instances instances = instancesById.get(componentId);
+		List<AbstractComponent> components = new ArrayList<AbstractComponent>();
+		if (instances != null) {
+			for (ComponentReference ref : instances.refs) {
+				AbstractComponent component = ref.get();
+				if (component != null) {
+					components.add(component);
+				}
+			}
+		}
+		(components.isEmpty() ? misses : hits).incrementAndGet();
+		return components;
+	}
+
+	/**
+	 * Forget the instances which have been collected.
+	 */
+	public void expungeCollected() {
+		ComponentReference ref;
+		while ((ref = (ComponentReference) collected.poll()) != null) {
+			Instances instances = instancesById.get(ref.componentId);
+			if (instances == null) {
+				continue;
+			}
+			synchronized (instances) {
+				List<ComponentReference> refs = new ArrayList<ComponentReference>(Arrays.asList(instances.refs));
+				if (!refs.remove(ref)) {
+					continue;
+				}
+				instances.refs = refs.toArray(new ComponentReference[refs.size()]);
+				if (refs.isEmpty()) {
+					instances.removed = true;
+					instancesById.remove(ref.componentId, instances);
+				}
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of components with instances in the cache.
+	 * @return the number of components
+	 */
+	public int size() {
+		return instancesById.size();
+	}
+
+	/**
+	 * Returns the number of instances in the cache, including any collected
+	 * but not yet expunged.
+	 * @return the number of instances
+	 */
+	public int getInstanceCount() {
+		int count = 0;
+		for (Instances instances : instancesById.values()) {
+			count += instances.refs.length;
+		}
+		return count;
+	}
+
+	/**
+	 * Returns the number of lookups which found instances of the component.
+	 * @return the number of hits
+	 */
+	public long getHitCount() {
+		return hits.get();
+	}
+
+	/**
+	 * Returns the number of lookups which found no instances of the component.
+	 * @return the number of misses
+	 */
+	public long getMissCount() {
+		return misses.get();
+	}
+
+	@Override
+	public String toString() {
+		return "ComponentCache[ components=" + size() + " instances=" + getInstanceCount() +
+				" hits=" + getHitCount() + " misses=" + getMissCount() + " ]";
+	}
+
+	private static final class Instances {
+		/** Replaced rather than modified, under the lock of this object, so it can be read without locking. */
+		private volatile ComponentReference[] refs = new ComponentReference[0];
+		/** Set once no longer in the map, so no instances are added to it. */
+		private boolean removed;
+	}
+
+	private static final class ComponentReference extends WeakReference<AbstractComponent> {
+		private final String componentId;
+
+		ComponentReference(AbstractComponent component, String componentId, ReferenceQueue<AbstractComponent> queue) {
+			super(component, queue);
+			this.componentId = componentId;
+		}
+	}
+}
@@ -0,0 +1,92 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.dbpersistence.service;
+
+import gov.nasa.arc.mct.dbpersistence.service.PersistenceServiceImpl.ChangedComponentVisitor;
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import javax.persistence.EntityManager;
+
+/**
+ * Keeps changes in memory, so they are only seen within this process. This
+ * stands in for the change log table where the database is not shared, such
+ * as in tests. Changes are recorded immediately rather than when the
+ * transaction commits.
+ */
+class LocalChangeFeed implements ChangeFeed {
+	private final List<Change> changes = new ArrayList<Change>();
+	/** Number of changes discarded, so that positions stay valid. */
+	private long discarded;
+	/** Position of the next change to read, or -1 before the first read. */
+	private long position = -1;
+
+	@Override
+	public synchronized void recordChanges(EntityManager em, Map<String, Integer> versions, Date time) {
+		for (Entry<String, Integer> version : versions.entrySet()) {
+			changes.add(new Change(version.getKey(), version.getValue(), time));
+		}
+	}
+
+	@Override
+	public void readChanges(EntityManager em, ChangedComponentVisitor visitor) {
+		List<Change> newChanges;
+		synchronized (this) {
+			long end = discarded + changes.size();
+			if (position < 0) {
+				position = end;
+				return;
+			}
+			newChanges = new ArrayList<Change>(changes.subList((int) (Math.max(position, discarded) - discarded), changes.size()));
+			position = end;
+		}
+		for (Change change : newChanges) {
+			visitor.operateOnComponent(change.componentId, change.version);
+		}
+	}
+
+	@Override
+	public synchronized void discardChanges(EntityManager em, Date cutoff) {
+		Iterator<Change> it = changes.iterator();
+		while (it.hasNext() && it.next().time.before(cutoff)) {
+			it.remove();
+			discarded++;
+		}
+	}
+
+	private static class Change {
+		private final String componentId;
+		private final int version;
+		private final Date time;
+
+		public Change(String componentId, int version, Date time) {
+			this.componentId = componentId;
+			this.version = version;
+			this.time = time;
+		}
+	}
+}
@@ -47,7 +47,7 @@ import java.io.IOException;
 import java.io.InputStream;
 import java.io.Serializable;
 import java.io.UnsupportedEncodingException;
-import java.lang.ref.WeakReference;
+import java.util.AbstractMap;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
@@ -55,8 +55,7 @@ import java.util.Comparator;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.HashSet;
-import java.util.Iterator;
-import java.util.LinkedList;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -65,7 +64,6 @@ import java.util.Set;
 import java.util.Timer;
 import java.util.TimerTask;
 import java.util.TreeSet;
-import java.util.concurrent.ConcurrentHashMap;
 
 import javax.persistence.Cache;
 import javax.persistence.EntityManager;
@@ -74,7 +72,6 @@ import javax.persistence.NoResultException;
 import javax.persistence.OptimisticLockException;
 import javax.persistence.Persistence;
 import javax.persistence.Query;
-import javax.persistence.TemporalType;
 import javax.persistence.TypedQuery;
 import javax.xml.bind.JAXBContext;
 import javax.xml.bind.JAXBException;
@@ -94,9 +91,11 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	private static final ComponentIdComparator COMPONENT_ID_COMPARATOR = new ComponentIdComparator();
 	private static final long MINIMUM_POLLING_INTERVAL = 10; // Don't poll more often than 10 ms 
 	private static final int DEFAULT_MAX_RESULTS = 100; // Default max search results
+	private static final int MAX_IDS_PER_QUERY = 500; // Keep IN lists within database limits
+	private static final long CHANGE_RETENTION = 24L * 60 * 60 * 1000; // Keep logged changes for a day
+	private static final int POLLS_PER_CLEANUP = 1000;
 	
-	private final ConcurrentHashMap<String, List<WeakReference<AbstractComponent>>> cache = 
-			new ConcurrentHashMap<String, List<WeakReference<AbstractComponent>>>(); 
+	private final ComponentCache cache = new ComponentCache();
 	private Platform platform = null;
 
 	private StepBehindCache<Set<String>> allUsers =
@@ -140,6 +139,7 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	private PollTime lastPollTime;
 	private Date lastModified;
 	private long pollingInterval;
+	private ChangeFeed changeFeed = new ChangeLogFeed();
 	private int maxResults = DEFAULT_MAX_RESULTS;
 	
 	public void bind(Platform platform) {
@@ -152,6 +152,10 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
 	}
 	
+	void setChangeFeed(ChangeFeed changeFeed) {
+		this.changeFeed = changeFeed;
+	}
+	
 	public void setEntityManagerProperties(Properties p) {
 		ClassLoader originalCL = Thread.currentThread().getContextClassLoader();
 		Thread.currentThread().setContextClassLoader(getClass().getClassLoader());
@@ -187,6 +191,11 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		} catch (NumberFormatException nfe) {
 			// Stick with the default
 		}
+		// Changes are read from the change log table shared by all clients, unless 
+		// configured to only see changes made within this process
+		if ("local".equals(persistenceProperties.getProperty("mct.database_changeFeed"))) {
+			changeFeed = new LocalChangeFeed();
+		}
 		try {
 			String maxResultsString = persistenceProperties.getProperty("mct.database_maxResults");
 			if (maxResultsString != null) {
@@ -405,7 +414,7 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		return userNames;
 	}
 	
-	private ExtendedProperties createExtendedProperties(String props) {
+	private static ExtendedProperties createExtendedProperties(String props) {
 			Unmarshaller unmarshaller;
 			try {
 				unmarshaller = propContext.createUnmarshaller();
@@ -433,12 +442,21 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
 	}
 	
-	private ViewState createViewState(String viewType, String componentId, ExtendedProperties viewData, EntityManager em, ComponentSpec cs) {
-		ViewStatePK viewStatePK = new ViewStatePK();
-		viewStatePK.setComponentId(componentId);
-		viewStatePK.setViewType(viewType);
-		ViewState vs = em.find(ViewState.class, viewStatePK);
+	private ViewState createViewState(String viewType, String componentId, ExtendedProperties viewData, ComponentSpec cs) {
+		ViewState vs = null;
+		if (cs.getViewStateCollection() != null) {
+			// the view states of the component are loaded at once, rather than queried one by one
+			for (ViewState existing : cs.getViewStateCollection()) {
+				if (viewType.equals(existing.getViewStatePK().getViewType())) {
+					vs = existing;
+					break;
+				}
+			}
+		}
 		if (vs == null) {
+			ViewStatePK viewStatePK = new ViewStatePK();
+			viewStatePK.setComponentId(componentId);
+			viewStatePK.setViewType(viewType);
 			vs = new ViewState();
 			vs.setViewStatePK(viewStatePK);
 			if (cs.getViewStateCollection() == null) {
@@ -451,6 +469,10 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	}
 	
 	private void updateComponentSpec(AbstractComponent ac,ComponentSpec cs,EntityManager em, boolean fullSave) {
+		updateComponentSpec(ac, cs, em, fullSave, Collections.<String,ComponentSpec>emptyMap());
+	}
+	
+	private void updateComponentSpec(AbstractComponent ac,ComponentSpec cs,EntityManager em, boolean fullSave, Map<String,ComponentSpec> loadedSpecs) {
 		cs.setComponentId(ac.getComponentId());
 		cs.setComponentName(ac.getDisplayName());
 		cs.setOwner(ac.getOwner());
@@ -469,24 +491,75 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
 		
 		// save relationships
-		// non optimal implementation as this will require a query to get the relationships
-		cs.setReferencedComponents(new ArrayList<ComponentSpec>(ac.getComponents().size()));
+		List<ComponentSpec> references = new ArrayList<ComponentSpec>(ac.getComponents().size());
 		for (AbstractComponent c : ac.getComponents()) {
-			ComponentSpec refCs = em.find(ComponentSpec.class, c.getComponentId());
+			ComponentSpec refCs = loadedSpecs.get(c.getComponentId());
+			if (refCs == null) {
+				refCs = em.find(ComponentSpec.class, c.getComponentId());
+			}
 			if (refCs == null) {
 				// this can be null if the component has been deleted
 				continue;
 			}
-			cs.getReferencedComponents().add(refCs);
+			references.add(refCs);
+		}
+		// replacing the list rewrites every relationship row, so only do so if they changed
+		if (!references.equals(cs.getReferencedComponents())) {
+			cs.setReferencedComponents(references);
 		}
 		
 		// save views
 		ComponentInitializer ci = ac.getCapability(ComponentInitializer.class);
-		if (ci.getMutatedViewRoleProperties() != null) {
+		if (hasChangedViews(ci)) {
 			for (Entry<String,ExtendedProperties> viewEntry : ci.getAllViewRoleProperties().entrySet()) {
-				createViewState(viewEntry.getKey(), cs.getComponentId(), viewEntry.getValue(),em,cs);
+				createViewState(viewEntry.getKey(), cs.getComponentId(), viewEntry.getValue(),cs);
+			}
+		}
+	}
+	
+	private static boolean hasChangedViews(ComponentInitializer ci) {
+		Map<String,ExtendedProperties> viewProperties = ci.getMutatedViewRoleProperties();
+		// view states loaded but never used are unchanged
+		return viewProperties != null && !(viewProperties instanceof LoadedViewStates && !((LoadedViewStates) viewProperties).isUsed());
+	}
+	
+	/**
+	 * Loads the specs of the components to persist and of the components they reference, 
+	 * with a few queries for all of them rather than a few for each.
+	 */
+	private Map<String, ComponentSpec> loadComponentSpecs(EntityManager em, Collection<AbstractComponent> components) {
+		Map<String, ComponentSpec> specs = new HashMap<String, ComponentSpec>();
+		Set<String> componentIds = new HashSet<String>();
+		Set<String> viewComponentIds = new HashSet<String>();
+		Set<String> referencedIds = new HashSet<String>();
+		for (AbstractComponent ac : components) {
+			// new components are not in the database yet
+			if (ac.getCreationDate() != null) {
+				componentIds.add(ac.getComponentId());
+				if (hasChangedViews(ac.getCapability(ComponentInitializer.class))) {
+					viewComponentIds.add(ac.getComponentId());
+				}
+			}
+			for (AbstractComponent child : ac.getComponents()) {
+				referencedIds.add(child.getComponentId());
 			}
 		}
+		
+		for (ComponentSpec cs : findInBatches(em, "ComponentSpec.findWithReferencedComponents", componentIds)) {
+			specs.put(cs.getComponentId(), cs);
+			for (ComponentSpec ref : cs.getReferencedComponents()) {
+				if (ref != null) {
+					specs.put(ref.getComponentId(), ref);
+				}
+			}
+		}
+		// loads the view states into the specs already in the persistence context
+		findInBatches(em, "ComponentSpec.findWithViewStates", viewComponentIds);
+		referencedIds.removeAll(specs.keySet());
+		for (ComponentSpec cs : findInBatches(em, "ComponentSpec.findByIds", referencedIds)) {
+			specs.put(cs.getComponentId(), cs);
+		}
+		return specs;
 	}
 	
 	@Override
@@ -500,35 +573,44 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
 		try {
 			em.getTransaction().begin();
+			Map<String, ComponentSpec> specs = loadComponentSpecs(em, componentsToPersist);
 			// first persist all new components, without relationships, model, and view states 
 			for (AbstractComponent nc : componentsToPersist) {
 				if (nc.getCreationDate() == null) {
 					ComponentSpec cs = new ComponentSpec();
 					updateComponentSpec(nc, cs, em, false);
 					em.persist(cs);
+					specs.put(cs.getComponentId(), cs);
 				}
 			}
 			
 			// now persist the data
 			for (AbstractComponent c : componentsToPersist) {
-				updateComponentSpec(c, em.find(ComponentSpec.class, c.getComponentId()), em, true);
-			}
-			em.flush();
+				ComponentSpec cs = specs.get(c.getComponentId());
+				if (cs == null) {
+					cs = em.find(ComponentSpec.class, c.getComponentId());
+				}
+				updateComponentSpec(c, cs, em, true, specs);
+			}
+			em.flush();
+			// versions are now final, so tell other clients about them as part of this transaction
+			Map<String, Integer> versions = new LinkedHashMap<String, Integer>();
+			for (AbstractComponent c : componentsToPersist) {
+				versions.put(c.getComponentId(), specs.get(c.getComponentId()).getObjVersion());
+			}
+			changeFeed.recordChanges(em, versions, lastModified);
 			em.getTransaction().commit();
+			// creation dates and versions are as flushed, so need not be read back
 			for (AbstractComponent c : componentsToPersist) {
+				ComponentSpec cs = specs.get(c.getComponentId());
 				ComponentInitializer ci = c.getCapability(ComponentInitializer.class);
 				ci.componentSaved();
 				if (c.getCreationDate() == null) {
-					ci.setCreationDate(em.find(ComponentSpec.class, c.getComponentId()).getDateCreated());
+					ci.setCreationDate(cs.getDateCreated());
 				}
-				c.getCapability(Updatable.class).setVersion(em.find(ComponentSpec.class, c.getComponentId()).getObjVersion());
+				c.getCapability(Updatable.class).setVersion(cs.getObjVersion());
 				c.componentSaved();
-				List<WeakReference<AbstractComponent>> list = cache.get(c.getComponentId());
-				if (list == null) {
-					list = Collections.synchronizedList(new LinkedList<WeakReference<AbstractComponent>>());
-					cache.put(c.getComponentId(), list);
-				}
-				list.add(new WeakReference<AbstractComponent>(c));
+				cache.add(c);
 			}
 		} catch(OptimisticLockException ole) {
 			throw new gov.nasa.arc.mct.api.persistence.OptimisticLockException(ole);
@@ -544,7 +626,13 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	public void delete(Collection<AbstractComponent> componentsToDelete) {
 		EntityManager em = entityManagerFactory.createEntityManager();
 		try {
-			em.getTransaction().begin();
+			em.getTransaction().begin();
+			Date lastModified = lastPollTime != null ? 
+					lastPollTime.getAdjustedNow() : getCurrentTimeFromDatabase();
+			if (lastModified == null) {
+				lastModified = new Date();
+			}
+			Set<ComponentSpec> changedComponents = new HashSet<ComponentSpec>();
 			for (AbstractComponent component:componentsToDelete) {
 				ComponentSpec componentToDelete = em.find(ComponentSpec.class, component.getComponentId());
 				if (componentToDelete == null) {
@@ -553,18 +641,21 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 				}
 				TypedQuery<ComponentSpec> q = em.createNamedQuery("ComponentSpec.findReferencingComponents", ComponentSpec.class);
 				q.setParameter("component", component.getComponentId());
-				List<ComponentSpec> referencingComponents = q.getResultList();
-				Date lastModified = lastPollTime != null ? 
-						lastPollTime.getAdjustedNow() : getCurrentTimeFromDatabase();
-				if (lastModified == null) {
-					lastModified = new Date();
-				}
+				List<ComponentSpec> referencingComponents = q.getResultList();
 				for (ComponentSpec cs:referencingComponents) {
-					cs.getReferencedComponents().remove(componentToDelete);
-					cs.setLastModified(lastModified != null ? lastModified : new Date());
+					cs.getReferencedComponents().remove(componentToDelete);
+					cs.setLastModified(lastModified);
 				}
+				changedComponents.addAll(referencingComponents);
+				changedComponents.remove(componentToDelete);
 				em.remove(componentToDelete);
 			}
+			em.flush();
+			Map<String, Integer> versions = new LinkedHashMap<String, Integer>();
+			for (ComponentSpec cs:changedComponents) {
+				versions.put(cs.getComponentId(), cs.getObjVersion());
+			}
+			changeFeed.recordChanges(em, versions, lastModified);
 			em.getTransaction().commit();
 		} finally {
 			if (em.getTransaction().isActive()) {
@@ -594,28 +685,150 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	@Override
 	public List<AbstractComponent> getReferencedComponents(
 			AbstractComponent component) {
-		List<AbstractComponent> references = new ArrayList<AbstractComponent>();
-		EntityManager em = entityManagerFactory.createEntityManager();
-		if (component.getComponentId() != null) {
-			try {
-				ComponentSpec reference = em.find(ComponentSpec.class, component.getComponentId());
-					if (reference != null) {
-					List<ComponentSpec> referencedComponents = reference.getReferencedComponents();
-					for (ComponentSpec cs:referencedComponents) {
-						if (cs != null) {
-							AbstractComponent ac = createAbstractComponent(cs);
-							references.add(ac);
-						}
+		List<AbstractComponent> references = null;
+		if (component.getComponentId() != null) {
+			references = getReferencedComponents(Collections.singleton(component)).get(component.getComponentId());
+		}
+		
+		return references == null ? new ArrayList<AbstractComponent>() : references;
+	}
+	
+	@Override
+	public Map<String, List<AbstractComponent>> getReferencedComponents(
+			Collection<AbstractComponent> components) {
+		Map<String, List<AbstractComponent>> references = new HashMap<String, List<AbstractComponent>>();
+		Set<String> componentIds = new HashSet<String>();
+		for (AbstractComponent component : components) {
+			if (component.getComponentId() != null) {
+				componentIds.add(component.getComponentId());
+			}
+		}
+		if (componentIds.isEmpty()) {
+			return references;
+		}
+		
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			// fetch the components with their references, then the references with their view states
+			List<ComponentSpec> parents = findInBatches(em, "ComponentSpec.findWithReferencedComponents", componentIds);
+			Set<String> referencedIds = new HashSet<String>();
+			for (ComponentSpec parent : parents) {
+				for (ComponentSpec cs : parent.getReferencedComponents()) {
+					if (cs != null) {
+						referencedIds.add(cs.getComponentId());
 					}
 				}
-			} finally {
-				em.close();
-			}
+			}
+			findInBatches(em, "ComponentSpec.findWithViewStates", referencedIds);
+			
+			// components referenced more than once are only created once
+			Map<String, AbstractComponent> created = new HashMap<String, AbstractComponent>();
+			for (ComponentSpec parent : parents) {
+				List<AbstractComponent> referencedComponents = new ArrayList<AbstractComponent>(parent.getReferencedComponents().size());
+				for (ComponentSpec cs : parent.getReferencedComponents()) {
+					if (cs != null) {
+						AbstractComponent ac = created.get(cs.getComponentId());
+						if (ac == null) {
+							ac = createAbstractComponent(cs);
+							ac.getCapability(ComponentInitializer.class).setLoadedViewRoleProperties(new LoadedViewStates(cs.getViewStateCollection()));
+							created.put(cs.getComponentId(), ac);
+						}
+						referencedComponents.add(ac);
+					}
+				}
+				references.put(parent.getComponentId(), referencedComponents);
+			}
+		} finally {
+			em.close();
 		}
 		
 		return references;
 	}
 	
+	@Override
+	public void prefetchReferencedComponents(Collection<AbstractComponent> components, int depth) {
+		Collection<AbstractComponent> level = components;
+		for (int i = 0; i < depth && !level.isEmpty(); i++) {
+			List<AbstractComponent> parents = new ArrayList<AbstractComponent>(level.size());
+			for (AbstractComponent component : level) {
+				if (!component.isLeaf()) {
+					parents.add(component);
+				}
+			}
+			Map<String, List<AbstractComponent>> references = getReferencedComponents(parents);
+			List<AbstractComponent> nextLevel = new ArrayList<AbstractComponent>();
+			for (AbstractComponent parent : parents) {
+				List<AbstractComponent> loaded = references.get(parent.getComponentId());
+				if (loaded != null) {
+					parent.getCapability(ComponentInitializer.class).setLoadedReferences(loaded);
+					// descend into the references held, which differ from those loaded if they had been loaded before
+					nextLevel.addAll(parent.getComponents());
+				}
+			}
+			level = nextLevel;
+		}
+	}
+	
+	private List<ComponentSpec> findInBatches(EntityManager em, String queryName, Collection<String> componentIds) {
+		List<ComponentSpec> found = new ArrayList<ComponentSpec>(componentIds.size());
+		List<String> ids = new ArrayList<String>(componentIds);
+		for (int i = 0; i < ids.size(); i += MAX_IDS_PER_QUERY) {
+			TypedQuery<ComponentSpec> q = em.createNamedQuery(queryName, ComponentSpec.class);
+			q.setParameter("components", ids.subList(i, Math.min(ids.size(), i + MAX_IDS_PER_QUERY)));
+			found.addAll(q.getResultList());
+		}
+		return found;
+	}
+	
+	/**
+	 * The view states of a component loaded along with it, which are only unmarshalled 
+	 * once the component's view properties are first used.
+	 */
+	private static final class LoadedViewStates extends AbstractMap<String, ExtendedProperties> {
+		private Map<String, String> marshalled = new HashMap<String, String>();
+		private final Map<String, ExtendedProperties> properties = new HashMap<String, ExtendedProperties>();
+		
+		LoadedViewStates(Collection<ViewState> viewStates) {
+			for (ViewState vs : viewStates) {
+				marshalled.put(vs.getViewStatePK().getViewType(), vs.getViewInfo());
+			}
+		}
+		
+		synchronized boolean isUsed() {
+			return marshalled == null;
+		}
+		
+		private synchronized Map<String, ExtendedProperties> unmarshalled() {
+			if (marshalled != null) {
+				for (Entry<String, String> e : marshalled.entrySet()) {
+					properties.put(e.getKey(), createExtendedProperties(e.getValue()));
+				}
+				marshalled = null;
+			}
+			return properties;
+		}
+		
+		@Override
+		public Set<Entry<String, ExtendedProperties>> entrySet() {
+			return unmarshalled().entrySet();
+		}
+		
+		@Override
+		public ExtendedProperties get(Object key) {
+			return unmarshalled().get(key);
+		}
+		
+		@Override
+		public boolean containsKey(Object key) {
+			return unmarshalled().containsKey(key);
+		}
+		
+		@Override
+		public ExtendedProperties put(String key, ExtendedProperties value) {
+			return unmarshalled().put(key, value);
+		}
+	}
+	
 	@Override
 	public User getUser(String userId) {
 		EntityManager em = entityManagerFactory.createEntityManager();
@@ -717,12 +930,7 @@ public class PersistenceServiceImpl implements PersistenceProvider {
         }
 		
 		// Add ac to cache
-		List<WeakReference<AbstractComponent>> list = cache.get(cs.getComponentId());
-		if (list == null) {
-			list = Collections.synchronizedList(new LinkedList<WeakReference<AbstractComponent>>());
-		}
-		list.add(new WeakReference<AbstractComponent>(ac));
-		cache.put(cs.getComponentId(), list);
+		cache.add(ac);
 		return ac;
     }
     
@@ -768,46 +976,40 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
 	}
 
-	private void iterateOverChangedComponents(ChangedComponentVisitor v) {		
-		if (lastPollTime == null) {
-			Date storeTime = getCurrentTimeFromDatabase();
-			if (storeTime == null)
+	private void readChangedComponents(ChangedComponentVisitor v) {
+		if (lastPollTime == null || pollCounter % POLLS_PER_CLEANUP == 0) {
+			// Refresh the prediction of database time used for last modified dates
+			Date storeTime = getCurrentTimeFromDatabase();
+			if (storeTime == null)
 				return;
 			else
-				lastPollTime = new PollTime(storeTime);
+				lastPollTime = new PollTime(storeTime);
+		}
+		
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			changeFeed.readChanges(em, v);
+		} catch (Exception t) {
+			LOGGER.error("error reading changed components", t);
+		} finally {
+			em.close();
+		}
+	}
+	
+	private void discardOldChanges() {
+		EntityManager em = entityManagerFactory.createEntityManager();
+		try {
+			em.getTransaction().begin();
+			changeFeed.discardChanges(em, new Date(lastPollTime.getAdjustedNow().getTime() - CHANGE_RETENTION));
+			em.getTransaction().commit();
+		} catch (Exception t) {
+			LOGGER.error("error discarding old changes", t);
+		} finally {
+			if (em.getTransaction().isActive()) {
+				em.getTransaction().rollback();
+			}
+			em.close();
 		}
-		
-        String query = "SELECT CURRENT_TIMESTAMP, c FROM ComponentSpec c WHERE c.lastModified BETWEEN ?1 AND CURRENT_TIMESTAMP";
-        EntityManager em = entityManagerFactory.createEntityManager();        
-        try {
-            Query q = em.createQuery(query);
-            q.setParameter(1, new Date(lastPollTime.getStoreTime().getTime() - pollingInterval), TemporalType.TIMESTAMP);
-            final int MAX_CACHE_SIZE = 500;
-            int iteration = 0;
-            boolean done = false;
-            while(!done) {
-	            q.setFirstResult(MAX_CACHE_SIZE * iteration);
-	            q.setMaxResults(MAX_CACHE_SIZE);
-	            @SuppressWarnings("rawtypes")
-				List resultList = q.getResultList();
-	            for (int i=0; i<resultList.size(); i++) {
-	            	for (Object obj : (Object[]) resultList.get(i)) {
-	            		if (obj instanceof ComponentSpec)
-	            			v.operateOnComponent((ComponentSpec) obj);
-	            		if (obj instanceof Date)
-	            			lastPollTime = new PollTime((Date) obj);
-	            	}
-	            }    	
-            	done = resultList.size() < MAX_CACHE_SIZE;
-            	iteration++;
-            	em.clear();
-            }
-        } catch (Exception t) {
-            LOGGER.error("error executing query", t);
-        } finally {
-            em.close();
-        }        
-
 	}
 	
 	private void cleanCacheIfNecessary(String componentId, int latestVersion) {
@@ -822,14 +1024,14 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
 	}
 	
-    private void updateComponentIfNecessary(final ComponentSpec c, final Collection<AbstractComponent> cachedComponents) {
+    private void updateComponentIfNecessary(final String componentId, final int version, final Collection<AbstractComponent> cachedComponents) {
     	Collection<AbstractComponent> delegateComponets = new ArrayList<AbstractComponent>();
     	for (final AbstractComponent ac : cachedComponents) {
     		Updatable updatable = ac.getCapability(Updatable.class);
-    		updatable.setStaleByVersion(c.getComponentId(), c.getObjVersion());
-    		cleanCacheIfNecessary(c.getComponentId(), c.getObjVersion());
+    		updatable.setStaleByVersion(componentId, version);
+    		cleanCacheIfNecessary(componentId, version);
     		if (ac.getWorkUnitDelegate() != null) {
-    			ac.getWorkUnitDelegate().getCapability(Updatable.class).setStaleByVersion(c.getComponentId(), c.getObjVersion());
+    			ac.getWorkUnitDelegate().getCapability(Updatable.class).setStaleByVersion(componentId, version);
     			delegateComponets.add(ac.getWorkUnitDelegate());
     		}
     	}
@@ -844,7 +1046,7 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	                    updatable.notifyStale();
 	                }
 	            });
-	            LOGGER.debug("{} updated", c.getComponentName());
+	            LOGGER.debug("{} updated", ac.getDisplayName());
 	        }
     	}
     }
@@ -854,48 +1056,38 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 	@Override
 	public void updateComponentsFromDatabase() {
 		pollCounter++;
-        iterateOverChangedComponents(
+        readChangedComponents(
                 new ChangedComponentVisitor() {
                     @Override
-                    public void operateOnComponent(ComponentSpec c) {
+                    public void operateOnComponent(String componentId, int version) {
                     	// Evict referenced components from L2 cache
                     	// TODO: Find alternate solution or refactor in order
                     	//       to remove this explicit reference to Hibernate
                     	((HibernateEntityManagerFactory)entityManagerFactory)
                     	   .getSessionFactory()
                     	   .getCache().evictCollection(
-                    	       ComponentSpec.class.getName() + ".referencedComponents", 
-                    	       c.getComponentId());
-                    	List<WeakReference<AbstractComponent>> list = cache.get(c.getComponentId());
-                        if (list != null && !list.isEmpty()) {
-                        	Collection<AbstractComponent> cachedComponents = new ArrayList<AbstractComponent>(list.size());
-                        	synchronized(list) {
-                        		Iterator<WeakReference<AbstractComponent>> it = list.iterator();
-                        		while (it.hasNext()) {
-                        			AbstractComponent ac = it.next().get();
-                        			if (ac != null) {
-                        				cachedComponents.add(ac);
-                        			} else {
-                        				it.remove();
-                        			}
-                        		}
-                        	}
-                        	if (!cachedComponents.isEmpty())
-                        		updateComponentIfNecessary(c, cachedComponents);
-                        }
+                    	       ComponentSpec.class.getName() + ".referencedComponents", 
+                    	       componentId);
+                    	Collection<AbstractComponent> cachedComponents = cache.get(componentId);
+                    	if (!cachedComponents.isEmpty())
+                    		updateComponentIfNecessary(componentId, version, cachedComponents);
                     }
                 }
             );
-        if (pollCounter % 1000 == 0)
-        	cleanCache();
+        if (pollCounter % POLLS_PER_CLEANUP == 0) {
+        	LOGGER.debug("{}", cache);
+        	if (lastPollTime != null)
+        		discardOldChanges();
+        }
 	}
 	
     public interface ChangedComponentVisitor {
         /**
          * This method is invoked for each component that has changed. 
-         * @param component that has changed 
+         * @param componentId the id of the component that has changed 
+         * @param version the version of the component after the change
          */
-        void operateOnComponent(ComponentSpec component);
+        void operateOnComponent(String componentId, int version);
     }
 
     @Override
@@ -940,23 +1132,6 @@ public class PersistenceServiceImpl implements PersistenceProvider {
 		}
     }
     
-    private void cleanCache() {
-    	Iterator<String> iterator = cache.keySet().iterator();
-    	while(iterator.hasNext()) {
-    		String componentId = iterator.next();
-    		List<WeakReference<AbstractComponent>> list = cache.get(componentId);
-    		boolean canBeDeleted = true;
-    		synchronized(list) {
-	    		for (WeakReference<AbstractComponent> r : list) {
-	    			if (r.get() != null) {
-	    				 canBeDeleted = false;
-	    			}
-	    		}
-    		}
-    		if (canBeDeleted)
-    			iterator.remove();
-    	}
-    }
 
 	@Override
 	public void addNewUser(String userId, String groupId, AbstractComponent mysandbox, AbstractComponent dropbox) {
@@ -30,7 +30,7 @@ import org.testng.annotations.BeforeMethod;
 import org.testng.annotations.Test;
 
 public class TestDAOClasses {
-	private final List<Class<?>> daoClasses = Arrays.<Class<?>>asList(ComponentSpec.class, DatabaseIdentification.class, Disciplines.class, MctUsers.class, Tag.class, TagAssociation.class, ViewState.class);
+	private final List<Class<?>> daoClasses = Arrays.<Class<?>>asList(ComponentSpec.class, ComponentChange.class, DatabaseIdentification.class, Disciplines.class, MctUsers.class, Tag.class, TagAssociation.class, ViewState.class);
 	
 	@BeforeMethod
 	public void setup() {
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.dbpersistence.service;
+
+import gov.nasa.arc.mct.components.AbstractComponent;
+import gov.nasa.arc.mct.services.internal.component.ComponentInitializer;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestComponentCache {
+
+	@Test
+	public void testAddAndGet() {
+		ComponentCache cache = new ComponentCache();
+		AbstractComponent a1 = createComponent("a");
+		AbstractComponent a2 = createComponent("a");
+		AbstractComponent b = createComponent("b");
+		cache.add(a1);
+		cache.add(a2);
+		cache.add(b);
+		// each instance is only held once
+		cache.add(a1);
+
+		Assert.assertEquals(cache.size(), 2);
+		Assert.assertEquals(cache.getInstanceCount(), 3);
+		Assert.assertEquals(cache.get("a"), Arrays.asList(a1, a2));
+		Assert.assertEquals(cache.get("b"), Collections.singletonList(b));
+		Assert.assertTrue(cache.get("c").isEmpty());
+		Assert.assertEquals(cache.getHitCount(), 2);
+		Assert.assertEquals(cache.getMissCount(), 1);
+	}
+
+	@Test (timeOut = 10000)
+	public void testCollectedInstancesAreForgotten() throws Exception {
+		ComponentCache cache = new ComponentCache();
+		AbstractComponent kept = createComponent("a");
+		cache.add(kept);
+		cache.add(createComponent("a"));
+		cache.add(createComponent("b"));
+
+		// Test will time out if the instances are never collected
+		while (cache.getInstanceCount() > 1) {
+			System.gc();
+			Thread.sleep(10);
+			cache.expungeCollected();
+		}
+		Assert.assertEquals(cache.size(), 1);
+		Assert.assertEquals(cache.get("a"), Collections.singletonList(kept));
+
+		// a component can be cached again after all its instances were forgotten
+		AbstractComponent b = createComponent("b");
+		cache.add(b);
+		Assert.assertEquals(cache.get("b"), Collections.singletonList(b));
+	}
+
+	private static AbstractComponent createComponent(String id) {
+		AbstractComponent component = new AbstractComponent() {
+		};
+		component.getCapability(ComponentInitializer.class).setId(id);
+		return component;
+	}
+}
@@ -45,6 +45,7 @@ import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -443,6 +444,91 @@ public class TestPersistenceServiceImpl {
 		Assert.assertEquals(persistedParent.getComponents().iterator().next().getComponentId(), child.getComponentId());
 	}
 	
+	@Test
+	public void testGetReferencedComponentsInBulk() {
+		final TestAbstractComponent parent1 = createAbstractComponent("parent1", "1");
+		final TestAbstractComponent parent2 = createAbstractComponent("parent2", "2");
+		final TestAbstractComponent child1 = createAbstractComponent("child1", "3");
+		final TestAbstractComponent child2 = createAbstractComponent("child2", "4");
+		parent1.addDelegateComponent(child1);
+		parent1.addDelegateComponent(child2);
+		parent2.addDelegateComponent(child2);
+		ExtendedProperties ep = new ExtendedProperties(); 
+		ep.addProperty("test", "abc");
+		child2.getCapability(ComponentInitializer.class).setViewRoleProperty("test", ep);
+		serviceImpl.persist(Arrays.<AbstractComponent>asList(parent1, parent2, child1, child2));
+		
+		AbstractComponent missing = Mockito.mock(AbstractComponent.class);
+		Mockito.when(missing.getComponentId()).thenReturn("missing");
+		Map<String, List<AbstractComponent>> references = serviceImpl.getReferencedComponents(
+				Arrays.asList(serviceImpl.getComponent("1"), serviceImpl.getComponent("2"), missing));
+		Assert.assertEquals(references.size(), 2);
+		List<AbstractComponent> children = references.get("1");
+		Assert.assertEquals(children.size(), 2);
+		Assert.assertEquals(children.get(0).getComponentId(), "3");
+		Assert.assertEquals(children.get(1).getComponentId(), "4");
+		Assert.assertEquals(((TestAbstractComponent) children.get(1)).getModelValue(), "child2");
+		// a component referenced twice is only created once
+		Assert.assertSame(references.get("2").get(0), children.get(1));
+		// view states are loaded along with the components
+		ExtendedProperties loaded = children.get(1).getCapability(ComponentInitializer.class).getViewRoleProperties("test");
+		Assert.assertEquals(loaded.getProperty("test", String.class), "abc");
+		Assert.assertTrue(children.get(0).getCapability(ComponentInitializer.class).getAllViewRoleProperties().isEmpty());
+	}
+	
+	@Test
+	public void testPrefetchReferencedComponents() {
+		final TestAbstractComponent grandparent = createAbstractComponent("grandparent", "0");
+		final TestAbstractComponent parent = createAbstractComponent("parent", "1");
+		final TestAbstractComponent child = createAbstractComponent("child", "2");
+		grandparent.addDelegateComponent(parent);
+		parent.addDelegateComponent(child);
+		serviceImpl.persist(Arrays.<AbstractComponent>asList(grandparent, parent, child));
+		
+		AbstractComponent persistedGrandparent = serviceImpl.getComponent("0");
+		serviceImpl.prefetchReferencedComponents(Collections.singleton(persistedGrandparent), 2);
+		
+		// change the database behind the prefetched components
+		em.getTransaction().begin();
+		em.find(ComponentSpec.class, "1").getReferencedComponents().clear();
+		em.getTransaction().commit();
+		
+		AbstractComponent persistedParent = persistedGrandparent.getComponents().get(0);
+		Assert.assertEquals(persistedParent.getComponentId(), "1");
+		Assert.assertEquals(persistedParent.getComponents().size(), 1, "references should have been prefetched");
+		Assert.assertEquals(persistedParent.getComponents().get(0).getComponentId(), "2");
+		Assert.assertEquals(serviceImpl.getComponent("1").getComponents().size(), 0);
+	}
+	
+	@Test
+	public void testPersistUpdatesSavedComponents() {
+		final TestAbstractComponent parent = createAbstractComponent("parent", "1");
+		final TestAbstractComponent child1 = createAbstractComponent("child1", "2");
+		final TestAbstractComponent child2 = createAbstractComponent("child2", "3");
+		parent.addDelegateComponent(child1);
+		parent.addDelegateComponent(child2);
+		ExtendedProperties ep = new ExtendedProperties(); 
+		ep.addProperty("test", "abc");
+		parent.getCapability(ComponentInitializer.class).setViewRoleProperty("test", ep);
+		serviceImpl.persist(Arrays.<AbstractComponent>asList(parent, child1, child2));
+		// creation dates and versions are those written
+		Assert.assertNotNull(parent.getCreationDate());
+		Assert.assertEquals(parent.getVersion(), em.find(ComponentSpec.class, "1").getObjVersion());
+		em.clear();
+		
+		parent.removeDelegateComponent(child1);
+		ExtendedProperties changed = new ExtendedProperties(); 
+		changed.addProperty("test", "def");
+		parent.getCapability(ComponentInitializer.class).setViewRoleProperty("test", changed);
+		serviceImpl.persist(Arrays.<AbstractComponent>asList(parent));
+		ComponentSpec cs = em.find(ComponentSpec.class, "1");
+		Assert.assertEquals(parent.getVersion(), cs.getObjVersion());
+		Assert.assertEquals(cs.getReferencedComponents().size(), 1);
+		Assert.assertEquals(cs.getReferencedComponents().get(0).getComponentId(), "3");
+		Assert.assertEquals(cs.getViewStateCollection().size(), 1);
+		Assert.assertEquals(serviceImpl.getAllProperties("1").get("test").getProperty("test", String.class), "def");
+	}
+	
 	@Test
 	public void testDelete() {
 		em.getTransaction().begin();
@@ -486,7 +572,71 @@ public class TestPersistenceServiceImpl {
 		
 		AbstractComponent unsavedObj = Mockito.mock(AbstractComponent.class);
 		Mockito.when(unsavedObj.getComponentId()).thenReturn("thisObjUnsaved");
-		serviceImpl.delete(Collections.singleton(unsavedObj));
+		serviceImpl.delete(Collections.singleton(unsavedObj));
+	}
+	
+	@Test
+	public void testChangeLog() {
+		ChangeLogFeed feed = new ChangeLogFeed();
+		RecordingVisitor visitor = new RecordingVisitor();
+		// the first read only finds where the log ends
+		feed.readChanges(em, visitor);
+		Assert.assertTrue(visitor.changes.isEmpty());
+		
+		TestAbstractComponent comp = createAbstractComponent("test", "0");
+		serviceImpl.persist(Arrays.<AbstractComponent>asList(comp));
+		int version = em.find(ComponentSpec.class, "0").getObjVersion();
+		em.clear();
+		feed.readChanges(em, visitor);
+		Assert.assertEquals(visitor.changes, Collections.singletonList("0:" + version));
+		Assert.assertEquals(feed.getGapCount(), 0);
+		
+		// only new changes are read
+		visitor.changes.clear();
+		feed.readChanges(em, visitor);
+		Assert.assertTrue(visitor.changes.isEmpty());
+		
+		em.getTransaction().begin();
+		feed.discardChanges(em, new Date(System.currentTimeMillis() + 60000));
+		em.getTransaction().commit();
+		Assert.assertNull(em.createNamedQuery("ComponentChange.findLastSeqNo", Long.class).getSingleResult());
+	}
+	
+	@Test
+	public void testDeleteRecordsChanges() {
+		LocalChangeFeed feed = new LocalChangeFeed();
+		serviceImpl.setChangeFeed(feed);
+		em.getTransaction().begin();
+		ComponentSpec child = createComponentSpec("3", "xyz", "deleted", "123", "xyz", Collections.<Tag>emptyList(), Collections.<String,String>emptyMap());
+		ComponentSpec parent = createComponentSpec("1", "xyz", "parent", "123", "xyz", Collections.<Tag>emptyList(), Collections.<String,String>emptyMap());
+		parent.getReferencedComponents().add(child);
+		em.persist(child);
+		em.persist(parent);
+		em.getTransaction().commit();
+		em.clear();
+		
+		RecordingVisitor visitor = new RecordingVisitor();
+		feed.readChanges(em, visitor);
+		serviceImpl.delete(Collections.singleton(serviceImpl.getComponent("3")));
+		int version = em.find(ComponentSpec.class, "1").getObjVersion();
+		// the deleted component is not reported, only the component which referenced it
+		feed.readChanges(em, visitor);
+		Assert.assertEquals(visitor.changes, Collections.singletonList("1:" + version));
+		
+		visitor.changes.clear();
+		feed.discardChanges(em, new Date(System.currentTimeMillis() + 60000));
+		feed.recordChanges(em, Collections.singletonMap("1", version + 1), new Date());
+		feed.readChanges(em, visitor);
+		Assert.assertEquals(visitor.changes, Collections.singletonList("1:" + (version + 1)));
+	}
+	
+	private static class RecordingVisitor implements PersistenceServiceImpl.ChangedComponentVisitor {
+		private final List<String> changes = new ArrayList<String>();
+		
+		@Override
+		public void operateOnComponent(String componentId, int version) {
+			changes.add(componentId + ":" + version);
+		}
 	}
 	
 	@DataProvider(name="referencingComponents")
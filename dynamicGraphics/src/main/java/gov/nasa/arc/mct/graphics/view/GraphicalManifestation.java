@@ -164,6 +164,11 @@ public class GraphicalManifestation extends FeedView implements RenderingCallbac
 		updateFromFeed(data);
 	}
 
+	@Override
+	public boolean isLatestValueOnly() {
+		return true;
+	}
+
 	@Override
 	public void updateFromFeed(Map<String, List<Map<String, String>>> data) {		
 		AbstractComponent component = getManifestedComponent();
@@ -24,6 +24,7 @@ package org.acme.example.telemetry;
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.JAXBModelStatePersistence;
+import gov.nasa.arc.mct.components.ModelStateCodecs;
 import gov.nasa.arc.mct.components.ModelStatePersistence;
 import gov.nasa.arc.mct.services.activity.TimeService;
 
@@ -44,6 +45,11 @@ public class TelemetryComponent extends AbstractComponent implements
 		FeedProvider {
 	
 	public static final String TelemetryPrefix = "example:";
+	
+	static {
+		ModelStateCodecs.register(TelemetryModel.class, new TelemetryModelCodec());
+	}
+	
 	private AtomicReference<TelemetryModel> model = new AtomicReference<TelemetryModel> (new TelemetryModel());
 	
 	public TelemetryComponent() {
@@ -0,0 +1,67 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package org.acme.example.telemetry;
+
+import gov.nasa.arc.mct.components.ModelStateCodec;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Writes the <code>TelemetryModel</code> in binary rather than as XML, when the system property
+ * <code>mct.modelState.writeBinary</code> is set to true. Models saved as XML continue to be
+ * read through JAXB.
+ */
+public class TelemetryModelCodec implements ModelStateCodec<TelemetryModel> {
+	private static final int VERSION = 1;
+
+	@Override
+	public int getVersion() {
+		return VERSION;
+	}
+
+	@Override
+	public void write(TelemetryModel state, DataOutput out) throws IOException {
+		writeString(state.getData().getId(), out);
+		writeString(state.getData().getDescription(), out);
+	}
+
+	@Override
+	public TelemetryModel read(DataInput in, int version) throws IOException {
+		TelemetryModel model = new TelemetryModel();
+		model.getData().setId(readString(in));
+		model.getData().setDescription(readString(in));
+		return model;
+	}
+
+	private static void writeString(String s, DataOutput out) throws IOException {
+		out.writeBoolean(s != null);
+		if (s != null) {
+			out.writeUTF(s);
+		}
+	}
+
+	private static String readString(DataInput in) throws IOException {
+		return in.readBoolean() ? in.readUTF() : null;
+	}
+}
@@ -0,0 +1,126 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package org.acme.example.telemetry;
+
+import gov.nasa.arc.mct.components.JAXBModelStatePersistence;
+import gov.nasa.arc.mct.components.ModelStateCodecs;
+
+import java.io.StringReader;
+import java.io.StringWriter;
+
+import javax.xml.bind.JAXBContext;
+import javax.xml.bind.JAXBException;
+
+/**
+ * Compares saving and loading the <code>TelemetryModel</code> of a workspace through a 
+ * new JAXB context and marshaller per call, as done before the marshallers were pooled, 
+ * through the pooled marshallers of {@link JAXBModelStatePersistence}, and through the 
+ * binary {@link TelemetryModelCodec}. Run with the test classpath, enabling binary states:
+ * <pre>java -Dmct.modelState.writeBinary=true org.acme.example.telemetry.ModelStateBenchmark [models] [rounds]</pre>
+ */
+public class ModelStateBenchmark {
+
+	public static void main(String[] args) throws JAXBException {
+		int models = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+		int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+		if (!ModelStateCodecs.isBinaryWriteEnabled()) {
+			System.err.println("Binary states are not enabled, run with -Dmct.modelState.writeBinary=true");
+			return;
+		}
+
+		TelemetryModel[] states = new TelemetryModel[models];
+		for (int i = 0; i < models; i++) {
+			states[i] = new TelemetryModel();
+			states[i].getData().setId(TelemetryComponent.TelemetryPrefix + "Feed" + i);
+			states[i].getData().setDescription("Telemetry feed number " + i);
+		}
+		final TelemetryModel[] current = new TelemetryModel[1];
+		JAXBModelStatePersistence<TelemetryModel> persistence = new JAXBModelStatePersistence<TelemetryModel>() {
+			@Override
+			protected TelemetryModel getStateToPersist() {
+				return current[0];
+			}
+
+			@Override
+			protected void setPersistentState(TelemetryModel modelState) {
+				current[0] = modelState;
+			}
+
+			@Override
+			protected Class<TelemetryModel> getJAXBClass() {
+				return TelemetryModel.class;
+			}
+		};
+
+		for (int round = 0; round < rounds; round++) {
+			long start = System.nanoTime();
+			int length = 0;
+			for (TelemetryModel state : states) {
+				JAXBContext context = JAXBContext.newInstance(TelemetryModel.class);
+				StringWriter writer = new StringWriter();
+				context.createMarshaller().marshal(state, writer);
+				length += writer.toString().length();
+				TelemetryModel read = (TelemetryModel) context.createUnmarshaller().unmarshal(new StringReader(writer.toString()));
+				check(state, read);
+			}
+			long perCallNanos = System.nanoTime() - start;
+			int perCallLength = length;
+
+			ModelStateCodecs.unregister(TelemetryModel.class);
+			start = System.nanoTime();
+			length = 0;
+			for (TelemetryModel state : states) {
+				length += roundTrip(persistence, current, state);
+			}
+			long pooledNanos = System.nanoTime() - start;
+			int pooledLength = length;
+
+			ModelStateCodecs.register(TelemetryModel.class, new TelemetryModelCodec());
+			start = System.nanoTime();
+			length = 0;
+			for (TelemetryModel state : states) {
+				length += roundTrip(persistence, current, state);
+			}
+			long binaryNanos = System.nanoTime() - start;
+
+			System.out.printf("round %2d: per call JAXB %7.1f us/model (%d chars), pooled JAXB %7.1f us/model (%d chars), binary %7.1f us/model (%d chars)%n", 
+							round, perCallNanos / 1000.0 / models, perCallLength / models, 
+							pooledNanos / 1000.0 / models, pooledLength / models,
+							binaryNanos / 1000.0 / models, length / models);
+		}
+	}
+
+	private static int roundTrip(JAXBModelStatePersistence<TelemetryModel> persistence, TelemetryModel[] current, TelemetryModel state) {
+		current[0] = state;
+		String saved = persistence.getModelState();
+		persistence.setModelState(saved);
+		check(state, current[0]);
+		return saved.length();
+	}
+
+	private static void check(TelemetryModel expected, TelemetryModel actual) {
+		if (expected == actual || !expected.getData().getId().equals(actual.getData().getId()) ||
+				!expected.getData().getDescription().equals(actual.getData().getDescription())) {
+			throw new AssertionError("model state not read back");
+		}
+	}
+}
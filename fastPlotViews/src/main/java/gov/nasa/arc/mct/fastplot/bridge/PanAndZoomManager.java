@@ -132,9 +132,8 @@ public class PanAndZoomManager {
 		plot.getPlotAbstraction().updateResetButtons();
 		plot.refreshDisplay();
 		//Always request data refresh
-		plot.clearAllDataFromPlot();
 		plot.getLimitManager().setModeUntranslated(false);
-		plot.getPlotAbstraction().requestPlotData(plot.getCurrentTimeAxisMin(), plot.getCurrentTimeAxisMax());
+		plot.getPlotDataManager().resizeAndReloadPlotBuffer();
 
 	}
 
@@ -170,6 +170,10 @@ public class PlotConstants {
     
     public static final int MAXIMUM_PLOT_DATA_BUFFER_SLIZE_REQUEST_SIZE = 12 * MILLISECONDS_IN_HOUR ;
 
+    // Number of levels of detail kept for each data series, so zooming out by up to 2^(levels - 1)
+    // and panning over loaded data can be redrawn without requesting data again.
+    public static final int LEVEL_OF_DETAIL_LEVELS = 8;
+
     // Panning and zooming controls
     public static final double PANNING_NON_TIME_AXIS_PERCENTAGE = 25;
     public static final double PANNING_PERCENTAGE = 25;
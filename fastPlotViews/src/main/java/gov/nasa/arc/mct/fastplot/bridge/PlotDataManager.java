@@ -30,8 +30,10 @@ import java.awt.Font;
 import java.awt.Rectangle;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
+import java.util.ArrayList;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.SortedMap;
@@ -43,6 +45,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import plotter.xy.CompressingXYDataset;
+import plotter.xy.MinMaxPyramid;
 import plotter.xy.XYPlotContents;
 
 /**
@@ -95,6 +98,19 @@ public class PlotDataManager implements AbstractPlotDataManager {
 	private GregorianCalendar plotDataBufferStartTime;
 	private GregorianCalendar plotDataBufferEndTime;
 
+	/** Span of time, in milliseconds, that data has been requested or received for. Data outside of it 
+	    has to be requested from the MCT buffer. The span is empty if the start is after the end. */
+	private long loadedStartTime = Long.MAX_VALUE;
+	private long loadedEndTime = Long.MIN_VALUE;
+
+	/** Flag to record that the next update from cache only fills in data missing from the series, 
+	    so the data already in the series must be kept. */
+	private boolean retainDataOnRefresh = false;
+
+	/** Flag to record that the series show data redrawn from their levels of detail while waiting for a 
+	    full update from cache, and must be reset when the first new data arrives. */
+	private boolean resetOnFirstRefreshData = false;
+
 	
 	/**
 	 * Create a datamanager for the plot passed in
@@ -172,6 +188,11 @@ public class PlotDataManager implements AbstractPlotDataManager {
 			return;
 		}
 
+		if (resetOnFirstRefreshData) {
+			// Stop showing the redrawn data now that its replacement is arriving.
+			resetPlotDataSeries();
+		}
+
 		setupCompressionRatio();
 
 		// prevent plotting of data if it is not compatible with scrunch settings.
@@ -220,6 +241,10 @@ public class PlotDataManager implements AbstractPlotDataManager {
 			return;
 		}
 
+		if (loadedStartTime <= loadedEndTime && points.lastKey() > loadedEndTime) {
+			loadedEndTime = points.lastKey();
+		}
+
 		CompressingXYDataset dataset = dataSeries.get(feed).getData();
 		double min;
 		double max;
@@ -234,17 +259,7 @@ public class PlotDataManager implements AbstractPlotDataManager {
 		double datasetMaxTime = Math.max(min, max);
 
 		if(dataset.getPointCount() == 0 || points.firstKey() >= datasetMaxTime) {
-			// TODO: Change this to use an aggregate add method
-			if(plot.getAxisOrientationSetting() == AxisOrientationSetting.X_AXIS_AS_TIME) {
-				for(Entry<Long, Double> point : points.entrySet()) {
-					dataset.add(point.getKey(), point.getValue());
-
-				}
-			} else {
-				for(Entry<Long, Double> point : points.entrySet()) {
-					dataset.add(point.getValue(), point.getKey());
-				}
-			} 
+			append(dataset, points);
 			if (plot.getMaxTime() >= datasetMaxTime) {
 				dataSeries.get(feed).setUpdateRegressionLine(true);
 			}
@@ -281,8 +296,7 @@ public class PlotDataManager implements AbstractPlotDataManager {
 							+ ", firstKey = " + points.firstKey() + ", lastKey = " + points.lastKey());
 				}
 			}
-			// TODO: Change this to use an aggregate add method
- 			if(plot.getAxisOrientationSetting() == AxisOrientationSetting.X_AXIS_AS_TIME) {
+			if(plot.getAxisOrientationSetting() == AxisOrientationSetting.X_AXIS_AS_TIME) {
 				if(!before.isEmpty()) {
 					double[] x = new double[before.size()];
 					double[] y = new double[x.length];
@@ -294,9 +308,6 @@ public class PlotDataManager implements AbstractPlotDataManager {
 					}
 					dataset.prepend(x, 0, y, 0, x.length);
 				}
-				for(Entry<Long, Double> point : after.entrySet()) {
- 				 					dataset.add(point.getKey(), point.getValue());
- 				}
  			} else {
 				if(!before.isEmpty()) {
 					double[] x = new double[before.size()];
@@ -309,11 +320,8 @@ public class PlotDataManager implements AbstractPlotDataManager {
 					}
 					dataset.prepend(x, 0, y, 0, x.length);
 				}
-
-				for(Entry<Long, Double> point : after.entrySet()) {
- 					dataset.add(point.getValue(), point.getKey());
- 				}
  			}
+			append(dataset, after);
 		}
 		dataSeries.get(feed).updateRegressionLine();
 		for(Entry<Long, Double> point : points.entrySet()) {
@@ -332,6 +340,31 @@ public class PlotDataManager implements AbstractPlotDataManager {
 		if (plot instanceof PlotterPlot) plot.setInitialized();
 	}
 
+	/**
+	 * Adds points after the existing data of a dataset in a single batch.
+	 * @param dataset the dataset to add to
+	 * @param points the points, all at or after the latest time in the dataset
+	 */
+	private void append(CompressingXYDataset dataset, SortedMap<Long, Double> points) {
+		int length = points.size();
+		if(length == 0) {
+			return;
+		}
+		double[] times = new double[length];
+		double[] values = new double[length];
+		int i = 0;
+		for(Entry<Long, Double> point : points.entrySet()) {
+			times[i] = point.getKey();
+			values[i] = point.getValue();
+			i++;
+		}
+		if(plot.getAxisOrientationSetting() == AxisOrientationSetting.X_AXIS_AS_TIME) {
+			dataset.add(times, 0, values, 0, length);
+		} else {
+			dataset.add(values, 0, times, 0, length);
+		}
+	}
+
 	void updateLegend(String dataSetName, FeedProvider.RenderingInfo info) {
 		dataSeries.get(dataSetName).getLegendEntry().setData(info);
 	}
@@ -433,6 +466,8 @@ public class PlotDataManager implements AbstractPlotDataManager {
      * QC only provides a single method to remove all. 
 	 */
 	void resetPlotDataSeries() {
+		retainDataOnRefresh = false;
+		resetOnFirstRefreshData = false;
 		for(String datasetName : dataSeries.keySet()) {
 			dataSeries.get(datasetName).resetData();
 		}
@@ -452,8 +487,6 @@ public class PlotDataManager implements AbstractPlotDataManager {
 		 * is scaled to the buffer size calculated in the above call.
 		 */
 	     if (!scrunchBufferTruncationOccured) {
-	    	// prevent further resize events from occurring until this event is completed.
-		    plot.setUpdateFromCacheDataStreamInProcess(true);
 		   // Window size has changed so recalculated compression ratio;
 		    
 		   assert  plotDataBufferEndTime.after(plotDataBufferStartTime) : "Attempting a request to the data buffer with negative span";	    
@@ -461,7 +494,7 @@ public class PlotDataManager implements AbstractPlotDataManager {
 		   if (plotDataBufferEndTime.getTimeInMillis() - plotDataBufferStartTime.getTimeInMillis() > PlotConstants.MAXIMUM_PLOT_DATA_BUFFER_SLIZE_REQUEST_SIZE) {
 			   plotDataBufferStartTime.setTimeInMillis(plotDataBufferEndTime.getTimeInMillis() - PlotConstants.MAXIMUM_PLOT_DATA_BUFFER_SLIZE_REQUEST_SIZE);
 		   } 
-		   requestDataFromMCTBuffer(plotDataBufferStartTime, plotDataBufferEndTime);
+		   requestDataAtNewResolution();
 	     } else {
 	    	 logger.debug("Refreshing a scrunch plots data buffer from its own buffer.");
 	    	 // for scrunch plots, we compress the existing data in the plots local buffer when a truncation event occurs.
@@ -480,6 +513,150 @@ public class PlotDataManager implements AbstractPlotDataManager {
 	     }
 	}
 
+	/**
+	 * Request the plot data buffer span at the current resolution. Where possible, the series are first redrawn from
+	 * their levels of detail, so the plot never goes blank, and only the part of the span that has not been loaded 
+	 * yet is requested. If the plot is zoomed in beyond the loaded resolution, or the span extends past the loaded 
+	 * data on both sides, the whole span is requested and the redrawn data is shown until the new data arrives.
+	 */
+	private void requestDataAtNewResolution() {
+		long startTime = plotDataBufferStartTime.getTimeInMillis();
+		long endTime = plotDataBufferEndTime.getTimeInMillis();
+		// Plots in a stack share data requests, so they all have to agree on what gets requested.
+		List<PlotDataManager> managers = getDataManagersSharingRequests();
+		boolean resampled = resampleFromLevelsOfDetail(managers);
+		boolean detailSufficient = resampled && isLevelOfDetailSufficient(managers);
+		long loadedStart = getLoadedStartTime();
+		if (detailSufficient && startTime >= loadedStart && endTime <= loadedEndTime) {
+			logger.debug("Redrew plot from its levels of detail without requesting data.");
+		} else if (detailSufficient && startTime < loadedStart && endTime >= loadedStart && endTime <= loadedEndTime) {
+			requestData(managers, startTime, loadedStart, true);
+		} else if (detailSufficient && startTime >= loadedStart && startTime <= loadedEndTime && endTime > loadedEndTime) {
+			requestData(managers, loadedEndTime, endTime, true);
+		} else {
+			for (PlotDataManager m : managers) {
+				m.resetOnFirstRefreshData = resampled;
+			}
+			requestData(managers, startTime, endTime, false);
+		}
+	}
+
+	/**
+	 * Request data for every plot sharing this plot's data requests.
+	 * @param managers the data managers of those plots
+	 * @param startTime start of the requested span in milliseconds
+	 * @param endTime end of the requested span in milliseconds
+	 * @param retainData true if the data only fills in what is missing from the series, false if it replaces them
+	 */
+	private void requestData(List<PlotDataManager> managers, long startTime, long endTime, boolean retainData) {
+		for (PlotDataManager m : managers) {
+			m.retainDataOnRefresh = retainData;
+		}
+		// prevent further resize events from occurring until this event is completed.
+		plot.setUpdateFromCacheDataStreamInProcess(true);
+		GregorianCalendar start = new GregorianCalendar();
+		start.setTimeInMillis(startTime);
+		GregorianCalendar end = new GregorianCalendar();
+		end.setTimeInMillis(endTime);
+		requestDataFromMCTBuffer(start, end);
+	}
+
+	/**
+	 * Returns the data managers of all plots that receive the data this plot requests, including this one.
+	 * @return the data managers
+	 */
+	private List<PlotDataManager> getDataManagersSharingRequests() {
+		List<PlotDataManager> managers = new ArrayList<PlotDataManager>();
+		PlotAbstraction plotAbstraction = plot.getPlotAbstraction();
+		if (plotAbstraction != null && plotAbstraction.getSubPlots() != null) {
+			for (AbstractPlottingPackage p : plotAbstraction.getSubPlots()) {
+				if (p.getPlotDataManager() instanceof PlotDataManager) {
+					managers.add((PlotDataManager) p.getPlotDataManager());
+				}
+			}
+		}
+		if (!managers.contains(this)) {
+			managers.add(this);
+		}
+		return managers;
+	}
+
+	/**
+	 * Redraw the series of the given plots at their current resolution from their levels of detail.
+	 * @param managers the data managers of the plots
+	 * @return true if every series was redrawn, false if some data has no levels of detail 
+	 *         or this plot has not loaded any data yet
+	 */
+	private static boolean resampleFromLevelsOfDetail(List<PlotDataManager> managers) {
+		for (PlotDataManager m : managers) {
+			if (m.loadedStartTime > m.loadedEndTime) {
+				return false;
+			}
+			for (PlotDataSeries s : m.dataSeries.values()) {
+				CompressingXYDataset dataset = s.getData();
+				if (dataset.getPyramid() == null && dataset.getPointCount() > 0) {
+					return false;
+				}
+			}
+		}
+		for (PlotDataManager m : managers) {
+			m.setupCompressionRatio();
+			for (PlotDataSeries s : m.dataSeries.values()) {
+				s.getData().resample();
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns true if the levels of detail of the given plots are fine enough for their current resolution.
+	 * @param managers the data managers of the plots
+	 * @return false if any plot is zoomed in further than the resolution its data was loaded at
+	 */
+	private static boolean isLevelOfDetailSufficient(List<PlotDataManager> managers) {
+		for (PlotDataManager m : managers) {
+			for (PlotDataSeries s : m.dataSeries.values()) {
+				CompressingXYDataset dataset = s.getData();
+				MinMaxPyramid pyramid = dataset.getPyramid();
+				// Allow for rounding error in scales computed from axis spans
+				if (pyramid != null && dataset.getCompressionScale() < pyramid.getBaseScale() * (1 - 1e-9)) {
+					return false;
+				}
+			}
+		}
+		return true;
+	}
+
+	/**
+	 * Returns the start of the span of loaded data, taking into account data that has since been truncated.
+	 * @return the start of the loaded span in milliseconds
+	 */
+	private long getLoadedStartTime() {
+		double truncationPoint = Double.NEGATIVE_INFINITY;
+		for (PlotDataSeries s : dataSeries.values()) {
+			truncationPoint = Math.max(truncationPoint, s.getData().getTruncationPoint());
+		}
+		if (truncationPoint > loadedStartTime) {
+			return (long) Math.ceil(truncationPoint);
+		}
+		return loadedStartTime;
+	}
+
+	/**
+	 * Inform the data manager that data has been requested for the plot. 
+	 * @param startTime start of the requested span in milliseconds
+	 * @param endTime end of the requested span in milliseconds
+	 */
+	void informDataRequested(long startTime, long endTime) {
+		if (retainDataOnRefresh && loadedStartTime <= loadedEndTime) {
+			loadedStartTime = Math.min(loadedStartTime, startTime);
+			loadedEndTime = Math.max(loadedEndTime, endTime);
+		} else {
+			loadedStartTime = startTime;
+			loadedEndTime = endTime;
+		}
+	}
+
 	/**
 	 * Determine the span of the plot data buffer based upon the current PlotDisplayState. 
 	 */
@@ -532,13 +709,23 @@ public class PlotDataManager implements AbstractPlotDataManager {
 	@Override
 	public void informUpdateCacheDataStreamStarted() {
 		minMaxValueManager.setMinMaxCacheState(false);
-		resetPlotDataSeries();
-		// There should be no data on the plot at this point. 
+		if (retainDataOnRefresh) {
+			// Only missing data was requested; it is added to what the series already hold.
+			retainDataOnRefresh = false;
+		} else if (!resetOnFirstRefreshData) {
+			resetPlotDataSeries();
+			// There should be no data on the plot at this point. 
+		}
  
 	}
 	
 	void informUpdateCacheDataStreamCompleted() {
 		logger.debug("Update from cache completed" );
+		retainDataOnRefresh = false;
+		if (resetOnFirstRefreshData) {
+			// No data arrived to replace the redrawn data.
+			resetPlotDataSeries();
+		}
 		minMaxValueManager.setMinMaxCacheState(true);
 		if (scrunchBufferTruncationOccured) {
 			resizeAndReloadPlotBuffer();
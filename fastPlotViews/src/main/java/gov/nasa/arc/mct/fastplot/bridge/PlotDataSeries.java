@@ -101,6 +101,7 @@ class PlotDataSeries  implements MinMaxChangeListener, AbstractPlotDataSeries {
 		assert linePlot != null;
 
 		dataset = new CompressingXYDataset(linePlot, new DefaultCompressor());
+		dataset.setPyramidLevels(PlotConstants.LEVEL_OF_DETAIL_LEVELS);
 		// Listen for min/max changes on the non-time axis
 		if(plot.getAxisOrientationSetting() == AxisOrientationSetting.X_AXIS_AS_TIME) {
 			dataset.addYMinMaxChangeListener(this);
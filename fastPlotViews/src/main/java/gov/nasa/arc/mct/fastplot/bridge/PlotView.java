@@ -918,6 +918,11 @@ public class PlotView extends PlotConfigurationDelegator implements PlotAbstract
 	
 	@Override
 	public void requestPlotData(GregorianCalendar startTime, GregorianCalendar endTime) {
+		for (AbstractPlottingPackage p: subPlots) {
+			if (p.getPlotDataManager() instanceof PlotDataManager) {
+				((PlotDataManager) p.getPlotDataManager()).informDataRequested(startTime.getTimeInMillis(), endTime.getTimeInMillis());
+			}
+		}
 		plotUser.requestDataRefresh(startTime, endTime);
 	}
 	
@@ -72,6 +72,8 @@ public class QCPlotObjects {
 		plot.getPlotView().setBackground(PlotConstants.DEFAULT_PLOT_FRAME_BACKGROUND_COLOR);
 		XYPlotContents contents = new XYPlotContents();
 		contents.setBackground(Color.black);
+		// Cache the grid and data so a repaint only renders what has changed.
+		contents.setBuffered(true);
 		plot.getPlotView().add(contents);
 		plot.getPlotView().setPreferredSize(new Dimension(PlotterPlot.PLOT_PREFERED_WIDTH, PlotterPlot.PLOT_PREFERED_HEIGHT));
 
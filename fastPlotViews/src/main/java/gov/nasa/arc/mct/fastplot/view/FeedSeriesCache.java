@@ -0,0 +1,352 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.fastplot.view;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Shares the data retrieved for plots among all the plot views showing the same feed at the same resolution,
+ * so that the data of a feed is retrieved and parsed once rather than once per view. Plot views attach to the
+ * series of the feeds they show, and detach when they no longer need them; a series is discarded when the
+ * last view detaches from it.
+ * <p>
+ * A view retrieving a span of a series records the retrieval while it is in flight, so that views needing
+ * data within that span wait for it rather than issuing their own request for the same data.
+ * <p>
+ * Data may arrive late, or be back-filled into the buffer for a span a series already holds, so the data of
+ * a series is only shared for a limited time after it was retrieved; it is then dropped and retrieved again.
+ * <p>
+ * Only the points as retrieved are shared. Each view still compresses them into its own plot lines, since
+ * compression depends on the view's axes, scrolling and truncation; the points are already decimated to
+ * about one per pixel at the shared resolution, so there is little left to gain from sharing that step.
+ */
+class FeedSeriesCache {
+	/** Maximum number of points kept for a series. Beyond this, only the most recently retrieved span is kept. */
+	static final int MAX_POINTS_PER_SERIES = 200000;
+
+	/** Time in milliseconds for which retrieved data is shared. */
+	static final long MAX_AGE_MILLIS = 10000;
+
+	private static final FeedSeriesCache INSTANCE = new FeedSeriesCache();
+
+	private final Map<Key, Series> seriesByKey = new HashMap<Key, Series>();
+	private final long maxAge;
+
+	FeedSeriesCache() {
+		this(MAX_AGE_MILLIS);
+	}
+
+	/**
+	 * Creates a cache.
+	 * @param maxAge time in milliseconds for which retrieved data is shared
+	 */
+	FeedSeriesCache(long maxAge) {
+		this.maxAge = maxAge;
+	}
+
+	/**
+	 * Returns the cache shared by all plot views.
+	 * @return the shared cache
+	 */
+	static FeedSeriesCache getInstance() {
+		return INSTANCE;
+	}
+
+	/**
+	 * Returns the resolution at which data is shared: the time span of a decimation bucket,
+	 * rounded down to a power of two milliseconds so that views of similar sizes can share data.
+	 * @param span time span of the request in milliseconds
+	 * @param bucketCount number of decimation buckets, 0 if the data is not decimated
+	 * @return the resolution in milliseconds, 0 if the data is not decimated
+	 */
+	static long getResolution(long span, int bucketCount) {
+		if (bucketCount <= 0) {
+			return 0;
+		}
+		return Long.highestOneBit(Math.max(1, span / bucketCount));
+	}
+
+	/**
+	 * Attach to the series of a feed at a resolution, creating it if no other view uses it.
+	 * Each call must be balanced by a call to {@link #detach(Series)}.
+	 * @param feedId subscription ID of the feed
+	 * @param resolution time span of a decimation bucket in milliseconds, or 0 for data that is not decimated
+	 * @return the series
+	 */
+	synchronized Series attach(String feedId, long resolution) {
+		Key key = new Key(feedId, resolution);
+		Series series = seriesByKey.get(key);
+		if (series == null) {
+			series = new Series(feedId, resolution, maxAge);
+			seriesByKey.put(key, series);
+		}
+		series.references++;
+		return series;
+	}
+
+	/**
+	 * Detach from a series, discarding it if no other view uses it.
+	 * @param series the series returned by {@link #attach(String, long)}
+	 */
+	synchronized void detach(Series series) {
+		assert series.references > 0 : "series detached more often than attached";
+		if (--series.references == 0) {
+			seriesByKey.remove(new Key(series.feedId, series.resolution));
+		}
+	}
+
+	/**
+	 * Returns the number of series currently in use.
+	 * @return the number of series
+	 */
+	synchronized int getSeriesCount() {
+		return seriesByKey.size();
+	}
+
+	/**
+	 * The data of one feed at one resolution, over a contiguous span of time.
+	 */
+	static final class Series {
+		private final String feedId;
+		private final long resolution;
+		private final long maxAge;
+		private int references;
+		private SortedMap<Long, Double> points = new TreeMap<Long, Double>();
+		private long startTime = Long.MAX_VALUE;
+		private long endTime = Long.MIN_VALUE;
+		/** When the oldest data held was retrieved. */
+		private long retrievedTime;
+		/** Retrievals of data for this series that are in flight. */
+		private final List<Retrieval> retrievals = new ArrayList<Retrieval>();
+
+		private Series(String feedId, long resolution, long maxAge) {
+			this.feedId = feedId;
+			this.resolution = resolution;
+			this.maxAge = maxAge;
+		}
+
+		long getResolution() {
+			return resolution;
+		}
+
+		/**
+		 * Returns true if all the data in the span has been retrieved, recently enough to be shared.
+		 * Data held for longer is dropped.
+		 * @param start start of the span in milliseconds
+		 * @param end end of the span in milliseconds
+		 * @return true if the span is covered by this series
+		 */
+		synchronized boolean covers(long start, long end) {
+			if (endTime != Long.MIN_VALUE && System.currentTimeMillis() - retrievedTime > maxAge) {
+				points = new TreeMap<Long, Double>();
+				startTime = Long.MAX_VALUE;
+				endTime = Long.MIN_VALUE;
+			}
+			return startTime <= start && end <= endTime;
+		}
+
+		/**
+		 * Returns a copy of the points in a span.
+		 * @param start start of the span in milliseconds
+		 * @param end end of the span in milliseconds, inclusive
+		 * @return the points in the span
+		 */
+		synchronized SortedMap<Long, Double> getPoints(long start, long end) {
+			if (end == Long.MAX_VALUE) {
+				return new TreeMap<Long, Double>(points.tailMap(start));
+			}
+			return new TreeMap<Long, Double>(points.subMap(start, end + 1));
+		}
+
+		/**
+		 * Record all the data retrieved for a span. If the span overlaps or adjoins the span already held,
+		 * the spans are merged and the series expires with the data held before, otherwise the data already
+		 * held is replaced.
+		 * @param start start of the span in milliseconds
+		 * @param end end of the span in milliseconds
+		 * @param newPoints all the points in the span
+		 */
+		synchronized void put(long start, long end, SortedMap<Long, Double> newPoints) {
+			if (start > end) {
+				return;
+			}
+			boolean contiguous = start <= endTime && end >= startTime
+					|| endTime != Long.MIN_VALUE && start == endTime + 1
+					|| startTime != Long.MAX_VALUE && end == startTime - 1;
+			if (contiguous && points.size() + newPoints.size() <= MAX_POINTS_PER_SERIES) {
+				// The new data supersedes what was held for the same span
+				if (end == Long.MAX_VALUE) {
+					points.tailMap(start).clear();
+				} else {
+					points.subMap(start, end + 1).clear();
+				}
+				points.putAll(newPoints);
+				startTime = Math.min(startTime, start);
+				endTime = Math.max(endTime, end);
+			} else {
+				points = new TreeMap<Long, Double>(newPoints);
+				startTime = start;
+				endTime = end;
+				retrievedTime = System.currentTimeMillis();
+			}
+		}
+
+		/**
+		 * Record that data is being retrieved for a span, so that views needing data within the span can
+		 * wait for it. The retrieval must be completed or abandoned once the data request is done.
+		 * @param start start of the span in milliseconds
+		 * @param end end of the span in milliseconds
+		 * @return the retrieval
+		 */
+		synchronized Retrieval beginRetrieval(long start, long end) {
+			Retrieval retrieval = new Retrieval(this, start, end);
+			retrievals.add(retrieval);
+			return retrieval;
+		}
+
+		/**
+		 * Wait for a retrieval in flight covering a span. The listener is notified once, on the thread
+		 * completing or abandoning the retrieval.
+		 * @param start start of the span in milliseconds
+		 * @param end end of the span in milliseconds
+		 * @param listener notified of the points in the span, or that they will not be retrieved
+		 * @return true if a retrieval in flight covers the span, false if the data must be requested
+		 */
+		synchronized boolean awaitRetrieval(long start, long end, RetrievalListener listener) {
+			for (Retrieval retrieval : retrievals) {
+				if (retrieval.start <= start && end <= retrieval.end) {
+					retrieval.waiters.add(new Waiter(start, end, listener));
+					return true;
+				}
+			}
+			return false;
+		}
+
+		private List<Waiter> endRetrieval(Retrieval retrieval, SortedMap<Long, Double> newPoints) {
+			synchronized (this) {
+				if (!retrievals.remove(retrieval)) {
+					return new ArrayList<Waiter>();
+				}
+				if (newPoints != null) {
+					put(retrieval.start, retrieval.end, newPoints);
+				}
+				return retrieval.waiters;
+			}
+		}
+	}
+
+	/**
+	 * Notified when the data a view waits for has been retrieved by another view.
+	 */
+	interface RetrievalListener {
+		/**
+		 * The data has been retrieved.
+		 * @param feedId subscription ID of the feed
+		 * @param points the points in the span waited for
+		 */
+		void retrieved(String feedId, SortedMap<Long, Double> points);
+
+		/**
+		 * The data will not be retrieved, and must be requested again.
+		 * @param feedId subscription ID of the feed
+		 */
+		void abandoned(String feedId);
+	}
+
+	/**
+	 * A retrieval of data for a span of a series that is in flight.
+	 */
+	static final class Retrieval {
+		private final Series series;
+		private final long start;
+		private final long end;
+		private final List<Waiter> waiters = new ArrayList<Waiter>();
+
+		private Retrieval(Series series, long start, long end) {
+			this.series = series;
+			this.start = start;
+			this.end = end;
+		}
+
+		/**
+		 * Record all the data retrieved for the span in the series, and hand it to the views waiting for it.
+		 * Does nothing if the retrieval has already been completed or abandoned.
+		 * @param points all the points in the span
+		 */
+		void complete(SortedMap<Long, Double> points) {
+			for (Waiter waiter : series.endRetrieval(this, points)) {
+				waiter.listener.retrieved(series.feedId, series.getPoints(waiter.start, waiter.end));
+			}
+		}
+
+		/**
+		 * Give up the retrieval, letting the views waiting for it request the data themselves.
+		 * Does nothing if the retrieval has already been completed or abandoned.
+		 */
+		void abandon() {
+			for (Waiter waiter : series.endRetrieval(this, null)) {
+				waiter.listener.abandoned(series.feedId);
+			}
+		}
+	}
+
+	private static final class Waiter {
+		private final long start;
+		private final long end;
+		private final RetrievalListener listener;
+
+		Waiter(long start, long end, RetrievalListener listener) {
+			this.start = start;
+			this.end = end;
+			this.listener = listener;
+		}
+	}
+
+	private static final class Key {
+		private final String feedId;
+		private final long resolution;
+
+		Key(String feedId, long resolution) {
+			this.feedId = feedId;
+			this.resolution = resolution;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof Key)) {
+				return false;
+			}
+			Key other = (Key) obj;
+			return resolution == other.resolution && feedId.equals(other.feedId);
+		}
+
+		@Override
+		public int hashCode() {
+			return feedId.hashCode() * 31 + (int) (resolution ^ (resolution >>> 32));
+		}
+	}
+}
@@ -21,12 +21,14 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.fastplot.view;
 
+import gov.nasa.arc.mct.api.feed.FeedSample;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.FeedProvider.FeedType;
 import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
 
 import java.awt.Color;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.List;
@@ -76,20 +78,45 @@ public class PlotDataFeedUpdateHandler {
 		plotViewManifestation.getPlot().informUpdateFromFeedEventCompleted();
 	}
 
-	public void processData(Map<String, List<Map<String, String>>> data) {
+	/**
+	 * Add data retrieved from the data buffer to the plot.
+	 * @param data the data, by subscription ID
+	 * @return the points added to the plot, by subscription ID
+	 */
+	public Map<String, SortedMap<Long, Double>> processData(Map<String, List<Map<String, String>>> data) {
 		if (logger.isDebugEnabled()) {
 			logger.debug("\n Recived new slice {}", printDataOnSlice(data));
 		}
 		boolean currentCompressionState = plotViewManifestation.getPlot().isCompressionEnabled();
 		try {
 			plotViewManifestation.getPlot().setCompressionEnabled(false);
-			updateFromFeeds(data, false, false, false);
+			return updateFromFeeds(data, false, false, false);
 		} finally {
 			plotViewManifestation.getPlot().setCompressionEnabled(currentCompressionState);
 		}
 		
 	}
 
+	/**
+	 * Add data that another view already retrieved from the data buffer to the plot.
+	 * @param data the points, by subscription ID
+	 */
+	void processCachedData(Map<String, SortedMap<Long, Double>> data) {
+		Map<String, SortedMap<Long, Double>> dataForPlot = new HashMap<String, SortedMap<Long,Double>>();
+		for (Map.Entry<String, SortedMap<Long, Double>> entry : data.entrySet()) {
+			if (plotViewManifestation.getPlot().isKnownDataSet(entry.getKey())) {
+				dataForPlot.put(entry.getKey(), entry.getValue());
+			}
+		}
+		boolean currentCompressionState = plotViewManifestation.getPlot().isCompressionEnabled();
+		try {
+			plotViewManifestation.getPlot().setCompressionEnabled(false);
+			plotViewManifestation.getPlot().addData(dataForPlot);
+		} finally {
+			plotViewManifestation.getPlot().setCompressionEnabled(currentCompressionState);
+		}
+	}
+
 	public void startDataRequest() {
 		plotViewManifestation.getPlot().informUpdateDataEventStarted();
 		plotViewManifestation.getPlot().refreshDisplay();
@@ -111,14 +138,17 @@ public class PlotDataFeedUpdateHandler {
 	}
 
 	/**
-	 * Unwrap the data from the feed service.
+	 * Unwrap the data from the feed service. Samples given as {@link FeedSample}, such as those
+	 * read from the memory buffers, are plotted from their primitive time, value and rendering info;
+	 * only the last one of a feed is decoded by its provider, for the legend.
 	 * 
 	 * @param feedIds
 	 *            the set of feed IDs
 	 * @param data
 	 *            the data
+	 * @return the points added to the plot, by subscription ID
 	 */
-	void updateFromFeeds(Map<String, List<Map<String, String>>> data,
+	Map<String, SortedMap<Long, Double>> updateFromFeeds(Map<String, List<Map<String, String>>> data,
 			boolean legendOnly, boolean updateLegend, boolean predictionOnly) {
 		if (data != null) {
 			Map<String, SortedMap<Long, Double>> dataForPlot = new HashMap<String, SortedMap<Long,Double>>();
@@ -146,10 +176,28 @@ public class PlotDataFeedUpdateHandler {
 	
 						RenderingInfo lastRI = DEFAULT_RI;
 						boolean haveLegendInfo = false;
+						FeedSample lastSample = null;
 	
 						// Loop over each point that needs to be plotted for this
 						// feed.
 						for (Map<String, String> pointsData : dataForThisFeed) {
+							if (pointsData instanceof FeedSample && ((FeedSample) pointsData).hasRenderingInfo()) {
+								FeedSample sample = (FeedSample) pointsData;
+								lastSample = sample;
+								if (!legendOnly) {
+									try {
+										dataForPlotThisFeed.put(sample.getTime(), sample.isPlottable() ? sample.getRenderedValue() : Double.NaN);
+									} catch (NumberFormatException e) {
+										logger.error("Number format exception converting string to double while processing the data feed entry {}", sample);
+									}
+								}
+								continue;
+							}
+							if (lastSample != null) {
+								// the legend follows the samples in order
+								lastRI = provider.getRenderingInfo(lastSample);
+								lastSample = null;
+							}
 							RenderingInfo ri = provider
 									.getRenderingInfo(pointsData);
 							assert pointsData != null : "PointsData is Null";
@@ -178,7 +226,7 @@ public class PlotDataFeedUpdateHandler {
 									if (!legendOnly) {
 										double value;
 										if(isPlottable) {
-											value = Double.parseDouble(valueAsString);
+											value = ri.getNumericValue();
 										} else {
 											value = Double.NaN;
 										}
@@ -198,6 +246,10 @@ public class PlotDataFeedUpdateHandler {
 												timeAsString, valueAsString);
 							}
 						}
+						if (lastSample != null) {
+							lastRI = provider.getRenderingInfo(lastSample);
+							haveLegendInfo = true;
+						}
 						if (haveLegendInfo && updateLegend) {
 							plotViewManifestation.getPlot().updateLegend(feedId, lastRI);
 						}
@@ -206,8 +258,10 @@ public class PlotDataFeedUpdateHandler {
 			}
 
 			plotViewManifestation.getPlot().addData(dataForPlot);
+			return dataForPlot;
 		} else {
 			logger.debug("Data was null");
+			return Collections.emptyMap();
 		}
 	}
 
@@ -21,8 +21,10 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.fastplot.view;
 
+import gov.nasa.arc.mct.api.feed.FeedSample;
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.components.FeedProvider.FeedType;
 import gov.nasa.arc.mct.fastplot.bridge.PlotConstants;
 import gov.nasa.arc.mct.fastplot.bridge.PlotView;
 import gov.nasa.arc.mct.fastplot.settings.PlotConfiguration;
@@ -44,18 +46,25 @@ import java.awt.Component;
 import java.beans.PropertyChangeListener;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.GregorianCalendar;
 import java.util.HashMap;
 import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutionException;
 
 import javax.swing.JComponent;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.UIManager;
+import javax.swing.event.AncestorEvent;
+import javax.swing.event.AncestorListener;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -81,6 +90,12 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 	private SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> currentPredictionRequest;
 
 	private List<Runnable> feedCallbacks = new ArrayList<Runnable>();
+
+	/** Series shared with other views, by subscription ID, for the feeds whose data this view requests. */
+	private Map<String, FeedSeriesCache.Series> sharedSeries = new HashMap<String, FeedSeriesCache.Series>();
+
+	/** The data refresh in progress, null if there is none. */
+	private DataRefresh currentRefresh;
 	
 	JComponent controlPanel;
 	public static final String VIEW_ROLE_NAME =  "Plot";
@@ -98,6 +113,21 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 		// Generate the plot (& connect it to feeds, etc) 
 		generatePlot();
 		setFocusable(true);
+		addAncestorListener(new AncestorListener() {
+			@Override
+			public void ancestorAdded(AncestorEvent event) {
+			}
+
+			@Override
+			public void ancestorMoved(AncestorEvent event) {
+			}
+
+			@Override
+			public void ancestorRemoved(AncestorEvent event) {
+				// Let the shared data go; it is attached to again on the next request
+				detachSharedSeries();
+			}
+		});
 
 		assert thePlot != null : "Plot should not be null at this point";		
 	}
@@ -237,6 +267,9 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 
 	
 	private long getPointTime(Map<String,String> data) {
+		if (data instanceof FeedSample) {
+			return ((FeedSample) data).getTime();
+		}
 		return Long.parseLong(data.get(FeedProvider.NORMALIZED_TIME_KEY));
 	}
 	
@@ -246,8 +279,10 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 	 * directly in the stream which is returned in one second intervals. Differences occur when the data has few changes, as the data are 
 	 * far apart in time and may not connect. For example, if there is a data point at time 1 and then 
 	 * another data point at time 100, if there was a loss of service between the points there would be no
-	 * connection (it is not possible to connect two points with an intervening LOS). This method will
-	 * duplicate the points at one second intervals, which is what happens in the live stream.
+	 * connection (it is not possible to connect two points with an intervening LOS). The live stream 
+	 * repeats the last point at one second intervals; as the repeated points all lie on the same horizontal line,
+	 * only the last repetition before the next point is added, which draws the same line. The last point is 
+	 * held up to the end of the data rather than to its last whole second, so that it reaches the next sample. 
 	 */
 	private void expandData(Map<String, List<Map<String, String>>> expandedData,
 			final long startTime, final long endTime) {
@@ -259,7 +294,7 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
                     continue;
 				}
 
-				List<Map<String,String>> expandedPoints = new ArrayList<Map<String,String>>();
+				List<Map<String,String>> expandedPoints = new ArrayList<Map<String,String>>(points.size() * 2);
 				expandedData.put(fp.getSubscriptionId(), expandedPoints);
 				long now = fp.getTimeService().getCurrentTime();
 				for (int i = 0; i < points.size(); i++) {
@@ -268,20 +303,49 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 					long pointTime = getPointTime(point);
 					assert pointTime >= startTime: "point time is less than start time";
 					pointTime = Math.max(pointTime, startTime);
-					long nextPointTime = (points.size() > i+1) ? getPointTime(points.get(i+1)) : Math.min(now, endTime) + 1000;
-					
-					// go through each point get the starting value and then repeat the last 
-					// point at one second intervals
-					for (long currentTime = pointTime+1000; currentTime <= nextPointTime - 1000; currentTime+=1000) {
-						Map<String,String> newPoint = new HashMap<String, String>(point);
-						newPoint.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(currentTime));
-						expandedPoints.add(newPoint);
+					// hold the point until the last one second interval before the next point; the last
+					// point is held up to the end of the data, where the next sample will follow
+					long holdTime = (points.size() > i+1) ? getHoldTime(pointTime, getPointTime(points.get(i+1))) 
+							: getLastHoldTime(pointTime, Math.min(now, endTime));
+					if (holdTime > pointTime) {
+						if (point instanceof FeedSample) {
+							expandedPoints.add(((FeedSample) point).withTime(holdTime));
+						} else {
+							Map<String,String> newPoint = new HashMap<String, String>(point);
+							newPoint.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(holdTime));
+							expandedPoints.add(newPoint);
+						}
 					}
 				}
 			}
 		}
 	}
 	
+	/**
+	 * Returns the time of the last repetition of a point held at one second intervals, 
+	 * at least one second before the next point.
+	 * @param pointTime time of the point
+	 * @param nextPointTime time of the next point
+	 * @return the time of the last repetition, or pointTime if the point is not repeated
+	 */
+	private static long getHoldTime(long pointTime, long nextPointTime) {
+		if (nextPointTime - pointTime < 2000) {
+			return pointTime;
+		}
+		return pointTime + (nextPointTime - 1000 - pointTime) / 1000 * 1000;
+	}
+	
+	/**
+	 * Returns the time up to which the last point is held. The point is held up to the end of
+	 * the data, so that no gap is left before the next sample, if it would be repeated at all.
+	 * @param pointTime time of the point
+	 * @param endTime end of the data, the earlier of the current and the requested end time
+	 * @return endTime, or pointTime if the point is not repeated
+	 */
+	private static long getLastHoldTime(long pointTime, long endTime) {
+		return endTime - pointTime < 1000 ? pointTime : endTime;
+	}
+	
 	private DataTransformation getTransformation() {
 		return new DataTransformation() {
 			@Override
@@ -328,7 +392,9 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 	}
 	
 	/**
-	 * Request new data for the plot
+	 * Request new data for the plot. Data that another plot view showing the same feed at the same resolution
+	 * has already retrieved, or is retrieving, is taken from the {@link FeedSeriesCache} rather than requested
+	 * again, and the data retrieved here is shared in turn.
 	 * @param startTime of the data requested
 	 * @param endTime of the data requested
 	 */
@@ -337,23 +403,246 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 		if (plotDataAssigner.hasFeeds()) {
 			cancelAnyOutstandingRequests();
 
-			
-			currentDataRequest = this.requestData(null, startTime.getTimeInMillis(), endTime.getTimeInMillis(), getTransformation(), this, true);
+			final long start = startTime.getTimeInMillis();
+			final long end = endTime.getTimeInMillis();
+			int bucketCount = getDecimationBucketCount();
+			final long resolution = FeedSeriesCache.getResolution(end - start, bucketCount);
+			if (resolution > 0) {
+				bucketCount = (int) Math.min(Integer.MAX_VALUE, (end - start + resolution - 1) / resolution);
+			}
+			if (end > start) {
+				attachSharedSeries(resolution);
+			} else {
+				detachSharedSeries();
+			}
+
+			final DataRefresh refresh = new DataRefresh(startTime, endTime);
+			currentRefresh = refresh;
+			List<FeedProvider> requestedProviders = new ArrayList<FeedProvider>();
+			for (FeedProvider fp : getVisibleFeedProviders()) {
+				FeedSeriesCache.Series series = sharedSeries.get(fp.getSubscriptionId());
+				if (series == null) {
+					requestedProviders.add(fp);
+					continue;
+				}
+				if (refresh.retrievals.containsKey(fp.getSubscriptionId())) {
+					// Shown more than once, and already requested
+					continue;
+				}
+				// Limit the shared span to the data that exists
+				long validEnd = Math.min(end, fp.getValidDataExtent());
+				if (series.covers(start, validEnd)) {
+					refresh.cachedData.put(fp.getSubscriptionId(), series.getPoints(start, validEnd));
+				} else if (series.awaitRetrieval(start, validEnd, refresh)) {
+					refresh.awaited++;
+				} else {
+					requestedProviders.add(fp);
+					refresh.retrievals.put(fp.getSubscriptionId(), series.beginRetrieval(start, validEnd));
+				}
+			}
+
+			final Map<String, SortedMap<Long, Double>> requestedData = new HashMap<String, SortedMap<Long, Double>>();
+			final SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> request = 
+				this.requestData(requestedProviders, start, end, getTransformation(), new RenderingCallback() {
+					@Override
+					public void render(Map<String, List<Map<String, String>>> data) {
+						collectSharedData(requestedData, plotDataFeedUpdateHandler.processData(data), refresh.retrievals.keySet());
+					}
+				}, true, bucketCount);
+			currentDataRequest = request;
 			currentDataRequest.addPropertyChangeListener(new PropertyChangeListener() {
 				@Override
 				public void propertyChange(java.beans.PropertyChangeEvent evt) {
-					if (currentDataRequest.getState() == SwingWorker.StateValue.STARTED && evt.getOldValue()==SwingWorker.StateValue.PENDING) {
-						plotDataFeedUpdateHandler.startDataRequest();
+					if (currentDataRequest == request && request.getState() == SwingWorker.StateValue.STARTED && evt.getOldValue()==SwingWorker.StateValue.PENDING) {
+						refresh.start();
 					}
-					if (currentDataRequest == evt.getSource() && evt.getNewValue() == SwingWorker.StateValue.DONE) {
+					if (evt.getNewValue() == SwingWorker.StateValue.DONE) {
 						assert SwingUtilities.isEventDispatchThread();
-						currentDataRequest = null;
-						plotDataFeedUpdateHandler.endDataRequest();
+						// Settle the shared retrievals even if the request was superseded, so no view waits on it
+						shareRequestedData(request, refresh.retrievals, requestedData);
+						if (currentDataRequest == request) {
+							currentDataRequest = null;
+							refresh.requestDone = true;
+							refresh.endIfComplete();
+						}
+					}
+				}
+			});
+		}
+	}
+
+	/**
+	 * The state of a data refresh: the data to show that was taken from the shared series, and the shared
+	 * retrievals the refresh performs or waits for. The plot's data update ends once the request of the
+	 * refresh is done and all the data waited for has arrived.
+	 */
+	private final class DataRefresh implements FeedSeriesCache.RetrievalListener {
+		private final GregorianCalendar startTime;
+		private final GregorianCalendar endTime;
+		/** Data to add to the plot once the refresh starts. */
+		private final Map<String, SortedMap<Long, Double>> cachedData = new HashMap<String, SortedMap<Long, Double>>();
+		/** Retrievals of shared data performed by the request of this refresh, by subscription ID. */
+		private final Map<String, FeedSeriesCache.Retrieval> retrievals = new HashMap<String, FeedSeriesCache.Retrieval>();
+		/** Number of retrievals by other views still waited for. */
+		private int awaited;
+		private boolean started;
+		private boolean requestDone;
+
+		DataRefresh(GregorianCalendar startTime, GregorianCalendar endTime) {
+			this.startTime = startTime;
+			this.endTime = endTime;
+		}
+
+		void start() {
+			started = true;
+			plotDataFeedUpdateHandler.startDataRequest();
+			if (!cachedData.isEmpty()) {
+				plotDataFeedUpdateHandler.processCachedData(cachedData);
+				cachedData.clear();
+			}
+		}
+
+		void endIfComplete() {
+			if (requestDone && awaited == 0) {
+				currentRefresh = null;
+				plotDataFeedUpdateHandler.endDataRequest();
+			}
+		}
+
+		/** Give up the retrievals of this refresh that have not been completed. */
+		void abandon() {
+			for (FeedSeriesCache.Retrieval retrieval : retrievals.values()) {
+				retrieval.abandon();
+			}
+		}
+
+		@Override
+		public void retrieved(String feedId, SortedMap<Long, Double> points) {
+			assert SwingUtilities.isEventDispatchThread();
+			if (currentRefresh != this) {
+				return;
+			}
+			if (started) {
+				plotDataFeedUpdateHandler.processCachedData(Collections.singletonMap(feedId, points));
+			} else {
+				cachedData.put(feedId, points);
+			}
+			awaited--;
+			endIfComplete();
+		}
+
+		@Override
+		public void abandoned(String feedId) {
+			assert SwingUtilities.isEventDispatchThread();
+			// The view that was retrieving the data moved on; request it again, outside of that view's request handling
+			SwingUtilities.invokeLater(new Runnable() {
+				@Override
+				public void run() {
+					if (currentRefresh == DataRefresh.this) {
+						requestDataRefresh(startTime, endTime);
 					}
 				}
 			});
 		}
 	}
+
+	/**
+	 * Attach to the shared series of the visible feeds at a resolution, detaching from series no longer needed.
+	 * Predictive and string feeds are not shared.
+	 * @param resolution the resolution of the data
+	 */
+	private void attachSharedSeries(long resolution) {
+		FeedSeriesCache cache = FeedSeriesCache.getInstance();
+		Map<String, FeedSeriesCache.Series> attached = new HashMap<String, FeedSeriesCache.Series>();
+		for (FeedProvider fp : getVisibleFeedProviders()) {
+			String feedId = fp.getSubscriptionId();
+			if (fp.getFeedType() == FeedType.STRING || fp.isPrediction() || attached.containsKey(feedId)) {
+				continue;
+			}
+			FeedSeriesCache.Series series = sharedSeries.remove(feedId);
+			if (series != null && series.getResolution() != resolution) {
+				cache.detach(series);
+				series = null;
+			}
+			if (series == null) {
+				series = cache.attach(feedId, resolution);
+			}
+			attached.put(feedId, series);
+		}
+		detachSharedSeries();
+		sharedSeries = attached;
+	}
+
+	private void detachSharedSeries() {
+		for (FeedSeriesCache.Series series : sharedSeries.values()) {
+			FeedSeriesCache.getInstance().detach(series);
+		}
+		sharedSeries.clear();
+	}
+
+	private static void collectSharedData(Map<String, SortedMap<Long, Double>> requestedData, 
+			Map<String, SortedMap<Long, Double>> data, Set<String> sharedFeeds) {
+		for (Entry<String, SortedMap<Long, Double>> entry : data.entrySet()) {
+			if (sharedFeeds.contains(entry.getKey())) {
+				SortedMap<Long, Double> points = requestedData.get(entry.getKey());
+				if (points == null) {
+					points = new TreeMap<Long, Double>();
+					requestedData.put(entry.getKey(), points);
+				}
+				points.putAll(entry.getValue());
+			}
+		}
+	}
+
+	/**
+	 * Share the data of a request with other views, provided the request retrieved all of it;
+	 * otherwise let the views waiting for it request the data themselves.
+	 */
+	private void shareRequestedData(SwingWorker<?, ?> request, Map<String, FeedSeriesCache.Retrieval> retrievals, 
+			Map<String, SortedMap<Long, Double>> requestedData) {
+		boolean complete = !request.isCancelled();
+		if (complete) {
+			try {
+				request.get();
+			} catch (InterruptedException e) {
+				complete = false;
+			} catch (ExecutionException e) {
+				logger.debug("Data request failed, not sharing its data", e);
+				complete = false;
+			}
+		}
+		for (Entry<String, FeedSeriesCache.Retrieval> entry : retrievals.entrySet()) {
+			String feedId = entry.getKey();
+			// Data for a feed the plot does not know is dropped, so it cannot be shared
+			if (complete && thePlot.isKnownDataSet(feedId)) {
+				SortedMap<Long, Double> points = requestedData.get(feedId);
+				entry.getValue().complete(points != null ? points : new TreeMap<Long, Double>());
+			} else {
+				entry.getValue().abandon();
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of buckets data requests are decimated into, about one per pixel
+	 * along the time axis, or 0 to request all the data while the plot has no size. Sub-plots
+	 * stack across the time axis, so each one spans the panel's full extent along it. 
+	 * Plots with time on the Z axis pair X and Y samples by time and are not decimated.
+	 */
+	private int getDecimationBucketCount() {
+		if (thePlot == null) {
+			return 0;
+		}
+		JPanel panel = thePlot.getPlotPanel();
+		switch (thePlot.getAxisOrientationSetting()) {
+		case X_AXIS_AS_TIME:
+			return panel.getWidth();
+		case Y_AXIS_AS_TIME:
+			return panel.getHeight();
+		default:
+			return 0;
+		}
+	}
 	
 	private void cancelOutstandingPredictionRequests() {
 		logger.debug("PlotViewRole.cancelOutstandingPredictionRequests()");
@@ -368,6 +657,10 @@ public class PlotViewManifestation extends FeedView implements RenderingCallback
 		if (currentDataRequest !=null) {
 			currentDataRequest.cancel(false);
 		}
+		if (currentRefresh != null) {
+			currentRefresh.abandon();
+			currentRefresh = null;
+		}
 		cancelOutstandingPredictionRequests();
 	}
 	
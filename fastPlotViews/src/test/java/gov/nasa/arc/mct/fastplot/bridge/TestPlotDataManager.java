@@ -31,12 +31,14 @@ import java.lang.reflect.Method;
 import java.util.Calendar;
 import java.util.Collections;
 import java.util.GregorianCalendar;
+import java.util.SortedMap;
 import java.util.TreeMap;
 
 import javax.swing.JFrame;
 import javax.swing.JPanel;
 import javax.swing.SwingUtilities;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -689,6 +691,109 @@ public class TestPlotDataManager {
 	}
 
 
+	@Test
+	public void testZoomInsideLoadedData() {
+		PlotView plot = createZoomPlot();
+		PlotterPlot plotPackage = (PlotterPlot) plot.returnPlottingPackage();
+		loadData(plot, 0, 1000000);
+
+		// A narrower plot showing half the span keeps the resolution the data was loaded at
+		plotPackage.getPlotView().getContents().setSize(500, 1000);
+		zoom(plotPackage, 250000, 750000);
+		Mockito.verify(plotUser, Mockito.never()).requestDataRefresh(Mockito.any(GregorianCalendar.class), Mockito.any(GregorianCalendar.class));
+		Assert.assertTrue(getDataset(plotPackage).getPointCount() > 0);
+
+		// Zooming in beyond that resolution needs the whole span again
+		zoom(plotPackage, 400000, 600000);
+		assertRequested(400000, 600000);
+		Assert.assertTrue(getDataset(plotPackage).getPointCount() > 0, "Redrawn data should be shown until new data arrives");
+	}
+
+	@Test
+	public void testZoomPartlyOverlappingLoadedData() {
+		PlotView plot = createZoomPlot();
+		PlotterPlot plotPackage = (PlotterPlot) plot.returnPlottingPackage();
+		loadData(plot, 0, 1000000);
+
+		zoom(plotPackage, 500000, 1500000);
+		assertRequested(1000000, 1500000);
+		deliverData(plot, 1000000, 1500000);
+		CompressingXYDataset dataset = getDataset(plotPackage);
+		Assert.assertTrue(dataset.getXData().get(0) < 1000000, "Loaded data should be kept");
+		Assert.assertEquals(dataset.getXData().get(dataset.getPointCount() - 1), 1500000.0);
+
+		zoom(plotPackage, -500000, 500000);
+		assertRequested(-500000, 0);
+
+		// Both the requested spans count as loaded
+		zoom(plotPackage, 250000, 1250000);
+		Mockito.verify(plotUser, Mockito.never()).requestDataRefresh(Mockito.any(GregorianCalendar.class), Mockito.any(GregorianCalendar.class));
+	}
+
+	@Test
+	public void testZoomOutsideLoadedData() {
+		PlotView plot = createZoomPlot();
+		PlotterPlot plotPackage = (PlotterPlot) plot.returnPlottingPackage();
+		loadData(plot, 0, 1000000);
+
+		zoom(plotPackage, 2000000, 3000000);
+		assertRequested(2000000, 3000000);
+		deliverData(plot, 2000000, 3000000);
+		CompressingXYDataset dataset = getDataset(plotPackage);
+		Assert.assertEquals(dataset.getXData().get(0), 2000000.0, "Data outside the new span should be replaced");
+	}
+
+	private PlotView createZoomPlot() {
+		PlotSettings settings = new PlotSettings();
+		settings.setMinTime(0);
+		settings.setMaxTime(1000000);
+		settings.setTimeAxisSubsequentSetting(TimeAxisSubsequentBoundsSetting.JUMP);
+		PlotView plot = new PlotView.Builder(PlotterPlot.class)
+		.plotSettings(settings)
+		.isCompressionEnabled(true)
+		.build();
+		plot.setManifestation(plotUser);
+		plot.addDataSet("feed", Color.white);
+		((PlotterPlot) plot.returnPlottingPackage()).getPlotView().getContents().setSize(1000, 1000);
+		return plot;
+	}
+
+	private void loadData(PlotView plot, long startTime, long endTime) {
+		plot.returnPlottingPackage().getPlotDataManager().resizeAndReloadPlotBuffer();
+		assertRequested(startTime, endTime);
+		deliverData(plot, startTime, endTime);
+	}
+
+	private void deliverData(PlotView plot, long startTime, long endTime) {
+		SortedMap<Long, Double> points = new TreeMap<Long, Double>();
+		for (long time = startTime; time <= endTime; time += 1000) {
+			points.put(time, Math.sin(time / 10000.0));
+		}
+		plot.informUpdateDataEventStarted();
+		plot.addData(Collections.singletonMap("feed", points));
+		plot.informUpdateDataEventCompleted();
+	}
+
+	private void zoom(PlotterPlot plotPackage, long startTime, long endTime) {
+		plotPackage.getTimeAxis().setStart(startTime);
+		plotPackage.getTimeAxis().setEnd(endTime);
+		plotPackage.getPlotDataManager().resizeAndReloadPlotBuffer();
+	}
+
+	private void assertRequested(long startTime, long endTime) {
+		ArgumentCaptor<GregorianCalendar> start = ArgumentCaptor.forClass(GregorianCalendar.class);
+		ArgumentCaptor<GregorianCalendar> end = ArgumentCaptor.forClass(GregorianCalendar.class);
+		Mockito.verify(plotUser).requestDataRefresh(start.capture(), end.capture());
+		Assert.assertEquals(start.getValue().getTimeInMillis(), startTime);
+		Assert.assertEquals(end.getValue().getTimeInMillis(), endTime);
+		Mockito.reset(plotUser);
+	}
+
+	private CompressingXYDataset getDataset(PlotterPlot plotPackage) {
+		return ((PlotDataSeries) plotPackage.getPlotDataManager().getNamedDataSeries("feed")).dataset;
+	}
+
+
 	static class TestQCPlot extends PlotterPlot {
 		
 		int widthInPixels = 0;
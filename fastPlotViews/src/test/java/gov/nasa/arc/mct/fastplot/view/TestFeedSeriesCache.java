@@ -0,0 +1,198 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.fastplot.view;
+
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class TestFeedSeriesCache {
+
+	@Test
+	public void testAttachAndDetach() {
+		FeedSeriesCache cache = new FeedSeriesCache();
+		FeedSeriesCache.Series a = cache.attach("feed", 16);
+		FeedSeriesCache.Series b = cache.attach("feed", 16);
+		FeedSeriesCache.Series c = cache.attach("feed", 32);
+		FeedSeriesCache.Series d = cache.attach("other", 16);
+		Assert.assertSame(a, b);
+		Assert.assertNotSame(a, c);
+		Assert.assertNotSame(a, d);
+		Assert.assertEquals(cache.getSeriesCount(), 3);
+
+		a.put(0, 100, points(0, 50, 100));
+		cache.detach(a);
+		Assert.assertEquals(cache.getSeriesCount(), 3);
+		cache.detach(b);
+		Assert.assertEquals(cache.getSeriesCount(), 2);
+
+		// The series is discarded with the last view, so its data is gone
+		FeedSeriesCache.Series e = cache.attach("feed", 16);
+		Assert.assertNotSame(a, e);
+		Assert.assertFalse(e.covers(0, 100));
+	}
+
+	@Test
+	public void testCovers() {
+		FeedSeriesCache.Series series = new FeedSeriesCache().attach("feed", 0);
+		Assert.assertFalse(series.covers(0, 0));
+		series.put(10, 20, points(10, 15));
+		Assert.assertTrue(series.covers(10, 20));
+		Assert.assertTrue(series.covers(12, 18));
+		Assert.assertFalse(series.covers(9, 20));
+		Assert.assertFalse(series.covers(10, 21));
+		Assert.assertEquals(series.getPoints(12, 20).keySet().toArray(), new Object[] {15L});
+		Assert.assertEquals(series.getPoints(10, 15).size(), 2);
+	}
+
+	@Test
+	public void testMerge() {
+		FeedSeriesCache.Series series = new FeedSeriesCache().attach("feed", 0);
+		series.put(10, 20, points(10, 15, 20));
+		// Adjoining and overlapping spans extend the series
+		series.put(21, 30, points(25));
+		series.put(0, 12, points(0, 12));
+		Assert.assertTrue(series.covers(0, 30));
+		Assert.assertEquals(series.getPoints(0, 30).keySet().toArray(), new Object[] {0L, 12L, 15L, 20L, 25L});
+
+		// A disjoint span replaces the series
+		series.put(100, 200, points(150));
+		Assert.assertFalse(series.covers(0, 30));
+		Assert.assertTrue(series.covers(100, 200));
+		Assert.assertEquals(series.getPoints(0, 200).keySet().toArray(), new Object[] {150L});
+	}
+
+	@Test
+	public void testExpiry() throws InterruptedException {
+		FeedSeriesCache.Series series = new FeedSeriesCache(50).attach("feed", 0);
+		series.put(10, 20, points(10, 15));
+		Assert.assertTrue(series.covers(10, 20));
+		Thread.sleep(100);
+		// Data back-filled since must be retrieved again
+		Assert.assertFalse(series.covers(10, 20));
+		Assert.assertTrue(series.getPoints(0, 30).isEmpty());
+
+		series.put(10, 20, points(10, 12, 15));
+		Assert.assertTrue(series.covers(10, 20));
+		Assert.assertEquals(series.getPoints(10, 20).size(), 3);
+	}
+
+	@Test
+	public void testMaximumSize() {
+		FeedSeriesCache.Series series = new FeedSeriesCache().attach("feed", 0);
+		SortedMap<Long, Double> many = new TreeMap<Long, Double>();
+		for (long i = 0; i < FeedSeriesCache.MAX_POINTS_PER_SERIES; i++) {
+			many.put(i, 0.0);
+		}
+		series.put(0, FeedSeriesCache.MAX_POINTS_PER_SERIES - 1, many);
+		series.put(FeedSeriesCache.MAX_POINTS_PER_SERIES, FeedSeriesCache.MAX_POINTS_PER_SERIES + 10,
+				points(FeedSeriesCache.MAX_POINTS_PER_SERIES));
+		Assert.assertFalse(series.covers(0, 10));
+		Assert.assertTrue(series.covers(FeedSeriesCache.MAX_POINTS_PER_SERIES, FeedSeriesCache.MAX_POINTS_PER_SERIES + 10));
+	}
+
+	@Test
+	public void testRetrieval() {
+		FeedSeriesCache.Series series = new FeedSeriesCache().attach("feed", 0);
+		Listener within = new Listener();
+		Listener outside = new Listener();
+		Assert.assertFalse(series.awaitRetrieval(10, 20, within));
+
+		FeedSeriesCache.Retrieval retrieval = series.beginRetrieval(0, 30);
+		// Views needing data within the span wait for it, others request their own
+		Assert.assertTrue(series.awaitRetrieval(10, 20, within));
+		Assert.assertFalse(series.awaitRetrieval(10, 40, outside));
+		Assert.assertFalse(series.covers(0, 30));
+
+		retrieval.complete(points(0, 5, 15, 25));
+		Assert.assertTrue(series.covers(0, 30));
+		Assert.assertEquals(within.feedId, "feed");
+		Assert.assertEquals(within.points.keySet().toArray(), new Object[] {15L});
+		Assert.assertEquals(within.calls, 1);
+		Assert.assertEquals(outside.calls, 0);
+
+		// Settling a retrieval again does nothing
+		retrieval.abandon();
+		Assert.assertEquals(within.calls, 1);
+		Assert.assertFalse(series.awaitRetrieval(10, 20, within));
+	}
+
+	@Test
+	public void testAbandonedRetrieval() {
+		FeedSeriesCache.Series series = new FeedSeriesCache().attach("feed", 0);
+		Listener listener = new Listener();
+		FeedSeriesCache.Retrieval retrieval = series.beginRetrieval(0, 30);
+		Assert.assertTrue(series.awaitRetrieval(0, 30, listener));
+
+		retrieval.abandon();
+		Assert.assertTrue(listener.abandoned);
+		Assert.assertNull(listener.points);
+		Assert.assertEquals(listener.calls, 1);
+		Assert.assertFalse(series.covers(0, 30));
+
+		retrieval.complete(points(0, 15));
+		Assert.assertEquals(listener.calls, 1);
+		Assert.assertFalse(series.covers(0, 30));
+	}
+
+	@Test
+	public void testResolution() {
+		Assert.assertEquals(FeedSeriesCache.getResolution(1000, 0), 0);
+		Assert.assertEquals(FeedSeriesCache.getResolution(1000, 100), 8);
+		Assert.assertEquals(FeedSeriesCache.getResolution(1024, 128), 8);
+		Assert.assertEquals(FeedSeriesCache.getResolution(1000, 2000), 1);
+		// Views of similar widths share a resolution
+		Assert.assertEquals(FeedSeriesCache.getResolution(60000, 500),
+				FeedSeriesCache.getResolution(60000, 600));
+	}
+
+	private static final class Listener implements FeedSeriesCache.RetrievalListener {
+		private String feedId;
+		private SortedMap<Long, Double> points;
+		private boolean abandoned;
+		private int calls;
+
+		@Override
+		public void retrieved(String feedId, SortedMap<Long, Double> points) {
+			this.feedId = feedId;
+			this.points = points;
+			calls++;
+		}
+
+		@Override
+		public void abandoned(String feedId) {
+			this.feedId = feedId;
+			abandoned = true;
+			calls++;
+		}
+	}
+
+	private static SortedMap<Long, Double> points(long... times) {
+		SortedMap<Long, Double> points = new TreeMap<Long, Double>();
+		for (long t : times) {
+			points.put(t, (double) t);
+		}
+		return points;
+	}
+}
@@ -21,6 +21,7 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.fastplot.view;
 
+import gov.nasa.arc.mct.api.feed.FeedSample;
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.ExtendedProperties;
 import gov.nasa.arc.mct.components.FeedProvider;
@@ -381,6 +382,49 @@ public class TestPlotViewRole {
 		Assert.assertTrue( mctTime <= now.getTimeInMillis() + 1000);
 
 	}
+	
+	@Test
+	public void testUpdateFromDataFeedSamples() throws IllegalArgumentException, SecurityException, IllegalAccessException, NoSuchFieldException {
+		final ExtendedProperties viewProps = new ExtendedProperties();
+		PlotViewManifestation panel = new PlotViewManifestation(mockComponent,new ViewInfo(PlotViewManifestation.class,"", ViewType.OBJECT)) {
+			@Override
+			public ExtendedProperties getViewProperties() {
+				return viewProps;
+			}
+		};
+
+		panel.setPlot(new PlotView.Builder(ShellPlotPackageImplementation.class).build());
+		ShellPlotPackageImplementation testPackage = (ShellPlotPackageImplementation) panel.getPlot().returnPlottingPackage();
+		panel.getPlot().addDataSet("PUI1");
+
+		// samples as read from the memory buffers, one shown with a different text and one not plottable
+		String plottable = "-16777216&X&-16777216&true&true&";
+		Map<String, String> status = Collections.singletonMap(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
+		List<Map<String, String>> dataSetA = new ArrayList<Map<String, String>>();
+		dataSetA.add(new FeedSample(1, 50, true, null, plottable, null, status));
+		dataSetA.add(new FeedSample(2, 86.2, false, null, plottable, "86.20", status));
+		dataSetA.add(new FeedSample(3, 10, true, null, "-16777216&X&-16777216&true&false&", null, status));
+		Map<String, List<Map<String, String>>> theData = new Hashtable<String, List<Map<String, String>>>();
+		theData.put("PUI1", dataSetA);
+
+		Mockito.when(feed1.getRenderingInfo(Mockito.anyMap())).thenReturn(new RenderingInfo("10", Color.BLACK, "X", Color.BLACK, true));
+		Mockito.when(feed1.getSubscriptionId()).thenReturn("PUI1");
+		Field pda = PlotViewManifestation.class.getDeclaredField("plotDataAssigner");
+		pda.setAccessible(true);
+		PlotDataAssigner plotDataAssigner = (PlotDataAssigner) pda.get(panel);
+		plotDataAssigner.getVisibleFeedProviders().add(feed1);
+
+		panel.updateFromFeed(theData);
+
+		// the points are taken from the samples, only the last one is decoded for the legend
+		ArrayList<Double> dataAFromPlot = testPackage.getDataSet().get("pui1");
+		Assert.assertEquals(dataAFromPlot.size(), 3);
+		Assert.assertEquals(dataAFromPlot.get(0), 50.0);
+		Assert.assertEquals(dataAFromPlot.get(1), 86.2);
+		Assert.assertTrue(Double.isNaN(dataAFromPlot.get(2)));
+		Mockito.verify(feed1, Mockito.times(1)).getRenderingInfo(dataSetA.get(2));
+		Mockito.verify(feed1, Mockito.times(1)).getRenderingInfo(Mockito.anyMap());
+	}
 		
 	@Test
 	public void testSetupChart() {
@@ -699,7 +743,9 @@ public class TestPlotViewRole {
 			new Object[] {generateDataSet(1L), 1L, 100L,new Long[] {1L}},
 			new Object[] {generateDataSet(1L), 1L, 1001L, new Long[] {1L, 1001L}},
 			new Object[] {generateDataSet(1L, 999L), 1L, 1001L, new Long[] {1L, 999L}},
-			new Object[] {generateDataSet(1L), 1L, 3000L, new Long[] {1L, 1001L, 2001L}},
+			new Object[] {generateDataSet(1L), 1L, 3000L, new Long[] {1L, 3000L}},
+			new Object[] {generateDataSet(1L, 2001L), 1L, 2001L, new Long[] {1L, 1001L, 2001L}},
+			new Object[] {generateDataSet(1L, 5500L), 1L, 5500L, new Long[] {1L, 4001L, 5500L}},
 		};
 	}
 	
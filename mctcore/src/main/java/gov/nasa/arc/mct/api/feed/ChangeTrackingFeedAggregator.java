@@ -0,0 +1,49 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link FeedAggregator} which counts the data put for every feed, so that callers can tell which
+ * feeds received data since they last looked without querying a time range.
+ * Callers should check for this interface and otherwise assume that every feed may have changed.
+ */
+public interface ChangeTrackingFeedAggregator extends FeedAggregator {
+    /**
+     * Returns the number of times data has been put for each feed. The counts only ever increase,
+     * so a feed has received data if its count differs from the one previously returned.
+     * @param feedIDs to retrieve the counts for
+     * @return the count of each feed; feeds which have never received data are not in the map.
+     */
+    public Map<String, Long> getChangeCounts(Set<String> feedIDs);
+
+    /**
+     * Returns the feeds whose latest sample is also returned for later time ranges without samples,
+     * as change only data is. A caller skipping such a feed because it has not changed should keep
+     * showing its latest sample as the current value.
+     * @param feedIDs to check
+     * @return the feeds among feedIDs whose latest sample is held forward
+     */
+    public Set<String> getFeedsHeldForward(Set<String> feedIDs);
+}
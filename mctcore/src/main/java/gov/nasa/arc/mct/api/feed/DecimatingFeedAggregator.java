@@ -0,0 +1,50 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FeedAggregator} which can reduce the samples of a time range to what a view of
+ * a given resolution can display, so that long time spans are not transferred sample by sample.
+ * Callers should check for this interface and otherwise fall back to
+ * {@link FeedAggregator#getData(Set, TimeUnit, long, long)}.
+ */
+public interface DecimatingFeedAggregator extends FeedAggregator {
+    /**
+     * Returns the samples of each feed, decimated: the time range is split into bucketCount
+     * buckets of equal duration and only the first, minimum, maximum and last sample of each
+     * bucket are returned, in time order. The minimum and maximum are taken over the numeric
+     * values of the samples. As with {@link FeedAggregator#getData(Set, TimeUnit, long, long)},
+     * the last sample before the start time may be included.
+     * @param feedIDs to retrieve data for
+     * @param timeUnit the time unit of startTime and endTime parameters.
+     * @param startTime the start time of the return data set.
+     * @param endTime the end time of the return data set.
+     * @param bucketCount the number of buckets, typically the number of pixels along the time axis
+     * @return map of decimated data for the specified feeds.
+     */
+    public Map<String, List<Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int bucketCount);
+}
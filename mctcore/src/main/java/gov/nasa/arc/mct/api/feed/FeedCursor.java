@@ -0,0 +1,66 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A cursor over the samples of a set of feeds, opened by
+ * {@link StreamingFeedAggregator#openCursor(java.util.Set, TimeUnit, long, long, int)}.
+ * Each call to {@link #next()} returns the following samples of the feeds, so a long time
+ * span can be consumed in chunks of bounded size instead of being materialized at once.
+ * <p>
+ * Chunks are aligned on time: every sample returned by a call to {@link #next()} is earlier
+ * than {@link #getPosition(TimeUnit)}, and every sample returned by the following calls is
+ * at or after it. A feed which does not appear in a chunk may still appear in a later one.
+ * <p>
+ * A cursor which is not read to the end must be closed. {@link #close()} may be called from
+ * another thread to cancel a query in progress.
+ */
+public interface FeedCursor {
+    /**
+     * Returns whether the cursor may have more samples.
+     * @return false once all the samples have been returned or the cursor has been closed.
+     */
+    public boolean hasNext();
+
+    /**
+     * Reads the next chunk of samples.
+     * @return the next samples of each feed which has some, keyed by their time in nanoseconds
+     * and ordered according to the time. Empty once the cursor is exhausted or closed.
+     */
+    public Map<String, SortedMap<Long, Map<String, String>>> next();
+
+    /**
+     * Returns the time up to which the samples have been returned.
+     * @param timeUnit the time unit of the returned time.
+     * @return the time before which all the samples have been returned by {@link #next()}.
+     */
+    public long getPosition(TimeUnit timeUnit);
+
+    /**
+     * Ends the query. Subsequent calls to {@link #next()} return no samples.
+     */
+    public void close();
+}
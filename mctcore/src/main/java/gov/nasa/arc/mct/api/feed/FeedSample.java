@@ -0,0 +1,215 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.util.AbstractMap;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A feed sample which keeps its time, its value and the fields of its rendering info in primitive form.
+ * A sample is also the <code>Map&lt;String, String&gt;</code> form of the sample returned by 
+ * {@link FeedAggregator#getData(Set, java.util.concurrent.TimeUnit, long, long)}, so it passes unchanged 
+ * through every layer which handles samples as maps, and the text of its time, value and rendering info 
+ * is only formatted when it is read from the map. Views which know of this class read the primitive form
+ * instead of parsing the text.
+ * <p>
+ * The time is the value of {@link FeedProvider#NORMALIZED_TIME_KEY}, the value the one of 
+ * {@link FeedProvider#NORMALIZED_VALUE_KEY} and the rendering info the one of 
+ * {@link FeedProvider#NORMALIZED_RENDERING_INFO}, see {@link FeedProvider.RenderingInfo#toString()}. 
+ * The rendering info is kept as the fields preceding its value text, which repeat from sample to sample,
+ * and its value text when that differs from the value of the sample. Samples are immutable.
+ */
+public final class FeedSample extends AbstractMap<String, String> {
+    /** Separator of the fields of a rendering info. */
+    private static final char SEPARATOR = '&';
+    private static final int VALID_FIELD = 3;
+    private static final int PLOTTABLE_FIELD = 4;
+
+    private final long time;
+    private final double value;
+    private final boolean integral;
+    private final String valueText;
+    private final String renderingInfoPrefix;
+    private final String renderingValueText;
+    private final Map<String, String> otherEntries;
+    private volatile Set<Entry<String, String>> entrySet;
+
+    /**
+     * Creates a sample.
+     * @param time the time of the sample
+     * @param value the value of the sample, NaN if it is not a number
+     * @param integral true if the value is written as a long, false if it is written as by <code>Double.toString</code>
+     * @param valueText the text of the value if it is written otherwise, null to format it from the value
+     * @param renderingInfoPrefix the fields of the rendering info preceding its value text, up to and including their
+     * last separator; null if the sample has no rendering info
+     * @param renderingValueText the value text of the rendering info, null if it is the text of the value
+     * @param otherEntries the other entries of the sample, which must not include the time, value or rendering info
+     */
+    public FeedSample(long time, double value, boolean integral, String valueText, String renderingInfoPrefix, 
+                    String renderingValueText, Map<String, String> otherEntries) {
+        this.time = time;
+        this.value = value;
+        this.integral = integral;
+        this.valueText = valueText;
+        this.renderingInfoPrefix = renderingInfoPrefix;
+        this.renderingValueText = renderingValueText;
+        this.otherEntries = otherEntries;
+    }
+
+    /**
+     * Returns a copy of this sample at another time, as when a sample preceding a request is moved to its start.
+     * @param newTime the time of the copy
+     * @return the copy
+     */
+    public FeedSample withTime(long newTime) {
+        return new FeedSample(newTime, value, integral, valueText, renderingInfoPrefix, renderingValueText, otherEntries);
+    }
+
+    /**
+     * Returns the time of the sample.
+     * @return the value of {@link FeedProvider#NORMALIZED_TIME_KEY}
+     */
+    public long getTime() {
+        return time;
+    }
+
+    /**
+     * Returns the value of the sample.
+     * @return the value of {@link FeedProvider#NORMALIZED_VALUE_KEY}, NaN if it is not a number
+     */
+    public double getValue() {
+        return value;
+    }
+
+    /**
+     * Returns whether the sample has a rendering info in primitive form. A rendering info which is not
+     * in the expected form is kept as an ordinary entry.
+     * @return true if the validity and plottability of the sample are known
+     */
+    public boolean hasRenderingInfo() {
+        return renderingInfoPrefix != null;
+    }
+
+    /**
+     * Returns whether the rendering info marks the sample as valid, see {@link FeedProvider.RenderingInfo#isValid()}.
+     * @return false if the sample has no rendering info
+     */
+    public boolean isValid() {
+        return renderingInfoPrefix != null && getFlag(VALID_FIELD);
+    }
+
+    /**
+     * Returns whether the rendering info marks the sample as plottable, see {@link FeedProvider.RenderingInfo#isPlottable()}.
+     * @return true if the sample has no rendering info
+     */
+    public boolean isPlottable() {
+        return renderingInfoPrefix == null || getFlag(PLOTTABLE_FIELD);
+    }
+
+    /**
+     * Returns the numeric value of the value text of the rendering info, see 
+     * {@link FeedProvider.RenderingInfo#getNumericValue()}. It is only parsed if it differs from the value.
+     * @return the value shown for the sample
+     * @throws NumberFormatException if the value text is not a number
+     */
+    public double getRenderedValue() throws NumberFormatException {
+        if (renderingValueText == null && !Double.isNaN(value)) {
+            return value;
+        }
+        return Double.parseDouble(getRenderingValueText());
+    }
+
+    private String getValueText() {
+        if (valueText != null) {
+            return valueText;
+        }
+        return integral ? Long.toString((long) value) : Double.toString(value);
+    }
+
+    private String getRenderingValueText() {
+        return renderingValueText == null ? getValueText() : renderingValueText;
+    }
+
+    private boolean getFlag(int field) {
+        int start = 0;
+        for (int i = 0; i < field; i++) {
+            start = renderingInfoPrefix.indexOf(SEPARATOR, start) + 1;
+            if (start == 0) {
+                return false;
+            }
+        }
+        // as Boolean.parseBoolean, ignoring case
+        int end = renderingInfoPrefix.indexOf(SEPARATOR, start);
+        return end - start == 4 && renderingInfoPrefix.regionMatches(true, start, "true", 0, 4);
+    }
+
+    @Override
+    public String get(Object key) {
+        if (FeedProvider.NORMALIZED_TIME_KEY.equals(key)) {
+            return Long.toString(time);
+        } else if (FeedProvider.NORMALIZED_VALUE_KEY.equals(key)) {
+            return getValueText();
+        } else if (renderingInfoPrefix != null && FeedProvider.NORMALIZED_RENDERING_INFO.equals(key)) {
+            return renderingInfoPrefix.concat(getRenderingValueText());
+        }
+        return otherEntries.get(key);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        if (FeedProvider.NORMALIZED_TIME_KEY.equals(key) || FeedProvider.NORMALIZED_VALUE_KEY.equals(key)) {
+            return true;
+        } else if (renderingInfoPrefix != null && FeedProvider.NORMALIZED_RENDERING_INFO.equals(key)) {
+            return true;
+        }
+        return otherEntries.containsKey(key);
+    }
+
+    @Override
+    public int size() {
+        return otherEntries.size() + (renderingInfoPrefix == null ? 2 : 3);
+    }
+
+    /**
+     * Returns the entries of the sample, formatting the text of the time, value and rendering info once.
+     */
+    @Override
+    public Set<Entry<String, String>> entrySet() {
+        Set<Entry<String, String>> entries = entrySet;
+        if (entries == null) {
+            Map<String, String> sample = new HashMap<String, String>(otherEntries);
+            sample.put(FeedProvider.NORMALIZED_TIME_KEY, get(FeedProvider.NORMALIZED_TIME_KEY));
+            sample.put(FeedProvider.NORMALIZED_VALUE_KEY, get(FeedProvider.NORMALIZED_VALUE_KEY));
+            if (renderingInfoPrefix != null) {
+                sample.put(FeedProvider.NORMALIZED_RENDERING_INFO, get(FeedProvider.NORMALIZED_RENDERING_INFO));
+            }
+            entries = Collections.unmodifiableMap(sample).entrySet();
+            entrySet = entries;
+        }
+        return entries;
+    }
+}
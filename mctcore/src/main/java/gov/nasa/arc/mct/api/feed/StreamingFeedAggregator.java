@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * A {@link FeedAggregator} which can return the samples of a time span through a
+ * {@link FeedCursor}, in chunks of a bounded number of samples per feed. Callers should
+ * check for this interface and otherwise fall back to
+ * {@link FeedAggregator#getData(Set, TimeUnit, long, long)}.
+ */
+public interface StreamingFeedAggregator extends FeedAggregator {
+    /**
+     * Opens a cursor over the samples of each feed. The samples are the same as those returned by
+     * {@link FeedAggregator#getData(Set, TimeUnit, long, long)}.
+     * @param feedIDs to retrieve data for
+     * @param timeUnit the time unit of startTime and endTime parameters.
+     * @param startTime the start time of the return data set.
+     * @param endTime the end time of the return data set.
+     * @param chunkSize the maximum number of samples of a feed returned by one call to
+     * {@link FeedCursor#next()}, or 0 to return all the samples in one chunk.
+     * @return a cursor positioned at startTime, which must be closed if it is not read to the end.
+     */
+    public FeedCursor openCursor(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int chunkSize);
+}
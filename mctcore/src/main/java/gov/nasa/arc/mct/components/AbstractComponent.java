@@ -217,6 +217,12 @@ public abstract class AbstractComponent implements Cloneable {
         assert viewRoleProperties != null;
     }
     
+    private synchronized void setLoadedViewProperties(Map<String, ExtendedProperties> properties) {
+        if (viewRoleProperties == null) {
+            viewRoleProperties = properties;
+        }
+    }
+    
     private synchronized void addViewProperty(String viewRoleType, ExtendedProperties properties) {
         ensureViewPropertiesLoaded();
         if (!viewRoleProperties.containsKey(viewRoleType)) {
@@ -1026,6 +1032,16 @@ public abstract class AbstractComponent implements Cloneable {
             return initialized;
         }
 
+        @Override
+        public void setLoadedReferences(List<AbstractComponent> references) {
+            setLoadedComponents(references);
+        }
+        
+        @Override
+        public void setLoadedViewRoleProperties(Map<String, ExtendedProperties> properties) {
+            setLoadedViewProperties(properties);
+        }
+
         @Override
         public Map<String, ExtendedProperties> getMutatedViewRoleProperties() {
             return AbstractComponent.this.getRawViewProperties();
@@ -1169,6 +1185,12 @@ public abstract class AbstractComponent implements Cloneable {
         return currentlyReferencedComponents;
     }
     
+    private synchronized void setLoadedComponents(List<AbstractComponent> components) {
+        if (!isLeaf() && cachedComponentReferences.get() == null) {
+            cachedComponentReferences = new SoftReference<List<AbstractComponent>>(components);
+        }
+    }
+    
     /**
      * Add a reference to the specified component.
      * Generally, a referenced component may be thought of as a child 
@@ -66,9 +66,15 @@ public interface FeedProvider {
     /** Rendering info. */  
     static class RenderingInfo {
 
+        /** Number of recently decoded string forms remembered by {@link #valueOf(String)}; a power of two. */
+        private static final int DECODED_PREFIX_SLOTS = 256;
+        /** Number of separated fields preceding the value text in the string form. */
+        private static final int PREFIX_FIELDS = 5;
+        private static final DecodedPrefix[] decodedPrefixes = new DecodedPrefix[DECODED_PREFIX_SLOTS];
+
         private String statusText;
         private Color statusColor;
-        private String valueText;
+        private ValueText valueText;
         private Color valueColor;
         private boolean valid;
         private boolean plottable = true;
@@ -78,6 +84,13 @@ public interface FeedProvider {
                         String valueText, Color valueColor, 
                         String statusText, Color statusColor,
                         boolean valid) {
+            this(new ValueText(valueText), valueColor, statusText, statusColor, valid);
+        }
+        
+        private RenderingInfo(
+                        ValueText valueText, Color valueColor, 
+                        String statusText, Color statusColor,
+                        boolean valid) {
             super();
             this.statusText = statusText;
             this.statusColor = statusColor;
@@ -87,39 +100,47 @@ public interface FeedProvider {
         }
         
         /**
-         * Returns rendering info, given its string representation
+         * Returns rendering info, given its string representation. The colors, status and flags
+         * preceding the value text repeat from sample to sample, so the decoded form of recently seen
+         * prefixes is kept and reused, along with the last value text decoded for each of them.
          * 
          * @param riAsString string representation
          * @return rendering info instance
          */
         public static FeedProvider.RenderingInfo valueOf(String riAsString) {
+            int prefixEnd = -1;
+            for (int i = 0; i < PREFIX_FIELDS; i++) {
+                prefixEnd = riAsString.indexOf(sep, prefixEnd + 1);
+                if (prefixEnd < 0) {
+                    throw new IllegalArgumentException("Not a rendering info: " + riAsString);
+                }
+            }
+            prefixEnd++;
+            
+            int hash = 0;
+            for (int i = 0; i < prefixEnd; i++) {
+                hash = 31 * hash + riAsString.charAt(i);
+            }
+            int slot = (hash ^ (hash >>> 16)) & (DECODED_PREFIX_SLOTS - 1);
+            DecodedPrefix prefix = decodedPrefixes[slot];
+            if (prefix == null || !prefix.matches(riAsString, prefixEnd)) {
+                prefix = new DecodedPrefix(riAsString.substring(0, prefixEnd));
+                decodedPrefixes[slot] = prefix;
+            }
+            
+            ValueText value = prefix.lastValueText;
+            if (value == null || !value.matches(riAsString, prefixEnd)) {
+                value = new ValueText(riAsString.substring(prefixEnd));
+                prefix.lastValueText = value;
+            }
 
-            int start = -1;
-            int end = riAsString.indexOf(sep);
-            String valueColor = riAsString.substring(start + 1, end);  
-            start = end;
-            end = riAsString.indexOf(sep, end + 1); 
-            String statusText = riAsString.substring(start + 1, end);
-            start = end;
-            end = riAsString.indexOf(sep, end + 1); 
-            String statusColor = riAsString.substring(start + 1, end);
-            start = end;
-            end = riAsString.indexOf(sep, end + 1); 
-            String isValid = riAsString.substring(start + 1, end);
-            start = end;
-            end = riAsString.indexOf(sep, end + 1);
-            String isPlottable = riAsString.substring(start + 1, end);
-            start = end;
-            String valueText =  riAsString.substring(start + 1);
-
-            FeedProvider.RenderingInfo ri = null;
-            ri = new FeedProvider.RenderingInfo(
-                            valueText, new Color(Integer.parseInt(valueColor)), 
-                            statusText,  new Color(Integer.parseInt(statusColor)), 
-                            Boolean.valueOf(isValid)                      
+            FeedProvider.RenderingInfo ri = new FeedProvider.RenderingInfo(
+                            value, prefix.valueColor, 
+                            prefix.statusText, prefix.statusColor, 
+                            prefix.valid                      
             );
 
-            ri.setPlottable(Boolean.valueOf(isPlottable));
+            ri.setPlottable(prefix.plottable);
             return ri;
         }
 
@@ -129,7 +150,7 @@ public interface FeedProvider {
                    statusText +sep+ Integer.toString(statusColor.getRGB()) +sep+ 
                    Boolean.toString(valid)  +sep+ 
                    Boolean.toString(plottable)  +sep+
-                   valueText
+                   valueText.text
                    ;          
         }
         
@@ -138,7 +159,7 @@ public interface FeedProvider {
          * @return the value as string
          */
         public String getValueText() {
-            return valueText;
+            return valueText.text;
         }
    
         /**
@@ -146,10 +167,21 @@ public interface FeedProvider {
          * @param v the value
          */
         public void setValueText(String v) {
-            this.valueText = v;
+            this.valueText = new ValueText(v);
             
         }
         
+        /**
+         * Gets the value as a number. The text is parsed once and the result shared by the 
+         * rendering info decoded from the same string representation, so callers needing a 
+         * number should prefer this to parsing {@link #getValueText()}.
+         * @return the value
+         * @throws NumberFormatException if the value text is not a number
+         */
+        public double getNumericValue() {
+            return valueText.toDouble();
+        }
+        
         /**
          * Gets the value color.
          * @return the value color
@@ -192,6 +224,62 @@ public interface FeedProvider {
             this.plottable = plottable;
         }
 
+        /** The decoded fields preceding the value text in the string representation. */
+        private static final class DecodedPrefix {
+            private final String encoded;
+            private final Color valueColor;
+            private final String statusText;
+            private final Color statusColor;
+            private final boolean valid;
+            private final boolean plottable;
+            private volatile ValueText lastValueText;
+
+            DecodedPrefix(String encoded) {
+                this.encoded = encoded;
+                int start = -1;
+                int end = encoded.indexOf(sep);
+                valueColor = new Color(Integer.parseInt(encoded.substring(start + 1, end)));
+                start = end;
+                end = encoded.indexOf(sep, end + 1); 
+                statusText = encoded.substring(start + 1, end);
+                start = end;
+                end = encoded.indexOf(sep, end + 1); 
+                statusColor = new Color(Integer.parseInt(encoded.substring(start + 1, end)));
+                start = end;
+                end = encoded.indexOf(sep, end + 1); 
+                valid = Boolean.parseBoolean(encoded.substring(start + 1, end));
+                start = end;
+                end = encoded.indexOf(sep, end + 1);
+                plottable = Boolean.parseBoolean(encoded.substring(start + 1, end));
+            }
+
+            boolean matches(String riAsString, int prefixEnd) {
+                return encoded.length() == prefixEnd && riAsString.startsWith(encoded);
+            }
+        }
+
+        /** A value text and, once requested, its numeric value. */
+        private static final class ValueText {
+            private final String text;
+            private volatile boolean parsed;
+            private volatile double number;
+
+            ValueText(String text) {
+                this.text = text;
+            }
+
+            boolean matches(String riAsString, int offset) {
+                return text.length() == riAsString.length() - offset && riAsString.startsWith(text, offset);
+            }
+
+            double toDouble() {
+                if (!parsed) {
+                    number = Double.parseDouble(text);
+                    parsed = true;
+                }
+                return number;
+            }
+        }
     }
    
     /**
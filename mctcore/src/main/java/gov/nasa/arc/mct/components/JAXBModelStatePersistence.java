@@ -26,6 +26,8 @@ import java.io.ByteArrayOutputStream;
 import java.io.InputStream;
 import java.io.UnsupportedEncodingException;
 import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 import java.util.concurrent.ConcurrentHashMap;
 
 import javax.xml.bind.DataBindingException;
@@ -35,17 +37,27 @@ import javax.xml.bind.Marshaller;
 import javax.xml.bind.Unmarshaller;
 
 /**
- * This class provides a JAXB based serialized model state. 
+ * This class provides a JAXB based serialized model state. If a {@link ModelStateCodec} is registered
+ * with {@link ModelStateCodecs} for the JAXB class, states written in binary can be read as well, and
+ * the state is written in binary instead when {@link ModelStateCodecs#isBinaryWriteEnabled()}. 
  *
  * @param <C> class that will be serialized using JAXB, this class should be annotated for JAXB. 
  */
 public abstract class JAXBModelStatePersistence<C> implements ModelStatePersistence {
-    private static final Map<Class<?>, JAXBContext> marshalCache = new ConcurrentHashMap<Class<?>, JAXBContext>();
+    /** Maximum number of idle marshallers, and of idle unmarshallers, kept per class. */
+    private static final int POOL_SIZE = 8;
+    private static final Map<Class<?>, JAXBPool> marshalCache = new ConcurrentHashMap<Class<?>, JAXBPool>();
     
     @Override
     public final String getModelState() {
+        C state = getStateToPersist();
+        ModelStateCodec<C> codec = ModelStateCodecs.getCodec(getJAXBClass());
+        // subclasses of the JAXB class may have state the codec does not know about
+        if (codec != null && state != null && state.getClass() == getJAXBClass() && ModelStateCodecs.isBinaryWriteEnabled()) {
+            return ModelStateCodecs.encode(codec, state);
+        }
         try {
-            return marshal(getStateToPersist());
+            return marshal(state);
         } catch (UnsupportedEncodingException e) {
             throw new RuntimeException(e);
         } catch (JAXBException e) {
@@ -56,6 +68,10 @@ public abstract class JAXBModelStatePersistence<C> implements ModelStatePersiste
 
     @Override
     public final void setModelState(String state) {
+        if (ModelStateCodecs.isBinary(state)) {
+            setPersistentState(ModelStateCodecs.decode(getJAXBClass(), state));
+            return;
+        }
         try {
             setPersistentState(unmarshal(getJAXBClass(), state));
         } catch (DataBindingException e) {
@@ -85,13 +101,13 @@ public abstract class JAXBModelStatePersistence<C> implements ModelStatePersiste
      */
     protected abstract Class<C> getJAXBClass();
     
-    private JAXBContext getFromCache(Class<?> unMarshalledClazz) throws JAXBException {
-        JAXBContext jc = marshalCache.get(unMarshalledClazz);
-        if (jc == null) {
-            jc = JAXBContext.newInstance(unMarshalledClazz);
-            marshalCache.put(unMarshalledClazz, jc);
+    private JAXBPool getFromCache(Class<?> unMarshalledClazz) throws JAXBException {
+        JAXBPool pool = marshalCache.get(unMarshalledClazz);
+        if (pool == null) {
+            pool = new JAXBPool(JAXBContext.newInstance(unMarshalledClazz));
+            marshalCache.put(unMarshalledClazz, pool);
         }
-        return jc;
+        return pool;
     }
     
     /**
@@ -106,9 +122,15 @@ public abstract class JAXBModelStatePersistence<C> implements ModelStatePersiste
      */
     private C unmarshal(Class<C> unMarshalledClazz, String state) throws DataBindingException, JAXBException, UnsupportedEncodingException {
         InputStream is = new ByteArrayInputStream(state.getBytes("ASCII"));
-        JAXBContext jc = getFromCache(unMarshalledClazz);
-        Unmarshaller u = jc.createUnmarshaller();
-        return unMarshalledClazz.cast(u.unmarshal(is));
+        JAXBPool pool = getFromCache(unMarshalledClazz);
+        Unmarshaller u = pool.unmarshallers.poll();
+        if (u == null) {
+            u = pool.context.createUnmarshaller();
+        }
+        // only returned to the pool once used successfully
+        C result = unMarshalledClazz.cast(u.unmarshal(is));
+        pool.unmarshallers.offer(u);
+        return result;
     }
     
     /**
@@ -122,13 +144,31 @@ public abstract class JAXBModelStatePersistence<C> implements ModelStatePersiste
     private String marshal(C toBeMarshalled) throws JAXBException, UnsupportedEncodingException {
         ByteArrayOutputStream out = new ByteArrayOutputStream();
         Class<?> clazz = toBeMarshalled.getClass();
-        JAXBContext ctxt = getFromCache(clazz);
+        JAXBPool pool = getFromCache(clazz);
         
-        Marshaller marshaller = ctxt.createMarshaller();
-        marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
-        marshaller.setProperty(Marshaller.JAXB_ENCODING, "ASCII");
+        Marshaller marshaller = pool.marshallers.poll();
+        if (marshaller == null) {
+            marshaller = pool.context.createMarshaller();
+            marshaller.setProperty(Marshaller.JAXB_FRAGMENT, Boolean.TRUE);
+            marshaller.setProperty(Marshaller.JAXB_ENCODING, "ASCII");
+        }
         marshaller.marshal(toBeMarshalled, out);
+        pool.marshallers.offer(marshaller);
         return out.toString("ASCII");
     }
+    
+    /**
+     * The context of a class, with the marshallers and unmarshallers created from it which are 
+     * not in use. These are expensive to create, but cannot be shared by threads. 
+     */
+    private static final class JAXBPool {
+        private final JAXBContext context;
+        private final BlockingQueue<Marshaller> marshallers = new ArrayBlockingQueue<Marshaller>(POOL_SIZE);
+        private final BlockingQueue<Unmarshaller> unmarshallers = new ArrayBlockingQueue<Unmarshaller>(POOL_SIZE);
+        
+        JAXBPool(JAXBContext context) {
+            this.context = context;
+        }
+    }
 
 }
@@ -0,0 +1,61 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.components;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
+/**
+ * Encodes the model state of a class of components in a compact binary form, as an alternative
+ * to the XML written by {@link JAXBModelStatePersistence}. Codecs are registered with
+ * {@link ModelStateCodecs}.
+ *
+ * Each encoded state records the version of the codec which wrote it, so that a codec can
+ * continue to read the states written by its earlier versions when the model changes.
+ *
+ * @param <C> class of the model state
+ */
+public interface ModelStateCodec<C> {
+    /**
+     * Gets the version of the encoding written by this codec.
+     * @return the current version, which should increase whenever the encoding changes
+     */
+    int getVersion();
+
+    /**
+     * Writes a model state.
+     * @param state the model state to write
+     * @param out where to write it
+     * @throws IOException if the state cannot be written
+     */
+    void write(C state, DataOutput out) throws IOException;
+
+    /**
+     * Reads a model state.
+     * @param in where to read it from
+     * @param version the version of the codec which wrote it
+     * @return the model state read
+     * @throws IOException if the state cannot be read
+     */
+    C read(DataInput in, int version) throws IOException;
+}
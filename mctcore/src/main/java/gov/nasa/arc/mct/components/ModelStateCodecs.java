@@ -0,0 +1,155 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.components;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import javax.xml.bind.DatatypeConverter;
+
+/**
+ * The registry of binary model state codecs, by model state class. Once a codec is registered
+ * for a class, {@link JAXBModelStatePersistence} reads the model states of that class written in
+ * binary as well as those written as XML.
+ *
+ * Binary states are stored as text, starting with {@link #BINARY_STATE_PREFIX} followed by the
+ * version of the codec and the Base64 encoded bytes, so they can be told apart from XML.
+ * Clients without the codec cannot read binary states, so they are only written when the system
+ * property <code>mct.modelState.writeBinary</code> is set to true, once every client sharing the
+ * database can read them.
+ */
+public final class ModelStateCodecs {
+    /** Start of every binary model state. */
+    public static final String BINARY_STATE_PREFIX = "mct-binary:";
+
+    private static volatile boolean writeBinary = Boolean.getBoolean("mct.modelState.writeBinary");
+    private static final Map<Class<?>, ModelStateCodec<?>> codecs = new ConcurrentHashMap<Class<?>, ModelStateCodec<?>>();
+
+    private ModelStateCodecs() {
+    }
+
+    /**
+     * Registers the codec for a model state class, replacing any codec registered before.
+     * @param <C> the model state class
+     * @param stateClass the model state class
+     * @param codec the codec for the class
+     */
+    public static <C> void register(Class<C> stateClass, ModelStateCodec<C> codec) {
+        codecs.put(stateClass, codec);
+    }
+
+    /**
+     * Removes the codec for a model state class. States already written in binary can
+     * no longer be read afterwards.
+     * @param stateClass the model state class
+     */
+    public static void unregister(Class<?> stateClass) {
+        codecs.remove(stateClass);
+    }
+
+    /**
+     * Gets the codec for a model state class.
+     * @param <C> the model state class
+     * @param stateClass the model state class
+     * @return the codec, or null if none is registered
+     */
+    @SuppressWarnings("unchecked")
+    public static <C> ModelStateCodec<C> getCodec(Class<C> stateClass) {
+        return (ModelStateCodec<C>) codecs.get(stateClass);
+    }
+
+    /**
+     * Returns true if model states are to be written in binary where a codec is registered.
+     * @return false if XML is always written
+     */
+    public static boolean isBinaryWriteEnabled() {
+        return writeBinary;
+    }
+
+    /**
+     * Overrides the <code>mct.modelState.writeBinary</code> system property, for tests.
+     * @param enabled true to write binary states where a codec is registered
+     */
+    static void setBinaryWriteEnabled(boolean enabled) {
+        writeBinary = enabled;
+    }
+
+    /**
+     * Returns true if a model state was written in binary.
+     * @param state the model state as stored
+     * @return true if binary, false if XML
+     */
+    public static boolean isBinary(String state) {
+        return state.startsWith(BINARY_STATE_PREFIX);
+    }
+
+    /**
+     * Encodes a model state in binary.
+     * @param <C> the model state class
+     * @param codec the codec for the class
+     * @param state the model state
+     * @return the state as stored
+     */
+    public static <C> String encode(ModelStateCodec<C> codec, C state) {
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            DataOutputStream out = new DataOutputStream(bytes);
+            codec.write(state, out);
+            out.flush();
+            return BINARY_STATE_PREFIX + codec.getVersion() + ':' + DatatypeConverter.printBase64Binary(bytes.toByteArray());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Decodes a model state written in binary.
+     * @param <C> the model state class
+     * @param stateClass the model state class
+     * @param state the state as stored
+     * @return the model state
+     * @throws IllegalStateException if no codec is registered for the class
+     * @throws IllegalArgumentException if the state is not a binary state
+     */
+    public static <C> C decode(Class<C> stateClass, String state) {
+        ModelStateCodec<C> codec = getCodec(stateClass);
+        if (codec == null) {
+            throw new IllegalStateException("No model state codec registered for " + stateClass.getName());
+        }
+        int separator = state.indexOf(':', BINARY_STATE_PREFIX.length());
+        if (!isBinary(state) || separator < 0) {
+            throw new IllegalArgumentException("Not a binary model state");
+        }
+        int version = Integer.parseInt(state.substring(BINARY_STATE_PREFIX.length(), separator));
+        byte[] bytes = DatatypeConverter.parseBase64Binary(state.substring(separator + 1));
+        try {
+            return codec.read(new DataInputStream(new ByteArrayInputStream(bytes)), version);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -21,7 +21,12 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.DecimatingFeedAggregator;
 import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+import gov.nasa.arc.mct.api.feed.FeedSample;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
+import gov.nasa.arc.mct.api.feed.StreamingFeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.platform.spi.PlatformAccess;
 import gov.nasa.arc.mct.util.internal.ElapsedTimer;
@@ -32,10 +37,13 @@ import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Set;
+import java.util.SortedMap;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.TimeUnit;
 
@@ -54,6 +62,7 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
 
     private final Set<FeedView> activeFeedViews;
     private final Map<FeedProvider, Long[]> times;
+    private final Map<String, List<Map<String, String>>> heldValues = new HashMap<String, List<Map<String, String>>>();
     private final ElapsedTimer dataRequestTimer = new ElapsedTimer();
     private final ElapsedTimer uiRenderingTimer = new ElapsedTimer();
 
@@ -72,6 +81,16 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
         times = timeMapping;
     }
 
+    /**
+     * Adds values to dispatch along with the retrieved data without requesting them, such as the
+     * latest samples of unchanged feeds which are held forward. This must be invoked before the
+     * worker is executed.
+     * @param values to dispatch by feed ID
+     */
+    void addHeldValues(Map<String, List<Map<String, String>>> values) {
+        heldValues.putAll(values);
+    }
+
     /**
      * Returns the list of the feed providers from a manifestation. The default
      * implementation invokes
@@ -131,41 +150,118 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
         return lastRequests.isEmpty() ? fullSpanRequests:Collections.<Request,Set<FeedProvider>>emptyMap();
     }
     
+    /**
+     * Returns the feed providers whose data is only used for their latest sample. When the feed aggregator
+     * is a {@link LatestValueFeedAggregator}, the latest samples of these feeds are taken from its cache
+     * rather than read from the requested time range, unless the aggregator has no sample for a feed or its
+     * latest sample is later than the end of the request. The default implementation returns the feeds shown
+     * only by views for which {@link FeedView#isLatestValueOnly()} is true.
+     * @return set of feed providers to look up the latest sample for
+     */
+    protected Set<FeedProvider> getLatestValueProviders() {
+        Set<FeedProvider> latestProviders = new HashSet<FeedProvider>();
+        Set<FeedProvider> rangeProviders = new HashSet<FeedProvider>();
+        for (FeedView manifestation : activeFeedViews) {
+            if (manifestation.isLatestValueOnly()) {
+                latestProviders.addAll(getProviders(manifestation));
+            } else {
+                rangeProviders.addAll(getProviders(manifestation));
+            }
+        }
+        latestProviders.removeAll(rangeProviders);
+        return latestProviders;
+    }
+    
+    /**
+     * Returns the maximum number of samples of a feed to retrieve at once. When this is positive and
+     * the feed aggregator supports it, each request is read through a {@link FeedCursor} and
+     * {@link #requestCompleted(Map, long, long)} is invoked for each chunk of the request, with the time
+     * span the chunk covers. The default implementation returns 0, reading each request at once.
+     * @return the maximum number of samples per feed and chunk, or 0
+     */
+    protected int getChunkSize() {
+        return 0;
+    }
+
+    /**
+     * Returns whether requests will be read in chunks, see {@link #getChunkSize()}.
+     * @return true if the requests will be read through a {@link FeedCursor}
+     */
+    protected boolean isChunked() {
+        return getChunkSize() > 0 && PlatformAccess.getPlatform().getFeedAggregator() instanceof StreamingFeedAggregator;
+    }
+    
+    /**
+     * Returns the number of buckets the samples of a request are decimated into. When this is positive
+     * and the feed aggregator supports it, each request is read through
+     * {@link DecimatingFeedAggregator#getDecimatedData(Set, TimeUnit, long, long, int)}, returning at
+     * most four samples per feed and bucket. The default implementation returns 0, reading every sample.
+     * @return the number of buckets, or 0
+     */
+    protected int getBucketCount() {
+        return 0;
+    }
+
+    /**
+     * Returns whether requests will be decimated, see {@link #getBucketCount()}.
+     * @return true if the requests will be decimated
+     */
+    protected boolean isDecimated() {
+        return getBucketCount() > 0 && PlatformAccess.getPlatform().getFeedAggregator() instanceof DecimatingFeedAggregator;
+    }
+
+    /**
+     * Returns whether the requests of an iteration may be retrieved in parallel on the shared
+     * {@link FeedRetrievalPool}. Only iterations with several requests are retrieved on the pool, others
+     * are retrieved on the worker thread. The pool is shared by all the workers returning true, so this
+     * should only be used for retrievals which can wait behind others, such as backfills. The default
+     * implementation returns false, retrieving each request on the worker thread in turn.
+     * @return true if the requests may be retrieved on the pool
+     */
+    protected boolean isRetrievedInParallel() {
+        return false;
+    }
+    
     @Override
     protected Map<String, List<Map<String, String>>> doInBackground() {
         dataRequestTimer.startInterval();
-        Map<String, List<Map<String, String>>> values = new HashMap<String, List<Map<String, String>>>();
+        Map<String, List<Map<String, String>>> values = new HashMap<String, List<Map<String, String>>>(heldValues);
         PERF_LOGGER.debug("size of feed views {0}", activeFeedViews.size());
         try {
             final Map<Request, Set<FeedProvider>> fullSpanRequests = batchByRequestTime();
+            if (!fullSpanRequests.isEmpty()) {
+                retrieveLatest(PlatformAccess.getPlatform().getFeedAggregator(), fullSpanRequests, values);
+            }
             Map<Request, Set<FeedProvider>> currentIterationRequests = getCurrentIterationRequests(fullSpanRequests,Collections.<Request,Set<FeedProvider>>emptyMap());
             while (!currentIterationRequests.isEmpty()) {
-                Set<Entry<Request, Set<FeedProvider>>> entries = currentIterationRequests.entrySet();
-                for (Entry<Request, Set<FeedProvider>> request : entries) {
-                    if (isCancelled()) {
+                FeedAggregator feedAggregator = PlatformAccess.getPlatform().getFeedAggregator();
+                int bucketCount = getBucketCount();
+                int chunkSize = getChunkSize();
+                boolean decimated = bucketCount > 0 && feedAggregator instanceof DecimatingFeedAggregator;
+                if (!decimated && chunkSize > 0 && feedAggregator instanceof StreamingFeedAggregator) {
+                    for (Entry<Request, Set<FeedProvider>> request : currentIterationRequests.entrySet()) {
+                        if (isCancelled()) {
+                            return Collections.emptyMap();
+                        }
+                        if (!readChunks(StreamingFeedAggregator.class.cast(feedAggregator), getFeedIds(request.getValue()), request.getKey(), chunkSize, values)) {
+                            return Collections.emptyMap();
+                        }
+                    }
+                } else if (isRetrievedInParallel() && currentIterationRequests.size() > 1) {
+                    if (!retrieveInParallel(feedAggregator, decimated ? bucketCount : 0, currentIterationRequests, values)) {
                         return Collections.emptyMap();
                     }
-                    Request r = request.getKey();
-                    Set<String> feedIds = new HashSet<String>();
-                    for (FeedProvider provider : request.getValue()) {
-                        try {
-                            feedIds.add(provider.getSubscriptionId());
-                        } catch (Exception e) {
-                            LOGGER.error("exception occurred while getting subscription id from "
-                                            + provider, e);
+                } else {
+                    for (Entry<Request, Set<FeedProvider>> request : currentIterationRequests.entrySet()) {
+                        if (isCancelled()) {
+                            return Collections.emptyMap();
                         }
+                        Request r = request.getKey();
+                        Map<String, List<Map<String, String>>> data = retrieve(feedAggregator, decimated ? bucketCount : 0,
+                                        getFeedIds(request.getValue()), r);
+                        values.putAll(adjustResponses(data, r.getStartTime()));
+                        requestCompleted(values, r.getStartTime(), r.getEndTime());
                     }
-
-                    FeedAggregator feedAggregator = PlatformAccess.getPlatform().getFeedAggregator();
-                    
-                    Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
-                    if (feedAggregator != null) { 
-                        data = feedAggregator.getData(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime());
-                    }
-                    
-                    Map<String, List<Map<String,String>>> adjValues = adjustResponses(data, r.getStartTime());
-                    values.putAll(adjValues);
-                    requestCompleted(values, r.getStartTime(), r.getEndTime());
                 }
                 currentIterationRequests = getCurrentIterationRequests(fullSpanRequests, currentIterationRequests);
             }
@@ -178,6 +274,178 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
         return values;
     }
     
+    private Set<String> getFeedIds(Set<FeedProvider> providers) {
+        Set<String> feedIds = new HashSet<String>();
+        for (FeedProvider provider : providers) {
+            try {
+                feedIds.add(provider.getSubscriptionId());
+            } catch (Exception e) {
+                LOGGER.error("exception occurred while getting subscription id from "
+                                + provider, e);
+            }
+        }
+        return feedIds;
+    }
+
+    /**
+     * Looks up the latest samples of the feeds returned by {@link #getLatestValueProviders()}, and removes the
+     * feeds found from the requests. The samples are adjusted to the start time of their request as the 
+     * retrieved data is, so a sample preceding the request is moved to its start time.
+     * @param feedAggregator to look up the samples from, may be null
+     * @param requests to serve from the latest samples, which is mutated
+     * @param values to add the samples to
+     */
+    private void retrieveLatest(FeedAggregator feedAggregator, Map<Request, Set<FeedProvider>> requests,
+                    Map<String, List<Map<String, String>>> values) {
+        if (!(feedAggregator instanceof LatestValueFeedAggregator)) {
+            return;
+        }
+        Set<FeedProvider> latestProviders = getLatestValueProviders();
+        if (latestProviders.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, String>> latest = LatestValueFeedAggregator.class.cast(feedAggregator).getLatest(getFeedIds(latestProviders));
+        Iterator<Entry<Request, Set<FeedProvider>>> it = requests.entrySet().iterator();
+        while (it.hasNext()) {
+            Entry<Request, Set<FeedProvider>> request = it.next();
+            Request r = request.getKey();
+            Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
+            Iterator<FeedProvider> providers = request.getValue().iterator();
+            while (providers.hasNext()) {
+                FeedProvider provider = providers.next();
+                if (!latestProviders.contains(provider)) {
+                    continue;
+                }
+                Map<String, String> sample = latest.get(provider.getSubscriptionId());
+                if (sample != null && isAtOrBefore(sample, r.getEndTime())) {
+                    data.put(provider.getSubscriptionId(), Collections.singletonList(sample));
+                    providers.remove();
+                }
+            }
+            values.putAll(adjustResponses(data, r.getStartTime()));
+            if (request.getValue().isEmpty()) {
+                it.remove();
+            }
+        }
+    }
+    
+    private static boolean isAtOrBefore(Map<String, String> sample, long time) {
+        if (sample instanceof FeedSample) {
+            return FeedSample.class.cast(sample).getTime() <= time;
+        }
+        String sampleTime = sample.get(FeedProvider.NORMALIZED_TIME_KEY);
+        if (sampleTime == null) {
+            return false;
+        }
+        try {
+            return Long.parseLong(sampleTime) <= time;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Retrieves the requests of an iteration on the {@link FeedRetrievalPool}, all at the same time, and invokes
+     * {@link #requestCompleted(Map, long, long)} for each request in turn as its data arrives. Identical requests
+     * from other workers in progress at the same time are retrieved only once.
+     * @param feedAggregator to retrieve the data from, may be null
+     * @param bucketCount the number of buckets to decimate the data into, or 0 to retrieve every sample
+     * @return false if the worker has been canceled
+     */
+    private boolean retrieveInParallel(final FeedAggregator feedAggregator, final int bucketCount,
+                    Map<Request, Set<FeedProvider>> requests, Map<String, List<Map<String, String>>> values) throws ExecutionException {
+        if (isCancelled()) {
+            return false;
+        }
+        List<Request> startedRequests = new ArrayList<Request>(requests.size());
+        List<FeedRetrievalPool.Retrieval> retrievals = new ArrayList<FeedRetrievalPool.Retrieval>(requests.size());
+        for (Entry<Request, Set<FeedProvider>> request : requests.entrySet()) {
+            final Request r = request.getKey();
+            final Set<String> feedIds = getFeedIds(request.getValue());
+            startedRequests.add(r);
+            retrievals.add(FeedRetrievalPool.getInstance().submit(feedIds, r.getStartTime(), r.getEndTime(), bucketCount, 
+                            new Callable<Map<String, List<Map<String, String>>>>() {
+                @Override
+                public Map<String, List<Map<String, String>>> call() {
+                    return retrieve(feedAggregator, bucketCount, feedIds, r);
+                }
+            }));
+        }
+        int next = 0;
+        try {
+            while (next < retrievals.size()) {
+                Request r = startedRequests.get(next);
+                // waiting releases the retrieval
+                Map<String, List<Map<String, String>>> data = retrievals.get(next++).get(this);
+                if (data == null) {
+                    return false;
+                }
+                // the data may be shared with other workers, and adjusting the responses replaces entries
+                values.putAll(adjustResponses(new HashMap<String, List<Map<String, String>>>(data), r.getStartTime()));
+                requestCompleted(values, r.getStartTime(), r.getEndTime());
+                if (isCancelled()) {
+                    return false;
+                }
+            }
+        } finally {
+            for (; next < retrievals.size(); next++) {
+                retrievals.get(next).release();
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the data of a request at once.
+     * @param feedAggregator to retrieve the data from, may be null
+     * @param bucketCount the number of buckets to decimate the data into, or 0 to retrieve every sample
+     * @return the data
+     */
+    private static Map<String, List<Map<String, String>>> retrieve(FeedAggregator feedAggregator, int bucketCount,
+                    Set<String> feedIds, Request r) {
+        if (feedAggregator == null) {
+            return new HashMap<String, List<Map<String, String>>>();
+        }
+        if (bucketCount > 0) {
+            return DecimatingFeedAggregator.class.cast(feedAggregator).getDecimatedData(
+                            feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime(), bucketCount);
+        }
+        return feedAggregator.getData(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime());
+    }
+
+    /**
+     * Reads a request chunk by chunk, invoking {@link #requestCompleted(Map, long, long)} for each chunk.
+     * @return false if the worker has been canceled
+     */
+    private boolean readChunks(StreamingFeedAggregator feedAggregator, Set<String> feedIds, Request r, int chunkSize,
+                    Map<String, List<Map<String, String>>> values) {
+        FeedCursor cursor = feedAggregator.openCursor(feedIds, TimeUnit.MILLISECONDS, r.getStartTime(), r.getEndTime(), chunkSize);
+        try {
+            long chunkStartTime = r.getStartTime();
+            do {
+                if (isCancelled()) {
+                    return false;
+                }
+                Map<String, SortedMap<Long, Map<String, String>>> chunk = cursor.next();
+                long chunkEndTime = r.getEndTime();
+                if (cursor.hasNext()) {
+                    chunkEndTime = TimeUnit.MILLISECONDS.convert(cursor.getPosition(TimeUnit.NANOSECONDS) - 1, TimeUnit.NANOSECONDS);
+                }
+                
+                Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
+                for (Entry<String, SortedMap<Long, Map<String, String>>> entry : chunk.entrySet()) {
+                    data.put(entry.getKey(), new ArrayList<Map<String, String>>(entry.getValue().values()));
+                }
+                values.putAll(adjustResponses(data, chunkStartTime));
+                requestCompleted(values, chunkStartTime, chunkEndTime);
+                chunkStartTime = chunkEndTime + 1;
+            } while (cursor.hasNext());
+        } finally {
+            cursor.close();
+        }
+        return true;
+    }
+    
     /**
      * Iterate through the set of response values to ensure that times which are earlier than the specific time are 
      * moved to the current time.
@@ -193,12 +461,11 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
             // start time
             if (dataValues.size() >= 1) {
                 Map<String, String> value = dataValues.get(0);
-                Long l = Long.parseLong(value.get(FeedProvider.NORMALIZED_TIME_KEY));
+                long l = value instanceof FeedSample ? FeedSample.class.cast(value).getTime() 
+                                : Long.parseLong(value.get(FeedProvider.NORMALIZED_TIME_KEY));
                 if (l < startTime) {
                     ArrayList<Map<String,String>> dataValues2 = new ArrayList<Map<String,String>>(dataValues);
-                    Map<String, String> value2 = new HashMap<String, String>(value);
-                    value2.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(startTime));
-                    dataValues2.set(0, value2);
+                    dataValues2.set(0, withTime(value, startTime));
                     entry.setValue(dataValues2);
                 }
             }
@@ -206,6 +473,21 @@ class FeedCycleRenderer extends SwingWorker<Map<String, List<Map<String, String>
         
         return values;
     }
+    
+    /**
+     * Returns a copy of a sample at another time. A {@link FeedSample} is copied as one, keeping its primitive form.
+     * @param sample to copy
+     * @param time of the copy
+     * @return the copy
+     */
+    static Map<String, String> withTime(Map<String, String> sample, long time) {
+        if (sample instanceof FeedSample) {
+            return FeedSample.class.cast(sample).withTime(time);
+        }
+        Map<String, String> copy = new HashMap<String, String>(sample);
+        copy.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(time));
+        return copy;
+    }
 
     /**
      * Perform additional background processing before rendering the data.
@@ -21,9 +21,13 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.ChangeTrackingFeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.util.ComponentModelUtil;
 import gov.nasa.arc.mct.gui.FeedView.SynchronizationControl;
+import gov.nasa.arc.mct.platform.spi.Platform;
 import gov.nasa.arc.mct.platform.spi.PlatformAccess;
 import gov.nasa.arc.mct.platform.spi.SubscriptionManager;
 import gov.nasa.arc.mct.services.activity.TimeService;
@@ -73,7 +77,20 @@ import javax.swing.SwingWorker;
  * 
  * This class will start a rendering cycle every Paint Rate time. This will get data from the feed provider 
  * and then dispatch painting to the View (in the AWT thread). The data acquisition and painting will be done 
- * as a group. 
+ * as a group. When cycles take longer than half the paint rate, the time between cycles is stretched
+ * to twice the measured cost of a cycle, up to {@value #MAX_SLOWDOWN} times the paint rate, so that 
+ * rendering does not monopolize the AWT thread.
+ * 
+ * If the feed aggregator tracks changes (see {@link ChangeTrackingFeedAggregator}), a cycle only requests 
+ * the feeds which received data since they were last requested, and only dispatches to the views showing them.
+ * Feeds shown only by views which are not showing or are in a minimized window are requested every 
+ * {@value #BACKGROUND_CYCLES} cycles. A feed which is not requested keeps its last request time, so the 
+ * next request for it covers the whole time range since. Unchanged feeds whose latest sample the aggregator
+ * holds forward are not requested either, but their views get the latest sample dispatched for them again,
+ * moved to the start of the time range as a request would have returned it, so they keep showing the value.
+ * Feeds shown only by views which need just their current value (see {@link FeedView#isLatestValueOnly()}) 
+ * are looked up in the latest samples cached by a {@link LatestValueFeedAggregator} rather than read from
+ * the time range since their last request.
  * 
  * This class will only start a maximum number of worker threads, if the current cycle would exceed 
  * the number of worker threads. The cycle is skipped and the next cycle will request a longer
@@ -91,10 +108,26 @@ class FeedRenderingPool {
      * from the timer thread; hence, no synchronization is required. 
      */
     private Set<FeedProvider> activeSubscriptions = Collections.emptySet();
+    /**
+     * The change counts of the feeds when they were last requested, only accessed from the timer thread.
+     */
+    private final Map<String, Long> requestedChangeCounts = new HashMap<String, Long>();
+    /**
+     * The latest sample dispatched for each feed, written when a cycle is done and read from the timer thread.
+     */
+    private final ConcurrentHashMap<String, Map<String, String>> latestSamples = new ConcurrentHashMap<String, Map<String, String>>();
+    /** Number of cycles started, only accessed from the timer thread. */
+    private int cycleCount;
+    /** Smoothed time in milliseconds from starting a cycle to having rendered it, only written from the AWT thread. */
+    private volatile long cycleCost;
     private final Set<FeedView> activeFeedViews = new ConcurrentSkipListSet<FeedView>(new IdentityComparator());
     private static final MCTLogger LOGGER = MCTLogger.getLogger(FeedRenderingPool.class);
     private final AtomicInteger activeRenderers = new AtomicInteger(0);
     private static final int MAX_ACTIVE_REQUESTS = 1;
+    /** Maximum factor by which the time between cycles is stretched when cycles are expensive. */
+    static final int MAX_SLOWDOWN = 8;
+    /** Feeds only shown by views in the background are requested once every this many cycles. */
+    static final int BACKGROUND_CYCLES = 4;
     private final ConcurrentHashMap<FeedProvider, Long> activeFeeds = new ConcurrentHashMap<FeedProvider, Long>();
     private final AtomicReference<SynchronizationControl> activeSyncControl = new AtomicReference<SynchronizationControl>();
     private AtomicBoolean exceededMaxSubscriptions = new AtomicBoolean(false);
@@ -117,6 +150,14 @@ class FeedRenderingPool {
         }
         paintRate = paintRateInterval;
         timer = new Timer("MCT Painting timer",true);
+        scheduleCycle(paintRate);
+    }
+    
+    /**
+     * Schedule the next cycle, which schedules the one after when it has started.
+     * @param delay milliseconds until the cycle
+     */
+    private void scheduleCycle(long delay) {
         TimerTask task = new TimerTask() {
             @Override
             public void run() {
@@ -126,10 +167,32 @@ class FeedRenderingPool {
                 } catch (Exception e) {
                     LOGGER.error("exception thrown out of scheduled paint thread. " +
                             "The root cause of this exception should be fixed but operation should continue normally", e);
+                } finally {
+                    scheduleCycle(computeInterval(paintRate, cycleCost));
                 }
             }
         };
-        timer.scheduleAtFixedRate(task, paintRate, paintRate);
+        try {
+            timer.schedule(task, delay);
+        } catch (IllegalStateException e) {
+            LOGGER.debug("painting timer canceled");
+        }
+    }
+    
+    /**
+     * Returns the time between cycles: the paint rate, or twice the cost of a cycle if that is longer, 
+     * but no more than {@value #MAX_SLOWDOWN} times the paint rate. 
+     * @param paintRate milliseconds between cycles requested
+     * @param cycleCost milliseconds taken by recent cycles
+     * @return milliseconds until the next cycle
+     */
+    static long computeInterval(int paintRate, long cycleCost) {
+        return Math.min(Math.max(paintRate, cycleCost * 2), (long) paintRate * MAX_SLOWDOWN);
+    }
+    
+    private void recordCycleCost(long cost) {
+        long previous = cycleCost;
+        cycleCost = previous == 0 ? cost : (previous * 3 + cost) / 4;
     }
     
     private static class IdentityComparator implements Comparator<Object>, Serializable {
@@ -246,16 +309,46 @@ class FeedRenderingPool {
      * Start a new worker or extend an existing worker. This will only be called from the
      * timer thread. 
      */
-    private void startWorker() {
+    void startWorker() {
         handleSubscriptions();
         
         // if the current number of active requests > max number of threads, then wait for the next
         // one
         if (activeRenderers.get() < MAX_ACTIVE_REQUESTS && activeSyncControl.get() == null) {
+            boolean backgroundCycle = cycleCount++ % BACKGROUND_CYCLES == 0;
+            Map<FeedView, Collection<FeedProvider>> viewProviders = new HashMap<FeedView, Collection<FeedProvider>>();
+            Set<FeedProvider> cycleFeeds = new TreeSet<FeedProvider>(FEED_COMPARATOR);
+            for (FeedView manifestation : activeFeedViews) {
+                Collection<FeedProvider> providers = manifestation.getVisibleFeedProviders();
+                if (providers != null) {
+                    viewProviders.put(manifestation, providers);
+                    if (backgroundCycle || !isInBackground(manifestation)) {
+                        cycleFeeds.addAll(providers);
+                    }
+                }
+            }
+            Map<String, Long> changeCounts = getChangeCounts(cycleFeeds);
+            Set<String> heldFeeds = changeCounts.isEmpty() ? Collections.<String>emptySet() : getFeedsHeldForward(cycleFeeds);
+            
             Map<TimeService,Long> currentTimes = new HashMap<TimeService,Long>();
             Map<FeedProvider,Long[]> times = new TreeMap<FeedProvider,Long[]>(FEED_COMPARATOR);
+            Map<String, List<Map<String, String>>> heldValues = new HashMap<String, List<Map<String, String>>>();
+            Set<FeedProvider> heldProviders = new HashSet<FeedProvider>();
             for (Entry<FeedProvider,Long> lastTimeMapping:activeFeeds.entrySet()) {
                 FeedProvider feed = lastTimeMapping.getKey();
+                if (!cycleFeeds.contains(feed)) {
+                    continue;
+                }
+                // feeds without a change count are not tracked, so they may always have new data
+                Long changeCount = changeCounts.get(feed.getSubscriptionId());
+                Map<String, String> heldSample = null;
+                if (changeCount != null && changeCount.equals(requestedChangeCounts.get(feed.getSubscriptionId()))) {
+                    // a request would only return the latest sample again, if the feed holds it forward
+                    heldSample = heldFeeds.contains(feed.getSubscriptionId()) ? latestSamples.get(feed.getSubscriptionId()) : null;
+                    if (heldSample == null) {
+                        continue;
+                    }
+                }
                 long lastRequestTime = lastTimeMapping.getValue();
                 // ensure that all values coming from the same time service reflect the same time
                 Long cachedTime = currentTimes.get(feed.getTimeService());
@@ -267,17 +360,41 @@ class FeedRenderingPool {
                 Long[] timeRange = new Long[] {lastRequestTime, currentTime};
                 if (timeRange[0] < timeRange[1]) {
                     timeRange[0]++;
-                    times.put(feed, timeRange);
+                    if (heldSample != null) {
+                        // moved to the start of the time range, as for a sample preceding a request
+                        heldValues.put(feed.getSubscriptionId(), Collections.singletonList(FeedCycleRenderer.withTime(heldSample, timeRange[0])));
+                        heldProviders.add(feed);
+                    } else {
+                        times.put(feed, timeRange);
+                    }
                     activeFeeds.put(feed, currentTime);
+                    if (changeCount != null) {
+                        requestedChangeCounts.put(feed.getSubscriptionId(), changeCount);
+                    }
                 } 
             }
             
-            if (!times.isEmpty()) {
-                FeedCycleRenderer worker = createWorker(times, activeFeedViews);
+            if (!times.isEmpty() || !heldValues.isEmpty()) {
+                // dispatch to every view showing a requested feed, including views in the background, as
+                // the data of the requested time range will not be requested again
+                Set<FeedView> cycleViews = new HashSet<FeedView>();
+                for (Entry<FeedView, Collection<FeedProvider>> entry : viewProviders.entrySet()) {
+                    for (FeedProvider provider : entry.getValue()) {
+                        if (times.containsKey(provider) || heldProviders.contains(provider)) {
+                            cycleViews.add(entry.getKey());
+                            break;
+                        }
+                    }
+                }
+                final FeedCycleRenderer worker = createWorker(times, cycleViews);
+                worker.addHeldValues(heldValues);
+                final long startTime = System.currentTimeMillis();
                 worker.addPropertyChangeListener(new PropertyChangeListener() {
                     @Override
                     public void propertyChange(PropertyChangeEvent evt) {
                         if (evt.getNewValue() == SwingWorker.StateValue.DONE) {
+                            recordLatestSamples(worker);
+                            recordCycleCost(System.currentTimeMillis() - startTime);
                             activeRenderers.decrementAndGet();
                         }
                     }
@@ -288,6 +405,80 @@ class FeedRenderingPool {
         }
     }
     
+    /**
+     * Keep the latest sample of each feed dispatched by a cycle, to hold it forward while the feed does not change.
+     * @param worker of the cycle, which is done
+     */
+    private void recordLatestSamples(FeedCycleRenderer worker) {
+        if (worker.isCancelled()) {
+            return;
+        }
+        try {
+            for (Entry<String, List<Map<String, String>>> entry : worker.getData().entrySet()) {
+                List<Map<String, String>> samples = entry.getValue();
+                if (!samples.isEmpty()) {
+                    latestSamples.put(entry.getKey(), samples.get(samples.size() - 1));
+                }
+            }
+        } catch (Exception e) {
+            LOGGER.debug("no data to keep from the cycle", e);
+        }
+    }
+    
+    /**
+     * Returns true if a view is not showing or is in a minimized window, so that it can be updated less often.
+     * The view tracks this on the AWT thread, so it is safe to call from the timer thread.
+     * @param manifestation the view
+     * @return true if the view is in the background
+     */
+    boolean isInBackground(FeedView manifestation) {
+        return manifestation.isInBackground();
+    }
+    
+    /**
+     * Returns how many times data has been put for the feeds, if the feed aggregator tracks it.
+     * @param feeds to retrieve the counts for
+     * @return the counts by subscription ID; empty if changes are not tracked
+     */
+    private Map<String, Long> getChangeCounts(Set<FeedProvider> feeds) {
+        FeedAggregator feedAggregator = getFeedAggregator();
+        if (!(feedAggregator instanceof ChangeTrackingFeedAggregator) || feeds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        Set<String> feedIds = new HashSet<String>();
+        for (FeedProvider feed : feeds) {
+            feedIds.add(feed.getSubscriptionId());
+        }
+        return ChangeTrackingFeedAggregator.class.cast(feedAggregator).getChangeCounts(feedIds);
+    }
+    
+    /**
+     * Returns the feeds whose latest sample the feed aggregator holds forward, see
+     * {@link ChangeTrackingFeedAggregator#getFeedsHeldForward(Set)}.
+     * @param feeds to check
+     * @return the subscription IDs of the feeds held forward
+     */
+    private Set<String> getFeedsHeldForward(Set<FeedProvider> feeds) {
+        FeedAggregator feedAggregator = getFeedAggregator();
+        if (!(feedAggregator instanceof ChangeTrackingFeedAggregator)) {
+            return Collections.emptySet();
+        }
+        Set<String> feedIds = new HashSet<String>();
+        for (FeedProvider feed : feeds) {
+            feedIds.add(feed.getSubscriptionId());
+        }
+        return ChangeTrackingFeedAggregator.class.cast(feedAggregator).getFeedsHeldForward(feedIds);
+    }
+    
+    /**
+     * Get the current feed aggregator (may return null)
+     * @return the current feed aggregator, or null if there is none
+     */
+    FeedAggregator getFeedAggregator() {
+        Platform platform = PlatformAccess.getPlatform();
+        return platform == null ? null : platform.getFeedAggregator();
+    }
+    
     /**
      * Determine the current subscriptions required by iterating through the active manifestations
      * and extracting the providers.  
@@ -341,6 +532,8 @@ class FeedRenderingPool {
                 LOGGER.debug("removing subscription for {0}", feed.getSubscriptionId());
                 manager.unsubscribe(feed.getSubscriptionId());
                 activeFeeds.remove(feed);
+                requestedChangeCounts.remove(feed.getSubscriptionId());
+                latestSamples.remove(feed.getSubscriptionId());
             }
         	
         	List<String> newlyAddedSubscriptionIds = new ArrayList<String> (newSubscriptions.size());
@@ -0,0 +1,217 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.gui;
+
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Retrieves feed data on a bounded pool of threads, so that the separate requests of a backfill are
+ * retrieved in parallel rather than one after the other. Retrievals wait for a thread in the order they
+ * were submitted, so live feed cycles are not retrieved here. Identical retrievals requested while one is in
+ * progress, for example by several views requesting the same feeds over the same time span, are
+ * performed once and their result shared.
+ */
+final class FeedRetrievalPool {
+    /** Maximum number of retrievals performed at the same time. */
+    private static final int THREAD_COUNT = 4;
+
+    /** How often a worker waiting for a retrieval checks whether it has been canceled. */
+    private static final long CANCEL_POLL_MILLIS = 100;
+
+    private static final ThreadFactory tf = new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = Executors.defaultThreadFactory().newThread(r);
+            t.setContextClassLoader(getClass().getClassLoader());
+            t.setDaemon(true);
+            return t;
+        }
+    };
+
+    private static final FeedRetrievalPool INSTANCE = new FeedRetrievalPool(THREAD_COUNT);
+
+    private final ThreadPoolExecutor threads;
+    private final Map<Key, Retrieval> retrievals = new HashMap<Key, Retrieval>();
+
+    FeedRetrievalPool(int threadCount) {
+        threads = new ThreadPoolExecutor(threadCount, threadCount,
+                10L, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                tf);
+        threads.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * Returns the pool shared by all feed views.
+     * @return the shared pool
+     */
+    static FeedRetrievalPool getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Starts a retrieval, or joins an identical retrieval in progress. Every retrieval returned must either be
+     * waited for with {@link Retrieval#get(Future)} or released with {@link Retrieval#release()}.
+     * @param feedIds feeds to retrieve data for
+     * @param startTime start of the time span, in milliseconds
+     * @param endTime end of the time span, in milliseconds
+     * @param bucketCount number of decimation buckets, or 0 if the data is not decimated
+     * @param retrieval retrieves the data; the data returned must not be modified afterwards
+     * @return the retrieval
+     */
+    synchronized Retrieval submit(Set<String> feedIds, long startTime, long endTime, int bucketCount,
+                    Callable<Map<String, List<Map<String, String>>>> retrieval) {
+        Key key = new Key(new HashSet<String>(feedIds), startTime, endTime, bucketCount);
+        Retrieval r = retrievals.get(key);
+        if (r == null) {
+            r = new Retrieval(key, retrieval);
+            retrievals.put(key, r);
+            threads.execute(r.task);
+        }
+        r.waiters++;
+        return r;
+    }
+
+    /**
+     * Returns the number of retrievals in progress or waiting for a thread.
+     * @return the number of retrievals
+     */
+    synchronized int getRetrievalCount() {
+        return retrievals.size();
+    }
+
+    private synchronized void release(Retrieval r) {
+        assert r.waiters > 0 : "retrieval released more often than submitted";
+        if (--r.waiters == 0 && !r.task.isDone()) {
+            // nobody wants the data any more, so do not start retrieving it
+            r.task.cancel(false);
+        }
+    }
+
+    private synchronized void remove(Retrieval r) {
+        if (retrievals.get(r.key) == r) {
+            retrievals.remove(r.key);
+        }
+    }
+
+    /**
+     * A retrieval in progress, shared by all the workers requesting it.
+     */
+    final class Retrieval {
+        private final Key key;
+        private final FutureTask<Map<String, List<Map<String, String>>>> task;
+        /** Number of workers which have not waited for or released the retrieval yet, guarded by the pool. */
+        private int waiters;
+
+        private Retrieval(Key key, Callable<Map<String, List<Map<String, String>>>> retrieval) {
+            this.key = key;
+            task = new FutureTask<Map<String, List<Map<String, String>>>>(retrieval) {
+                @Override
+                protected void done() {
+                    remove(Retrieval.this);
+                }
+            };
+        }
+
+        /**
+         * Waits for the data, giving up as soon as the waiting worker is canceled. The retrieval is
+         * released either way.
+         * @param worker the worker waiting for the data
+         * @return the data, which must not be modified, or null if the worker was canceled
+         * @throws ExecutionException if the retrieval failed
+         */
+        Map<String, List<Map<String, String>>> get(Future<?> worker) throws ExecutionException {
+            try {
+                while (!worker.isCancelled()) {
+                    try {
+                        return task.get(CANCEL_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                    } catch (TimeoutException e) {
+                        // check for cancellation again
+                    } catch (CancellationException e) {
+                        return null;
+                    } catch (InterruptedException e) {
+                        // workers are interrupted when canceled
+                        Thread.currentThread().interrupt();
+                        return null;
+                    }
+                }
+                return null;
+            } finally {
+                release();
+            }
+        }
+
+        /**
+         * Gives up on the data without waiting for it.
+         */
+        void release() {
+            FeedRetrievalPool.this.release(this);
+        }
+    }
+
+    private static final class Key {
+        private final Set<String> feedIds;
+        private final long startTime;
+        private final long endTime;
+        private final int bucketCount;
+
+        Key(Set<String> feedIds, long startTime, long endTime, int bucketCount) {
+            this.feedIds = feedIds;
+            this.startTime = startTime;
+            this.endTime = endTime;
+            this.bucketCount = bucketCount;
+        }
+
+        @Override
+        public boolean equals(Object obj) {
+            if (!(obj instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) obj;
+            return startTime == other.startTime && endTime == other.endTime && bucketCount == other.bucketCount
+                    && feedIds.equals(other.feedIds);
+        }
+
+        @Override
+        public int hashCode() {
+            int hash = feedIds.hashCode();
+            hash = hash * 31 + (int) (startTime ^ (startTime >>> 32));
+            hash = hash * 31 + (int) (endTime ^ (endTime >>> 32));
+            return hash * 31 + bucketCount;
+        }
+    }
+}
@@ -21,11 +21,20 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.DecimatingFeedAggregator;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
+import gov.nasa.arc.mct.api.feed.StreamingFeedAggregator;
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.services.component.ViewInfo;
 import gov.nasa.arc.mct.util.property.MCTProperties;
 
+import java.awt.Frame;
+import java.awt.Window;
+import java.awt.event.HierarchyEvent;
+import java.awt.event.HierarchyListener;
+import java.awt.event.WindowEvent;
+import java.awt.event.WindowStateListener;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
@@ -38,6 +47,7 @@ import java.util.Set;
 import java.util.concurrent.Semaphore;
 import java.util.concurrent.TimeUnit;
 
+import javax.swing.SwingUtilities;
 import javax.swing.SwingWorker;
 import javax.swing.event.AncestorEvent;
 import javax.swing.event.AncestorListener;
@@ -62,7 +72,7 @@ public abstract class FeedView extends View {
     /**
      * The maximum number of data points that are returned from a data request. This will cause the
      * requests to be split into a number of requests that the client will need to merge as they are completed. 
-     * 
+     * When the feed aggregator can stream, this is the number of data points per feed read at once.
      */
     private static final int MAX_DATA_POINTS = 1000;
     
@@ -88,6 +98,48 @@ public abstract class FeedView extends View {
         
     };
     
+    /**
+     * True if this view is not showing or is in a minimized window. This is written from the AWT thread 
+     * and read by the rendering pool's timer thread, which must not query Swing state itself.
+     */
+    private volatile boolean inBackground;
+    
+    /**
+     * Keep {@link #inBackground} current as this view is shown, hidden, or moved between windows, and as its 
+     * window is minimized or restored. 
+     */
+    private final BackgroundTracker backgroundTracker = new BackgroundTracker();
+    
+    private class BackgroundTracker implements HierarchyListener, WindowStateListener {
+        /** The window listened to, only accessed from the AWT thread. */
+        private Window window;
+        
+        @Override
+        public void hierarchyChanged(HierarchyEvent e) {
+            Window ancestor = SwingUtilities.getWindowAncestor(FeedView.this);
+            if (ancestor != window) {
+                if (window != null) {
+                    window.removeWindowStateListener(this);
+                }
+                window = ancestor;
+                if (window != null) {
+                    window.addWindowStateListener(this);
+                }
+            }
+            update();
+        }
+        
+        @Override
+        public void windowStateChanged(WindowEvent e) {
+            update();
+        }
+        
+        private void update() {
+            inBackground = !isShowing() || 
+                (window instanceof Frame && (((Frame) window).getExtendedState() & Frame.ICONIFIED) != 0);
+        }
+    }
+    
     /**
      * Creates a new feed view manifestation with characteristics given by
      * persisted view manifestation information.
@@ -98,6 +150,7 @@ public abstract class FeedView extends View {
     public FeedView(AbstractComponent component, ViewInfo info) {
         super(component,info);
         addAncestorListener(ancestorListener);
+        addHierarchyListener(backgroundTracker);
     }
 
     /**
@@ -108,8 +161,30 @@ public abstract class FeedView extends View {
      */
     public FeedView(AbstractComponent ac) {
         addAncestorListener(ancestorListener);
+        addHierarchyListener(backgroundTracker);
     }
 
+    /**
+     * Returns true if this view is not showing or is in a minimized window, as last seen on the AWT thread.
+     * This may be called from any thread.
+     * @return true if the view is in the background
+     */
+    boolean isInBackground() {
+        return inBackground;
+    }
+    
+    /**
+     * Returns true if this view only shows the current value of its feeds, such as a table or an alphanumeric.
+     * The paint cycle serves the feeds shown only by such views from the latest samples cached by a
+     * {@link LatestValueFeedAggregator}, rather than reading every sample since the last cycle, so 
+     * {@link #updateFromFeed(Map)} may receive only the latest sample of a feed. This may be called from any
+     * thread. The default implementation returns false.
+     * @return true if only the latest sample of each feed is needed
+     */
+    public boolean isLatestValueOnly() {
+        return false;
+    }
+    
     /**
      * Updates the view manifestation because of a change in the data available from the feed. 
      * This method will be invoked for periodic refreshes as well as special requests from data. 
@@ -153,7 +228,11 @@ public abstract class FeedView extends View {
      * Perform a special request for data. Invoking this method is asynchronous and will return 
      * immediately, the transformer and renderer callback parameters are used to transform data off the AWT 
      * thread and to render the data. The data request may be split in multiple requests which are dispatched
-     * incrementally. 
+     * incrementally. If the feed aggregator is a {@link StreamingFeedAggregator}, each request is read in chunks
+     * of a bounded number of data points, and the transformer and renderer are invoked for each chunk. 
+     * Each chunk is retrieved while the previous one is rendered; requests for feeds with different spans are
+     * retrieved in parallel, and a request identical to one in progress for another view shares its data.
+     * Canceling the returned worker stops the request while it waits for data or for rendering. 
      * @param providers to use for the data retrieval operation. If this argument is null, then the 
      * return value from {@link #getVisibleFeedProviders()}. No attempt is made to subscribe to ongoing events
      * for feed providers.
@@ -169,6 +248,26 @@ public abstract class FeedView extends View {
      */
     public SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> requestData(Collection<FeedProvider> providers, long startTime, long endTime,
                             final DataTransformation transformer, final RenderingCallback renderer, final boolean reverseOrder) throws IllegalArgumentException {
+        return requestData(providers, startTime, endTime, transformer, renderer, reverseOrder, 0);
+    }
+    
+    /**
+     * Perform a special request for data which will be displayed at a limited resolution, see
+     * {@link #requestData(Collection, long, long, DataTransformation, RenderingCallback, boolean)}. If the feed
+     * aggregator is a {@link DecimatingFeedAggregator}, the time span is split into the given number of buckets
+     * and only the first, minimum, maximum and last data point of each bucket are retrieved, in a single request. 
+     * @param providers to use for the data retrieval operation, null for {@link #getVisibleFeedProviders()}
+     * @param startTime to use for the request, in milliseconds since January 1, 1970
+     * @param endTime to use for the request, in milliseconds since January 1, 1970
+     * @param transformer to use during the background processing, may be null
+     * @param renderer to use for visualizing the data, must not be null
+     * @param reverseOrder true if the data should be retrieved in reverse order, when it is not decimated
+     * @param bucketCount the number of buckets, typically the number of pixels along the time axis; 0 to retrieve all the data
+     * @throws IllegalArgumentException if renderer is null
+     * @return SwingWorker representing the running task, which may be canceled. 
+     */
+    public SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> requestData(Collection<FeedProvider> providers, long startTime, long endTime,
+                            final DataTransformation transformer, final RenderingCallback renderer, final boolean reverseOrder, final int bucketCount) throws IllegalArgumentException {
         if (renderer == null) {
             throw new IllegalArgumentException("renderer cannot be null");
         }
@@ -185,12 +284,9 @@ public abstract class FeedView extends View {
             requestTimes.put(provider, new Long[]{!reverseOrder?startTime:endTime,!reverseOrder?endTime:startTime});
         }
         
+        // Allows one chunk to be published before the previous one has been rendered, so that the next
+        // chunk is retrieved and transformed while the current one is rendered.
         final Semaphore s = new Semaphore(1);
-        try {
-            s.acquire();
-        } catch (InterruptedException ie) {
-            // ignore this exception 
-        }
         
         FeedCycleRenderer worker = new FeedCycleRenderer(requestTimes, Collections.singleton(this)) {
             
@@ -198,8 +294,11 @@ public abstract class FeedView extends View {
             protected void dispatchToFeed(FeedView manifestation,
                     Map<String, List<Map<String, String>>> data) {
                 assert manifestation == FeedView.this;
-                renderer.render(data);
-                s.release();
+                try {
+                    renderer.render(data);
+                } finally {
+                    s.release();
+                }
             }
             
             @Override
@@ -217,19 +316,43 @@ public abstract class FeedView extends View {
             protected Map<Request, Set<FeedProvider>> getCurrentIterationRequests(
                             Map<Request, Set<FeedProvider>> fullSpanRequests,
                             Map<Request, Set<FeedProvider>> lastRequests) {
+                if (isDecimated() || (!reverseOrder && isChunked())) {
+                    // the decimation or the cursor bounds the size of the responses, there is no need to split the time span
+                    return super.getCurrentIterationRequests(fullSpanRequests, lastRequests);
+                }
                 return getCurrentIterationRequestsImpl(fullSpanRequests, lastRequests, MAX_DATA_POINTS);
             }
             
+            @Override
+            protected Set<FeedProvider> getLatestValueProviders() {
+                return Collections.emptySet();
+            }
+            
+            @Override
+            protected int getChunkSize() {
+                return MAX_DATA_POINTS;
+            }
+            
+            @Override
+            protected int getBucketCount() {
+                return bucketCount;
+            }
+            
+            @Override
+            protected boolean isRetrievedInParallel() {
+                return true;
+            }
+            
             @SuppressWarnings("unchecked")
             @Override
             protected void requestCompleted(Map<String, List<Map<String, String>>> values, long startTime, long endTime) {
                 Map<String, List<Map<String, String>>> clonedValues = 
                     new HashMap<String, List<Map<String, String>>>(values);
+                values.clear();
                 if (transformer != null) {
                     transformer.transform(clonedValues, startTime, endTime);
                 }
-                publish(clonedValues);
-                values.clear();
+                // wait for the previous chunk to be rendered before publishing this one
                 try {
                     while (!isCancelled() && !s.tryAcquire(300, TimeUnit.MILLISECONDS)) {
                         // nothing
@@ -237,7 +360,64 @@ public abstract class FeedView extends View {
                 } catch (InterruptedException ie) {
                     // this may be interrupted if the request is canceled so just return
                     // from this method
+                    return;
                 }
+                if (!isCancelled()) {
+                    publish(clonedValues);
+                }
+            }
+        };
+        
+        worker.execute();
+        return worker;
+    }
+    
+    /**
+     * Perform a special request for the current value of each feed, for views which only show the latest sample.
+     * If the feed aggregator is a {@link LatestValueFeedAggregator}, the latest samples are taken from its cache
+     * rather than read from a time range. Feeds it has no sample for, or whose latest sample is later than the
+     * given time, as when the time service is not at the live time, are requested for the instant. In both 
+     * cases a sample earlier than the given time is adjusted to it, as for the paint cycle.
+     * @param providers to use for the data retrieval operation, null for {@link #getVisibleFeedProviders()}
+     * @param time the current time, in milliseconds since January 1, 1970
+     * @param renderer to use for visualizing the data, invoked in the AWT thread; must not be null
+     * @throws IllegalArgumentException if renderer is null
+     * @return SwingWorker representing the data retrieval operation, this can be used to cancel the request
+     */
+    public SwingWorker<Map<String, List<Map<String, String>>>, Map<String, List<Map<String, String>>>> requestLatestData(Collection<FeedProvider> providers, long time,
+                            final RenderingCallback renderer) throws IllegalArgumentException {
+        if (renderer == null) {
+            throw new IllegalArgumentException("renderer cannot be null");
+        }
+        
+        final Collection<FeedProvider> feedProviders = providers == null ? getVisibleFeedProviders() : providers;
+        Map<FeedProvider,Long[]> requestTimes = new HashMap<FeedProvider,Long[]>();
+        for (FeedProvider fp : feedProviders) {
+            requestTimes.put(fp, new Long[]{time, time});
+        }
+        
+        FeedCycleRenderer worker = new FeedCycleRenderer(requestTimes, Collections.singleton(this)) {
+            @Override
+            protected void dispatchToFeed(FeedView manifestation,
+                    Map<String, List<Map<String, String>>> data) {
+                assert manifestation == FeedView.this;
+                renderer.render(data);
+            }
+            
+            @Override
+            protected Collection<FeedProvider> getProviders(FeedView manifestation) {
+                assert manifestation == FeedView.this;
+                return feedProviders;
+            }
+            
+            @Override
+            protected Map<Request, Set<FeedProvider>> batchByRequestTime() {
+                return adjustEndTimeForRequest(super.batchByRequestTime());
+            }
+            
+            @Override
+            protected Set<FeedProvider> getLatestValueProviders() {
+                return new HashSet<FeedProvider>(feedProviders);
             }
         };
         
@@ -70,6 +70,23 @@ public interface PersistenceProvider extends PersistenceService {
      */
     List<AbstractComponent> getReferencedComponents(AbstractComponent component);
     
+    /**
+     * Returns the references from each of the components, loading them together rather than one component at a time.
+     * @param components to find references from
+     * @return map of component id to the components referenced by that component; components which do not exist
+     * in the persistent store are not in the map.
+     */
+    Map<String, List<AbstractComponent>> getReferencedComponents(Collection<AbstractComponent> components);
+    
+    /**
+     * Loads the references from the components, and from the referenced components, down to the given depth, so that
+     * {@link AbstractComponent#getComponents()} does not need to go to the persistent store. Components whose 
+     * references have already been loaded are left alone.
+     * @param components to load references for
+     * @param depth number of levels to load, 1 loads only the references from the components
+     */
+    void prefetchReferencedComponents(Collection<AbstractComponent> components, int depth);
+    
     /**
      * Gets all users.
      * @return collection of users.
@@ -25,6 +25,7 @@ import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.ExtendedProperties;
 
 import java.util.Date;
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -112,4 +113,17 @@ public interface ComponentInitializer {
      * @return boolean - flag to check for whether it's been initialized or not.
      */
     public boolean isInitialized();
+    
+    /**
+     * Sets the components referenced by this component as loaded from the persistent store, 
+     * unless they have already been loaded.
+     * @param references loaded for this component
+     */
+    public void setLoadedReferences(List<AbstractComponent> references);
+    
+    /**
+     * Sets the view role properties as loaded from the persistent store, unless they have already been loaded.
+     * @param properties loaded for this component, by view type
+     */
+    public void setLoadedViewRoleProperties(Map<String, ExtendedProperties> properties);
 }
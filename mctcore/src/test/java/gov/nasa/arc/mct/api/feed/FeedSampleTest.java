@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.api.feed;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+
+import java.awt.Color;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FeedSampleTest {
+    private static final Map<String, String> STATUS = Collections.singletonMap(FeedProvider.NORMALIZED_TELEMETRY_STATUS_CLASS_KEY, "1");
+
+    private static Map<String, String> sample(String time, String value, String renderingInfo) {
+        Map<String, String> sample = new HashMap<String, String>(STATUS);
+        sample.put(FeedProvider.NORMALIZED_TIME_KEY, time);
+        sample.put(FeedProvider.NORMALIZED_VALUE_KEY, value);
+        if (renderingInfo != null) {
+            sample.put(FeedProvider.NORMALIZED_RENDERING_INFO, renderingInfo);
+        }
+        return sample;
+    }
+
+    @Test
+    public void testMapForm() {
+        String ri = new RenderingInfo("1.5", Color.black, "ok", Color.green, true).toString();
+        String prefix = ri.substring(0, ri.length() - "1.5".length());
+        
+        Assert.assertEquals(new FeedSample(10, 1.5, false, null, prefix, null, STATUS), sample("10", "1.5", ri));
+        Assert.assertEquals(new FeedSample(10, 2, true, null, null, null, STATUS), sample("10", "2", null));
+        Assert.assertEquals(new FeedSample(10, 1.5, false, "1.50", prefix, "1.50", STATUS), sample("10", "1.50", prefix + "1.50"));
+        Assert.assertEquals(sample("10", "1.5", ri), new FeedSample(10, 1.5, false, null, prefix, null, STATUS));
+        
+        FeedSample feedSample = new FeedSample(10, 1.5, false, null, prefix, null, STATUS);
+        Assert.assertEquals(feedSample.get(FeedProvider.NORMALIZED_TIME_KEY), "10");
+        Assert.assertEquals(feedSample.get(FeedProvider.NORMALIZED_RENDERING_INFO), ri);
+        Assert.assertTrue(feedSample.containsKey(FeedProvider.NORMALIZED_RENDERING_INFO));
+        Assert.assertFalse(new FeedSample(10, 2, true, null, null, null, STATUS).containsKey(FeedProvider.NORMALIZED_RENDERING_INFO));
+        Assert.assertEquals(feedSample.size(), 4);
+        Assert.assertEquals(feedSample.hashCode(), sample("10", "1.5", ri).hashCode());
+    }
+
+    @Test
+    public void testPrimitiveForm() {
+        String ri = new RenderingInfo("1.5", Color.black, "ok", Color.green, false).toString();
+        String prefix = ri.substring(0, ri.length() - "1.5".length());
+        FeedSample feedSample = new FeedSample(10, 1.5, false, null, prefix, null, STATUS);
+        Assert.assertEquals(feedSample.getTime(), 10);
+        Assert.assertEquals(feedSample.getValue(), 1.5);
+        Assert.assertEquals(feedSample.getRenderedValue(), 1.5);
+        Assert.assertTrue(feedSample.hasRenderingInfo());
+        Assert.assertFalse(feedSample.isValid());
+        Assert.assertTrue(feedSample.isPlottable());
+        
+        // the rendering info shows another value
+        Assert.assertEquals(new FeedSample(10, 1.5, false, null, prefix, "2", STATUS).getRenderedValue(), 2.0);
+        RenderingInfo hidden = new RenderingInfo("---", Color.black, "LOS", Color.red, true);
+        hidden.setPlottable(false);
+        String hiddenPrefix = hidden.toString().substring(0, hidden.toString().length() - "---".length());
+        feedSample = new FeedSample(10, 1.5, false, null, hiddenPrefix, "---", STATUS);
+        Assert.assertTrue(feedSample.isValid());
+        Assert.assertFalse(feedSample.isPlottable());
+        try {
+            feedSample.getRenderedValue();
+            Assert.fail("the value text is not a number");
+        } catch (NumberFormatException e) {
+            // expected
+        }
+        Assert.assertTrue(new FeedSample(10, 2, true, null, null, null, STATUS).isPlottable());
+    }
+
+    @Test
+    public void testWithTime() {
+        FeedSample feedSample = new FeedSample(10, 2, true, null, null, null, STATUS);
+        FeedSample moved = feedSample.withTime(20);
+        Assert.assertEquals(moved.getTime(), 20);
+        Assert.assertEquals(moved, sample("20", "2", null));
+        Assert.assertEquals(feedSample.getTime(), 10);
+    }
+
+    @Test(expectedExceptions = UnsupportedOperationException.class)
+    public void testImmutable() {
+        new FeedSample(10, 2, true, null, null, null, STATUS).put(FeedProvider.NORMALIZED_VALUE_KEY, "3");
+    }
+}
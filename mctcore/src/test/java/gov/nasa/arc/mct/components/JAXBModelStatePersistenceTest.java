@@ -21,6 +21,10 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.components;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+
 import javax.xml.bind.annotation.XmlAccessType;
 import javax.xml.bind.annotation.XmlAccessorType;
 import javax.xml.bind.annotation.XmlRootElement;
@@ -46,6 +50,78 @@ public class JAXBModelStatePersistenceTest {
         Assert.assertEquals(roundTripValue.getValue(), expectedValue);
     }
     
+    @Test
+    public void testBinaryRoundTripSerialization() {
+        JAXBExample je = new JAXBExample();
+        je.setValue("abc");
+        ModelStatePersister msp = new ModelStatePersister();
+        msp.example = je;
+        // written before the codec is registered
+        String xmlState = msp.getModelState();
+        
+        ModelStateCodecs.register(JAXBExample.class, new ExampleCodec(2));
+        try {
+            // binary states are only written once enabled
+            Assert.assertFalse(ModelStateCodecs.isBinary(msp.getModelState()));
+            ModelStateCodecs.setBinaryWriteEnabled(true);
+            String state = msp.getModelState();
+            Assert.assertTrue(ModelStateCodecs.isBinary(state));
+            Assert.assertFalse(ModelStateCodecs.isBinary(xmlState));
+            
+            msp.setModelState(state);
+            Assert.assertNotSame(msp.example, je);
+            Assert.assertEquals(msp.example.getValue(), "abc");
+            
+            // XML states remain readable side by side with binary ones
+            msp.setModelState(xmlState);
+            Assert.assertEquals(msp.example.getValue(), "abc");
+            
+            // states written by earlier versions of the codec are read with their version
+            String oldState = ModelStateCodecs.encode(new ExampleCodec(1), je);
+            msp.setModelState(oldState);
+            Assert.assertEquals(msp.example.getValue(), "abc (version 1)");
+        } finally {
+            ModelStateCodecs.setBinaryWriteEnabled(false);
+            ModelStateCodecs.unregister(JAXBExample.class);
+        }
+    }
+    
+    @Test(expectedExceptions = IllegalStateException.class)
+    public void testBinaryStateWithoutCodec() {
+        String state = ModelStateCodecs.encode(new ExampleCodec(1), new JAXBExample());
+        new ModelStatePersister().setModelState(state);
+    }
+    
+    private static class ExampleCodec implements ModelStateCodec<JAXBExample> {
+        private final int version;
+        
+        ExampleCodec(int version) {
+            this.version = version;
+        }
+        
+        @Override
+        public int getVersion() {
+            return version;
+        }
+        
+        @Override
+        public void write(JAXBExample state, DataOutput out) throws IOException {
+            out.writeBoolean(state.getValue() != null);
+            if (state.getValue() != null) {
+                out.writeUTF(state.getValue());
+            }
+        }
+        
+        @Override
+        public JAXBExample read(DataInput in, int version) throws IOException {
+            JAXBExample state = new JAXBExample();
+            if (in.readBoolean()) {
+                state.setValue(version < 2 ? in.readUTF() + " (version " + version + ")" : in.readUTF());
+            }
+            return state;
+        }
+    }
+    
     @XmlRootElement
     @XmlAccessorType(XmlAccessType.FIELD)
     public static class JAXBExample {
@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.components;
+
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+
+import java.awt.Color;
+
+/**
+ * Compares decoding the string form of {@link RenderingInfo} and parsing the value, as
+ * done for every sample shown in a plot, through the original substring based decoding 
+ * and through {@link RenderingInfo#valueOf(String)}. Run with the test classpath:
+ * <pre>java gov.nasa.arc.mct.components.RenderingInfoBenchmark [samples] [rounds]</pre>
+ */
+public class RenderingInfoBenchmark {
+    private static final Color[] COLORS = { Color.green, Color.yellow, Color.red };
+    private static final String[] STATUS = { "", "Y", "R" };
+
+    public static void main(String[] args) {
+        int samples = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int rounds = args.length > 1 ? Integer.parseInt(args[1]) : 20;
+
+        // a few feeds whose status rarely changes and whose values change slowly
+        String[] encoded = new String[samples];
+        for (int i = 0; i < samples; i++) {
+            int limit = (i / 5000) % COLORS.length;
+            String value = Double.toString(Math.round(Math.sin(i / 1000.0) * 100) / 10.0);
+            encoded[i] = new RenderingInfo(value, COLORS[limit], STATUS[limit], COLORS[limit], true).toString();
+        }
+
+        for (int round = 0; round < rounds; round++) {
+            long start = System.nanoTime();
+            double oldSum = 0;
+            for (String s : encoded) {
+                RenderingInfo ri = decodeBySubstrings(s);
+                oldSum += Double.parseDouble(ri.getValueText());
+            }
+            long oldNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            double newSum = 0;
+            for (String s : encoded) {
+                newSum += RenderingInfo.valueOf(s).getNumericValue();
+            }
+            long newNanos = System.nanoTime() - start;
+
+            if (oldSum != newSum) {
+                throw new AssertionError("decoded values differ");
+            }
+            System.out.printf("round %2d: substrings %6.1f ns/sample, valueOf %6.1f ns/sample%n", 
+                            round, (double) oldNanos / samples, (double) newNanos / samples);
+        }
+    }
+
+    /** The decoding used before the decoded prefixes were kept. */
+    private static RenderingInfo decodeBySubstrings(String riAsString) {
+        String sep = RenderingInfo.sep;
+        int start = -1;
+        int end = riAsString.indexOf(sep);
+        String valueColor = riAsString.substring(start + 1, end);  
+        start = end;
+        end = riAsString.indexOf(sep, end + 1); 
+        String statusText = riAsString.substring(start + 1, end);
+        start = end;
+        end = riAsString.indexOf(sep, end + 1); 
+        String statusColor = riAsString.substring(start + 1, end);
+        start = end;
+        end = riAsString.indexOf(sep, end + 1); 
+        String isValid = riAsString.substring(start + 1, end);
+        start = end;
+        end = riAsString.indexOf(sep, end + 1);
+        String isPlottable = riAsString.substring(start + 1, end);
+        start = end;
+        String valueText =  riAsString.substring(start + 1);
+
+        RenderingInfo ri = new RenderingInfo(
+                        valueText, new Color(Integer.parseInt(valueColor)), 
+                        statusText,  new Color(Integer.parseInt(statusColor)), 
+                        Boolean.valueOf(isValid));
+        ri.setPlottable(Boolean.valueOf(isPlottable));
+        return ri;
+    }
+}
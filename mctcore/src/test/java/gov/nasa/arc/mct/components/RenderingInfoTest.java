@@ -0,0 +1,94 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.components;
+
+import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
+
+import java.awt.Color;
+
+import org.testng.Assert;
+import org.testng.annotations.DataProvider;
+import org.testng.annotations.Test;
+
+public class RenderingInfoTest {
+
+    @DataProvider(name = "renderingInfos")
+    public Object[][] renderingInfos() {
+        RenderingInfo notPlottable = new RenderingInfo("n/a", Color.gray, "", Color.black, false);
+        notPlottable.setPlottable(false);
+        return new Object[][] {
+            { new RenderingInfo("1.5", Color.green, "ok", Color.red, true) },
+            { new RenderingInfo("", Color.green, "ok", Color.red, true) },
+            { new RenderingInfo("a&b", new Color(1, 2, 3), "s", Color.white, true) },
+            { notPlottable }
+        };
+    }
+
+    @Test(dataProvider = "renderingInfos")
+    public void roundTripTest(RenderingInfo ri) {
+        // decode twice so the second comes from the decoded prefixes
+        for (int i = 0; i < 2; i++) {
+            RenderingInfo decoded = RenderingInfo.valueOf(ri.toString());
+            Assert.assertEquals(decoded.getValueText(), ri.getValueText());
+            Assert.assertEquals(decoded.getValueColor(), ri.getValueColor());
+            Assert.assertEquals(decoded.getStatusText(), ri.getStatusText());
+            Assert.assertEquals(decoded.getStatusColor(), ri.getStatusColor());
+            Assert.assertEquals(decoded.isValid(), ri.isValid());
+            Assert.assertEquals(decoded.isPlottable(), ri.isPlottable());
+            Assert.assertEquals(decoded.toString(), ri.toString());
+        }
+    }
+
+    @Test
+    public void decodedInstancesAreIndependentTest() {
+        String encoded = new RenderingInfo("2", Color.green, "ok", Color.red, true).toString();
+        RenderingInfo first = RenderingInfo.valueOf(encoded);
+        first.setValueText("3");
+        first.setPlottable(false);
+        RenderingInfo second = RenderingInfo.valueOf(encoded);
+        Assert.assertNotSame(second, first);
+        Assert.assertEquals(second.getValueText(), "2");
+        Assert.assertTrue(second.isPlottable());
+        Assert.assertEquals(second.getNumericValue(), 2.0);
+        Assert.assertEquals(first.getNumericValue(), 3.0);
+    }
+
+    @Test
+    public void changingValuesTest() {
+        for (int i = 0; i < 100; i++) {
+            String value = Integer.toString(i % 7);
+            RenderingInfo ri = RenderingInfo.valueOf(new RenderingInfo(value, Color.green, "ok", Color.red, true).toString());
+            Assert.assertEquals(ri.getValueText(), value);
+            Assert.assertEquals(ri.getNumericValue(), (double) (i % 7));
+        }
+    }
+
+    @Test(expectedExceptions = NumberFormatException.class)
+    public void notNumericTest() {
+        RenderingInfo.valueOf(new RenderingInfo("n/a", Color.green, "ok", Color.red, true).toString()).getNumericValue();
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void malformedTest() {
+        RenderingInfo.valueOf("1&ok&2");
+    }
+}
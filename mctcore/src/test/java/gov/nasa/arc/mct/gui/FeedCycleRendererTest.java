@@ -22,6 +22,7 @@
 package gov.nasa.arc.mct.gui;
 
 import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.platform.spi.Platform;
 import gov.nasa.arc.mct.platform.spi.PlatformAccess;
@@ -167,6 +168,81 @@ public class FeedCycleRendererTest {
         worker.done();
     }
     
+    @Test
+    public void testRetrievalThreads() throws Exception {
+        final Set<Thread> retrievalThreads = Collections.synchronizedSet(new HashSet<Thread>());
+        Mockito.when(platform.getFeedAggregator()).thenReturn(new FeedAggregator() {
+            @Override
+            public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit,
+                            long startTime, long endTime) {
+                retrievalThreads.add(Thread.currentThread());
+                return expectedValues;
+            }
+        });
+        Map<FeedProvider, Long[]> times = new HashMap<FeedProvider, Long[]>();
+        times.put(numericProvider, new Long[]{0L,1L});
+        times.put(alphaProvider, new Long[]{0L,2L});
+        Set<FeedView> views = new HashSet<FeedView>(Arrays.asList(fv1, fv2));
+
+        // live cycles are retrieved on the worker thread
+        FeedCycleRenderer worker = new FeedCycleRenderer(times, views);
+        Assert.assertEquals(worker.doInBackground().size(), expectedValues.size());
+        Assert.assertEquals(retrievalThreads, Collections.singleton(Thread.currentThread()));
+        
+        // several requests of a backfill are retrieved on the pool
+        retrievalThreads.clear();
+        worker = new FeedCycleRenderer(times, views) {
+            @Override
+            protected boolean isRetrievedInParallel() {
+                return true;
+            }
+        };
+        Assert.assertEquals(worker.doInBackground().size(), expectedValues.size());
+        Assert.assertFalse(retrievalThreads.contains(Thread.currentThread()));
+        
+        // a single request is retrieved on the worker thread
+        retrievalThreads.clear();
+        times.remove(alphaProvider);
+        worker = new FeedCycleRenderer(times, views) {
+            @Override
+            protected boolean isRetrievedInParallel() {
+                return true;
+            }
+        };
+        worker.doInBackground();
+        Assert.assertEquals(retrievalThreads, Collections.singleton(Thread.currentThread()));
+    }
+    
+    @Test
+    public void testLatestValueViews() throws Exception {
+        LatestValueFeedAggregator feedAggregator = Mockito.mock(LatestValueFeedAggregator.class);
+        Map<String, Map<String, String>> latest = new HashMap<String, Map<String, String>>();
+        latest.put("numeric", Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "500"));
+        latest.put("alpha", Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "3000"));
+        Mockito.when(feedAggregator.getLatest(Mockito.anySet())).thenReturn(latest);
+        Mockito.when(feedAggregator.getData(Mockito.anySet(), Mockito.any(TimeUnit.class), Mockito.anyLong(), Mockito.anyLong()))
+            .thenReturn(expectedValues);
+        Mockito.when(platform.getFeedAggregator()).thenReturn(feedAggregator);
+        Mockito.when(fv1.isLatestValueOnly()).thenReturn(true);
+        Mockito.when(fv2.isLatestValueOnly()).thenReturn(true);
+        Map<FeedProvider, Long[]> times = new HashMap<FeedProvider, Long[]>();
+        times.put(numericProvider, new Long[]{1000L,2000L});
+        times.put(alphaProvider, new Long[]{1000L,2000L});
+        
+        FeedCycleRenderer worker = new FeedCycleRenderer(times, new HashSet<FeedView>(Arrays.asList(fv1, fv2)));
+        Map<String, List<Map<String,String>>> values = worker.doInBackground();
+        // the cached sample preceding the request is moved to its start, as a retrieved one is
+        Assert.assertEquals(values.get("numeric").get(0).get(FeedProvider.NORMALIZED_TIME_KEY), "1000");
+        // the cached sample later than the request is not used, the time range is read instead
+        Assert.assertEquals(values.get("alpha"), singleValue);
+        Mockito.verify(feedAggregator).getData(Collections.singleton("alpha"), TimeUnit.MILLISECONDS, 1000L, 2000L);
+        
+        // a feed also shown by a view which is not latest only is read from the time range
+        worker = new FeedCycleRenderer(times, new HashSet<FeedView>(Arrays.asList(fv1, fv4)));
+        worker.doInBackground();
+        Mockito.verify(feedAggregator).getData(Collections.singleton("numeric"), TimeUnit.MILLISECONDS, 1000L, 2000L);
+    }
+    
     @SuppressWarnings("unchecked")
     @Test
     public void testDone() throws Exception {
@@ -21,8 +21,12 @@
  *******************************************************************************/
 package gov.nasa.arc.mct.gui;
 
+import gov.nasa.arc.mct.api.feed.ChangeTrackingFeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedAggregator;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.gui.FeedView.SynchronizationControl;
+import gov.nasa.arc.mct.platform.spi.Platform;
+import gov.nasa.arc.mct.platform.spi.PlatformAccess;
 import gov.nasa.arc.mct.platform.spi.SubscriptionManager;
 import gov.nasa.arc.mct.services.activity.TimeService;
 
@@ -37,13 +41,16 @@ import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.concurrent.atomic.AtomicLong;
 import java.util.concurrent.atomic.AtomicReference;
 
 import javax.swing.JDialog;
 import javax.swing.SwingUtilities;
 
+import org.mockito.ArgumentCaptor;
 import org.mockito.Mock;
 import org.mockito.Mockito;
 import org.mockito.MockitoAnnotations;
@@ -259,6 +266,181 @@ public class FeedRenderingPoolTest {
         Mockito.verify(manager).unsubscribe(feedId);
     }
     
+    @Test
+    public void testComputeInterval() {
+        Assert.assertEquals(FeedRenderingPool.computeInterval(250, 0), 250);
+        Assert.assertEquals(FeedRenderingPool.computeInterval(250, 100), 250);
+        Assert.assertEquals(FeedRenderingPool.computeInterval(250, 200), 400);
+        Assert.assertEquals(FeedRenderingPool.computeInterval(250, 10000), 250 * FeedRenderingPool.MAX_SLOWDOWN);
+    }
+    
+    @Test
+    public void testUnchangedFeedsAreSkipped() throws Exception {
+        final ChangeTrackingFeedAggregator aggregator = Mockito.mock(ChangeTrackingFeedAggregator.class);
+        final Map<String, Long> counts = new HashMap<String, Long>();
+        Mockito.when(aggregator.getChangeCounts(Mockito.<Set<String>>anyObject())).thenReturn(counts);
+        final AtomicReference<Map<FeedProvider, Long[]>> requested = new AtomicReference<Map<FeedProvider, Long[]>>();
+        pool.cancelTimer();
+        pool = new FeedRenderingPool(1000) {
+            @Override
+            FeedCycleRenderer createWorker(Map<FeedProvider, Long[]> timeMapping, Set<FeedView> activeFeedViews) {
+                requested.set(timeMapping);
+                return activeRenderer = new FeedCycleRendererTest2(timeMapping, activeFeedViews);
+            }
+            
+            @Override
+            SubscriptionManager getSubscriptionManager() {
+                return manager;
+            }
+            
+            @Override
+            FeedAggregator getFeedAggregator() {
+                return aggregator;
+            }
+        };
+        pool.cancelTimer();
+        Mockito.when(fv1.isShowing()).thenReturn(true);
+        feedId1.set("f1");
+        counts.put("f1", 1L);
+        pool.addFeedView(fv1);
+        
+        pool.startWorker();
+        Assert.assertEquals(requested.get().get(fp)[0], Long.valueOf(1));
+        waitForRenderer();
+        
+        // no data was put since the last request
+        requested.set(null);
+        pool.startWorker();
+        Assert.assertNull(requested.get());
+        
+        // the request covers the time skipped
+        counts.put("f1", 2L);
+        pool.startWorker();
+        Assert.assertEquals(requested.get().get(fp)[0], Long.valueOf(2));
+        waitForRenderer();
+    }
+    
+    @SuppressWarnings("unchecked")
+    @Test
+    public void testUnchangedFeedsHeldForwardReachTheirViews() throws Exception {
+        final ChangeTrackingFeedAggregator aggregator = Mockito.mock(ChangeTrackingFeedAggregator.class);
+        Mockito.when(aggregator.getChangeCounts(Mockito.<Set<String>>anyObject())).thenReturn(Collections.singletonMap("f1", 1L));
+        Mockito.when(aggregator.getFeedsHeldForward(Mockito.<Set<String>>anyObject())).thenReturn(Collections.singleton("f1"));
+        Mockito.when(aggregator.getData(Mockito.<Set<String>>anyObject(), Mockito.any(TimeUnit.class), Mockito.anyLong(), Mockito.anyLong()))
+        .thenAnswer(new Answer<Map<String, List<Map<String, String>>>>() {
+            @Override
+            public Map<String, List<Map<String, String>>> answer(InvocationOnMock invocation) throws Throwable {
+                Map<String, String> sample = new HashMap<String, String>();
+                sample.put(FeedProvider.NORMALIZED_TIME_KEY, "1");
+                sample.put(FeedProvider.NORMALIZED_VALUE_KEY, "5");
+                Map<String, List<Map<String, String>>> data = new HashMap<String, List<Map<String, String>>>();
+                data.put("f1", Collections.singletonList(sample));
+                return data;
+            }
+        });
+        Platform platform = Mockito.mock(Platform.class);
+        Mockito.when(platform.getFeedAggregator()).thenReturn(aggregator);
+        new PlatformAccess().setPlatform(platform);
+        final AtomicReference<Map<FeedProvider, Long[]>> requested = new AtomicReference<Map<FeedProvider, Long[]>>();
+        pool.cancelTimer();
+        pool = new FeedRenderingPool(1000) {
+            @Override
+            FeedCycleRenderer createWorker(Map<FeedProvider, Long[]> timeMapping, Set<FeedView> activeFeedViews) {
+                requested.set(timeMapping);
+                return super.createWorker(timeMapping, activeFeedViews);
+            }
+            
+            @Override
+            SubscriptionManager getSubscriptionManager() {
+                return manager;
+            }
+            
+            @Override
+            FeedAggregator getFeedAggregator() {
+                return aggregator;
+            }
+        };
+        pool.cancelTimer();
+        feedId1.set("f1");
+        pool.addFeedView(fv1);
+        
+        try {
+            pool.startWorker();
+            Assert.assertEquals(requested.get().get(fp)[0], Long.valueOf(1));
+            waitForRenderer();
+            
+            // no data was put since, but the view keeps getting the latest sample without a request
+            for (long cycleStart = 2; cycleStart <= 3; cycleStart++) {
+                requested.set(null);
+                pool.startWorker();
+                Assert.assertTrue(requested.get().isEmpty());
+                waitForRenderer();
+                ArgumentCaptor<Map> data = ArgumentCaptor.forClass(Map.class);
+                Mockito.verify(fv1, Mockito.atLeastOnce()).updateFromFeed(data.capture());
+                List<Map<String, String>> samples = ((Map<String, List<Map<String, String>>>) data.getValue()).get("f1");
+                Assert.assertEquals(samples.size(), 1);
+                Assert.assertEquals(samples.get(0).get(FeedProvider.NORMALIZED_TIME_KEY), Long.toString(cycleStart));
+                Assert.assertEquals(samples.get(0).get(FeedProvider.NORMALIZED_VALUE_KEY), "5");
+            }
+            Mockito.verify(fv1, Mockito.times(3)).updateFromFeed(Mockito.<Map<String, List<Map<String, String>>>>anyObject());
+            Mockito.verify(aggregator, Mockito.times(1)).getData(Mockito.<Set<String>>anyObject(), Mockito.any(TimeUnit.class), Mockito.anyLong(), Mockito.anyLong());
+        } finally {
+            new PlatformAccess().releasePlatform();
+        }
+    }
+    
+    @Test
+    public void testBackgroundViewsAreRequestedLessOften() throws Exception {
+        final AtomicReference<Map<FeedProvider, Long[]>> requested = new AtomicReference<Map<FeedProvider, Long[]>>();
+        pool.cancelTimer();
+        pool = new FeedRenderingPool(1000) {
+            @Override
+            FeedCycleRenderer createWorker(Map<FeedProvider, Long[]> timeMapping, Set<FeedView> activeFeedViews) {
+                requested.set(timeMapping);
+                return activeRenderer = new FeedCycleRendererTest2(timeMapping, activeFeedViews);
+            }
+            
+            @Override
+            SubscriptionManager getSubscriptionManager() {
+                return manager;
+            }
+            
+            @Override
+            FeedAggregator getFeedAggregator() {
+                return null;
+            }
+        };
+        pool.cancelTimer();
+        // the rendering pool must read the state the view tracks rather than query Swing
+        Mockito.when(fv1.isInBackground()).thenReturn(true);
+        feedId1.set("f1");
+        pool.addFeedView(fv1);
+        
+        for (int cycle = 0; cycle <= FeedRenderingPool.BACKGROUND_CYCLES; cycle++) {
+            requested.set(null);
+            pool.startWorker();
+            if (cycle % FeedRenderingPool.BACKGROUND_CYCLES == 0) {
+                Assert.assertNotNull(requested.get());
+                waitForRenderer();
+            } else {
+                Assert.assertNull(requested.get());
+            }
+        }
+        Mockito.verify(fv1, Mockito.never()).isShowing();
+    }
+    
+    private void waitForRenderer() throws Exception {
+        // the renderer is released by a listener on the AWT thread
+        Field f = FeedRenderingPool.class.getDeclaredField("activeRenderers");
+        f.setAccessible(true);
+        AtomicInteger activeRenderers = (AtomicInteger) f.get(pool);
+        int maxCount = 50;
+        while (activeRenderers.get() > 0 && maxCount-- > 0) {
+            Thread.sleep(100);
+        }
+        Assert.assertEquals(activeRenderers.get(), 0);
+    }
+    
     @Test
     public void testSubscriptionsExceeded() {
         for (Window w: Window.getWindows()) {
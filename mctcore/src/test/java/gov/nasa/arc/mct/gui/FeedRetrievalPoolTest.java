@@ -0,0 +1,144 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.gui;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FeedRetrievalPoolTest {
+    private static final Set<String> FEEDS = Collections.singleton("feed");
+    private static final Map<String, List<Map<String, String>>> DATA =
+        Collections.singletonMap("feed", Collections.<Map<String, String>>emptyList());
+
+    @Test
+    public void testIdenticalRetrievalsAreShared() throws Exception {
+        FeedRetrievalPool pool = new FeedRetrievalPool(2);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<Map<String, List<Map<String, String>>>> retrieval = new Callable<Map<String, List<Map<String, String>>>>() {
+            @Override
+            public Map<String, List<Map<String, String>>> call() throws Exception {
+                calls.incrementAndGet();
+                latch.await();
+                return DATA;
+            }
+        };
+        FeedRetrievalPool.Retrieval r1 = pool.submit(FEEDS, 0, 10, 100, retrieval);
+        FeedRetrievalPool.Retrieval r2 = pool.submit(Collections.singleton("feed"), 0, 10, 100, retrieval);
+        FeedRetrievalPool.Retrieval r3 = pool.submit(FEEDS, 0, 10, 0, retrieval);
+        Assert.assertSame(r1, r2);
+        Assert.assertNotSame(r1, r3);
+        Assert.assertEquals(pool.getRetrievalCount(), 2);
+
+        latch.countDown();
+        Assert.assertSame(r1.get(worker()), DATA);
+        Assert.assertSame(r2.get(worker()), DATA);
+        Assert.assertSame(r3.get(worker()), DATA);
+        Assert.assertEquals(calls.get(), 2);
+        Assert.assertEquals(pool.getRetrievalCount(), 0);
+    }
+
+    @Test
+    public void testRetrievalsRunInParallel() throws Exception {
+        FeedRetrievalPool pool = new FeedRetrievalPool(2);
+        final CyclicBarrier barrier = new CyclicBarrier(2);
+        Callable<Map<String, List<Map<String, String>>>> retrieval = new Callable<Map<String, List<Map<String, String>>>>() {
+            @Override
+            public Map<String, List<Map<String, String>>> call() throws Exception {
+                // only completes if both retrievals run at the same time
+                barrier.await(5, TimeUnit.SECONDS);
+                return DATA;
+            }
+        };
+        FeedRetrievalPool.Retrieval r1 = pool.submit(FEEDS, 0, 10, 0, retrieval);
+        FeedRetrievalPool.Retrieval r2 = pool.submit(FEEDS, 11, 20, 0, retrieval);
+        Assert.assertSame(r1.get(worker()), DATA);
+        Assert.assertSame(r2.get(worker()), DATA);
+    }
+
+    @Test
+    public void testCanceledWorkerStopsWaiting() throws Exception {
+        FeedRetrievalPool pool = new FeedRetrievalPool(1);
+        final CountDownLatch started = new CountDownLatch(1);
+        final CountDownLatch latch = new CountDownLatch(1);
+        final AtomicInteger calls = new AtomicInteger();
+        Callable<Map<String, List<Map<String, String>>>> retrieval = new Callable<Map<String, List<Map<String, String>>>>() {
+            @Override
+            public Map<String, List<Map<String, String>>> call() throws Exception {
+                calls.incrementAndGet();
+                started.countDown();
+                latch.await();
+                return DATA;
+            }
+        };
+        FeedRetrievalPool.Retrieval running = pool.submit(FEEDS, 0, 10, 0, retrieval);
+        Assert.assertTrue(started.await(5, TimeUnit.SECONDS));
+        // waits for the only thread
+        FeedRetrievalPool.Retrieval queued = pool.submit(FEEDS, 11, 20, 0, retrieval);
+
+        Future<?> canceled = worker();
+        canceled.cancel(false);
+        Assert.assertNull(queued.get(canceled));
+        Assert.assertNull(running.get(canceled));
+        // abandoned retrievals are not joined by later requests
+        Assert.assertEquals(pool.getRetrievalCount(), 0);
+
+        // nobody wants the queued retrieval, so it never runs
+        latch.countDown();
+        Thread.sleep(200);
+        Assert.assertEquals(calls.get(), 1);
+        Assert.assertEquals(pool.getRetrievalCount(), 0);
+    }
+
+    @Test(expectedExceptions = ExecutionException.class)
+    public void testFailure() throws Exception {
+        FeedRetrievalPool pool = new FeedRetrievalPool(1);
+        pool.submit(FEEDS, 0, 10, 0, new Callable<Map<String, List<Map<String, String>>>>() {
+            @Override
+            public Map<String, List<Map<String, String>>> call() throws Exception {
+                throw new IllegalStateException();
+            }
+        }).get(worker());
+    }
+
+    private static Future<?> worker() {
+        return new FutureTask<Void>(new Callable<Void>() {
+            @Override
+            public Void call() {
+                return null;
+            }
+        });
+    }
+}
@@ -22,6 +22,7 @@
 package gov.nasa.arc.mct.gui;
 
 import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
 import gov.nasa.arc.mct.components.AbstractComponent;
 import gov.nasa.arc.mct.components.FeedProvider;
 import gov.nasa.arc.mct.components.FeedProvider.RenderingInfo;
@@ -429,6 +430,39 @@ public class FeedViewManifestationTest {
         Assert.assertEquals(returnedFeeds, new HashSet<String>(Arrays.asList("abc", "abc2")));
     }
     
+    @Test
+    public void testRequestLatestData() throws InterruptedException {
+        LatestValueFeedAggregator feedAggregator = Mockito.mock(LatestValueFeedAggregator.class);
+        Mockito.when(provider.getSubscriptionId()).thenReturn("abc");
+        Mockito.when(provider2.getSubscriptionId()).thenReturn("abc2");
+        Mockito.when(provider.getValidDataExtent()).thenReturn(Long.MAX_VALUE);
+        Mockito.when(provider2.getValidDataExtent()).thenReturn(Long.MAX_VALUE);
+        Mockito.when(feedAggregator.getLatest(Mockito.anySet())).thenReturn(
+                        Collections.singletonMap("abc", Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "5")));
+        Map<String, List<Map<String, String>>> value = new HashMap<String, List<Map<String, String>>>();
+        value.put("abc2", Collections.singletonList(Collections.singletonMap(FeedProvider.NORMALIZED_TIME_KEY, "7")));
+        Mockito.when(feedAggregator.getData(Collections.singleton("abc2"), TimeUnit.MILLISECONDS, 10, 10)).thenReturn(value);
+        Mockito.when(platform.getFeedAggregator()).thenReturn(feedAggregator);
+        TestDataCallback renderer = new TestDataCallback();
+        
+        feedManifestation.requestLatestData(Arrays.asList(provider, provider2), 10, renderer);
+        
+        long startTime = System.currentTimeMillis();
+        while (!renderer.invoked.get() && ((System.currentTimeMillis() - startTime)<3000)) {
+            try {
+                Thread.sleep(250);
+            } catch (InterruptedException e) {
+            }
+        }
+        
+        // the cached sample and the sample read for the feed not cached are both moved to the requested time
+        Assert.assertTrue(renderer.invoked.get());
+        Assert.assertEquals(renderer.data.get("abc").get(0).get(FeedProvider.NORMALIZED_TIME_KEY), "10");
+        Assert.assertEquals(renderer.data.get("abc2").get(0).get(FeedProvider.NORMALIZED_TIME_KEY), "10");
+        Mockito.verify(feedAggregator, Mockito.never()).getData(Mockito.eq(Collections.singleton("abc")), 
+                        Mockito.any(TimeUnit.class), Mockito.anyLong(), Mockito.anyLong());
+    }
+    
     public static class TestDataCallback implements RenderingCallback {
         public Map<String, List<Map<String, String>>> data;
         public AtomicBoolean invoked = new AtomicBoolean(false);
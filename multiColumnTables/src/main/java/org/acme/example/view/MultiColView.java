@@ -185,6 +185,11 @@ public class MultiColView extends FeedView implements RenderingCallback {
 		updateFromFeed(data);
 	}
 
+	@Override
+	public boolean isLatestValueOnly() {
+		return true;
+	}
+
 	@Override
 	public void updateFromFeed(Map<String, List<Map<String, String>>> data) {
 		if (data != null) {
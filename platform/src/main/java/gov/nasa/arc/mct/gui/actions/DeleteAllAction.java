@@ -77,6 +77,7 @@ public class DeleteAllAction extends ContextAwareAction {
     private static final long serialVersionUID = 3047419887471823851L;
     private static String WARNING = bundle.getString("DeleteAllWarningTitle");
     private static String TEXT = "Delete All";
+    private static final int PREFETCH_DEPTH = 8;
     
     private TreePath[] selectedTreePaths;
     private ActionContextImpl actionContext;
@@ -134,9 +135,14 @@ public class DeleteAllAction extends ContextAwareAction {
     public void actionPerformed(ActionEvent e) {
         Map<String, AbstractComponent> toDelete = new HashMap<String, AbstractComponent>();
         Map<String, AbstractComponent> toRemove = new HashMap<String, AbstractComponent>();
+        List<AbstractComponent> selectedComponents = new ArrayList<AbstractComponent>(selectedTreePaths.length);
         for (TreePath path : selectedTreePaths) {
             MCTMutableTreeNode selectedNode = (MCTMutableTreeNode) path.getLastPathComponent();            
-            AbstractComponent selectedComponent = ((View) selectedNode.getUserObject()).getManifestedComponent();
+            selectedComponents.add(((View) selectedNode.getUserObject()).getManifestedComponent());
+        }
+        // Load the descendants a level at a time rather than one component at a time
+        PlatformAccess.getPlatform().getPersistenceProvider().prefetchReferencedComponents(selectedComponents, PREFETCH_DEPTH);
+        for (AbstractComponent selectedComponent : selectedComponents) {
             categorizeDescendants(selectedComponent, toDelete, toRemove);
         }
         Set<AbstractComponent> cannotRemove = findNonRemovableComponents(toDelete, toRemove);
@@ -248,7 +248,7 @@ public class TableViewManifestation extends FeedView
 							startTime = Math.max(startTime, fp
 									.getTimeService().getCurrentTime());
 						}
-						requestData(null, startTime, startTime, null, table, true);
+						requestLatestData(null, startTime, table);
 					}
 				});
 				t.setRepeats(false);
@@ -461,6 +461,14 @@ public class TableViewManifestation extends FeedView
 		}
 	}
 
+	/**
+	 * Tables only show the latest value of each cell.
+	 */
+	@Override
+	public boolean isLatestValueOnly() {
+		return true;
+	}
+
 	/**
 	 * Extract data from the feed and push it to the table.
 	 */
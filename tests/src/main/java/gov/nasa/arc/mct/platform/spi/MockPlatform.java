@@ -284,6 +284,17 @@ public class MockPlatform implements Platform {
 				return Collections.emptyList();
 			}
 
+			@Override
+			public Map<String, List<AbstractComponent>> getReferencedComponents(
+					Collection<AbstractComponent> components) {
+				return Collections.emptyMap();
+			}
+
+			@Override
+			public void prefetchReferencedComponents(
+					Collection<AbstractComponent> components, int depth) {
+			}
+
 			@Override
 			public Set<String> getAllUsers() {
 				// TODO Auto-generated method stub
@@ -22,6 +22,7 @@
 package gov.nasa.arc.mct.buffer.config;
 
 import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.buffer.util.RollupResolutions;
 import gov.nasa.arc.mct.util.FilepathReplacer;
 
 import java.io.File;
@@ -35,6 +36,8 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.sleepycat.je.CursorConfig;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseConfig;
 import com.sleepycat.je.DatabaseException;
 import com.sleepycat.je.Durability;
 import com.sleepycat.je.Environment;
@@ -48,6 +51,13 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
     
     private static final String META_DATABASE_PATH = "metaBuffer";
     private static final String META_DATABASE_NAME = "meta";
+    /** Prefix of the databases backing an <code>EntityStore</code>. */
+    private static final String STORE_DATABASE_PREFIX = "persist#";
+    private static final String BATCH_SIZE_PROPERTY = "buffer.disk.batch.size";
+    private static final String BATCH_FLUSH_PROPERTY = "buffer.disk.batch.flush.millis";
+    private static final String ROLLUP_PROPERTY = "buffer.rollup.millis";
+    private static final int DEFAULT_BATCH_SIZE = 64;
+    private static final long DEFAULT_BATCH_FLUSH_MILLIS = 1000;
 
     private static enum STATE {
         unInitialized, initializing, initialized;
@@ -65,10 +75,14 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
     private final int currentBufferPartition;
     private final long partitionOverlapMillis;
     private final long metaRefreshMillis;
+    private final int batchSize;
+    private final long batchFlushMillis;
+    private final long[] rollupResolutions;
     
     private TransactionConfig txnConfig;
     private CursorConfig cursorConfig;
     private List<EntityStore> openStores = new LinkedList<EntityStore>();
+    private List<Database> openDatabases = new LinkedList<Database>();
     private DiskQuotaHelper diskQuotaHelper;
 
     private static Properties loadDefaultPropertyFile() {
@@ -116,6 +130,9 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
             bufferTimeMills = bufferTimeMills / numOfBufferPartitions;
         }
         partitionOverlapMillis = Long.parseLong(prop.getProperty("buffer.partition.overlap.millis"));
+        batchSize = Integer.parseInt(prop.getProperty(BATCH_SIZE_PROPERTY, String.valueOf(DEFAULT_BATCH_SIZE)).trim());
+        batchFlushMillis = Long.parseLong(prop.getProperty(BATCH_FLUSH_PROPERTY, String.valueOf(DEFAULT_BATCH_FLUSH_MILLIS)).trim());
+        rollupResolutions = RollupResolutions.parse(prop, ROLLUP_PROPERTY);
         diskQuotaHelper = new DiskQuotaHelper(prop, bufferHome);
             
         this.state = STATE.initializing;
@@ -145,6 +162,9 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
         bufferTimeMills = bufferTimeMills / numOfBufferPartitions;
         partitionOverlapMillis = Long.parseLong(prop.getProperty("buffer.partition.overlap.millis"));
         metaRefreshMillis = Long.parseLong(prop.getProperty("meta.buffer.refresh.millis"));
+        batchSize = Integer.parseInt(prop.getProperty(BATCH_SIZE_PROPERTY, String.valueOf(DEFAULT_BATCH_SIZE)).trim());
+        batchFlushMillis = Long.parseLong(prop.getProperty(BATCH_FLUSH_PROPERTY, String.valueOf(DEFAULT_BATCH_FLUSH_MILLIS)).trim());
+        rollupResolutions = RollupResolutions.parse(prop, ROLLUP_PROPERTY);
         diskQuotaHelper = new DiskQuotaHelper(prop, bufferHome);
             
         this.state = STATE.initializing;
@@ -244,6 +264,39 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
         return store;
     }
 
+    /**
+     * Checks whether an <code>EntityStore</code> has been created in this partition,
+     * without creating it.
+     * @param storeName name of the store
+     * @return true if the store exists
+     */
+    public boolean hasDiskStore(String storeName) throws DatabaseException {
+        assertState(STATE.initialized);
+
+        String prefix = STORE_DATABASE_PREFIX + storeName + "#";
+        for (String dbName : dbufferEnv.getDatabaseNames()) {
+            if (dbName.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    public Database openDiskDatabase(String dbName) throws DatabaseException {
+        assertState(STATE.initialized);
+
+        DatabaseConfig dbConfig = new DatabaseConfig();
+        dbConfig.setAllowCreate(true);
+        dbConfig.setDeferredWrite(true);
+        dbConfig.setSortedDuplicates(false);
+        dbConfig.setKeyPrefixing(true);
+        dbConfig.setTransactional(false);
+
+        Database db = dbufferEnv.openDatabase(null, dbName, dbConfig);
+        openDatabases.add(db);
+        return db;
+    }
+
     public void removeEnvironment() throws DatabaseException {
         dbufferEnv.cleanLog();
         dbufferEnv.close();
@@ -262,6 +315,10 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
             store.close();
         }
         openStores.clear();
+        for (Database db: openDatabases) {
+            db.close();
+        }
+        openDatabases.clear();
         removeEnvironment();
     }
 
@@ -271,6 +328,12 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
         openStores.remove(store);
     }
 
+    public void closeDatabase(Database db) throws DatabaseException {
+        if (db == null) { return; }
+        db.close();
+        openDatabases.remove(db);
+    }
+
     public void closeAndRestartEnvironment() throws DatabaseException {
         boolean isReadOnly = dbufferEnv.getConfig().getReadOnly();
         removeAndCloseAllDiskStores();
@@ -352,6 +415,36 @@ public class FastDiskBufferEnv implements DataBufferEnv, Cloneable {
     public long getMetaRefresh() {
         return this.metaRefreshMillis;
     }
+
+    /**
+     * Gets the number of samples of a feed collected in memory before they are written
+     * to the disk buffer (<code>buffer.disk.batch.size</code>). A value of 1 or less
+     * writes every <code>putData</code> call through.
+     * @return batch size in samples
+     */
+    public int getBatchSize() {
+        return this.batchSize;
+    }
+
+    /**
+     * Gets the longest time samples are held in a batch before being written
+     * (<code>buffer.disk.batch.flush.millis</code>). A value of 0 or less only writes
+     * full batches and the batches left when the partition is closed or made inactive.
+     * @return flush interval in milliseconds
+     */
+    public long getBatchFlushInterval() {
+        return this.batchFlushMillis;
+    }
+
+    /**
+     * Gets the lengths of the rollup tiers kept by each disk partition
+     * (<code>buffer.rollup.millis</code>, comma separated). No tiers are kept unless
+     * the property is set.
+     * @return tier resolutions in milliseconds
+     */
+    public long[] getRollupResolutions() {
+        return rollupResolutions.clone();
+    }
     
     @Override
     public Object clone() {
@@ -22,6 +22,7 @@
 package gov.nasa.arc.mct.buffer.config;
 
 import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.buffer.util.RollupResolutions;
 
 import java.io.IOException;
 import java.io.InputStream;
@@ -32,6 +33,9 @@ import org.slf4j.LoggerFactory;
 
 public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
     private static final Logger LOGGER = LoggerFactory.getLogger(MemoryBufferEnv.class);
+    private static final String STORE_PROPERTY = "memory.buffer.store";
+    private static final String COLUMNAR_STORE = "columnar";
+    private static final String ROLLUP_PROPERTY = "memory.buffer.rollup.millis";
     
     private static Properties loadDefaultPropertyFile() {
         Properties prop = new Properties();
@@ -57,6 +61,8 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
     private final Properties prop;
     private final long bufferTimeMillis;
     private final int numOfBufferPartitions;
+    private final boolean columnarStore;
+    private final long[] rollupResolutions;
     private int currentBufferPartition;
     
     public MemoryBufferEnv(Properties prop) {
@@ -71,6 +77,8 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
         } else {
             bufferTimeMillis = bufferTime;
         }
+        columnarStore = isColumnarStore(prop);
+        rollupResolutions = RollupResolutions.parse(prop, ROLLUP_PROPERTY);
         this.currentBufferPartition = 0;
     }
     
@@ -82,6 +90,31 @@ public class MemoryBufferEnv implements DataBufferEnv, Cloneable {
         this.currentBufferPartition = currentBufferPartition;
         numOfBufferPartitions = Integer.parseInt(prop.getProperty("memory.buffer.partition"));
         bufferTimeMillis = Long.parseLong(prop.getProperty("memory.buffer.time.millis"));
+        columnarStore = isColumnarStore(prop);
+        rollupResolutions = RollupResolutions.parse(prop, ROLLUP_PROPERTY);
+    }
+    
+    private static boolean isColumnarStore(Properties prop) {
+        return COLUMNAR_STORE.equals(prop.getProperty(STORE_PROPERTY, "map").trim());
+    }
+
+    /**
+     * Returns true if memory partitions should keep samples in primitive columns 
+     * (<code>memory.buffer.store=columnar</code>) rather than maps.
+     * @return true if the columnar store is selected
+     */
+    public boolean isColumnarStore() {
+        return columnarStore;
+    }
+
+    /**
+     * Gets the lengths of the rollup tiers kept by each memory partition
+     * (<code>memory.buffer.rollup.millis</code>, comma separated). No tiers are kept
+     * unless the property is set.
+     * @return tier resolutions in milliseconds
+     */
+    public long[] getRollupResolutions() {
+        return rollupResolutions.clone();
     }
 
     @Override
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.disk.internal;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
+import com.sleepycat.je.DatabaseException;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
+
+/**
+ * Persistent mapping of names (feed IDs, sample keys) to small int codes, so that
+ * each sample record stores a packed int instead of the full string. The mapping of a
+ * partition is read into memory when the partition is opened; new names are appended
+ * to the backing database as they are first encoded.
+ */
+final class NameDictionary {
+    private final Database db;
+    private final Map<String, Integer> codes = new HashMap<String, Integer>();
+    /** Replaced on every growth; decoding reads it without locking. */
+    private volatile String[] names = new String[16];
+    private int size;
+
+    NameDictionary(Database db) throws DatabaseException {
+        this.db = db;
+        load();
+    }
+
+    private synchronized void load() throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry data = new DatabaseEntry();
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            while (cursor.getNext(key, data, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+                int code = new TupleInput(key.getData(), key.getOffset(), key.getSize()).readInt();
+                String name = new TupleInput(data.getData(), data.getOffset(), data.getSize()).readString();
+                add(code, name);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void add(int code, String name) {
+        String[] current = names;
+        if (code >= current.length) {
+            current = Arrays.copyOf(current, Math.max(code + 1, current.length * 2));
+        }
+        current[code] = name;
+        codes.put(name, Integer.valueOf(code));
+        size = Math.max(size, code + 1);
+        names = current;
+    }
+
+    /**
+     * Returns the code of the name, assigning and persisting a new code the first time
+     * a name is seen.
+     */
+    synchronized int encode(String name) throws DatabaseException {
+        Integer code = codes.get(name);
+        if (code != null) {
+            return code.intValue();
+        }
+        int newCode = size;
+        TupleOutput key = new TupleOutput();
+        key.writeInt(newCode);
+        TupleOutput data = new TupleOutput();
+        data.writeString(name);
+        db.put(null, new DatabaseEntry(key.getBufferBytes(), 0, key.getBufferLength()),
+                new DatabaseEntry(data.getBufferBytes(), 0, data.getBufferLength()));
+        add(newCode, name);
+        return newCode;
+    }
+
+    /**
+     * Returns the code of the name, or -1 if the name has never been encoded.
+     */
+    synchronized int find(String name) {
+        Integer code = codes.get(name);
+        return code == null ? -1 : code.intValue();
+    }
+
+    String decode(int code) {
+        return names[code];
+    }
+}
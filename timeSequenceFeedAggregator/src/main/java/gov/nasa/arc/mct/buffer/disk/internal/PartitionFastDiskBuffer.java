@@ -26,14 +26,19 @@ import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
 import gov.nasa.arc.mct.buffer.config.FastDiskBufferEnv;
 import gov.nasa.arc.mct.buffer.internal.MetaDataBuffer;
 import gov.nasa.arc.mct.buffer.internal.PartitionDataBuffer;
+import gov.nasa.arc.mct.buffer.internal.Rollup;
+import gov.nasa.arc.mct.buffer.internal.RollupStore;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 
 import java.io.Serializable;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
+import java.util.NavigableMap;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
@@ -41,6 +46,8 @@ import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Executors;
 import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
 import java.util.concurrent.ThreadFactory;
 import java.util.concurrent.ThreadPoolExecutor;
 import java.util.concurrent.TimeUnit;
@@ -49,11 +56,38 @@ import java.util.concurrent.atomic.AtomicBoolean;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.sleepycat.je.Cursor;
+import com.sleepycat.je.Database;
+import com.sleepycat.je.DatabaseEntry;
 import com.sleepycat.je.DatabaseException;
-import com.sleepycat.je.Transaction;
+import com.sleepycat.je.LockMode;
+import com.sleepycat.je.OperationStatus;
 import com.sleepycat.persist.EntityCursor;
 import com.sleepycat.persist.EntityStore;
 
+/**
+ * Disk partition which spreads the feeds over a number of segment databases. The
+ * samples of a feed are written as {@link SampleBlock} records keyed by the feed's
+ * dictionary code and the timestamp of the first sample of the block, so that a range
+ * read is a single cursor scan over a few compact records. Partitions written by
+ * earlier versions, which stored one <code>PersistentBufferObject</code> entity per
+ * sample, are still read; new samples are always written in the compact format and the
+ * old data ages out with the partition.
+ * <p>
+ * A block never spans more than {@link #BLOCK_SPAN_NANOS}, which bounds how far before
+ * the start of a range a read has to look. If two blocks of a feed hold a sample with
+ * the same timestamp, the one in the block with the later key is returned.
+ * <p>
+ * Unless the batch size of the {@link FastDiskBufferEnv} is 1, samples are first
+ * collected per feed in memory and written as full blocks once a feed has a batch worth
+ * of samples, when the flush interval elapses, or when the partition is made inactive
+ * or closed. Reads see the collected samples as well as the written ones.
+ * <p>
+ * If the env configures rollup tiers, the {@link Rollup rollups} of every tier are
+ * collected in a {@link RollupStore} as samples are put, and merged into one database per
+ * tier, keyed like the sample blocks by feed code and interval start, whenever pending
+ * samples are flushed. They are removed with the partition's environment.
+ */
 public class PartitionFastDiskBuffer implements PartitionDataBuffer {
     private static final Logger LOGGER = LoggerFactory.getLogger(PartitionFastDiskBuffer.class);
     private static final Logger READ_PERF_LOGGER = LoggerFactory
@@ -72,7 +106,38 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
 
     private static final Comparator<Long> TIMESTAMP_COMPARATOR = new TimeStampComparator();
 
-    private final EntityStore[] databases;
+    /** Maximum number of samples written in one block. */
+    static final int BLOCK_SIZE = 64;
+    /** Maximum time between the first and the last sample of a block. */
+    static final long BLOCK_SPAN_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    private static final String FEED_DICTIONARY_NAME = "feedIDs";
+    private static final String KEY_DICTIONARY_NAME = "sampleKeys";
+    private static final String SAMPLE_DATABASE_PREFIX = "samples";
+    private static final String ROLLUP_DATABASE_PREFIX = "rollups";
+
+    private final SampleKeyTupleBinding keyBinding = new SampleKeyTupleBinding();
+    private final Database[] databases;
+    /** Stores of partitions written in the entity format, null where there are none. */
+    private final EntityStore[] legacyStores;
+    private Database feedDictionaryDatabase;
+    private Database keyDictionaryDatabase;
+    private NameDictionary feedDictionary;
+    private SampleBlockTupleBinding blockBinding;
+    private RollupTupleBinding rollupBinding;
+    /** Rollup databases, one per tier of {@link #pendingRollups}. */
+    private final Database[] rollupDatabases;
+    /** Rollups not yet merged into the rollup databases. */
+    private final RollupStore pendingRollups;
+    /** Held while rollups are moved to the databases, so reads never see them in both places. */
+    private final Object rollupLock = new Object();
+    /**
+     * Samples accepted but not yet written, per segment and feed code. Each map is
+     * guarded by itself.
+     */
+    private final Map<Integer, NavigableMap<Long, Map<String, String>>>[] pendingSamples;
+    private final int batchSize;
+    private final ScheduledFuture<?> flushTask;
     private final FastDiskBufferEnv env;
 
     /**
@@ -103,6 +168,14 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
             10L, TimeUnit.SECONDS,
             new LinkedBlockingQueue<Runnable>(),
             tf);
+    private static final ScheduledExecutorService flushTimer = Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+        @Override
+        public Thread newThread(Runnable r) {
+            Thread t = tf.newThread(r);
+            t.setDaemon(true);
+            return t;
+        }
+    });
 
     private volatile boolean active;
 
@@ -110,6 +183,7 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
         this(new FastDiskBufferEnv(null, partitionNumber));
     }
 
+    @SuppressWarnings("unchecked")
     public PartitionFastDiskBuffer(FastDiskBufferEnv env) {
         this.env = env;
         int concurrencyLevel = env.getConcurrencyDegree();
@@ -128,19 +202,64 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
         segmentShift = 32 - sshift;
         this.segmentMask = ssize - 1;
 
-        this.databases = new EntityStore[ssize];
+        this.databases = new Database[ssize];
+        this.legacyStores = new EntityStore[ssize];
+        this.pendingSamples = new Map[ssize];
+        for (int i = 0; i < ssize; i++) {
+            pendingSamples[i] = new HashMap<Integer, NavigableMap<Long, Map<String, String>>>();
+        }
+        this.batchSize = env.getBatchSize();
+        this.pendingRollups = new RollupStore(env.getRollupResolutions(), TimeUnit.MILLISECONDS);
+        this.rollupDatabases = new Database[pendingRollups.getResolutions().length];
         setupDatabasePartition(env);
 
+        long flushInterval = env.getBatchFlushInterval();
+        if ((batchSize > 1 || !pendingRollups.hasNoTiers()) && flushInterval > 0) {
+            flushTask = flushTimer.scheduleWithFixedDelay(new Runnable() {
+                @Override
+                public void run() {
+                    flushPendingSamples();
+                }
+            }, flushInterval, flushInterval, TimeUnit.MILLISECONDS);
+        } else {
+            flushTask = null;
+        }
+
         this.active = true;
     }
 
     private synchronized void setupDatabasePartition(FastDiskBufferEnv env) {
+        try {
+            feedDictionaryDatabase = env.openDiskDatabase(FEED_DICTIONARY_NAME);
+            keyDictionaryDatabase = env.openDiskDatabase(KEY_DICTIONARY_NAME);
+            feedDictionary = new NameDictionary(feedDictionaryDatabase);
+            blockBinding = new SampleBlockTupleBinding(new NameDictionary(keyDictionaryDatabase));
+            rollupBinding = new RollupTupleBinding(blockBinding);
+        } catch (DatabaseException e) {
+            LOGGER.error("Cannot open the dictionaries of partition " + env.getCurrentBufferPartition(), e);
+            return;
+        }
+        long[] resolutions = pendingRollups.getResolutions();
+        for (int i = 0; i < rollupDatabases.length; i++) {
+            try {
+                // named by resolution, so that a partition written with other tiers is not misread
+                rollupDatabases[i] = env.openDiskDatabase(ROLLUP_DATABASE_PREFIX + resolutions[i]);
+            } catch (DatabaseException e) {
+                rollupDatabases[i] = null;
+            }
+        }
         for (int i = 0; i < databases.length; i++) {
             try {
-                this.databases[i] = env.openDiskStore(String.valueOf(i));
+                this.databases[i] = env.openDiskDatabase(SAMPLE_DATABASE_PREFIX + i);
             } catch (DatabaseException e) {
                 databases[i] = null;
             }
+            try {
+                String storeName = String.valueOf(i);
+                this.legacyStores[i] = env.hasDiskStore(storeName) ? env.openDiskStore(storeName) : null;
+            } catch (DatabaseException e) {
+                legacyStores[i] = null;
+            }
         }
     }
 
@@ -158,9 +277,15 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
         return groupFeeds;
     }
 
-    @SuppressWarnings("unchecked")
     public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, final TimeUnit timeUnit,
             final long startTime, final long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, Integer.MAX_VALUE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, final TimeUnit timeUnit,
+            final long startTime, final long endTime, final int maxSamples) {
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
@@ -175,8 +300,8 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
                 @Override
                 public void run() {
                     try {
-                        Map<String, SortedMap<Long, Map<String, String>>> dataSlice = getData(databases[dataIndex],
-                                groupFeeds[dataIndex], timeUnit, startTime, endTime);
+                        Map<String, SortedMap<Long, Map<String, String>>> dataSlice = getData(dataIndex,
+                                groupFeeds[dataIndex], timeUnit, startTime, endTime, maxSamples);
                         if (dataSlice != null) {
                             dataSlices[dataIndex] = dataSlice;
                         }
@@ -210,6 +335,55 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
 
     }
     
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(Set<String> feedIDs, final TimeUnit timeUnit,
+            final long startTime, final long endTime, final int bucketCount) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        final Set<String>[] groupFeeds = groupInputFeeds(feedIDs);
+        final Map<String, SortedMap<Long, Map<String, String>>>[] dataSlices = new Map[groupFeeds.length];
+        final CountDownLatch readLatch = new CountDownLatch(groupFeeds.length);
+        for (int i = 0; i < groupFeeds.length; i++) {
+            final int dataIndex = i;
+
+            Runnable r = new Runnable() {
+
+                @Override
+                public void run() {
+                    try {
+                        dataSlices[dataIndex] = getDecimatedData(dataIndex, groupFeeds[dataIndex], timeUnit, startTime,
+                                endTime, bucketCount);
+                    } finally {
+                        readLatch.countDown();
+                    }
+                }
+            };
+
+            readThreads.execute(r);
+        }
+
+        try {
+            readLatch.await();
+        } catch (InterruptedException e) {
+            LOGGER.warn("Internal error during getDecimatedData thread", e);
+        }
+
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (int i = 0; i < dataSlices.length; i++) {
+            Map<String, SortedMap<Long, Map<String, String>>> dataSlice = dataSlices[i];
+            if (dataSlice != null) {
+                returnedData.putAll(dataSlice);
+            }
+        }
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("time to get 1 partition decimated Data for {} feeds: {}", feedIDs.size(), timer
+                .getIntervalInMillis());
+
+        return returnedData;
+    }
+
     @SuppressWarnings("unchecked")
     @Override
     public Map<String, SortedMap<Long, Map<String, String>>> getLastData(Set<String> feedIDs, final TimeUnit timeUnit, final long startTime, final long endTime) {
@@ -227,7 +401,7 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
                 @Override
                 public void run() {
                     try {
-                        Map<String, SortedMap<Long, Map<String, String>>> dataSlice = getLastData(databases[dataIndex],
+                        Map<String, SortedMap<Long, Map<String, String>>> dataSlice = getLastData(dataIndex,
                             groupFeeds[dataIndex], timeUnit, startTime, endTime);
                         if (dataSlice != null) {
                             dataSlices[dataIndex] = dataSlice;
@@ -265,75 +439,358 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
 
     }
     
-    private Map<String, SortedMap<Long, Map<String, String>>> getLastData(EntityStore db, Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime) {
+    private Map<String, SortedMap<Long, Map<String, String>>> getLastData(int segment, Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime) {
         Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
 
         startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
         endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
 
-        PersistentBufferObjectAccess pObjectAccess = new PersistentBufferObjectAccess(db);
-
-        PersistentBufferKey startKey = new PersistentBufferKey();
-        PersistentBufferKey endKey = new PersistentBufferKey();
+        Database db = databases[segment];
+        EntityStore legacyStore = legacyStores[segment];
         for (String feedID : feedIDs) {
-            startKey.feedID = feedID;
-            startKey.timestamp = startTime;
-            endKey.feedID = feedID;
-            endKey.timestamp = endTime;
-
-            EntityCursor<PersistentBufferObject> piCursor = pObjectAccess.pIdx.entities(startKey, true, endKey, true);
+            SortedMap<Long, Map<String, String>> data = new TreeMap<Long, Map<String, String>>(TIMESTAMP_COMPARATOR);
+            returnedData.put(feedID, data);
             try {
-                PersistentBufferObject pObj = piCursor.last();
-                SortedMap<Long, Map<String, String>> data = new TreeMap<Long, Map<String, String>>(TIMESTAMP_COMPARATOR);
-                returnedData.put(feedID, data);
-                if (pObj != null) 
-                    data.put(pObj.getKey().timestamp, pObj.getData());
-
+                if (legacyStore != null) {
+                    getLegacyLastData(legacyStore, feedID, startTime, endTime, data);
+                }
+                int feedCode = feedDictionary.find(feedID);
+                if (db != null && feedCode >= 0) {
+                    Entry<Long, Map<String, String>> pending = getLastPendingSample(segment, feedCode, startTime, endTime);
+                    getLastData(db, feedCode, startTime, endTime, data);
+                    if (pending != null && (data.isEmpty() || pending.getKey().longValue() >= data.firstKey().longValue())) {
+                        data.clear();
+                        data.put(pending.getKey(), pending.getValue());
+                    }
+                }
             } catch (DatabaseException e) {
-                e.printStackTrace();
-            } finally {
-                piCursor.close();
+                LOGGER.error("Getting last data for feed {} failed", feedID, e);
             }
         }
         return returnedData;
 
     }
 
-    private Map<String, SortedMap<Long, Map<String, String>>> getData(EntityStore db, Set<String> feedIDs,
-            TimeUnit timeUnit, long startTime, long endTime) {
+    /**
+     * Scans backwards from the last block starting at or before endTime. Blocks of a
+     * feed may overlap, so the scan continues until no earlier block can hold a sample
+     * later than the best one found.
+     */
+    private void getLastData(Database db, int feedCode, long startTime, long endTime, SortedMap<Long, Map<String, String>> data) throws DatabaseException {
+        Long previousTime = data.isEmpty() ? null : data.firstKey();
+        long lastTime = previousTime == null ? Long.MIN_VALUE : previousTime.longValue();
+        Map<String, String> lastSample = null;
+
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            OperationStatus status;
+            if (endTime == Long.MAX_VALUE) {
+                keyBinding.objectToEntry(new SampleKey(feedCode + 1, Long.MIN_VALUE), key);
+            } else {
+                keyBinding.objectToEntry(new SampleKey(feedCode, endTime + 1), key);
+            }
+            if (cursor.getSearchKeyRange(key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+                status = cursor.getPrev(key, value, LockMode.DEFAULT);
+            } else {
+                status = cursor.getLast(key, value, LockMode.DEFAULT);
+            }
+            long lowestBlockStart = blockStartBefore(startTime);
+            while (status == OperationStatus.SUCCESS) {
+                SampleKey sampleKey = keyBinding.entryToObject(key);
+                if (sampleKey.getFeedCode() != feedCode || sampleKey.getTimestamp() < lowestBlockStart) {
+                    break;
+                }
+                SampleBlock block = blockBinding.entryToObject(value);
+                int index = block.floorIndex(endTime);
+                if (index >= 0) {
+                    long time = block.getTimestamp(index);
+                    if (time >= startTime && (lastSample == null ? time >= lastTime : time > lastTime)) {
+                        lastTime = time;
+                        lastSample = block.getSample(index);
+                        lowestBlockStart = Math.max(lowestBlockStart, blockStartBefore(lastTime));
+                    }
+                }
+                status = cursor.getPrev(key, value, LockMode.DEFAULT);
+            }
+        } finally {
+            cursor.close();
+        }
+        if (lastSample != null) {
+            data.clear();
+            data.put(lastTime, lastSample);
+        }
+    }
+
+    private void getLegacyLastData(EntityStore store, String feedID, long startTime, long endTime, SortedMap<Long, Map<String, String>> data) throws DatabaseException {
+        PersistentBufferObjectAccess pObjectAccess = new PersistentBufferObjectAccess(store);
+        PersistentBufferKey startKey = new PersistentBufferKey(feedID, startTime);
+        PersistentBufferKey endKey = new PersistentBufferKey(feedID, endTime);
+
+        EntityCursor<PersistentBufferObject> piCursor = pObjectAccess.pIdx.entities(startKey, true, endKey, true);
+        try {
+            PersistentBufferObject pObj = piCursor.last();
+            if (pObj != null) {
+                data.put(pObj.getKey().timestamp, pObj.getData());
+            }
+        } finally {
+            piCursor.close();
+        }
+    }
+
+    private Map<String, SortedMap<Long, Map<String, String>>> getData(int segment, Set<String> feedIDs,
+            TimeUnit timeUnit, long startTime, long endTime, int maxSamples) {
         Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
 
         startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
         endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
 
-        PersistentBufferObjectAccess pObjectAccess = new PersistentBufferObjectAccess(db);
-
-        PersistentBufferKey startKey = new PersistentBufferKey();
-        PersistentBufferKey endKey = new PersistentBufferKey();
+        Database db = databases[segment];
+        EntityStore legacyStore = legacyStores[segment];
         for (String feedID : feedIDs) {
-            startKey.feedID = feedID;
-            startKey.timestamp = startTime;
-            endKey.feedID = feedID;
-            endKey.timestamp = endTime;
-
-            EntityCursor<PersistentBufferObject> piCursor = pObjectAccess.pIdx.entities(startKey, true, endKey, true);
+            TreeMap<Long, Map<String, String>> data = new TreeMap<Long, Map<String, String>>(TIMESTAMP_COMPARATOR);
             try {
-                for (PersistentBufferObject pObj : piCursor) {
-                    SortedMap<Long, Map<String, String>> data = returnedData.get(feedID);
-                    if (data == null) {
-                        data = new TreeMap<Long, Map<String, String>>(TIMESTAMP_COMPARATOR);
-                        returnedData.put(feedID, data);
+                if (legacyStore != null) {
+                    getLegacyData(legacyStore, feedID, startTime, endTime, maxSamples, data);
+                }
+                int feedCode = feedDictionary.find(feedID);
+                if (db != null && feedCode >= 0) {
+                    SortedMap<Long, Map<String, String>> pending = getPendingSamples(segment, feedCode, startTime, endTime);
+                    getData(db, feedCode, startTime, endTime, maxSamples, data);
+                    data.putAll(pending);
+                    truncate(data, maxSamples);
+                }
+            } catch (DatabaseException e) {
+                LOGGER.error("Getting data for feed {} failed", feedID, e);
+            }
+            if (!data.isEmpty()) {
+                returnedData.put(feedID, data);
+            }
+        }
+        return returnedData;
+
+    }
+
+    /**
+     * Scans forward from the last block starting before startTime. Once maxSamples samples
+     * have been found, the scan stops at the first block which starts after all of them.
+     */
+    private void getData(Database db, int feedCode, long startTime, long endTime, int maxSamples, TreeMap<Long, Map<String, String>> data) throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        keyBinding.objectToEntry(new SampleKey(feedCode, blockStartBefore(startTime)), key);
+
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.DEFAULT);
+            while (status == OperationStatus.SUCCESS) {
+                SampleKey sampleKey = keyBinding.entryToObject(key);
+                if (sampleKey.getFeedCode() != feedCode || sampleKey.getTimestamp() > endTime) {
+                    break;
+                }
+                if (data.size() >= maxSamples && sampleKey.getTimestamp() > data.lastKey().longValue()) {
+                    break;
+                }
+                SampleBlock block = blockBinding.entryToObject(value);
+                if (block.getLastTimestamp() >= startTime) {
+                    int last = block.floorIndex(endTime);
+                    for (int i = block.ceilingIndex(startTime); i <= last; i++) {
+                        data.put(block.getTimestamp(i), block.getSample(i));
                     }
-                    data.put(pObj.getKey().timestamp, pObj.getData());
+                    truncate(data, maxSamples);
+                }
+                status = cursor.getNext(key, value, LockMode.DEFAULT);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(int segment, Set<String> feedIDs,
+            TimeUnit timeUnit, long startTime, long endTime, int bucketCount) {
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+
+        Database db = databases[segment];
+        EntityStore legacyStore = legacyStores[segment];
+        for (String feedID : feedIDs) {
+            SampleDecimator decimator = new SampleDecimator(startTime, endTime, bucketCount);
+            try {
+                if (legacyStore != null) {
+                    TreeMap<Long, Map<String, String>> legacyData = new TreeMap<Long, Map<String, String>>(TIMESTAMP_COMPARATOR);
+                    getLegacyData(legacyStore, feedID, startTime, endTime, Integer.MAX_VALUE, legacyData);
+                    decimator.addAll(legacyData);
+                }
+                int feedCode = feedDictionary.find(feedID);
+                if (db != null && feedCode >= 0) {
+                    SortedMap<Long, Map<String, String>> pending = getPendingSamples(segment, feedCode, startTime, endTime);
+                    getDecimatedData(db, feedCode, decimator);
+                    decimator.addAll(pending);
                 }
             } catch (DatabaseException e) {
-                e.printStackTrace();
-            } finally {
-                piCursor.close();
+                LOGGER.error("Getting decimated data for feed {} failed", feedID, e);
+            }
+            SortedMap<Long, Map<String, String>> data = decimator.getData();
+            if (!data.isEmpty()) {
+                returnedData.put(feedID, data);
             }
         }
         return returnedData;
+    }
+
+    /**
+     * Scans the blocks of the decimator's range, passing each sample to the decimator
+     * instead of collecting it.
+     */
+    private void getDecimatedData(Database db, int feedCode, SampleDecimator decimator) throws DatabaseException {
+        long startTime = decimator.getStartTime();
+        long endTime = decimator.getEndTime();
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        keyBinding.objectToEntry(new SampleKey(feedCode, blockStartBefore(startTime)), key);
+
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.DEFAULT);
+            while (status == OperationStatus.SUCCESS) {
+                SampleKey sampleKey = keyBinding.entryToObject(key);
+                if (sampleKey.getFeedCode() != feedCode || sampleKey.getTimestamp() > endTime) {
+                    break;
+                }
+                SampleBlock block = blockBinding.entryToObject(value);
+                if (block.getLastTimestamp() >= startTime) {
+                    int last = block.floorIndex(endTime);
+                    for (int i = block.ceilingIndex(startTime); i <= last; i++) {
+                        decimator.add(block.getTimestamp(i), block.getSample(i));
+                    }
+                }
+                status = cursor.getNext(key, value, LockMode.DEFAULT);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    @Override
+    public long[] getRollupResolutions() {
+        return pendingRollups.getResolutions();
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Rollup>> getRollups(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int tier) {
+        Map<String, SortedMap<Long, Rollup>> returnedRollups = new HashMap<String, SortedMap<Long, Rollup>>();
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+
+        synchronized (rollupLock) {
+            Database db = rollupDatabases[tier];
+            for (String feedID : feedIDs) {
+                SortedMap<Long, Rollup> feedRollups = pendingRollups.get(feedID, tier, startTime, endTime);
+                try {
+                    int feedCode = feedDictionary.find(feedID);
+                    if (db != null && feedCode >= 0) {
+                        getRollups(db, feedCode, startTime, endTime, feedRollups);
+                    }
+                } catch (DatabaseException e) {
+                    LOGGER.error("Getting rollups for feed {} failed", feedID, e);
+                }
+                if (!feedRollups.isEmpty()) {
+                    returnedRollups.put(feedID, feedRollups);
+                }
+            }
+        }
+        return returnedRollups;
+    }
+
+    /**
+     * Merges the stored rollups of intervals starting within the range into the given, pending ones.
+     */
+    private void getRollups(Database db, int feedCode, long startTime, long endTime, SortedMap<Long, Rollup> rollups) throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        keyBinding.objectToEntry(new SampleKey(feedCode, startTime), key);
+
+        Cursor cursor = db.openCursor(null, null);
+        try {
+            OperationStatus status = cursor.getSearchKeyRange(key, value, LockMode.DEFAULT);
+            while (status == OperationStatus.SUCCESS) {
+                SampleKey rollupKey = keyBinding.entryToObject(key);
+                if (rollupKey.getFeedCode() != feedCode || rollupKey.getTimestamp() > endTime) {
+                    break;
+                }
+                Rollup stored = rollupBinding.entryToObject(value);
+                Rollup pending = rollups.get(rollupKey.getTimestamp());
+                if (pending != null) {
+                    stored.merge(pending);
+                }
+                rollups.put(rollupKey.getTimestamp(), stored);
+                status = cursor.getNext(key, value, LockMode.DEFAULT);
+            }
+        } finally {
+            cursor.close();
+        }
+    }
+
+    private void getLegacyData(EntityStore store, String feedID, long startTime, long endTime, int maxSamples, SortedMap<Long, Map<String, String>> data) throws DatabaseException {
+        PersistentBufferObjectAccess pObjectAccess = new PersistentBufferObjectAccess(store);
+        PersistentBufferKey startKey = new PersistentBufferKey(feedID, startTime);
+        PersistentBufferKey endKey = new PersistentBufferKey(feedID, endTime);
+
+        EntityCursor<PersistentBufferObject> piCursor = pObjectAccess.pIdx.entities(startKey, true, endKey, true);
+        try {
+            for (PersistentBufferObject pObj : piCursor) {
+                data.put(pObj.getKey().timestamp, pObj.getData());
+                if (data.size() == maxSamples) {
+                    break;
+                }
+            }
+        } finally {
+            piCursor.close();
+        }
+    }
+
+    private static void truncate(TreeMap<Long, Map<String, String>> data, int maxSamples) {
+        while (data.size() > maxSamples) {
+            data.pollLastEntry();
+        }
+    }
+
+    /*
+     * The pending samples are copied before the disk is read: a flush running in
+     * between moves them to the disk, where the read finds them, while the copy
+     * still takes precedence over older samples with the same timestamp.
+     */
+    private SortedMap<Long, Map<String, String>> getPendingSamples(int segment, int feedCode, long startTime, long endTime) {
+        Map<Integer, NavigableMap<Long, Map<String, String>>> pending = pendingSamples[segment];
+        synchronized (pending) {
+            NavigableMap<Long, Map<String, String>> feedPending = pending.get(feedCode);
+            if (feedPending == null || startTime > endTime) {
+                return new TreeMap<Long, Map<String, String>>();
+            }
+            return new TreeMap<Long, Map<String, String>>(feedPending.subMap(startTime, true, endTime, true));
+        }
+    }
 
+    private Entry<Long, Map<String, String>> getLastPendingSample(int segment, int feedCode, long startTime, long endTime) {
+        Map<Integer, NavigableMap<Long, Map<String, String>>> pending = pendingSamples[segment];
+        synchronized (pending) {
+            NavigableMap<Long, Map<String, String>> feedPending = pending.get(feedCode);
+            if (feedPending == null) {
+                return null;
+            }
+            Entry<Long, Map<String, String>> last = feedPending.floorEntry(endTime);
+            return last == null || last.getKey().longValue() < startTime ? null : last;
+        }
+    }
+
+    /**
+     * Returns the earliest key of a block which may contain a sample at the given time.
+     */
+    private static long blockStartBefore(long time) {
+        return time < Long.MIN_VALUE + BLOCK_SPAN_NANOS ? Long.MIN_VALUE : time - BLOCK_SPAN_NANOS;
     }
 
     @SuppressWarnings("unchecked")
@@ -367,7 +824,7 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
                         for (Entry<String, Map<Long, Map<String, String>>> feedData : groupData[dataIndex].entrySet()) {
                             PartitionTimestamps timeStamp = null;
                             try {
-                                timeStamp = putData(null, feedData.getKey(), databases[dataIndex], timeUnit, feedData.getValue());
+                                timeStamp = putData(feedData.getKey(), dataIndex, timeUnit, feedData.getValue());
                             } catch (BufferFullException e) {
                                 bufferFull.compareAndSet(false, true);
                             }
@@ -417,7 +874,7 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
                         for (Entry<String, Map<Long, Map<String, String>>> feedData : groupData[dataIndex].entrySet()) {
                             PartitionTimestamps timeStamp = null;
                             try {
-                                timeStamp = putData(null, feedData.getKey(), databases[dataIndex], timeUnit, feedData.getValue());
+                                timeStamp = putData(feedData.getKey(), dataIndex, timeUnit, feedData.getValue());
                             } catch (BufferFullException e) {
                                 bufferFull.compareAndSet(false, true);
                             }
@@ -450,43 +907,45 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
     }
     
 
-    private PartitionTimestamps putData(Transaction txn, String feedID, EntityStore db, TimeUnit timeUnit,
+    private PartitionTimestamps putData(String feedID, int segment, TimeUnit timeUnit,
             Map<Long, Map<String, String>> entries) throws BufferFullException {
         long largestTime = 0;
         long smallestTime = 0;
 
-        try {
-            PersistentBufferObjectAccess pObjAccess = new PersistentBufferObjectAccess(db);
-            for (Long time : entries.keySet()) {
-                try {
-                    Map<String, String> value = entries.get(time);
+        NavigableMap<Long, Map<String, String>> sortedEntries = new TreeMap<Long, Map<String, String>>(TIMESTAMP_COMPARATOR);
+        for (Entry<Long, Map<String, String>> entry : entries.entrySet()) {
+            long time = TimeUnit.NANOSECONDS.convert(entry.getKey().longValue(), timeUnit);
+            LOGGER.debug("Putting data for feed {} with time {}", feedID, time);
+            if (time > largestTime) {
+                largestTime = time;
+            }
+            if (smallestTime == 0) {
+                smallestTime = time;
+            } else if (time < smallestTime) {
+                smallestTime = time;
+            }
+            sortedEntries.put(time, entry.getValue());
+        }
+        pendingRollups.add(feedID, sortedEntries);
 
-                    time = TimeUnit.NANOSECONDS.convert(time, timeUnit);
-                    LOGGER.debug("Putting data for feed {} with time {}", feedID, time);
-                    if (time.longValue() > largestTime) {
-                        largestTime = time.longValue();
+        try {
+            int feedCode = feedDictionary.encode(feedID);
+            if (batchSize <= 1) {
+                putSamples(databases[segment], feedCode, sortedEntries);
+            } else {
+                Map<Integer, NavigableMap<Long, Map<String, String>>> pending = pendingSamples[segment];
+                synchronized (pending) {
+                    NavigableMap<Long, Map<String, String>> feedPending = pending.get(feedCode);
+                    if (feedPending == null) {
+                        feedPending = sortedEntries;
+                        pending.put(feedCode, feedPending);
+                    } else {
+                        feedPending.putAll(sortedEntries);
                     }
-                    if (smallestTime == 0) {
-                        smallestTime = time.longValue();
-                    } else if (time.longValue() < smallestTime) {
-                        smallestTime = time.longValue();
+                    if (feedPending.size() >= batchSize) {
+                        pending.remove(feedCode);
+                        putSamples(databases[segment], feedCode, feedPending);
                     }
-
-                    PersistentBufferObject pObj = new PersistentBufferObject();
-                    pObj.setKey(new PersistentBufferKey(feedID, time.longValue()));
-                    pObj.setData(value);
-
-                    pObjAccess.pIdx.putNoReturn(pObj);
-                } catch (DatabaseException de) {
-                    largestTime = -1;
-                    LOGGER.error("Putting data for feed {} failed", feedID, de);
-                    
-                    if (env.isDiskBufferFull()) {
-                        LOGGER.error("[PartitionFastDiskBuffer]: " + env.getErrorMsg());
-                        throw new BufferFullException();
-                    }
-                    
-                    break;
                 }
             }
         } catch (DatabaseException de) {
@@ -504,6 +963,129 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
 
     }
 
+    /**
+     * Writes samples, in timestamp order, as blocks of at most {@link #BLOCK_SIZE} samples.
+     */
+    private void putSamples(Database db, int feedCode, SortedMap<Long, Map<String, String>> samples) throws DatabaseException {
+        DatabaseEntry key = new DatabaseEntry();
+        DatabaseEntry value = new DatabaseEntry();
+        SampleBlock block = null;
+        for (Entry<Long, Map<String, String>> entry : samples.entrySet()) {
+            long time = entry.getKey().longValue();
+            if (block != null && (block.size() == BLOCK_SIZE || time - block.getFirstTimestamp() > BLOCK_SPAN_NANOS)) {
+                putBlock(db, feedCode, block, key, value);
+                block = null;
+            }
+            if (block == null) {
+                block = new SampleBlock(Math.min(BLOCK_SIZE, samples.size()));
+            }
+            block.add(time, entry.getValue());
+        }
+        if (block != null) {
+            putBlock(db, feedCode, block, key, value);
+        }
+    }
+
+    /**
+     * Writes a block, merging it with the block already stored under the same key.
+     */
+    private void putBlock(Database db, int feedCode, SampleBlock block, DatabaseEntry key, DatabaseEntry value) throws DatabaseException {
+        keyBinding.objectToEntry(new SampleKey(feedCode, block.getFirstTimestamp()), key);
+        blockBinding.objectToEntry(block, value);
+        if (db.putNoOverwrite(null, key, value) == OperationStatus.KEYEXIST) {
+            synchronized (db) {
+                DatabaseEntry existing = new DatabaseEntry();
+                if (db.get(null, key, existing, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+                    blockBinding.objectToEntry(blockBinding.entryToObject(existing).merge(block), value);
+                }
+                db.put(null, key, value);
+            }
+        }
+    }
+
+    /**
+     * Writes the samples collected for all feeds of a segment.
+     * @return true if there were samples to write
+     */
+    private boolean flushPendingSamples(int segment) throws DatabaseException {
+        Map<Integer, NavigableMap<Long, Map<String, String>>> pending = pendingSamples[segment];
+        synchronized (pending) {
+            Database db = databases[segment];
+            if (pending.isEmpty() || db == null) {
+                return false;
+            }
+            for (Entry<Integer, NavigableMap<Long, Map<String, String>>> feedPending : pending.entrySet()) {
+                putSamples(db, feedPending.getKey().intValue(), feedPending.getValue());
+            }
+            pending.clear();
+            return true;
+        }
+    }
+
+    /**
+     * Writes the samples and rollups collected for all segments, as the flush timer does.
+     * @return true if there was anything to write
+     */
+    boolean flushPendingSamples() {
+        boolean flushed = false;
+        for (int i = 0; i < pendingSamples.length; i++) {
+            try {
+                flushed |= flushPendingSamples(i);
+            } catch (DatabaseException de) {
+                LOGGER.error("Writing pending samples failed", de);
+            }
+        }
+        try {
+            flushed |= flushPendingRollups();
+        } catch (DatabaseException de) {
+            LOGGER.error("Writing rollups failed", de);
+        }
+        return flushed;
+    }
+
+    /**
+     * Merges the pending rollups into the rollup databases.
+     * @return true if there were rollups to write
+     */
+    private boolean flushPendingRollups() throws DatabaseException {
+        synchronized (rollupLock) {
+            if (pendingRollups.isEmpty()) {
+                return false;
+            }
+            List<Map<String, NavigableMap<Long, Rollup>>> tiers = pendingRollups.drain();
+            DatabaseEntry key = new DatabaseEntry();
+            DatabaseEntry value = new DatabaseEntry();
+            for (int tier = 0; tier < tiers.size(); tier++) {
+                Database db = rollupDatabases[tier];
+                if (db == null) {
+                    continue;
+                }
+                for (Entry<String, NavigableMap<Long, Rollup>> feedRollups : tiers.get(tier).entrySet()) {
+                    int feedCode = feedDictionary.encode(feedRollups.getKey());
+                    for (Entry<Long, Rollup> rollup : feedRollups.getValue().entrySet()) {
+                        keyBinding.objectToEntry(new SampleKey(feedCode, rollup.getKey().longValue()), key);
+                        Rollup merged = rollup.getValue();
+                        if (db.get(null, key, value, LockMode.DEFAULT) == OperationStatus.SUCCESS) {
+                            merged = rollupBinding.entryToObject(value);
+                            merged.merge(rollup.getValue());
+                        }
+                        rollupBinding.objectToEntry(merged, value);
+                        db.put(null, key, value);
+                    }
+                }
+            }
+            return true;
+        }
+    }
+
+    private void clearPendingSamples() {
+        for (Map<Integer, NavigableMap<Long, Map<String, String>>> pending : pendingSamples) {
+            synchronized (pending) {
+                pending.clear();
+            }
+        }
+    }
+
     private int hash(int h) {
         // Spread bits to regularize both segment and index locations,
         // using variant of single-word Wang/Jenkins hash.
@@ -518,31 +1100,22 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
     }
 
     public synchronized void removeBuffer() {
-        for (int i = 0; i < databases.length; i++) {
-            try {
-                if (databases[i] != null) {
-                    env.closeDatabase(databases[i]);
-                    databases[i] = null;
-                }
-            } catch (DatabaseException de) {
-                LOGGER.debug("DatabaseException in closeBuffer", de);
-            }
+        if (flushTask != null) {
+            flushTask.cancel(false);
         }
+        clearPendingSamples();
+        pendingRollups.clear();
+        closeDatabases();
         env.removeEnvironment();
     }
     
     public synchronized void closeBuffer() {
-        this.env.flush();
-        for (int i = 0; i < databases.length; i++) {
-            try {
-                if (databases[i] != null) {
-                    env.closeDatabase(databases[i]);
-                    databases[i] = null;
-                }
-            } catch (DatabaseException de) {
-                LOGGER.debug("DatabaseException in closeBuffer", de);
-            }
+        if (flushTask != null) {
+            flushTask.cancel(false);
         }
+        flushPendingSamples();
+        this.env.flush();
+        closeDatabases();
         env.closeEnvironment();
     }
     
@@ -555,26 +1128,62 @@ public class PartitionFastDiskBuffer implements PartitionDataBuffer {
         return true;
     }
 
+    /*
+     * A timer flush may be running: the databases are closed under the locks the flushes hold
+     * while writing, so a flush either completes first or finds its databases closed. The
+     * dictionaries they write through are closed last.
+     */
     private void closeDatabases() {
         for (int i = 0; i < databases.length; i++) {
-            try {
-                if (databases[i] != null) {
-                    env.closeDatabase(databases[i]);
-                    databases[i] = null;
+            synchronized (pendingSamples[i]) {
+                try {
+                    if (databases[i] != null) {
+                        env.closeDatabase(databases[i]);
+                        databases[i] = null;
+                    }
+                    if (legacyStores[i] != null) {
+                        env.closeDatabase(legacyStores[i]);
+                        legacyStores[i] = null;
+                    }
+                } catch (DatabaseException de) {
+                    LOGGER.debug("DatabaseException in closeBuffer", de);
                 }
-            } catch (DatabaseException de) {
-                LOGGER.debug("DatabaseException in closeBuffer", de);
             }
         }
+        synchronized (rollupLock) {
+            for (int i = 0; i < rollupDatabases.length; i++) {
+                try {
+                    if (rollupDatabases[i] != null) {
+                        env.closeDatabase(rollupDatabases[i]);
+                        rollupDatabases[i] = null;
+                    }
+                } catch (DatabaseException de) {
+                    LOGGER.debug("DatabaseException in closeBuffer", de);
+                }
+            }
+        }
+        try {
+            env.closeDatabase(feedDictionaryDatabase);
+            env.closeDatabase(keyDictionaryDatabase);
+        } catch (DatabaseException de) {
+            LOGGER.debug("DatabaseException in closeBuffer", de);
+        }
+        feedDictionaryDatabase = null;
+        keyDictionaryDatabase = null;
     }
 
     public synchronized void resetBuffer() {
+        clearPendingSamples();
+        pendingRollups.clear();
         closeDatabases();
         env.closeAndRestartEnvironment();
         setupDatabasePartition(env);
     }
 
     public void inactive() {
+        if (flushPendingSamples()) {
+            env.flush();
+        }
         active = false;
     }
 
@@ -26,6 +26,8 @@ import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
 import gov.nasa.arc.mct.buffer.config.DiskBufferEnv;
 import gov.nasa.arc.mct.buffer.internal.MetaDataBuffer;
 import gov.nasa.arc.mct.buffer.internal.PartitionDataBuffer;
+import gov.nasa.arc.mct.buffer.internal.Rollup;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 
 import java.io.Serializable;
@@ -159,9 +161,15 @@ public class PartitionNonCODDiskBuffer implements PartitionDataBuffer {
     }
 
     
-    @SuppressWarnings("unchecked")
     public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, final TimeUnit timeUnit,
             final long startTime, final long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, Integer.MAX_VALUE);
+    }
+
+    @SuppressWarnings("unchecked")
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, final TimeUnit timeUnit,
+            final long startTime, final long endTime, final int maxSamples) {
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
 
@@ -177,7 +185,7 @@ public class PartitionNonCODDiskBuffer implements PartitionDataBuffer {
                 public void run() {
                     try {
                         Map<String, SortedMap<Long, Map<String, String>>> dataSlice = getData(databases[dataIndex],
-                                groupFeeds[dataIndex], timeUnit, startTime, endTime);
+                                groupFeeds[dataIndex], timeUnit, startTime, endTime, maxSamples);
                         if (dataSlice != null) {
                             dataSlices[dataIndex] = dataSlice;
                         }
@@ -211,6 +219,37 @@ public class PartitionNonCODDiskBuffer implements PartitionDataBuffer {
 
     }
     
+    /**
+     * Reduces the result of {@link #getData(Set, TimeUnit, long, long)}; the entity store
+     * has to be read sample by sample anyway.
+     */
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit,
+            long startTime, long endTime, int bucketCount) {
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = getData(feedIDs, timeUnit, startTime, endTime);
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry : returnedData.entrySet()) {
+            SampleDecimator decimator = new SampleDecimator(TimeUnit.NANOSECONDS.convert(startTime, timeUnit),
+                    TimeUnit.NANOSECONDS.convert(endTime, timeUnit), bucketCount);
+            decimator.addAll(entry.getValue());
+            entry.setValue(decimator.getData());
+        }
+        return returnedData;
+    }
+
+    /**
+     * This partition keeps no rollup tiers.
+     */
+    @Override
+    public long[] getRollupResolutions() {
+        return new long[0];
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Rollup>> getRollups(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int tier) {
+        return new HashMap<String, SortedMap<Long, Rollup>>();
+    }
+    
     @Override
     public Map<String, SortedMap<Long, Map<String, String>>> getLastData(Set<String> feedIDs, final TimeUnit timeUnit, final long startTime, final long endTime) {
                 
@@ -219,7 +258,7 @@ public class PartitionNonCODDiskBuffer implements PartitionDataBuffer {
     }
     
     private Map<String, SortedMap<Long, Map<String, String>>> getData(EntityStore db, Set<String> feedIDs,
-            TimeUnit timeUnit, long startTime, long endTime) {
+            TimeUnit timeUnit, long startTime, long endTime, int maxSamples) {
         Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
 
         startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
@@ -244,6 +283,9 @@ public class PartitionNonCODDiskBuffer implements PartitionDataBuffer {
                         returnedData.put(feedID, data);
                     }
                     data.put(pObj.getKey().timestamp, pObj.getData());
+                    if (data.size() == maxSamples) {
+                        break;
+                    }
                 }
             } catch (DatabaseException e) {
                 e.printStackTrace();
@@ -0,0 +1,85 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.disk.internal;
+
+import gov.nasa.arc.mct.buffer.internal.Rollup;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+/**
+ * Binary form of a {@link Rollup}: a format version byte, the sample counts, the sum of
+ * the values and the timestamps of the minimum and maximum samples, followed by the
+ * first, minimum, maximum and last samples as a {@link SampleBlock}.
+ */
+class RollupTupleBinding extends TupleBinding<Rollup> {
+    static final byte FORMAT_VERSION = 1;
+
+    private final SampleBlockTupleBinding blockBinding;
+
+    RollupTupleBinding(SampleBlockTupleBinding blockBinding) {
+        this.blockBinding = blockBinding;
+    }
+
+    @Override
+    public void objectToEntry(Rollup rollup, TupleOutput to) {
+        to.writeByte(FORMAT_VERSION);
+        to.writePackedLong(rollup.getCount());
+        to.writePackedLong(rollup.getValueCount());
+        to.writeDouble(rollup.getSum());
+        to.writeLong(rollup.getMinTime());
+        to.writeLong(rollup.getMaxTime());
+
+        SortedMap<Long, Map<String, String>> samples = rollup.getSamples();
+        SampleBlock block = new SampleBlock(samples.size());
+        for (Entry<Long, Map<String, String>> entry : samples.entrySet()) {
+            block.add(entry.getKey().longValue(), entry.getValue());
+        }
+        blockBinding.objectToEntry(block, to);
+    }
+
+    @Override
+    public Rollup entryToObject(TupleInput ti) {
+        byte version = ti.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported rollup format " + version);
+        }
+        long count = ti.readPackedLong();
+        long valueCount = ti.readPackedLong();
+        double sum = ti.readDouble();
+        long minTime = ti.readLong();
+        long maxTime = ti.readLong();
+
+        SampleBlock block = blockBinding.entryToObject(ti);
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        for (int i = 0; i < block.size(); i++) {
+            samples.put(block.getTimestamp(i), block.getSample(i));
+        }
+        return new Rollup(count, valueCount, sum, samples, minTime, maxTime);
+    }
+}
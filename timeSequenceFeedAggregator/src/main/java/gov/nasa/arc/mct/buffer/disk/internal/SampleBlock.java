@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.disk.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A run of consecutive samples of one feed stored as a single record of the fast
+ * disk buffer. Samples are kept in ascending timestamp order.
+ */
+final class SampleBlock {
+    private long[] timestamps;
+    private final List<Map<String, String>> samples;
+
+    SampleBlock(int capacity) {
+        timestamps = new long[capacity];
+        samples = new ArrayList<Map<String, String>>(capacity);
+    }
+
+    /**
+     * Appends a sample. Timestamps must be added in ascending order.
+     * @param timestamp timestamp in nanoseconds
+     * @param sample the sample
+     */
+    void add(long timestamp, Map<String, String> sample) {
+        int size = samples.size();
+        assert size == 0 || timestamp > timestamps[size - 1] : "samples must be added in timestamp order";
+        if (size == timestamps.length) {
+            timestamps = Arrays.copyOf(timestamps, Math.max(4, size * 2));
+        }
+        timestamps[size] = timestamp;
+        samples.add(sample);
+    }
+
+    int size() {
+        return samples.size();
+    }
+
+    long getTimestamp(int index) {
+        return timestamps[index];
+    }
+
+    Map<String, String> getSample(int index) {
+        return samples.get(index);
+    }
+
+    long getFirstTimestamp() {
+        return timestamps[0];
+    }
+
+    long getLastTimestamp() {
+        return timestamps[samples.size() - 1];
+    }
+
+    /**
+     * Returns the index of the first sample with a timestamp >= time, or size() if there is none.
+     */
+    int ceilingIndex(long time) {
+        int low = 0;
+        int high = samples.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the last sample with a timestamp <= time, or -1 if there is none.
+     */
+    int floorIndex(long time) {
+        int low = 0;
+        int high = samples.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low - 1;
+    }
+
+    /**
+     * Merges the samples of this block with the samples of a block written later.
+     * When both blocks have a sample with the same timestamp the later one is kept.
+     */
+    SampleBlock merge(SampleBlock newer) {
+        SampleBlock merged = new SampleBlock(size() + newer.size());
+        int i = 0;
+        int j = 0;
+        while (i < size() || j < newer.size()) {
+            if (j == newer.size() || (i < size() && timestamps[i] < newer.timestamps[j])) {
+                merged.add(timestamps[i], samples.get(i));
+                i++;
+            } else {
+                if (i < size() && timestamps[i] == newer.timestamps[j]) {
+                    i++;
+                }
+                merged.add(newer.timestamps[j], newer.samples.get(j));
+                j++;
+            }
+        }
+        return merged;
+    }
+}
@@ -0,0 +1,162 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.disk.internal;
+
+import gov.nasa.arc.mct.buffer.util.SampleValues;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+/**
+ * Compact binary form of a {@link SampleBlock}. After a format version byte and the
+ * sample count, the first timestamp is written in full and every following one as a
+ * packed delta to its predecessor. Each sample then lists its entries as a packed key
+ * code from the partition's key dictionary, a type tag and the value in the smallest
+ * form that reproduces the original text exactly:
+ * <ul>
+ * <li>integers as packed longs, other numbers as doubles;</li>
+ * <li>"true"/"false" and a value equal to the sample time in milliseconds (the usual
+ * content of the time key) as the tag alone;</li>
+ * <li>everything else as a string.</li>
+ * </ul>
+ */
+class SampleBlockTupleBinding extends TupleBinding<SampleBlock> {
+    static final byte FORMAT_VERSION = 1;
+
+    private static final byte TYPE_STRING = 0;
+    private static final byte TYPE_LONG = 1;
+    private static final byte TYPE_DOUBLE = 2;
+    private static final byte TYPE_SAMPLE_MILLIS = 3;
+    private static final byte TYPE_TRUE = 4;
+    private static final byte TYPE_FALSE = 5;
+    private static final byte TYPE_NULL = 6;
+
+    private static final long NANOS_PER_MILLI = 1000000L;
+
+    private final NameDictionary keyNames;
+
+    SampleBlockTupleBinding(NameDictionary keyNames) {
+        this.keyNames = keyNames;
+    }
+
+    @Override
+    public void objectToEntry(SampleBlock block, TupleOutput to) {
+        int size = block.size();
+        to.writeByte(FORMAT_VERSION);
+        to.writePackedInt(size);
+        long previous = 0;
+        for (int i = 0; i < size; i++) {
+            long timestamp = block.getTimestamp(i);
+            if (i == 0) {
+                to.writeLong(timestamp);
+            } else {
+                to.writePackedLong(timestamp - previous);
+            }
+            previous = timestamp;
+
+            Map<String, String> sample = block.getSample(i);
+            to.writePackedInt(sample.size());
+            for (Entry<String, String> entry : sample.entrySet()) {
+                to.writePackedInt(keyNames.encode(entry.getKey()));
+                writeValue(entry.getValue(), timestamp, to);
+            }
+        }
+    }
+
+    private void writeValue(String value, long timestamp, TupleOutput to) {
+        if (value == null) {
+            to.writeByte(TYPE_NULL);
+        } else if (SampleValues.isExactLong(value)) {
+            long longValue = Long.parseLong(value);
+            if (timestamp % NANOS_PER_MILLI == 0 && longValue == timestamp / NANOS_PER_MILLI) {
+                to.writeByte(TYPE_SAMPLE_MILLIS);
+            } else {
+                to.writeByte(TYPE_LONG);
+                to.writePackedLong(longValue);
+            }
+        } else if (SampleValues.isExactDouble(value)) {
+            to.writeByte(TYPE_DOUBLE);
+            to.writeDouble(Double.parseDouble(value));
+        } else if ("true".equals(value)) {
+            to.writeByte(TYPE_TRUE);
+        } else if ("false".equals(value)) {
+            to.writeByte(TYPE_FALSE);
+        } else {
+            to.writeByte(TYPE_STRING);
+            to.writeString(value);
+        }
+    }
+
+    @Override
+    public SampleBlock entryToObject(TupleInput ti) {
+        byte version = ti.readByte();
+        if (version != FORMAT_VERSION) {
+            throw new IllegalStateException("Unsupported sample block format " + version);
+        }
+        int size = ti.readPackedInt();
+        SampleBlock block = new SampleBlock(size);
+        long timestamp = 0;
+        for (int i = 0; i < size; i++) {
+            if (i == 0) {
+                timestamp = ti.readLong();
+            } else {
+                timestamp += ti.readPackedLong();
+            }
+
+            int entries = ti.readPackedInt();
+            Map<String, String> sample = new HashMap<String, String>(Math.max(4, entries * 4 / 3 + 1));
+            for (int j = 0; j < entries; j++) {
+                String key = keyNames.decode(ti.readPackedInt());
+                sample.put(key, readValue(ti, timestamp));
+            }
+            block.add(timestamp, sample);
+        }
+        return block;
+    }
+
+    private String readValue(TupleInput ti, long timestamp) {
+        byte type = ti.readByte();
+        switch (type) {
+        case TYPE_STRING:
+            return ti.readString();
+        case TYPE_LONG:
+            return Long.toString(ti.readPackedLong());
+        case TYPE_DOUBLE:
+            return Double.toString(ti.readDouble());
+        case TYPE_SAMPLE_MILLIS:
+            return Long.toString(timestamp / NANOS_PER_MILLI);
+        case TYPE_TRUE:
+            return "true";
+        case TYPE_FALSE:
+            return "false";
+        case TYPE_NULL:
+            return null;
+        default:
+            throw new IllegalStateException("Unknown sample value type " + type);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.disk.internal;
+
+import com.sleepycat.bind.tuple.TupleBinding;
+import com.sleepycat.bind.tuple.TupleInput;
+import com.sleepycat.bind.tuple.TupleOutput;
+
+/**
+ * Writes the feed code before the timestamp so that the default byte ordering of
+ * the keys groups the blocks of a feed together in time order.
+ */
+class SampleKeyTupleBinding extends TupleBinding<SampleKey> {
+    @Override
+    public void objectToEntry(SampleKey key, TupleOutput to) {
+        to.writeInt(key.getFeedCode());
+        to.writeLong(key.getTimestamp());
+    }
+
+    @Override
+    public SampleKey entryToObject(TupleInput ti) {
+        int feedCode = ti.readInt();
+        long timestamp = ti.readLong();
+
+        return new SampleKey(feedCode, timestamp);
+    }
+}
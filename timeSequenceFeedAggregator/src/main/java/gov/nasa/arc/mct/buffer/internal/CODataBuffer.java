@@ -79,6 +79,11 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
         }
     }
     
+    @Override
+    public boolean includesPrecedingSample() {
+        return true;
+    }
+
     private final static class FeedRequestContext {
         private final String feedID;
         private final boolean getLastDataIfNeeded;
@@ -143,9 +148,7 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
         Set<String> requestFeedIDs = new HashSet<String>(feedIDs);
         Map<String, FeedRequestContext>[] partitionFeeds = mapFeedsToPartitions(requestFeedIDs, startTime, endTime, timeUnit);
         
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-        }
+        if (coordinator.isResetting()) return Collections.emptyMap();
         
         Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
         
@@ -176,9 +179,7 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
         Set<String> requestFeedIDs = new HashSet<String>(feedIDs);
         Map<String, FeedRequestContext>[] partitionFeeds = mapFeedsToPartitions(requestFeedIDs, startTime, endTime, timeUnit);
         
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-        }
+        if (coordinator.isResetting()) return Collections.emptyMap();
         
         Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
         
@@ -204,17 +205,8 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
 
     private Map<String, SortedMap<Long, Map<String, String>>> getData(PartitionDataBuffer partitionDataBuffer, Map<String, FeedRequestContext> feedRequestContexts, TimeUnit timeUnit,
                     long startTime, long endTime) {
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-            
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            readInProgress = true;
+        if (!beginRead(partitionDataBuffer)) {
+            return Collections.emptyMap();
         }
         
         try {
@@ -262,18 +254,13 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
             LOGGER.debug("time to get Data for feeds {}: {}", feedRequestContexts, timer.getIntervalInMillis());
             return returnedData;
         } finally {
-            synchronized (movePartitionLock) {
-                readInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            endRead(partitionDataBuffer);
         }
     }
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
+        if (coordinator.isResetting()) return;
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
@@ -304,56 +291,31 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
     }
     
     private void putData(PartitionDataBuffer partitionBuffer, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, MetaDataBuffer metadata, int metadataIndex)  throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            writeInProgress = true;
-        }
-        if (this.partitionDataBuffers[partitionBuffer.getBufferEnv().getCurrentBufferPartition()].get() == null) {
+        if (!beginWrite(partitionBuffer)) {
             return;
         }
 
         try {
             partitionBuffer.putData(value, timeUnit, metadata, metadataIndex);
+            cacheLatest(value, timeUnit);
         } finally {
-            synchronized (movePartitionLock) {
-                writeInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            endWrite(partitionBuffer);
         }
     
     }
     
     
     private Map<String, PartitionTimestamps> putData(PartitionDataBuffer partitionBuffer, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit)  throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return null;
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            writeInProgress = true;
-        }
-        if (this.partitionDataBuffers[partitionBuffer.getBufferEnv().getCurrentBufferPartition()].get() == null) {
+        if (!beginWrite(partitionBuffer)) {
             return null;
         }
 
         try {
-            return partitionBuffer.putData(value, timeUnit);
+            Map<String, PartitionTimestamps> timeStamps = partitionBuffer.putData(value, timeUnit);
+            cacheLatest(value, timeUnit);
+            return timeStamps;
         } finally {
-            synchronized (movePartitionLock) {
-                writeInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            endWrite(partitionBuffer);
         }
     }
     
@@ -361,9 +323,7 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
     public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit,
                     Runnable callback)  throws BufferFullException {
         PERF_WRITE_LOGGER.debug("COD Putting data for {} feeds", value);
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
+        if (coordinator.isResetting()) return;
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
@@ -394,9 +354,7 @@ public final class CODataBuffer extends DataBuffer implements DataArchive, DataP
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
+        if (coordinator.isResetting()) return;
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
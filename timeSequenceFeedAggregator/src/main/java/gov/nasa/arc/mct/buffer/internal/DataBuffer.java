@@ -24,6 +24,10 @@ package gov.nasa.arc.mct.buffer.internal;
 import gov.nasa.arc.mct.api.feed.BufferFullException;
 import gov.nasa.arc.mct.api.feed.DataArchive;
 import gov.nasa.arc.mct.api.feed.DataProvider;
+import gov.nasa.arc.mct.api.feed.DecimatingFeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
+import gov.nasa.arc.mct.api.feed.StreamingFeedAggregator;
 import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
 import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
@@ -36,6 +40,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.SortedMap;
+import java.util.TreeMap;
 import java.util.Map.Entry;
 import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.AtomicReference;
@@ -43,7 +48,7 @@ import java.util.concurrent.atomic.AtomicReference;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public class DataBuffer implements DataArchive, DataProvider {
+public class DataBuffer implements DataArchive, DataProvider, LatestValueFeedAggregator, StreamingFeedAggregator, DecimatingFeedAggregator {
     private static final Logger LOGGER = LoggerFactory.getLogger(DataBuffer.class);
     private static final Logger PERF_LOGGER = LoggerFactory
                     .getLogger("gov.nasa.arc.mct.performance.buffer");
@@ -52,13 +57,8 @@ public class DataBuffer implements DataArchive, DataProvider {
     protected MetaDataBuffer metaDataBuffer;
     protected volatile PartitionDataBuffer currentParition;
     protected DataBufferEvictor evictor;
-    protected final Object movePartitionLock = new Object();
-    protected final Object resetLock = new Object();
-    protected boolean readInProgress = false;
-    protected boolean writeInProgress = false;
-    protected boolean moveParitionInProgress = false;
-    protected volatile boolean reset = false;
-    protected volatile boolean prepareNewPartitionInProgress = false;
+    protected final PartitionAccessCoordinator coordinator;
+    protected final LatestValueCache latestValues = new LatestValueCache();
     protected final DataBufferHelper dataBufferHelper;
 
     @SuppressWarnings("unchecked")
@@ -70,6 +70,7 @@ public class DataBuffer implements DataArchive, DataProvider {
             metaDataBuffer = partitionBufferFactory.newMetaDataBuffer(partitionBufferFactory.newMetaDataBufferEnv(env.getConfigProperties()));
         }
         this.partitionDataBuffers = new AtomicReference[metaDataBuffer.getNumOfPartitions()];
+        this.coordinator = new PartitionAccessCoordinator(partitionDataBuffers.length);
         setupPartitionBuffers(env, partitionBufferFactory);
         startEvictor();
     }
@@ -142,9 +143,7 @@ public class DataBuffer implements DataArchive, DataProvider {
     @Override
     public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, long startTime, long endTime,
             TimeUnit timeUnit) {
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-        }
+        if (coordinator.isResetting()) return Collections.emptyMap();
         
         Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
         
@@ -175,9 +174,7 @@ public class DataBuffer implements DataArchive, DataProvider {
     @Override
     public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
             long endTime) {
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-        }
+        if (coordinator.isResetting()) return Collections.emptyMap();
         
         Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
         
@@ -205,19 +202,283 @@ public class DataBuffer implements DataArchive, DataProvider {
         return aggregateData;
     }
 
-    private Map<String, SortedMap<Long, Map<String, String>>> getData(PartitionDataBuffer partitionDataBuffer, Set<String> feedIDs, TimeUnit timeUnit,
-                    long startTime, long endTime) {
-        synchronized (movePartitionLock) {
-            if (reset) return Collections.emptyMap();
-            
-            while (moveParitionInProgress) {
+    @Override
+    public FeedCursor openCursor(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int chunkSize) {
+        return new DataBufferCursor(this, feedIDs, TimeUnit.NANOSECONDS.convert(startTime, timeUnit),
+                        TimeUnit.NANOSECONDS.convert(endTime, timeUnit), chunkSize);
+    }
+
+    @Override
+    public Map<String, List<Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int bucketCount) {
+        Map<String, SortedMap<Long, Map<String, String>>> data = getDecimatedData(feedIDs, startTime, endTime, timeUnit, bucketCount);
+        Map<String, List<Map<String, String>>> aggregateData = new HashMap<String, List<Map<String,String>>>();
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+            aggregateData.put(entry.getKey(), new LinkedList<Map<String, String>>(entry.getValue().values()));
+        }
+        return aggregateData;
+    }
+
+    /**
+     * Returns the samples of each feed a {@link SampleDecimator} over the range keeps, keyed
+     * by their time in nanoseconds as {@link #getData(Set, long, long, TimeUnit)} does. The
+     * partitions decimate their own samples and the results are merged by decimating them again.
+     * Partitions keeping rollup tiers answer from the coarsest tier no wider than a bucket.
+     * @param bucketCount the number of buckets the range is split into
+     */
+    public Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(Set<String> feedIDs, long startTime, long endTime,
+            TimeUnit timeUnit, int bucketCount) {
+        Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+        if (coordinator.isResetting()) return aggregateData;
+
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        Map<String, SampleDecimator> decimators = new HashMap<String, SampleDecimator>();
+        for (int i = 0; i < partitionDataBuffers.length; i++) {
+            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+            if (partitionBuffer == null || !isWithinTimeSpan(i, feedIDs, TimeUnit.NANOSECONDS, startTime, endTime)
+                            || !beginRead(partitionBuffer)) {
+                continue;
+            }
+            try {
+                Map<String, SortedMap<Long, Map<String, String>>> data = getDecimatedData(partitionBuffer, feedIDs, startTime, endTime, bucketCount);
+                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                    SampleDecimator decimator = decimators.get(entry.getKey());
+                    if (decimator == null) {
+                        decimator = new SampleDecimator(startTime, endTime, bucketCount);
+                        decimators.put(entry.getKey(), decimator);
+                    }
+                    decimator.addAll(entry.getValue());
+                }
+            } finally {
+                endRead(partitionBuffer);
+            }
+        }
+        for (Entry<String, SampleDecimator> entry : decimators.entrySet()) {
+            aggregateData.put(entry.getKey(), entry.getValue().getData());
+        }
+
+        if (includesPrecedingSample()) {
+            Set<String> precedingFeedIDs = new HashSet<String>();
+            for (String feedID : feedIDs) {
+                SortedMap<Long, Map<String, String>> feedData = aggregateData.get(feedID);
+                if (feedData == null || feedData.firstKey().longValue() > startTime) {
+                    precedingFeedIDs.add(feedID);
+                }
+            }
+            if (!precedingFeedIDs.isEmpty()) {
+                for (Entry<String, SortedMap<Long, Map<String, String>>> entry : getPrecedingData(precedingFeedIDs, startTime).entrySet()) {
+                    SortedMap<Long, Map<String, String>> feedData = aggregateData.get(entry.getKey());
+                    if (feedData == null) {
+                        feedData = new TreeMap<Long, Map<String, String>>();
+                        aggregateData.put(entry.getKey(), feedData);
+                    }
+                    Long ts = entry.getValue().lastKey();
+                    feedData.put(ts, entry.getValue().get(ts));
+                }
+            }
+        }
+        return aggregateData;
+    }
+
+    /**
+     * Decimates the samples of one partition. If the partition keeps a rollup tier whose
+     * intervals are no wider than a bucket, the whole intervals of that tier within the range
+     * contribute their first, minimum, maximum and last samples, and only the partial
+     * intervals at both ends of the range are read sample by sample. Where an interval
+     * straddles two buckets, each bucket gets the rollup samples falling into it, so the
+     * result stays made of real samples but may differ slightly from decimating every sample.
+     */
+    private Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(PartitionDataBuffer partitionBuffer,
+            Set<String> feedIDs, long startTime, long endTime, int bucketCount) {
+        long[] resolutions = partitionBuffer.getRollupResolutions();
+        int tier = RollupStore.chooseTier(resolutions, new SampleDecimator(startTime, endTime, bucketCount).getBucketWidth());
+        if (tier < 0 || startTime < Long.MIN_VALUE + resolutions[tier] || endTime > Long.MAX_VALUE - resolutions[tier]) {
+            return partitionBuffer.getDecimatedData(feedIDs, TimeUnit.NANOSECONDS, startTime, endTime, bucketCount);
+        }
+        long resolution = resolutions[tier];
+        long firstInterval = RollupStore.getIntervalStart(startTime, resolution);
+        if (firstInterval < startTime) {
+            firstInterval += resolution;
+        }
+        long lastInterval = RollupStore.getIntervalStart(endTime, resolution);
+        if (lastInterval + resolution - 1 > endTime) {
+            lastInterval -= resolution;
+        }
+        if (firstInterval > lastInterval) {
+            return partitionBuffer.getDecimatedData(feedIDs, TimeUnit.NANOSECONDS, startTime, endTime, bucketCount);
+        }
+
+        Map<String, SampleDecimator> decimators = new HashMap<String, SampleDecimator>();
+        for (String feedID : feedIDs) {
+            decimators.put(feedID, new SampleDecimator(startTime, endTime, bucketCount));
+        }
+        if (firstInterval > startTime) {
+            addAll(decimators, partitionBuffer.getData(feedIDs, TimeUnit.NANOSECONDS, startTime, firstInterval - 1));
+        }
+        if (lastInterval + resolution <= endTime) {
+            addAll(decimators, partitionBuffer.getData(feedIDs, TimeUnit.NANOSECONDS, lastInterval + resolution, endTime));
+        }
+        for (Entry<String, SortedMap<Long, Rollup>> entry : partitionBuffer.getRollups(feedIDs, TimeUnit.NANOSECONDS, firstInterval, lastInterval, tier).entrySet()) {
+            SampleDecimator decimator = decimators.get(entry.getKey());
+            for (Rollup rollup : entry.getValue().values()) {
+                decimator.addAll(rollup.getSamples());
+            }
+        }
+
+        Map<String, SortedMap<Long, Map<String, String>>> data = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (Entry<String, SampleDecimator> entry : decimators.entrySet()) {
+            SortedMap<Long, Map<String, String>> feedData = entry.getValue().getData();
+            if (!feedData.isEmpty()) {
+                data.put(entry.getKey(), feedData);
+            }
+        }
+        return data;
+    }
+
+    private static void addAll(Map<String, SampleDecimator> decimators, Map<String, SortedMap<Long, Map<String, String>>> data) {
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry : data.entrySet()) {
+            decimators.get(entry.getKey()).addAll(entry.getValue());
+        }
+    }
+
+    /**
+     * Returns whether a query also returns, for each feed, the last sample before the start
+     * time when there is none exactly at it, so that the latest sample of a feed is held
+     * forward until the next one.
+     */
+    public boolean includesPrecedingSample() {
+        return false;
+    }
+
+    /**
+     * Reads at most maxSamples samples of each feed from every partition which may have
+     * some. The partitions overlap, so the merged result may have up to maxSamples samples
+     * per partition; only its first maxSamples samples are complete.
+     * @param startTime start of the range in nanoseconds
+     * @param endTime end of the range in nanoseconds
+     */
+    Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, long startTime, long endTime, int maxSamples) {
+        Map<String, SortedMap<Long, Map<String, String>>> aggregateData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+        if (coordinator.isResetting()) return aggregateData;
+
+        for (int i = 0; i < partitionDataBuffers.length; i++) {
+            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+            if (partitionBuffer == null || !isWithinTimeSpan(i, feedIDs, TimeUnit.NANOSECONDS, startTime, endTime)
+                            || !beginRead(partitionBuffer)) {
+                continue;
+            }
+            try {
+                Map<String, SortedMap<Long, Map<String, String>>> data = partitionBuffer.getData(feedIDs, TimeUnit.NANOSECONDS, startTime, endTime, maxSamples);
+                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                    SortedMap<Long, Map<String, String>> cumulativeData = aggregateData.get(entry.getKey());
+                    if (cumulativeData != null) {
+                        cumulativeData.putAll(entry.getValue());
+                    } else {
+                        aggregateData.put(entry.getKey(), new TreeMap<Long, Map<String, String>>(entry.getValue()));
+                    }
+                }
+            } finally {
+                endRead(partitionBuffer);
+            }
+        }
+        return aggregateData;
+    }
+
+    /**
+     * Returns the last sample of each feed at or before the given time in nanoseconds.
+     */
+    Map<String, SortedMap<Long, Map<String, String>>> getPrecedingData(Set<String> feedIDs, long time) {
+        Map<String, SortedMap<Long, Map<String, String>>> precedingData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
+        if (coordinator.isResetting()) return precedingData;
+
+        for (int i = 0; i < partitionDataBuffers.length; i++) {
+            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+            if (!beginRead(partitionBuffer)) {
+                continue;
+            }
+            try {
+                Map<String, SortedMap<Long, Map<String, String>>> data = partitionBuffer.getLastData(feedIDs, TimeUnit.NANOSECONDS, 0, time);
+                for (Entry<String, SortedMap<Long, Map<String, String>>> entry: data.entrySet()) {
+                    SortedMap<Long, Map<String, String>> feedData = entry.getValue();
+                    if (feedData == null || feedData.isEmpty()) {
+                        continue;
+                    }
+                    SortedMap<Long, Map<String, String>> lastData = precedingData.get(entry.getKey());
+                    if (lastData == null || lastData.lastKey().longValue() < feedData.lastKey().longValue()) {
+                        precedingData.put(entry.getKey(), feedData);
+                    }
+                }
+            } finally {
+                endRead(partitionBuffer);
+            }
+        }
+        return precedingData;
+    }
+
+    boolean isResetting() {
+        return coordinator.isResetting();
+    }
+
+    @Override
+    public Map<String, Map<String, String>> getLatest(Set<String> feedIDs) {
+        if (coordinator.isResetting()) return Collections.emptyMap();
+
+        Map<String, Map<String, String>> latest = new HashMap<String, Map<String, String>>();
+        Set<String> uncachedFeedIDs = null;
+        for (String feedID : feedIDs) {
+            Map<String, String> value = latestValues.get(feedID);
+            if (value != null) {
+                latest.put(feedID, value);
+            } else {
+                if (uncachedFeedIDs == null) {
+                    uncachedFeedIDs = new HashSet<String>();
+                }
+                uncachedFeedIDs.add(feedID);
+            }
+        }
+        if (uncachedFeedIDs != null) {
+            loadLatest(uncachedFeedIDs, latest);
+        }
+        return latest;
+    }
+
+    /**
+     * Looks up the latest samples of feeds which have not been written since the buffer was
+     * opened, newest partition first, and caches what is found.
+     */
+    private void loadLatest(Set<String> feedIDs, Map<String, Map<String, String>> latest) {
+        int startPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+        int i = startPartition;
+        do {
+            PartitionDataBuffer partitionBuffer = this.partitionDataBuffers[i].get();
+            if (beginRead(partitionBuffer)) {
                 try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
+                    Map<String, SortedMap<Long, Map<String, String>>> data = partitionBuffer.getLastData(feedIDs, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
+                    for (Entry<String, SortedMap<Long, Map<String, String>>> entry : data.entrySet()) {
+                        SortedMap<Long, Map<String, String>> feedData = entry.getValue();
+                        if (feedData != null && !feedData.isEmpty()) {
+                            Long time = feedData.lastKey();
+                            latestValues.update(entry.getKey(), time.longValue(), feedData.get(time));
+                            latest.put(entry.getKey(), latestValues.get(entry.getKey()));
+                            feedIDs.remove(entry.getKey());
+                        }
+                    }
+                } finally {
+                    endRead(partitionBuffer);
                 }
             }
-            readInProgress = true;
+            if (feedIDs.isEmpty()) {
+                break;
+            }
+            i = this.currentParition.getBufferEnv().previousBufferPartition(i);
+        } while (i != startPartition);
+    }
+
+    private Map<String, SortedMap<Long, Map<String, String>>> getData(PartitionDataBuffer partitionDataBuffer, Set<String> feedIDs, TimeUnit timeUnit,
+                    long startTime, long endTime) {
+        if (!beginRead(partitionDataBuffer)) {
+            return Collections.emptyMap();
         }
         
         Set<String> searchFeedIDS = new HashSet<String>(feedIDs);
@@ -232,18 +493,13 @@ public class DataBuffer implements DataArchive, DataProvider {
             LOGGER.debug("time to get Data for feeds {}: {}", feedIDs, timer.getIntervalInMillis());
             return returnedData;
         } finally {
-            synchronized (movePartitionLock) {
-                readInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            endRead(partitionDataBuffer);
         }
     }
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
+        if (coordinator.isResetting()) return;
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
@@ -274,28 +530,76 @@ public class DataBuffer implements DataArchive, DataProvider {
     }
 
     private Map<String, PartitionTimestamps> putData(PartitionDataBuffer partitionBuffer, Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit)  throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return null;
-            while (moveParitionInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            writeInProgress = true;
-        }
-        if (this.partitionDataBuffers[partitionBuffer.getBufferEnv().getCurrentBufferPartition()].get() == null) {
+        if (!beginWrite(partitionBuffer)) {
             return null;
         }
 
         try {
-            return partitionBuffer.putData(value, timeUnit);
+            Map<String, PartitionTimestamps> timeStamps = partitionBuffer.putData(value, timeUnit);
+            cacheLatest(value, timeUnit);
+            return timeStamps;
         } finally {
-            synchronized (movePartitionLock) {
-                writeInProgress = false;
-                movePartitionLock.notifyAll();
-            }
+            endWrite(partitionBuffer);
+        }
+    }
+
+    /**
+     * Registers a read of the partition with the {@link PartitionAccessCoordinator}.
+     * @param partitionBuffer the partition to read
+     * @return false if the buffer is being reset or the partition has been replaced, in which
+     * case the read must be skipped and {@link #endRead(PartitionDataBuffer)} not called
+     */
+    protected final boolean beginRead(PartitionDataBuffer partitionBuffer) {
+        if (partitionBuffer == null) {
+            return false;
+        }
+        int partition = partitionBuffer.getBufferEnv().getCurrentBufferPartition();
+        if (!coordinator.enterRead(partition)) {
+            return false;
+        }
+        if (this.partitionDataBuffers[partition].get() != partitionBuffer) {
+            coordinator.exitRead(partition);
+            return false;
+        }
+        return true;
+    }
+
+    protected final void endRead(PartitionDataBuffer partitionBuffer) {
+        coordinator.exitRead(partitionBuffer.getBufferEnv().getCurrentBufferPartition());
+    }
+
+    /**
+     * Registers a write to the partition with the {@link PartitionAccessCoordinator}.
+     * @param partitionBuffer the partition to write
+     * @return false if the buffer is being reset or the partition is being made inactive or has been replaced, in which
+     * case the write must be skipped and {@link #endWrite(PartitionDataBuffer)} not called
+     */
+    protected final boolean beginWrite(PartitionDataBuffer partitionBuffer) {
+        int partition = partitionBuffer.getBufferEnv().getCurrentBufferPartition();
+        if (!coordinator.enterWrite(partition)) {
+            return false;
+        }
+        if (this.partitionDataBuffers[partition].get() != partitionBuffer) {
+            coordinator.exitWrite(partition);
+            return false;
+        }
+        return true;
+    }
+
+    protected final void endWrite(PartitionDataBuffer partitionBuffer) {
+        coordinator.exitWrite(partitionBuffer.getBufferEnv().getCurrentBufferPartition());
+    }
+
+    /**
+     * Offers samples to the latest-value cache once a partition has accepted them. This must be called
+     * between {@link #beginWrite(PartitionDataBuffer)} and {@link #endWrite(PartitionDataBuffer)}: a reset
+     * waits for registered writes before it clears the cache, so samples it discards cannot come back.
+     * @param value the samples written, by feed
+     * @param timeUnit the unit of the sample times
+     */
+    protected final void cacheLatest(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) {
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            latestValues.update(entry.getKey(), entry.getValue(), timeUnit);
         }
     }
     
@@ -303,9 +607,7 @@ public class DataBuffer implements DataArchive, DataProvider {
     public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit,
                     Runnable callback)  throws BufferFullException {
         PERF_LOGGER.debug("Putting data for {} feeds", value.size());
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
+        if (coordinator.isResetting()) return;
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
@@ -339,9 +641,7 @@ public class DataBuffer implements DataArchive, DataProvider {
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) throws BufferFullException {
-        synchronized (movePartitionLock) {
-            if (reset) return;
-        }
+        if (coordinator.isResetting()) return;
         
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
@@ -383,27 +683,15 @@ public class DataBuffer implements DataArchive, DataProvider {
     
     @Override
     public void reset() {
-        synchronized (movePartitionLock) {
-            while (moveParitionInProgress || writeInProgress || readInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            reset = true;
-        }
-        synchronized(resetLock) {
-            while (prepareNewPartitionInProgress) {
-                try {
-                    resetLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
+        try {
+            coordinator.beginReset();
+        } catch (InterruptedException e) {
+            LOGGER.warn("Interrupted while waiting for buffer accesses to finish, buffer not reset");
+            Thread.currentThread().interrupt();
+            return;
         }
-        
         try {
+            latestValues.clear();
             if (evictor != null) {
                 evictor.cancel();
             }
@@ -413,6 +701,7 @@ public class DataBuffer implements DataArchive, DataProvider {
                     partitionDataBuffers[j].get().removeBuffer();
                     partitionDataBuffers[j].set(null);
                 }
+                coordinator.openWrites(j);
             }
             
             if (this.metaDataBuffer != null) {
@@ -430,9 +719,7 @@ public class DataBuffer implements DataArchive, DataProvider {
 
             startEvictor();
         } finally {
-            synchronized(movePartitionLock) {
-                reset = false;
-            }
+            coordinator.endReset();
         }
     }
     
@@ -471,10 +758,14 @@ public class DataBuffer implements DataArchive, DataProvider {
         return true;
     }
 
-    public void prepareForNextPartition() {
-        synchronized(resetLock) {
-            if (reset) { return; }
-            prepareNewPartitionInProgress = true;
+    /**
+     * Replaces the oldest partition with an empty one, which the next {@link #moveToNextPartition()} makes current.
+     * @throws InterruptedException if interrupted while waiting for the reads and writes of the oldest
+     * partition; the partition is left in place, and the preparation must be retried
+     */
+    public void prepareForNextPartition() throws InterruptedException {
+        if (!coordinator.enterMaintenance()) {
+            return;
         }
         
         try {
@@ -484,6 +775,15 @@ public class DataBuffer implements DataArchive, DataProvider {
         
             Map<String, SortedMap<Long, Map<String, String>>> rowOverData = null;
             if (toBeClosedBuffer != null) {
+                // unpublish the partition first so that only the reads and writes already
+                // using it have to be waited for
+                this.partitionDataBuffers[newBufferPartition].set(null);
+                try {
+                    coordinator.awaitPartition(newBufferPartition);
+                } catch (InterruptedException e) {
+                    this.partitionDataBuffers[newBufferPartition].set(toBeClosedBuffer);
+                    throw e;
+                }
                 Set<String> rowOverFeedIDs = metaDataBuffer.resetPartitionMetaData(newBufferPartition);
                 if (!rowOverFeedIDs.isEmpty()) {
                     rowOverData = toBeClosedBuffer.getLastData(rowOverFeedIDs, TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE);
@@ -500,7 +800,8 @@ public class DataBuffer implements DataArchive, DataProvider {
                     data.put(entry.getKey(), feedData);
                 }
                 try {
-                    Map<String, PartitionTimestamps> timeStamps = putData(newPartitionBuffer, data, TimeUnit.NANOSECONDS);
+                    // the new partition is not published yet, nobody else can access it
+                    Map<String, PartitionTimestamps> timeStamps = newPartitionBuffer.putData(data, TimeUnit.NANOSECONDS);
                     if (timeStamps != null) {
                         metaDataBuffer.updatePartitionMetaData(newBufferPartition, timeStamps);
                     }
@@ -508,52 +809,58 @@ public class DataBuffer implements DataArchive, DataProvider {
                     LOGGER.error("Buffer full during prepareForNextPartition", e);
                 }
             }
+            coordinator.openWrites(newBufferEnv.getCurrentBufferPartition());
             this.partitionDataBuffers[newBufferEnv.getCurrentBufferPartition()].set(newPartitionBuffer);
         } finally {
-            synchronized(resetLock) {
-                prepareNewPartitionInProgress = false;
-                resetLock.notifyAll();
-            }
+            coordinator.exitMaintenance();
         }
     }
 
-    public void moveToNextPartition() {
-        int nextBufferPartition = this.currentParition.getBufferEnv().nextBufferPartition();
-        int currentBufferPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
-        
-        PartitionDataBuffer toBeInActiveBuffer = this.partitionDataBuffers[currentBufferPartition].get();
-        
-        metaDataBuffer.writeCurrentBufferPartition(nextBufferPartition);
-
-        synchronized (movePartitionLock) {
-            if (reset) { return; }
-            
-            while (readInProgress || writeInProgress) {
-                try {
-                    movePartitionLock.wait();
-                } catch (InterruptedException e) {
-                    // ignore
-                }
-            }
-            moveParitionInProgress = true;
+    /**
+     * Makes the partition prepared by {@link #prepareForNextPartition()} current, and the current one inactive.
+     * @throws InterruptedException if interrupted while waiting for the writes to the current partition;
+     * the current partition is left current, and the move must be retried
+     */
+    public void moveToNextPartition() throws InterruptedException {
+        if (!coordinator.enterMaintenance()) {
+            return;
         }
+
         try {
+            int nextBufferPartition = this.currentParition.getBufferEnv().nextBufferPartition();
+            int currentBufferPartition = this.currentParition.getBufferEnv().getCurrentBufferPartition();
+
+            PartitionDataBuffer previousPartition = this.currentParition;
+            PartitionDataBuffer toBeInActiveBuffer = this.partitionDataBuffers[currentBufferPartition].get();
+
+            metaDataBuffer.writeCurrentBufferPartition(nextBufferPartition);
+
+            // reads and writes starting from now use the new partition; the ones in progress
+            // keep the partition they started with
             this.currentParition = this.partitionDataBuffers[nextBufferPartition].get();
-        } finally {
-            synchronized (movePartitionLock) {
-                moveParitionInProgress = false;
-                movePartitionLock.notifyAll();
+
+            // writes which found the partition active before this point are waited for, later
+            // ones are refused, so nothing is written to it once inactive
+            try {
+                coordinator.closeWrites(currentBufferPartition);
+            } catch (InterruptedException e) {
+                // the writes already made to the next partition stay there, covered by its metadata
+                this.currentParition = previousPartition;
+                metaDataBuffer.writeCurrentBufferPartition(currentBufferPartition);
+                coordinator.openWrites(currentBufferPartition);
+                throw e;
             }
-        }
-        
-        metaDataBuffer.writePartitionMetaData(currentBufferPartition);
-        
-        if (toBeInActiveBuffer != null) {
-            toBeInActiveBuffer.getBufferEnv().flush();
-            toBeInActiveBuffer.inactive();
-        } else {
-            LOGGER.warn("PartitionDataBuffer object should not be null!");
-            LOGGER.warn("currentBufferPartition={}, nextBufferPartition={}", currentBufferPartition, nextBufferPartition);
+            metaDataBuffer.writePartitionMetaData(currentBufferPartition);
+
+            if (toBeInActiveBuffer != null) {
+                toBeInActiveBuffer.getBufferEnv().flush();
+                toBeInActiveBuffer.inactive();
+            } else {
+                LOGGER.warn("PartitionDataBuffer object should not be null!");
+                LOGGER.warn("currentBufferPartition={}, nextBufferPartition={}", currentBufferPartition, nextBufferPartition);
+            }
+        } finally {
+            coordinator.exitMaintenance();
         }
     }
 
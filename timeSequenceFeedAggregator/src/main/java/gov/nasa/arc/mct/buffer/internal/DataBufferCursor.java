@@ -0,0 +1,234 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FeedCursor} over the partitions of a {@link DataBuffer}. Each feed keeps a read
+ * ahead of at most chunkSize samples, which is topped up from the partitions once half of
+ * it has been returned. A chunk ends before the last sample read ahead of any feed which
+ * still has samples in the partitions, so every sample before the end of a chunk has been
+ * read. The partitions are only held for the duration of a read, so an open cursor does not
+ * block partition roll over.
+ * <p>
+ * {@link #next()} is meant to be called by a single thread; {@link #close()} may be called
+ * by any thread.
+ */
+final class DataBufferCursor implements FeedCursor {
+    private final DataBuffer dataBuffer;
+    private final long startTime;
+    private final long endTime;
+    private final int chunkSize;
+    private final Map<String, FeedState> feeds = new HashMap<String, FeedState>();
+    private long position;
+    private boolean started;
+    private volatile boolean closed;
+
+    private static final class FeedState {
+        /** Samples read but not returned yet. */
+        final TreeMap<Long, Map<String, String>> readAhead = new TreeMap<Long, Map<String, String>>();
+        /** Time from which the partitions have not been read yet. */
+        long readTime;
+        /** Whether the partitions have no samples left from readTime. */
+        boolean readAll;
+
+        FeedState(long readTime) {
+            this.readTime = readTime;
+        }
+    }
+
+    /**
+     * @param startTime start of the range in nanoseconds
+     * @param endTime end of the range in nanoseconds
+     * @param chunkSize maximum number of samples per feed and chunk, 0 for no limit
+     */
+    DataBufferCursor(DataBuffer dataBuffer, Set<String> feedIDs, long startTime, long endTime, int chunkSize) {
+        this.dataBuffer = dataBuffer;
+        this.startTime = startTime;
+        this.endTime = endTime;
+        this.chunkSize = chunkSize > 0 ? chunkSize : Integer.MAX_VALUE;
+        this.position = startTime;
+        if (startTime <= endTime) {
+            for (String feedID : feedIDs) {
+                feeds.put(feedID, new FeedState(startTime));
+            }
+        }
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && !feeds.isEmpty();
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> next() {
+        if (closed || feeds.isEmpty()) {
+            return Collections.emptyMap();
+        }
+        if (dataBuffer.isResetting()) {
+            close();
+            return Collections.emptyMap();
+        }
+
+        readAhead();
+        if (closed) {
+            feeds.clear();
+            return Collections.emptyMap();
+        }
+        if (!started) {
+            started = true;
+            if (dataBuffer.includesPrecedingSample()) {
+                readPrecedingSamples();
+            }
+        }
+
+        long chunkEnd = endTime == Long.MAX_VALUE ? Long.MAX_VALUE : endTime + 1;
+        for (FeedState feed : feeds.values()) {
+            if (!feed.readAll) {
+                chunkEnd = Math.min(chunkEnd, feed.readAhead.lastKey().longValue() + 1);
+            }
+        }
+
+        Map<String, SortedMap<Long, Map<String, String>>> chunk = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (Iterator<Entry<String, FeedState>> it = feeds.entrySet().iterator(); it.hasNext();) {
+            Entry<String, FeedState> entry = it.next();
+            FeedState feed = entry.getValue();
+            SortedMap<Long, Map<String, String>> feedChunk = feed.readAhead.headMap(Long.valueOf(chunkEnd));
+            if (!feedChunk.isEmpty()) {
+                chunk.put(entry.getKey(), new TreeMap<Long, Map<String, String>>(feedChunk));
+                feedChunk.clear();
+            }
+            if (feed.readAll && feed.readAhead.isEmpty()) {
+                it.remove();
+            }
+        }
+        position = chunkEnd;
+        return chunk;
+    }
+
+    /**
+     * Tops up the read ahead of the feeds which have less than half a chunk left. Feeds
+     * which are read from the same time are read together.
+     */
+    private void readAhead() {
+        Map<Long, Map<Integer, Set<String>>> reads = new HashMap<Long, Map<Integer, Set<String>>>();
+        for (Entry<String, FeedState> entry : feeds.entrySet()) {
+            FeedState feed = entry.getValue();
+            if (feed.readAll || feed.readAhead.size() > chunkSize / 2) {
+                continue;
+            }
+            Long readTime = Long.valueOf(feed.readTime);
+            Map<Integer, Set<String>> readsAtTime = reads.get(readTime);
+            if (readsAtTime == null) {
+                readsAtTime = new HashMap<Integer, Set<String>>();
+                reads.put(readTime, readsAtTime);
+            }
+            Integer maxSamples = Integer.valueOf(chunkSize - feed.readAhead.size());
+            Set<String> feedIDs = readsAtTime.get(maxSamples);
+            if (feedIDs == null) {
+                feedIDs = new HashSet<String>();
+                readsAtTime.put(maxSamples, feedIDs);
+            }
+            feedIDs.add(entry.getKey());
+        }
+
+        for (Entry<Long, Map<Integer, Set<String>>> readsAtTime : reads.entrySet()) {
+            for (Entry<Integer, Set<String>> read : readsAtTime.getValue().entrySet()) {
+                if (closed) {
+                    return;
+                }
+                read(read.getValue(), readsAtTime.getKey().longValue(), read.getKey().intValue());
+            }
+        }
+    }
+
+    private void read(Set<String> feedIDs, long readTime, int maxSamples) {
+        Map<String, SortedMap<Long, Map<String, String>>> data = dataBuffer.getData(feedIDs, readTime, endTime, maxSamples);
+        for (String feedID : feedIDs) {
+            FeedState feed = feeds.get(feedID);
+            SortedMap<Long, Map<String, String>> feedData = data.get(feedID);
+            if (feedData == null || feedData.size() < maxSamples) {
+                // every partition returned less than asked for
+                feed.readAll = true;
+                if (feedData != null) {
+                    feed.readAhead.putAll(feedData);
+                }
+                continue;
+            }
+            int count = 0;
+            long lastTime = readTime;
+            for (Entry<Long, Map<String, String>> sample : feedData.entrySet()) {
+                if (count++ == maxSamples) {
+                    break;
+                }
+                lastTime = sample.getKey().longValue();
+                feed.readAhead.put(sample.getKey(), sample.getValue());
+            }
+            if (lastTime >= endTime) {
+                feed.readAll = true;
+            } else {
+                feed.readTime = lastTime + 1;
+            }
+        }
+    }
+
+    private void readPrecedingSamples() {
+        Set<String> feedIDs = new HashSet<String>();
+        for (Entry<String, FeedState> entry : feeds.entrySet()) {
+            TreeMap<Long, Map<String, String>> readAhead = entry.getValue().readAhead;
+            if (readAhead.isEmpty() || readAhead.firstKey().longValue() > startTime) {
+                feedIDs.add(entry.getKey());
+            }
+        }
+        if (feedIDs.isEmpty()) {
+            return;
+        }
+        Map<String, SortedMap<Long, Map<String, String>>> data = dataBuffer.getPrecedingData(feedIDs, startTime);
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry : data.entrySet()) {
+            SortedMap<Long, Map<String, String>> feedData = entry.getValue();
+            Long time = feedData.lastKey();
+            feeds.get(entry.getKey()).readAhead.put(time, feedData.get(time));
+        }
+    }
+
+    @Override
+    public long getPosition(TimeUnit timeUnit) {
+        return timeUnit.convert(position, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
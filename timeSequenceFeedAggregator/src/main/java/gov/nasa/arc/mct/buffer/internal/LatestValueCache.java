@@ -0,0 +1,102 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The most recent sample of each feed written to a {@link DataBuffer}. Updated on the
+ * put path without locking, once a partition has accepted the sample; a sample replaces
+ * the cached one only if its timestamp is not earlier, so out of order writes never move
+ * a feed back in time. Like the partitions, the cache keeps its own copy of each sample,
+ * so later changes to the map written do not show in it; the copy is read only, so
+ * readers cannot change it either.
+ */
+final class LatestValueCache {
+    private static final class Sample {
+        final long time;
+        final Map<String, String> value;
+
+        Sample(long time, Map<String, String> value) {
+            this.time = time;
+            this.value = Collections.unmodifiableMap(new HashMap<String, String>(value));
+        }
+    }
+
+    private final ConcurrentMap<String, Sample> latest = new ConcurrentHashMap<String, Sample>();
+
+    /**
+     * Offers a sample.
+     * @param feedID the feed
+     * @param time timestamp in nanoseconds
+     * @param value the sample
+     */
+    void update(String feedID, long time, Map<String, String> value) {
+        Sample cached = latest.get(feedID);
+        if (cached != null && (cached.time > time || cached.time == time && cached.value.equals(value))) {
+            // older, or already cached by the write to an overlapping partition
+            return;
+        }
+        Sample sample = new Sample(time, value);
+        Sample current = latest.putIfAbsent(feedID, sample);
+        while (current != null && current.time <= time) {
+            if (latest.replace(feedID, current, sample)) {
+                return;
+            }
+            current = latest.putIfAbsent(feedID, sample);
+        }
+    }
+
+    /**
+     * Offers the latest of the given samples.
+     */
+    void update(String feedID, Map<Long, Map<String, String>> entries, TimeUnit timeUnit) {
+        Entry<Long, Map<String, String>> last = null;
+        for (Entry<Long, Map<String, String>> entry : entries.entrySet()) {
+            if (last == null || entry.getKey().longValue() >= last.getKey().longValue()) {
+                last = entry;
+            }
+        }
+        if (last != null) {
+            update(feedID, TimeUnit.NANOSECONDS.convert(last.getKey().longValue(), timeUnit), last.getValue());
+        }
+    }
+
+    /**
+     * Returns the latest sample of the feed, or null if none has been offered.
+     * The returned map cannot be modified.
+     */
+    Map<String, String> get(String feedID) {
+        Sample sample = latest.get(feedID);
+        return sample == null ? null : sample.value;
+    }
+
+    void clear() {
+        latest.clear();
+    }
+}
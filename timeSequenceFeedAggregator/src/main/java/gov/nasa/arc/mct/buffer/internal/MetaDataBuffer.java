@@ -144,7 +144,7 @@ public class MetaDataBuffer {
         }
     }
     
-    public void updatePartitionMetaData(int bufferPartition, Map<String, PartitionTimestamps> timeStamps) {
+    public synchronized void updatePartitionMetaData(int bufferPartition, Map<String, PartitionTimestamps> timeStamps) {
         PartitionMetaData partitionMetaData = partitionMetaDatas[bufferPartition];
         if (partitionMetaData == null) {
             partitionMetaData = new PartitionMetaData(bufferPartition);
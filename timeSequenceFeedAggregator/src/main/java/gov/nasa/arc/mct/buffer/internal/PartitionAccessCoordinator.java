@@ -0,0 +1,206 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+
+/**
+ * Coordinates the readers and writers of the partitions of a {@link DataBuffer} with the
+ * operations that change the partition ring (prepare, move and reset).
+ * <p>
+ * Reads and writes only register themselves in a per partition counter, so any number of
+ * them run in parallel with each other and with a partition rollover. Only the operations
+ * changing the ring wait: closing a partition waits for the reads and writes still using it,
+ * making a partition inactive closes it to new writes and waits for the ones in progress, and a
+ * reset waits for everything. The
+ * monitor is only used by those waiting operations and by the last reader or writer to leave
+ * while one of them is waiting.
+ * <p>
+ * The waits are interruptible. An interrupted wait throws {@link InterruptedException} without
+ * having completed, so the caller must not go on as if it had.
+ */
+final class PartitionAccessCoordinator {
+    private final AtomicInteger[] readers;
+    private final AtomicInteger[] writers;
+    /** 1 for the partitions closed to writes, which are being or have been made inactive. */
+    private final AtomicIntegerArray writesClosed;
+    private final AtomicInteger maintenance = new AtomicInteger();
+    private final AtomicInteger waiters = new AtomicInteger();
+    private final Object monitor = new Object();
+    private volatile boolean resetting = false;
+
+    PartitionAccessCoordinator(int numOfPartitions) {
+        readers = new AtomicInteger[numOfPartitions];
+        writers = new AtomicInteger[numOfPartitions];
+        writesClosed = new AtomicIntegerArray(numOfPartitions);
+        for (int i = 0; i < numOfPartitions; i++) {
+            readers[i] = new AtomicInteger();
+            writers[i] = new AtomicInteger();
+        }
+    }
+
+    boolean isResetting() {
+        return resetting;
+    }
+
+    /**
+     * Registers a read of the partition.
+     * @return false if the buffer is being reset, in which case the read must not proceed
+     */
+    boolean enterRead(int partition) {
+        return enter(readers[partition]);
+    }
+
+    void exitRead(int partition) {
+        exit(readers[partition]);
+    }
+
+    /**
+     * Registers a write to the partition.
+     * @return false if the buffer is being reset or the partition is closed to writes, in which
+     * case the write must not proceed
+     */
+    boolean enterWrite(int partition) {
+        if (!enter(writers[partition])) {
+            return false;
+        }
+        // checked after registering, so either closeWrites sees this write or this write sees it closed
+        if (writesClosed.get(partition) != 0) {
+            exit(writers[partition]);
+            return false;
+        }
+        return true;
+    }
+
+    void exitWrite(int partition) {
+        exit(writers[partition]);
+    }
+
+    /**
+     * Registers an operation changing the partition ring, such as a partition move.
+     * @return false if the buffer is being reset, in which case the operation must not proceed
+     */
+    boolean enterMaintenance() {
+        return enter(maintenance);
+    }
+
+    void exitMaintenance() {
+        exit(maintenance);
+    }
+
+    /**
+     * Stops new writes to the partition from starting and waits until no write registered for
+     * it is in progress, so that it can be made inactive. The partition stays closed to writes if
+     * the wait is interrupted.
+     * @throws InterruptedException if interrupted before the writes in progress finished
+     */
+    void closeWrites(int partition) throws InterruptedException {
+        writesClosed.set(partition, 1);
+        await(writers[partition]);
+    }
+
+    /**
+     * Allows writes to the partition again, once a new partition buffer is put in its place.
+     */
+    void openWrites(int partition) {
+        writesClosed.set(partition, 0);
+    }
+
+    /**
+     * Waits until no read or write registered for the partition is in progress.
+     * @throws InterruptedException if interrupted before the reads and writes in progress finished
+     */
+    void awaitPartition(int partition) throws InterruptedException {
+        await(readers[partition]);
+        await(writers[partition]);
+    }
+
+    /**
+     * Stops new reads, writes and maintenance from starting and waits for the ones in progress.
+     * Must be followed by {@link #endReset()} unless it throws.
+     * @throws InterruptedException if interrupted while waiting, in which case the buffer is not
+     * being reset and reads, writes and maintenance may start again
+     */
+    void beginReset() throws InterruptedException {
+        synchronized (monitor) {
+            while (resetting) {
+                monitor.wait();
+            }
+            resetting = true;
+        }
+        boolean ready = false;
+        try {
+            await(maintenance);
+            for (int i = 0; i < readers.length; i++) {
+                awaitPartition(i);
+            }
+            ready = true;
+        } finally {
+            if (!ready) {
+                endReset();
+            }
+        }
+    }
+
+    void endReset() {
+        synchronized (monitor) {
+            resetting = false;
+            monitor.notifyAll();
+        }
+    }
+
+    private boolean enter(AtomicInteger counter) {
+        counter.incrementAndGet();
+        if (resetting) {
+            exit(counter);
+            return false;
+        }
+        return true;
+    }
+
+    private void exit(AtomicInteger counter) {
+        if (counter.decrementAndGet() == 0 && waiters.get() > 0) {
+            synchronized (monitor) {
+                monitor.notifyAll();
+            }
+        }
+    }
+
+    private void await(AtomicInteger counter) throws InterruptedException {
+        if (counter.get() == 0) {
+            return;
+        }
+        // a waiter is registered before the counter is checked again, so a thread leaving
+        // after this point always sees it and notifies
+        waiters.incrementAndGet();
+        try {
+            synchronized (monitor) {
+                while (counter.get() > 0) {
+                    monitor.wait();
+                }
+            }
+        } finally {
+            waiters.decrementAndGet();
+        }
+    }
+}
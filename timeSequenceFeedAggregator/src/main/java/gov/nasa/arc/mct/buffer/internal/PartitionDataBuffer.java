@@ -38,6 +38,28 @@ public interface PartitionDataBuffer {
      */
     public Map<String, SortedMap<Long, Map<String, String>>> getLastData(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime);
     
+    /**
+     * Similar to {@link #getData(Set, TimeUnit, long, long)}, but returns at most maxSamples points for each feed, the earliest in the range.
+     */
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int maxSamples);
+    
+    /**
+     * Similar to {@link #getData(Set, TimeUnit, long, long)}, but returns for each feed only the samples a {@link SampleDecimator}
+     * over the range with bucketCount buckets keeps.
+     */
+    public Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int bucketCount);
+    
+    /**
+     * Returns the resolutions, in nanoseconds and finest first, of the {@link RollupStore rollup tiers} the partition keeps;
+     * empty if it keeps none.
+     */
+    public long[] getRollupResolutions();
+    
+    /**
+     * Returns for each feed the rollups of a tier whose intervals start within the range, keyed by interval start in nanoseconds.
+     */
+    public Map<String, SortedMap<Long, Rollup>> getRollups(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int tier);
+    
     public Map<String, PartitionTimestamps> putData(Map<String, Map<Long, Map<String, String>>> value, final TimeUnit timeUnit)  throws BufferFullException;
     
     public void putData(Map<String, Map<Long, Map<String, String>>> value, final TimeUnit timeUnit, MetaDataBuffer metadata, int metadataIndex)  throws BufferFullException;
@@ -0,0 +1,218 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Summary of the samples of one feed within an interval: the number of samples, the
+ * minimum, maximum and mean of their numeric values, and the first, minimum, maximum
+ * and last samples themselves, so that a plot drawn from rollups shows real samples.
+ * Samples whose value is not a number are counted and may be the first or last
+ * sample, but do not contribute to the statistics. Not thread safe.
+ */
+public final class Rollup {
+    private long count;
+    private long valueCount;
+    private double sum;
+    private long firstTime;
+    private Map<String, String> first;
+    private long lastTime;
+    private Map<String, String> last;
+    private long minTime;
+    private double minValue;
+    private Map<String, String> min;
+    private long maxTime;
+    private double maxValue;
+    private Map<String, String> max;
+
+    /**
+     * Creates an empty rollup.
+     */
+    public Rollup() {
+    }
+
+    /**
+     * Creates a copy of a rollup.
+     */
+    public Rollup(Rollup rollup) {
+        merge(rollup);
+    }
+
+    /**
+     * Restores a rollup from its parts, as returned by the getters.
+     * @param count number of samples
+     * @param valueCount number of samples with a numeric value
+     * @param sum sum of the numeric values
+     * @param samples the first, minimum, maximum and last samples keyed by their timestamp
+     * @param minTime timestamp of the minimum sample, ignored if valueCount is 0
+     * @param maxTime timestamp of the maximum sample, ignored if valueCount is 0
+     */
+    public Rollup(long count, long valueCount, double sum, SortedMap<Long, Map<String, String>> samples, long minTime, long maxTime) {
+        this.count = count;
+        this.valueCount = valueCount;
+        this.sum = sum;
+        if (samples.isEmpty()) {
+            return;
+        }
+        firstTime = samples.firstKey().longValue();
+        first = samples.get(samples.firstKey());
+        lastTime = samples.lastKey().longValue();
+        last = samples.get(samples.lastKey());
+        if (valueCount > 0) {
+            this.minTime = minTime;
+            min = samples.get(minTime);
+            minValue = SampleDecimator.getValue(min);
+            this.maxTime = maxTime;
+            max = samples.get(maxTime);
+            maxValue = SampleDecimator.getValue(max);
+        }
+    }
+
+    /**
+     * Adds a sample.
+     * @param time timestamp of the sample
+     * @param value value of the sample, NaN if it is not a number
+     * @param sample the sample
+     */
+    public void add(long time, double value, Map<String, String> sample) {
+        if (count == 0 || time < firstTime) {
+            firstTime = time;
+            first = sample;
+        }
+        if (count == 0 || time >= lastTime) {
+            lastTime = time;
+            last = sample;
+        }
+        count++;
+        if (Double.isNaN(value)) {
+            return;
+        }
+        valueCount++;
+        sum += value;
+        if (min == null || value < minValue || (value == minValue && time < minTime)) {
+            minTime = time;
+            minValue = value;
+            min = sample;
+        }
+        if (max == null || value > maxValue || (value == maxValue && time < maxTime)) {
+            maxTime = time;
+            maxValue = value;
+            max = sample;
+        }
+    }
+
+    /**
+     * Adds the samples summarized by another rollup.
+     */
+    public void merge(Rollup rollup) {
+        if (rollup.count == 0) {
+            return;
+        }
+        if (count == 0 || rollup.firstTime < firstTime) {
+            firstTime = rollup.firstTime;
+            first = rollup.first;
+        }
+        if (count == 0 || rollup.lastTime >= lastTime) {
+            lastTime = rollup.lastTime;
+            last = rollup.last;
+        }
+        count += rollup.count;
+        valueCount += rollup.valueCount;
+        sum += rollup.sum;
+        if (rollup.min != null && (min == null || rollup.minValue < minValue || (rollup.minValue == minValue && rollup.minTime < minTime))) {
+            minTime = rollup.minTime;
+            minValue = rollup.minValue;
+            min = rollup.min;
+        }
+        if (rollup.max != null && (max == null || rollup.maxValue > maxValue || (rollup.maxValue == maxValue && rollup.maxTime < maxTime))) {
+            maxTime = rollup.maxTime;
+            maxValue = rollup.maxValue;
+            max = rollup.max;
+        }
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getValueCount() {
+        return valueCount;
+    }
+
+    public double getSum() {
+        return sum;
+    }
+
+    /**
+     * Returns the mean of the numeric values, NaN if there are none.
+     */
+    public double getMean() {
+        return valueCount == 0 ? Double.NaN : sum / valueCount;
+    }
+
+    /**
+     * Returns the minimum numeric value, NaN if there are none.
+     */
+    public double getMin() {
+        return min == null ? Double.NaN : minValue;
+    }
+
+    /**
+     * Returns the maximum numeric value, NaN if there are none.
+     */
+    public double getMax() {
+        return max == null ? Double.NaN : maxValue;
+    }
+
+    public long getMinTime() {
+        return minTime;
+    }
+
+    public long getMaxTime() {
+        return maxTime;
+    }
+
+    /**
+     * Returns the first, minimum, maximum and last samples keyed by their timestamp;
+     * fewer than four if some of them are the same sample.
+     */
+    public SortedMap<Long, Map<String, String>> getSamples() {
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        addSamplesTo(samples);
+        return samples;
+    }
+
+    void addSamplesTo(Map<Long, Map<String, String>> samples) {
+        if (count == 0) {
+            return;
+        }
+        samples.put(firstTime, first);
+        if (min != null) {
+            samples.put(minTime, min);
+            samples.put(maxTime, max);
+        }
+        samples.put(lastTime, last);
+    }
+}
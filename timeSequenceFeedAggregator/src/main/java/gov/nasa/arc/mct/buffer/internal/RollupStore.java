@@ -0,0 +1,208 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rollup tiers of a partition kept in memory. Each tier has a resolution and holds, per
+ * feed, one {@link Rollup} for every interval of that length which received samples;
+ * intervals are aligned to multiples of the resolution, so the intervals of a coarser
+ * tier whose resolution is a multiple of a finer one are unions of the finer intervals.
+ * Samples are added to every tier as they are put into the partition. A sample put
+ * twice with the same timestamp is counted twice. Thread safe.
+ */
+public final class RollupStore {
+    private final long[] resolutions;
+    /** Per tier, the rollups of each feed keyed by interval start. */
+    private final List<Map<String, NavigableMap<Long, Rollup>>> tiers;
+
+    /**
+     * Creates an empty store.
+     * @param resolutions lengths of the tier intervals, any order, ignoring values that are not positive
+     * @param unit the unit of the resolutions
+     */
+    public RollupStore(long[] resolutions, TimeUnit unit) {
+        this.resolutions = toNanos(resolutions, unit);
+        this.tiers = new ArrayList<Map<String, NavigableMap<Long, Rollup>>>(this.resolutions.length);
+        for (int i = 0; i < this.resolutions.length; i++) {
+            tiers.add(new HashMap<String, NavigableMap<Long, Rollup>>());
+        }
+    }
+
+    /**
+     * Returns the resolutions of the tiers in nanoseconds, finest first.
+     */
+    public long[] getResolutions() {
+        return resolutions.clone();
+    }
+
+    /**
+     * Returns true if the store has no tiers, in which case adding samples does nothing.
+     */
+    public boolean hasNoTiers() {
+        return resolutions.length == 0;
+    }
+
+    /**
+     * Adds samples of a feed to every tier.
+     * @param feedID the feed
+     * @param samples samples keyed by their timestamp in nanoseconds
+     */
+    public synchronized void add(String feedID, Map<Long, Map<String, String>> samples) {
+        for (Entry<Long, Map<String, String>> entry : samples.entrySet()) {
+            add(feedID, entry.getKey().longValue(), entry.getValue());
+        }
+    }
+
+    /**
+     * Adds a sample of a feed to every tier.
+     * @param feedID the feed
+     * @param time timestamp of the sample in nanoseconds
+     * @param sample the sample
+     */
+    public synchronized void add(String feedID, long time, Map<String, String> sample) {
+        if (resolutions.length == 0) {
+            return;
+        }
+        double value = SampleDecimator.getValue(sample);
+        for (int tier = 0; tier < resolutions.length; tier++) {
+            Map<String, NavigableMap<Long, Rollup>> feeds = tiers.get(tier);
+            NavigableMap<Long, Rollup> rollups = feeds.get(feedID);
+            if (rollups == null) {
+                rollups = new TreeMap<Long, Rollup>();
+                feeds.put(feedID, rollups);
+            }
+            Long intervalStart = Long.valueOf(getIntervalStart(time, resolutions[tier]));
+            Rollup rollup = rollups.get(intervalStart);
+            if (rollup == null) {
+                rollup = new Rollup();
+                rollups.put(intervalStart, rollup);
+            }
+            rollup.add(time, value, sample);
+        }
+    }
+
+    /**
+     * Returns copies of the rollups of a feed whose intervals start within a range.
+     * @param feedID the feed
+     * @param tier index of the tier
+     * @param startTime start of the range in nanoseconds, inclusive
+     * @param endTime end of the range in nanoseconds, inclusive
+     * @return the rollups keyed by interval start, empty if there are none
+     */
+    public synchronized SortedMap<Long, Rollup> get(String feedID, int tier, long startTime, long endTime) {
+        SortedMap<Long, Rollup> copies = new TreeMap<Long, Rollup>();
+        NavigableMap<Long, Rollup> rollups = tiers.get(tier).get(feedID);
+        if (rollups == null || startTime > endTime) {
+            return copies;
+        }
+        for (Entry<Long, Rollup> entry : rollups.subMap(startTime, true, endTime, true).entrySet()) {
+            copies.put(entry.getKey(), new Rollup(entry.getValue()));
+        }
+        return copies;
+    }
+
+    /**
+     * Removes and returns all rollups, for writing them elsewhere.
+     * @return per tier, the rollups of each feed keyed by interval start
+     */
+    public synchronized List<Map<String, NavigableMap<Long, Rollup>>> drain() {
+        List<Map<String, NavigableMap<Long, Rollup>>> drained = new ArrayList<Map<String, NavigableMap<Long, Rollup>>>(tiers);
+        for (int i = 0; i < tiers.size(); i++) {
+            tiers.set(i, new HashMap<String, NavigableMap<Long, Rollup>>());
+        }
+        return drained;
+    }
+
+    /**
+     * Returns true if the store holds no rollups.
+     */
+    public synchronized boolean isEmpty() {
+        for (Map<String, NavigableMap<Long, Rollup>> feeds : tiers) {
+            if (!feeds.isEmpty()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Removes all rollups.
+     */
+    public synchronized void clear() {
+        for (Map<String, NavigableMap<Long, Rollup>> feeds : tiers) {
+            feeds.clear();
+        }
+    }
+
+    /**
+     * Returns the start of the interval of the given resolution containing a time.
+     */
+    public static long getIntervalStart(long time, long resolution) {
+        long offset = time % resolution;
+        if (offset < 0) {
+            offset += resolution;
+        }
+        return time - offset;
+    }
+
+    /**
+     * Chooses the tier to answer a query whose result has buckets of the given width:
+     * the coarsest tier whose intervals are no wider than a bucket, as each interval
+     * then contributes at most the samples a bucket keeps.
+     * @param resolutions resolutions of the tiers, finest first
+     * @param bucketWidth width of a bucket, in the unit of the resolutions
+     * @return the index of the tier, or -1 if every tier is too coarse
+     */
+    public static int chooseTier(long[] resolutions, long bucketWidth) {
+        int tier = -1;
+        for (int i = 0; i < resolutions.length; i++) {
+            if (resolutions[i] <= bucketWidth) {
+                tier = i;
+            }
+        }
+        return tier;
+    }
+
+    private static long[] toNanos(long[] resolutions, TimeUnit unit) {
+        long[] nanos = new long[resolutions.length];
+        int count = 0;
+        for (long resolution : resolutions) {
+            if (resolution > 0) {
+                nanos[count++] = unit.toNanos(resolution);
+            }
+        }
+        nanos = Arrays.copyOf(nanos, count);
+        Arrays.sort(nanos);
+        return nanos;
+    }
+}
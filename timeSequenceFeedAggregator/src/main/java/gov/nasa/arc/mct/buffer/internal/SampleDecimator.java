@@ -0,0 +1,163 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Reduces the samples of one feed to what a plot of the given number of buckets (pixels)
+ * can show: the time range is split into equal buckets and only the first, minimum,
+ * maximum and last sample of each bucket are kept. Samples whose value is not a number
+ * are only candidates for the first and last sample.
+ * <p>
+ * Decimating an already decimated set of samples with the same range and bucket count
+ * does not change it, so partial results, e.g. from several partitions, can be merged by
+ * adding them to another decimator. Samples may be added in any order. Not thread safe.
+ */
+public final class SampleDecimator {
+    private final long startTime;
+    private final long endTime;
+    private final long bucketWidth;
+    private final Rollup[] buckets;
+
+    /**
+     * Creates a decimator.
+     * @param startTime start of the range, inclusive
+     * @param endTime end of the range, inclusive
+     * @param bucketCount number of buckets the range is split into
+     * @throws IllegalArgumentException if bucketCount is not positive
+     */
+    public SampleDecimator(long startTime, long endTime, int bucketCount) {
+        if (bucketCount <= 0) {
+            throw new IllegalArgumentException("bucketCount must be positive: " + bucketCount);
+        }
+        this.startTime = startTime;
+        this.endTime = endTime;
+        long span = endTime - startTime;
+        if (span < 0) {
+            span = endTime < startTime ? 0 : Long.MAX_VALUE;
+        }
+        this.bucketWidth = span / bucketCount + 1;
+        this.buckets = new Rollup[bucketCount];
+    }
+
+    public long getStartTime() {
+        return startTime;
+    }
+
+    public long getEndTime() {
+        return endTime;
+    }
+
+    /**
+     * Returns the length of a bucket; the last bucket may be shorter.
+     */
+    public long getBucketWidth() {
+        return bucketWidth;
+    }
+
+    /**
+     * Returns the bucket of a time.
+     * @param time a time in the range
+     * @return the index of the bucket, or -1 if the time is out of the range
+     */
+    public int getBucket(long time) {
+        if (time < startTime || time > endTime) {
+            return -1;
+        }
+        long offset = time - startTime;
+        if (offset < 0) {
+            // the range spans more than Long.MAX_VALUE
+            return buckets.length - 1;
+        }
+        return (int) Math.min(offset / bucketWidth, buckets.length - 1);
+    }
+
+    /**
+     * Adds a sample; samples out of the range are ignored.
+     * @param time timestamp of the sample
+     * @param sample the sample
+     */
+    public void add(long time, Map<String, String> sample) {
+        add(time, getValue(sample), sample);
+    }
+
+    /**
+     * Adds a sample whose value is already known; samples out of the range are ignored.
+     * @param time timestamp of the sample
+     * @param value value of the sample, NaN if it is not a number
+     * @param sample the sample
+     */
+    public void add(long time, double value, Map<String, String> sample) {
+        int bucket = getBucket(time);
+        if (bucket < 0) {
+            return;
+        }
+        if (buckets[bucket] == null) {
+            buckets[bucket] = new Rollup();
+        }
+        buckets[bucket].add(time, value, sample);
+    }
+
+    /**
+     * Adds samples keyed by their timestamp.
+     */
+    public void addAll(Map<Long, Map<String, String>> samples) {
+        for (Entry<Long, Map<String, String>> entry : samples.entrySet()) {
+            add(entry.getKey().longValue(), entry.getValue());
+        }
+    }
+
+    /**
+     * Returns the samples kept, keyed by their timestamp.
+     */
+    public SortedMap<Long, Map<String, String>> getData() {
+        SortedMap<Long, Map<String, String>> data = new TreeMap<Long, Map<String, String>>();
+        for (Rollup bucket : buckets) {
+            if (bucket != null) {
+                bucket.addSamplesTo(data);
+            }
+        }
+        return data;
+    }
+
+    /**
+     * Returns the numeric value of a sample.
+     * @return the value, or NaN if the sample has no numeric value
+     */
+    public static double getValue(Map<String, String> sample) {
+        String value = sample.get(FeedProvider.NORMALIZED_VALUE_KEY);
+        if (value == null) {
+            return Double.NaN;
+        }
+        try {
+            return Double.parseDouble(value);
+        } catch (NumberFormatException e) {
+            return Double.NaN;
+        }
+    }
+}
@@ -0,0 +1,689 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.memory.internal;
+
+import gov.nasa.arc.mct.api.feed.FeedSample;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
+import gov.nasa.arc.mct.buffer.util.SampleValues;
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+
+/**
+ * Samples of a single feed kept in parallel, growable primitive arrays ordered by
+ * timestamp. Each key of the sample map becomes a column; integral and floating point
+ * values are stored as <code>long</code> and <code>double</code>, everything else
+ * (status, validity, ...) as an int code in the partition's {@link StringDictionary}.
+ * Only the colors, status and flags of the rendering info are coded; its value text is
+ * taken from the value column when it matches the value of the sample.
+ * Reads always return the original text: a double column keeps the text of values
+ * formatted other than by <code>Double.toString</code>, such as "1.50", beside their
+ * double, and a long column becomes a double column when a value is not integral.
+ * A long or rendering info column which meets a value that it cannot represent
+ * otherwise falls back to dictionary codes.
+ * A sample with an integral time and a numeric value is read as a {@link FeedSample},
+ * which keeps them and its rendering info in primitive form rather than as text.
+ * <p>
+ * Not thread safe; {@link PartitionColumnarMemoryBuffer} guards access.
+ */
+final class ColumnarFeedData {
+    private static final int INITIAL_CAPACITY = 16;
+    /** The presence of a column in a row is tracked by one bit in a long. */
+    static final int MAX_COLUMNS = Long.SIZE;
+    /** Separator of the fields of a rendering info, see <code>FeedProvider.RenderingInfo</code>. */
+    private static final char RENDERING_INFO_SEPARATOR = '&';
+    /** Number of rendering info fields preceding the value text. */
+    private static final int RENDERING_INFO_PREFIX_FIELDS = 5;
+    /** Longs of at most this magnitude are exactly represented by a double. */
+    private static final long MAX_EXACT_LONG = 1L << 53;
+
+    private final StringDictionary dictionary;
+    private final List<Column> columns = new ArrayList<Column>();
+    private final Map<String, Integer> columnIndexes = new HashMap<String, Integer>();
+    private int timeColumnIndex = -1;
+    private int valueColumnIndex = -1;
+    private int renderingInfoColumnIndex = -1;
+    private long[] timestamps = new long[INITIAL_CAPACITY];
+    private long[] presence = new long[INITIAL_CAPACITY];
+    private int size;
+
+    ColumnarFeedData(StringDictionary dictionary) {
+        this.dictionary = dictionary;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Adds a sample, replacing any sample that has exactly the same timestamp.
+     * @param time timestamp in nanoseconds
+     * @param value the sample
+     */
+    void put(long time, Map<String, String> value) {
+        int row;
+        if (size == 0 || time > timestamps[size - 1]) {
+            row = size;
+            ensureCapacity(size + 1);
+            size++;
+        } else {
+            row = lowerBound(time);
+            if (timestamps[row] != time) {
+                ensureCapacity(size + 1);
+                System.arraycopy(timestamps, row, timestamps, row + 1, size - row);
+                System.arraycopy(presence, row, presence, row + 1, size - row);
+                for (Column column : columns) {
+                    column.insertGap(row, size);
+                }
+                size++;
+            }
+        }
+        timestamps[row] = time;
+        presence[row] = 0;
+
+        long mask = 0;
+        for (Entry<String, String> entry : value.entrySet()) {
+            int columnIndex = columnIndex(entry.getKey(), entry.getValue());
+            Column column = columns.get(columnIndex);
+            if (!column.set(row, entry.getValue(), value)) {
+                if (column instanceof LongColumn && SampleValues.isDouble(entry.getValue())) {
+                    column = new DoubleColumn(column, timestamps.length, size, presence, columnIndex);
+                } else {
+                    column = new CodedColumn(column, dictionary, timestamps.length, size, presence, columnIndex);
+                }
+                columns.set(columnIndex, column);
+                column.set(row, entry.getValue());
+            }
+            mask |= 1L << columnIndex;
+        }
+        presence[row] = mask;
+    }
+
+    long getFirstTimestamp() {
+        return timestamps[0];
+    }
+
+    long getLastTimestamp() {
+        return timestamps[size - 1];
+    }
+
+    /**
+     * Returns the index of the first sample with a timestamp >= time, or size if there is none.
+     */
+    int lowerBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] < time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    /**
+     * Returns the index of the first sample with a timestamp > time, or size if there is none.
+     */
+    int upperBound(long time) {
+        int low = 0;
+        int high = size;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (timestamps[mid] <= time) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    long getTimestamp(int row) {
+        return timestamps[row];
+    }
+
+    /**
+     * Rebuilds the sample stored in the given row, as a {@link FeedSample} if it has an integral
+     * time and a numeric value.
+     */
+    Map<String, String> getSample(int row) {
+        long mask = presence[row];
+        FeedSample feedSample = getFeedSample(row, mask);
+        if (feedSample != null) {
+            return feedSample;
+        }
+        Map<String, String> sample = new HashMap<String, String>(Math.max(4, Long.bitCount(mask) * 4 / 3 + 1));
+        while (mask != 0) {
+            int columnIndex = Long.numberOfTrailingZeros(mask);
+            Column column = columns.get(columnIndex);
+            sample.put(column.name, column.get(row));
+            mask &= mask - 1;
+        }
+        return sample;
+    }
+
+    private FeedSample getFeedSample(int row, long mask) {
+        if (!isPresent(timeColumnIndex, mask) || !isPresent(valueColumnIndex, mask)) {
+            return null;
+        }
+        Column timeColumn = columns.get(timeColumnIndex);
+        Column valueColumn = columns.get(valueColumnIndex);
+        if (!(timeColumn instanceof LongColumn)) {
+            return null;
+        }
+        double value;
+        boolean integral;
+        String valueText;
+        if (valueColumn instanceof LongColumn) {
+            long longValue = LongColumn.class.cast(valueColumn).getLong(row);
+            value = longValue;
+            integral = true;
+            valueText = Math.abs(longValue) <= MAX_EXACT_LONG ? null : Long.toString(longValue);
+        } else if (valueColumn instanceof DoubleColumn) {
+            DoubleColumn doubleColumn = DoubleColumn.class.cast(valueColumn);
+            value = doubleColumn.getDouble(row);
+            integral = doubleColumn.isLongForm(row);
+            valueText = doubleColumn.getText(row);
+        } else {
+            return null;
+        }
+        mask &= ~(1L << timeColumnIndex) & ~(1L << valueColumnIndex);
+
+        String renderingInfoPrefix = null;
+        String renderingValueText = null;
+        if (isPresent(renderingInfoColumnIndex, mask) && columns.get(renderingInfoColumnIndex) instanceof RenderingInfoColumn) {
+            RenderingInfoColumn renderingInfoColumn = (RenderingInfoColumn) columns.get(renderingInfoColumnIndex);
+            renderingInfoPrefix = renderingInfoColumn.getPrefix(row);
+            renderingValueText = renderingInfoColumn.getValueText(row);
+            mask &= ~(1L << renderingInfoColumnIndex);
+        }
+
+        Map<String, String> otherEntries = new HashMap<String, String>(Math.max(4, Long.bitCount(mask) * 4 / 3 + 1));
+        while (mask != 0) {
+            int columnIndex = Long.numberOfTrailingZeros(mask);
+            Column column = columns.get(columnIndex);
+            otherEntries.put(column.name, column.get(row));
+            mask &= mask - 1;
+        }
+        return new FeedSample(LongColumn.class.cast(timeColumn).getLong(row), value, integral, valueText, 
+                        renderingInfoPrefix, renderingValueText, otherEntries);
+    }
+
+    private static boolean isPresent(int columnIndex, long mask) {
+        return columnIndex >= 0 && (mask & (1L << columnIndex)) != 0;
+    }
+
+    /**
+     * Returns the first maxSamples samples with startTime <= timestamp <= endTime.
+     */
+    SortedMap<Long, Map<String, String>> getData(long startTime, long endTime, int maxSamples) {
+        SortedMap<Long, Map<String, String>> data = new TreeMap<Long, Map<String, String>>();
+        int start = lowerBound(startTime);
+        int end = upperBound(endTime);
+        if (end - start > maxSamples) {
+            end = start + maxSamples;
+        }
+        for (int row = start; row < end; row++) {
+            data.put(timestamps[row], getSample(row));
+        }
+        return data;
+    }
+
+    /**
+     * Returns the samples the decimator keeps out of those in its range. Only the rows
+     * which may be kept are rebuilt as maps.
+     */
+    SortedMap<Long, Map<String, String>> getDecimatedData(SampleDecimator decimator) {
+        int start = lowerBound(decimator.getStartTime());
+        int end = upperBound(decimator.getEndTime());
+        Integer valueColumnIndex = columnIndexes.get(FeedProvider.NORMALIZED_VALUE_KEY);
+        Column valueColumn = valueColumnIndex == null ? null : columns.get(valueColumnIndex.intValue());
+        long valueBit = valueColumnIndex == null ? 0 : 1L << valueColumnIndex.intValue();
+
+        int bucket = -1;
+        int first = -1, min = -1, max = -1, last = -1;
+        double minValue = Double.NaN, maxValue = Double.NaN;
+        for (int row = start; row < end; row++) {
+            int rowBucket = decimator.getBucket(timestamps[row]);
+            if (rowBucket != bucket) {
+                addRows(decimator, first, min, max, last);
+                bucket = rowBucket;
+                first = row;
+                min = max = -1;
+            }
+            last = row;
+            if ((presence[row] & valueBit) == 0) {
+                continue;
+            }
+            double value = valueColumn.getDouble(row);
+            if (Double.isNaN(value)) {
+                continue;
+            }
+            if (min < 0 || value < minValue) {
+                min = row;
+                minValue = value;
+            }
+            if (max < 0 || value > maxValue) {
+                max = row;
+                maxValue = value;
+            }
+        }
+        addRows(decimator, first, min, max, last);
+        return decimator.getData();
+    }
+
+    private void addRows(SampleDecimator decimator, int first, int min, int max, int last) {
+        if (first < 0) {
+            return;
+        }
+        decimator.add(timestamps[first], getSample(first));
+        if (min >= 0) {
+            decimator.add(timestamps[min], getSample(min));
+            decimator.add(timestamps[max], getSample(max));
+        }
+        decimator.add(timestamps[last], getSample(last));
+    }
+
+    /**
+     * Returns the index of the last sample with startTime <= timestamp <= endTime, or -1.
+     */
+    int lastRowWithin(long startTime, long endTime) {
+        int row = upperBound(endTime) - 1;
+        if (row < 0 || timestamps[row] < startTime) {
+            return -1;
+        }
+        return row;
+    }
+
+    private int columnIndex(String key, String firstValue) {
+        Integer index = columnIndexes.get(key);
+        if (index == null) {
+            if (columns.size() == MAX_COLUMNS) {
+                throw new IllegalArgumentException("A feed sample cannot have more than " + MAX_COLUMNS + " keys");
+            }
+            index = Integer.valueOf(columns.size());
+            columns.add(newColumn(key, firstValue));
+            columnIndexes.put(key, index);
+            if (FeedProvider.NORMALIZED_TIME_KEY.equals(key)) {
+                timeColumnIndex = index.intValue();
+            } else if (FeedProvider.NORMALIZED_VALUE_KEY.equals(key)) {
+                valueColumnIndex = index.intValue();
+            } else if (FeedProvider.NORMALIZED_RENDERING_INFO.equals(key)) {
+                renderingInfoColumnIndex = index.intValue();
+            }
+        }
+        return index.intValue();
+    }
+
+    private Column newColumn(String key, String firstValue) {
+        if (FeedProvider.NORMALIZED_RENDERING_INFO.equals(key)) {
+            return new RenderingInfoColumn(key, timestamps.length);
+        } else if (SampleValues.isExactLong(firstValue)) {
+            return new LongColumn(key, timestamps.length);
+        } else if (SampleValues.isDouble(firstValue)) {
+            return new DoubleColumn(key, timestamps.length);
+        }
+        return new CodedColumn(key, dictionary, timestamps.length);
+    }
+
+    private void ensureCapacity(int capacity) {
+        if (capacity > timestamps.length) {
+            int newCapacity = Math.max(capacity, timestamps.length + (timestamps.length >> 1));
+            timestamps = Arrays.copyOf(timestamps, newCapacity);
+            presence = Arrays.copyOf(presence, newCapacity);
+            for (Column column : columns) {
+                column.setCapacity(newCapacity);
+            }
+        }
+    }
+
+    private static abstract class Column {
+        final String name;
+
+        Column(String name) {
+            this.name = name;
+        }
+
+        /**
+         * Stores the value in the row.
+         * @return false if this column cannot represent the value exactly
+         */
+        abstract boolean set(int row, String value);
+
+        /**
+         * Stores the value of a sample in the row.
+         * @param sample the whole sample the value belongs to
+         * @return false if this column cannot represent the value exactly
+         */
+        boolean set(int row, String value, Map<String, String> sample) {
+            return set(row, value);
+        }
+
+        abstract String get(int row);
+
+        /** Returns the value of the row as a number, NaN if it is not one. */
+        double getDouble(int row) {
+            try {
+                return Double.parseDouble(get(row));
+            } catch (NumberFormatException e) {
+                return Double.NaN;
+            }
+        }
+
+        abstract void setCapacity(int capacity);
+
+        /** Shifts rows [row, size) up by one. */
+        abstract void insertGap(int row, int size);
+    }
+
+    private static final class LongColumn extends Column {
+        private long[] values;
+
+        LongColumn(String name, int capacity) {
+            super(name);
+            values = new long[capacity];
+        }
+
+        @Override
+        boolean set(int row, String value) {
+            if (!SampleValues.isExactLong(value)) {
+                return false;
+            }
+            values[row] = Long.parseLong(value);
+            return true;
+        }
+
+        @Override
+        String get(int row) {
+            return Long.toString(values[row]);
+        }
+
+        long getLong(int row) {
+            return values[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+        }
+
+        @Override
+        void insertGap(int row, int size) {
+            System.arraycopy(values, row, values, row + 1, size - row);
+        }
+    }
+
+    /**
+     * Floating point values. A value whose text is not what <code>Double.toString</code> gives for it
+     * keeps that text in a side array allocated when first needed, and an integral value written in 
+     * long form, as in a column converted from a {@link LongColumn}, is marked to be written that way. 
+     * A value which is not a number at all is kept as text, with a NaN value.
+     */
+    private static final class DoubleColumn extends Column {
+        private double[] values;
+        /** Texts of the values not reproduced from their double, allocated when first needed. */
+        private String[] texts;
+        /** Rows whose value is written in long form, allocated when first needed. */
+        private boolean[] longForms;
+
+        DoubleColumn(String name, int capacity) {
+            super(name);
+            values = new double[capacity];
+        }
+
+        /**
+         * Converts a long column which met a value that is not integral.
+         */
+        DoubleColumn(Column column, int capacity, int size, long[] presence, int columnIndex) {
+            this(column.name, capacity);
+            long bit = 1L << columnIndex;
+            for (int row = 0; row < size; row++) {
+                if ((presence[row] & bit) != 0) {
+                    set(row, column.get(row));
+                }
+            }
+        }
+
+        @Override
+        boolean set(int row, String value) {
+            double d;
+            try {
+                d = Double.parseDouble(value);
+            } catch (NumberFormatException e) {
+                d = Double.NaN;
+            }
+            values[row] = d;
+            String text = null;
+            boolean longForm = false;
+            if (!Double.toString(d).equals(value)) {
+                if (Long.toString((long) d).equals(value)) {
+                    longForm = true;
+                } else {
+                    text = value;
+                }
+            }
+            if (text != null && texts == null) {
+                texts = new String[values.length];
+            }
+            if (texts != null) {
+                texts[row] = text;
+            }
+            if (longForm && longForms == null) {
+                longForms = new boolean[values.length];
+            }
+            if (longForms != null) {
+                longForms[row] = longForm;
+            }
+            return true;
+        }
+
+        @Override
+        String get(int row) {
+            if (texts != null && texts[row] != null) {
+                return texts[row];
+            }
+            if (isLongForm(row)) {
+                return Long.toString((long) values[row]);
+            }
+            return Double.toString(values[row]);
+        }
+
+        /** Returns the text of the value if it is not reproduced from its double, otherwise null. */
+        String getText(int row) {
+            return texts == null ? null : texts[row];
+        }
+
+        boolean isLongForm(int row) {
+            return longForms != null && longForms[row];
+        }
+
+        @Override
+        double getDouble(int row) {
+            return values[row];
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            values = Arrays.copyOf(values, capacity);
+            if (texts != null) {
+                texts = Arrays.copyOf(texts, capacity);
+            }
+            if (longForms != null) {
+                longForms = Arrays.copyOf(longForms, capacity);
+            }
+        }
+
+        @Override
+        void insertGap(int row, int size) {
+            System.arraycopy(values, row, values, row + 1, size - row);
+            if (texts != null) {
+                System.arraycopy(texts, row, texts, row + 1, size - row);
+            }
+            if (longForms != null) {
+                System.arraycopy(longForms, row, longForms, row + 1, size - row);
+            }
+        }
+    }
+
+    /**
+     * Rendering info, stored as the code of the fields preceding its value text, which
+     * repeat from sample to sample, and the value text. The value text is only kept
+     * when it differs from the value of the sample.
+     */
+    private final class RenderingInfoColumn extends Column {
+        private int[] prefixCodes;
+        /** Value texts differing from the value of their sample, allocated when first needed. */
+        private String[] valueTexts;
+
+        RenderingInfoColumn(String name, int capacity) {
+            super(name);
+            prefixCodes = new int[capacity];
+        }
+
+        @Override
+        boolean set(int row, String value) {
+            return set(row, value, Collections.<String, String>emptyMap());
+        }
+
+        @Override
+        boolean set(int row, String value, Map<String, String> sample) {
+            int prefixEnd = -1;
+            for (int i = 0; i < RENDERING_INFO_PREFIX_FIELDS; i++) {
+                prefixEnd = value.indexOf(RENDERING_INFO_SEPARATOR, prefixEnd + 1);
+                if (prefixEnd < 0) {
+                    return false;
+                }
+            }
+            prefixEnd++;
+            prefixCodes[row] = dictionary.encode(value.substring(0, prefixEnd));
+            String sampleValue = sample.get(FeedProvider.NORMALIZED_VALUE_KEY);
+            if (sampleValue != null && value.length() - prefixEnd == sampleValue.length() 
+                            && value.startsWith(sampleValue, prefixEnd)) {
+                if (valueTexts != null) {
+                    valueTexts[row] = null;
+                }
+            } else {
+                if (valueTexts == null) {
+                    valueTexts = new String[prefixCodes.length];
+                }
+                valueTexts[row] = value.substring(prefixEnd);
+            }
+            return true;
+        }
+
+        @Override
+        String get(int row) {
+            String valueText = getValueText(row);
+            if (valueText == null) {
+                // the value column holds the value text
+                valueText = columns.get(valueColumnIndex).get(row);
+            }
+            return getPrefix(row).concat(valueText);
+        }
+
+        String getPrefix(int row) {
+            return dictionary.decode(prefixCodes[row]);
+        }
+
+        /** Returns the value text if it differs from the value of the sample, otherwise null. */
+        String getValueText(int row) {
+            return valueTexts == null ? null : valueTexts[row];
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            prefixCodes = Arrays.copyOf(prefixCodes, capacity);
+            if (valueTexts != null) {
+                valueTexts = Arrays.copyOf(valueTexts, capacity);
+            }
+        }
+
+        @Override
+        void insertGap(int row, int size) {
+            System.arraycopy(prefixCodes, row, prefixCodes, row + 1, size - row);
+            if (valueTexts != null) {
+                System.arraycopy(valueTexts, row, valueTexts, row + 1, size - row);
+            }
+        }
+    }
+
+    private static final class CodedColumn extends Column {
+        private final StringDictionary dictionary;
+        private int[] codes;
+
+        CodedColumn(String name, StringDictionary dictionary, int capacity) {
+            super(name);
+            this.dictionary = dictionary;
+            codes = new int[capacity];
+        }
+
+        /**
+         * Converts a primitive column which met a value it cannot represent.
+         */
+        CodedColumn(Column column, StringDictionary dictionary, int capacity, int size, long[] presence, int columnIndex) {
+            this(column.name, dictionary, capacity);
+            long bit = 1L << columnIndex;
+            for (int row = 0; row < size; row++) {
+                if ((presence[row] & bit) != 0) {
+                    codes[row] = dictionary.encode(column.get(row));
+                }
+            }
+        }
+
+        @Override
+        boolean set(int row, String value) {
+            codes[row] = dictionary.encode(value);
+            return true;
+        }
+
+        @Override
+        String get(int row) {
+            return dictionary.decode(codes[row]);
+        }
+
+        @Override
+        void setCapacity(int capacity) {
+            codes = Arrays.copyOf(codes, capacity);
+        }
+
+        @Override
+        void insertGap(int row, int size) {
+            System.arraycopy(codes, row, codes, row + 1, size - row);
+        }
+    }
+}
@@ -41,13 +41,17 @@ public class MemoryDataBufferHelper implements DataBufferHelper {
 
     @Override
     public PartitionDataBuffer newPartitionBuffer(int partitionNo) {
-        return new PartitionMemoryBuffer(partitionNo);
+        return newPartitionBuffer(new MemoryBufferEnv(null, partitionNo));
     }
 
     @Override
     public PartitionDataBuffer newPartitionBuffer(DataBufferEnv env) {
         assert env instanceof MemoryBufferEnv;
-        return new PartitionMemoryBuffer((MemoryBufferEnv)env);
+        MemoryBufferEnv memoryEnv = (MemoryBufferEnv)env;
+        if (memoryEnv.isColumnarStore()) {
+            return new PartitionColumnarMemoryBuffer(memoryEnv);
+        }
+        return new PartitionMemoryBuffer(memoryEnv);
     }
     
     @Override
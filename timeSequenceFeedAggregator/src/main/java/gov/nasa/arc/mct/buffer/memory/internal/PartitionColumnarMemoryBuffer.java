@@ -0,0 +1,310 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.memory.internal;
+
+import gov.nasa.arc.mct.buffer.config.DataBufferEnv;
+import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
+import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
+import gov.nasa.arc.mct.buffer.internal.MetaDataBuffer;
+import gov.nasa.arc.mct.buffer.internal.PartitionDataBuffer;
+import gov.nasa.arc.mct.buffer.internal.Rollup;
+import gov.nasa.arc.mct.buffer.internal.RollupStore;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
+import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
+
+import java.lang.ref.SoftReference;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Memory partition which keeps the samples of each feed in primitive, columnar arrays
+ * (see {@link ColumnarFeedData}) instead of a <code>TreeMap</code> of string maps. This
+ * avoids a boxed timestamp, a tree node and a hash map per sample. Selected by setting
+ * <code>memory.buffer.store=columnar</code> in the feed properties.
+ */
+public class PartitionColumnarMemoryBuffer implements PartitionDataBuffer {
+    private static final Logger LOGGER = LoggerFactory.getLogger(PartitionColumnarMemoryBuffer.class);
+    private static final Logger READ_PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.memory.partitionbuffer.read");
+    private static final Logger WRITE_PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.memory.partitionbuffer.write");
+
+    private volatile Map<String, ColumnarFeedData> cachedData = new HashMap<String, ColumnarFeedData>();
+    private volatile SoftReference<Map<String, ColumnarFeedData>> claimableCachedData = null;
+    private final StringDictionary dictionary = new StringDictionary();
+    private final RollupStore rollups;
+
+    private final MemoryBufferEnv env;
+    private volatile boolean active;
+
+    public PartitionColumnarMemoryBuffer(MemoryBufferEnv env) {
+        this.env = env;
+        this.rollups = new RollupStore(env.getRollupResolutions(), TimeUnit.MILLISECONDS);
+        this.active = true;
+    }
+
+    @Override
+    public void removeBuffer() {
+        cachedData = null;
+        rollups.clear();
+        this.env.closeAndRestartEnvironment();
+    }
+
+    @Override
+    public void closeBuffer() {
+        removeBuffer();
+    }
+
+    @Override
+    public DataBufferEnv getBufferEnv() {
+        return this.env;
+    }
+
+    private Map<String, ColumnarFeedData> getCachedData() {
+        Map<String, ColumnarFeedData> returnedCachedData = null;
+        if (cachedData != null) {
+            returnedCachedData = cachedData;
+        } else if (claimableCachedData != null) {
+            returnedCachedData = claimableCachedData.get();
+        }
+        if (returnedCachedData == null) {
+            returnedCachedData = Collections.emptyMap();
+        }
+        return returnedCachedData;
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getLastData(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        Map<String, ColumnarFeedData> cachedData = getCachedData();
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+
+        long start = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        long end = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+
+        for (String feedID : feedIDs) {
+            synchronized (this) {
+                ColumnarFeedData feedCachedData = cachedData.get(feedID);
+                if (feedCachedData == null) {
+                    continue;
+                }
+
+                int row = feedCachedData.lastRowWithin(start, end);
+                if (row >= 0) {
+                    SortedMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String, String>>();
+                    feedData.put(feedCachedData.getTimestamp(row), feedCachedData.getSample(row));
+                    returnedData.put(feedID, feedData);
+                }
+            }
+        }
+
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} feeds from memory: {} from partition " + this.env.getCurrentBufferPartition(), feedIDs.size(), timer.getIntervalInMillis());
+
+        return returnedData;
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int maxSamples) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        Map<String, ColumnarFeedData> cachedData = getCachedData();
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+
+        for (String feedID : feedIDs) {
+            synchronized (this) {
+                ColumnarFeedData feedCachedData = cachedData.get(feedID);
+                if (feedCachedData == null) {
+                    continue;
+                }
+
+                SortedMap<Long, Map<String, String>> feedData = feedCachedData.getData(startTime, endTime, maxSamples);
+                if (!feedData.isEmpty()) {
+                    returnedData.put(feedID, feedData);
+                }
+            }
+        }
+
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} feeds from memory: {} from partition " + this.env.getCurrentBufferPartition(), feedIDs.size(), timer.getIntervalInMillis());
+
+        return returnedData;
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int bucketCount) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        Map<String, ColumnarFeedData> cachedData = getCachedData();
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+
+        for (String feedID : feedIDs) {
+            synchronized (this) {
+                ColumnarFeedData feedCachedData = cachedData.get(feedID);
+                if (feedCachedData == null) {
+                    continue;
+                }
+
+                SortedMap<Long, Map<String, String>> feedData = feedCachedData.getDecimatedData(new SampleDecimator(startTime, endTime, bucketCount));
+                if (!feedData.isEmpty()) {
+                    returnedData.put(feedID, feedData);
+                }
+            }
+        }
+
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} decimated feeds from memory: {} from partition " + this.env.getCurrentBufferPartition(), feedIDs.size(), timer.getIntervalInMillis());
+
+        return returnedData;
+    }
+
+    @Override
+    public long[] getRollupResolutions() {
+        return rollups.getResolutions();
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Rollup>> getRollups(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int tier) {
+        Map<String, SortedMap<Long, Rollup>> returnedRollups = new HashMap<String, SortedMap<Long, Rollup>>();
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        for (String feedID : feedIDs) {
+            SortedMap<Long, Rollup> feedRollups = rollups.get(feedID, tier, startTime, endTime);
+            if (!feedRollups.isEmpty()) {
+                returnedRollups.put(feedID, feedRollups);
+            }
+        }
+        return returnedRollups;
+    }
+
+    @Override
+    public void inactive() {
+        claimableCachedData = new SoftReference<Map<String, ColumnarFeedData>>(cachedData);
+        cachedData = null;
+        this.active = false;
+    }
+
+    @Override
+    public boolean isActive() {
+        return this.active;
+    }
+
+    @Override
+    public boolean isClosed() {
+        return cachedData == null;
+    }
+
+    @Override
+    public Map<String, PartitionTimestamps> putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        Map<String, PartitionTimestamps> timestamps = new HashMap<String, PartitionTimestamps>();
+        Map<String, ColumnarFeedData> cachedData = getCachedData();
+
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            timestamps.put(entry.getKey(), putFeedData(cachedData, entry.getKey(), entry.getValue(), timeUnit));
+        }
+
+        timer.stopInterval();
+        WRITE_PERF_LOGGER.debug("Time to write {} feeds: {} from partition " + this.env.getCurrentBufferPartition(), value.size(), timer.getIntervalInMillis());
+
+        return timestamps;
+    }
+
+    @Override
+    public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, MetaDataBuffer metadata, int metadataIndex) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+
+        Map<String, ColumnarFeedData> cachedData = getCachedData();
+
+        for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+            PartitionTimestamps timestamp = putFeedData(cachedData, entry.getKey(), entry.getValue(), timeUnit);
+            metadata.updatePartitionMetaData(metadataIndex, entry.getKey(), timestamp.getStartTimestamp(), timestamp.getEndTimestamp());
+        }
+
+        timer.stopInterval();
+        if (WRITE_PERF_LOGGER.isDebugEnabled()) {
+            WRITE_PERF_LOGGER.debug("Time to write {} feeds: {} from partition " + this.env.getCurrentBufferPartition(), value.size(), timer.getIntervalInMillis());
+        }
+    }
+
+    private PartitionTimestamps putFeedData(Map<String, ColumnarFeedData> cachedData, String feedID, Map<Long, Map<String, String>> entries, TimeUnit timeUnit) {
+        long largestTime = 0;
+        long smallestTime = 0;
+        synchronized (this) {
+            ColumnarFeedData cachedFeedData = cachedData.get(feedID);
+            if (cachedFeedData == null) {
+                cachedFeedData = new ColumnarFeedData(dictionary);
+                cachedData.put(feedID, cachedFeedData);
+            }
+            for (Entry<Long, Map<String, String>> feedData : entries.entrySet()) {
+                long time = TimeUnit.NANOSECONDS.convert(feedData.getKey().longValue(), timeUnit);
+                LOGGER.debug("Putting data for feed {} with time {}", feedID, time);
+                if (time > largestTime) {
+                    largestTime = time;
+                }
+                if (smallestTime == 0) {
+                    smallestTime = time;
+                } else if (time < smallestTime) {
+                    smallestTime = time;
+                }
+                cachedFeedData.put(time, feedData.getValue());
+                rollups.add(feedID, time, feedData.getValue());
+            }
+        }
+        return new PartitionTimestamps(smallestTime, largestTime);
+    }
+
+    @Override
+    public synchronized void resetBuffer() {
+        cachedData.clear();
+        dictionary.clear();
+        rollups.clear();
+    }
+}
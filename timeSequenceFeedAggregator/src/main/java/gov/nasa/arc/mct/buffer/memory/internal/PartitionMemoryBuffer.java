@@ -26,6 +26,9 @@ import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
 import gov.nasa.arc.mct.buffer.disk.internal.PartitionTimestamps;
 import gov.nasa.arc.mct.buffer.internal.MetaDataBuffer;
 import gov.nasa.arc.mct.buffer.internal.PartitionDataBuffer;
+import gov.nasa.arc.mct.buffer.internal.Rollup;
+import gov.nasa.arc.mct.buffer.internal.RollupStore;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 
 import java.io.Serializable;
@@ -61,6 +64,8 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
     private volatile Map<String, TreeMap<Long, Map<String, String>>> cachedData = new HashMap<String, TreeMap<Long, Map<String, String>>>();
     private volatile SoftReference<Map<String, TreeMap<Long, Map<String, String>>>> claimableCachedData = null;
 
+    private final RollupStore rollups;
+
     private final MemoryBufferEnv env;
     private volatile boolean active;
 
@@ -72,12 +77,14 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
 
     public PartitionMemoryBuffer(MemoryBufferEnv env) {
         this.env = env;
+        this.rollups = new RollupStore(env.getRollupResolutions(), TimeUnit.MILLISECONDS);
         this.active = true;
     }
 
     @Override
     public void removeBuffer() {
         cachedData = null;
+        rollups.clear();
         this.env.closeAndRestartEnvironment();
     }
     
@@ -140,6 +147,12 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
     @Override
     public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
             long endTime) {
+        return getData(feedIDs, timeUnit, startTime, endTime, Integer.MAX_VALUE);
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int maxSamples) {
         final ElapsedTimer timer = new ElapsedTimer();
         timer.startInterval();
         
@@ -160,7 +173,16 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
                 Map<Long, Map<String, String>> feedSearchedData = feedCachedData.subMap(startTime, true, endTime, true);
                 if (feedSearchedData != null && !feedSearchedData.isEmpty()) {
                     SortedMap<Long, Map<String, String>> feedData = new TreeMap<Long, Map<String, String>>();
-                    feedData.putAll(feedSearchedData);
+                    if (feedSearchedData.size() <= maxSamples) {
+                        feedData.putAll(feedSearchedData);
+                    } else {
+                        for (Entry<Long, Map<String, String>> entry : feedSearchedData.entrySet()) {
+                            if (feedData.size() == maxSamples) {
+                                break;
+                            }
+                            feedData.put(entry.getKey(), entry.getValue());
+                        }
+                    }
                     returnedData.put(feedID, feedData);
                 }
             }
@@ -172,6 +194,60 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
         return returnedData;
     }
 
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int bucketCount) {
+        final ElapsedTimer timer = new ElapsedTimer();
+        timer.startInterval();
+        
+        Map<String, TreeMap<Long, Map<String, String>>> cachedData = getCachedData();
+        
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+
+        for (String feedID : feedIDs) {
+            synchronized (this) {
+                TreeMap<Long, Map<String, String>> feedCachedData = cachedData.get(feedID);
+                if (feedCachedData == null) {
+                    continue;
+                }
+
+                Map<Long, Map<String, String>> feedSearchedData = feedCachedData.subMap(startTime, true, endTime, true);
+                if (!feedSearchedData.isEmpty()) {
+                    SampleDecimator decimator = new SampleDecimator(startTime, endTime, bucketCount);
+                    decimator.addAll(feedSearchedData);
+                    returnedData.put(feedID, decimator.getData());
+                }
+            }
+        }
+        
+        timer.stopInterval();
+        READ_PERF_LOGGER.debug("Time to get {} decimated feeds from memory: {} from partition " + this.env.getCurrentBufferPartition(), feedIDs.size(), timer.getIntervalInMillis());
+
+        return returnedData;
+    }
+
+    @Override
+    public long[] getRollupResolutions() {
+        return rollups.getResolutions();
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Rollup>> getRollups(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int tier) {
+        Map<String, SortedMap<Long, Rollup>> returnedRollups = new HashMap<String, SortedMap<Long, Rollup>>();
+        startTime = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        endTime = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        for (String feedID : feedIDs) {
+            SortedMap<Long, Rollup> feedRollups = rollups.get(feedID, tier, startTime, endTime);
+            if (!feedRollups.isEmpty()) {
+                returnedRollups.put(feedID, feedRollups);
+            }
+        }
+        return returnedRollups;
+    }
+
     @Override
     public void inactive() {
         claimableCachedData = new SoftReference<Map<String,TreeMap<Long,Map<String,String>>>>(cachedData);
@@ -221,6 +297,7 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
                     }
                     Map<String, String> clonedFeedData = new HashMap<String, String>(feedData.getValue());
                     cachedFeedData.put(time, clonedFeedData);
+                    rollups.add(feedID, time.longValue(), clonedFeedData);
                 }
             }
             timestamps.put(feedID, new PartitionTimestamps(smallestTime, largestTime));
@@ -264,6 +341,7 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
                     }
                     Map<String, String> clonedFeedData = new HashMap<String, String>(feedData.getValue());
                     cachedFeedData.put(time, clonedFeedData);
+                    rollups.add(feedID, time.longValue(), clonedFeedData);
                 }
             }
             metadata.updatePartitionMetaData(metadataIndex, feedID, smallestTime, largestTime);
@@ -280,5 +358,6 @@ public class PartitionMemoryBuffer implements PartitionDataBuffer {
     @Override
     public void resetBuffer() {
         cachedData.clear();
+        rollups.clear();
     }
 }
@@ -0,0 +1,54 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.util;
+
+import java.util.Arrays;
+import java.util.Properties;
+
+/**
+ * Reads the rollup tier resolutions that the buffer environments are configured with.
+ */
+public final class RollupResolutions {
+
+    private RollupResolutions() {
+    }
+
+    /**
+     * Parses a comma separated list of resolutions in milliseconds. Blank entries are skipped, 
+     * and a missing property yields no tiers.
+     * @param prop the buffer properties
+     * @param key the name of the property holding the list
+     * @return the configured resolutions, in the order given
+     * @throws NumberFormatException if an entry is not a long
+     */
+    public static long[] parse(Properties prop, String key) {
+        String[] entries = prop.getProperty(key, "").split(",");
+        long[] resolutions = new long[entries.length];
+        int count = 0;
+        for (String entry : entries) {
+            if (entry.trim().length() > 0) {
+                resolutions[count++] = Long.parseLong(entry.trim());
+            }
+        }
+        return Arrays.copyOf(resolutions, count);
+    }
+}
@@ -0,0 +1,99 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.util;
+
+/**
+ * Tells whether sample values, which are passed as text, can be stored as primitives
+ * and written back as exactly the same text.
+ */
+public final class SampleValues {
+
+    private SampleValues() {
+    }
+
+    /**
+     * Returns true if the value is the canonical decimal form of a long, that is
+     * <code>Long.toString(Long.parseLong(value)).equals(value)</code>.
+     * @param value the sample value
+     * @return true if the value can be stored as a long
+     */
+    public static boolean isExactLong(String value) {
+        int length = value.length();
+        int start = value.startsWith("-") ? 1 : 0;
+        if (length == start || length - start > 19) {
+            return false;
+        }
+        if (value.charAt(start) == '0' && (length - start > 1 || start == 1)) {
+            return false;
+        }
+        for (int i = start; i < length; i++) {
+            char c = value.charAt(i);
+            if (c < '0' || c > '9') {
+                return false;
+            }
+        }
+        if (length - start == 19) {
+            // may overflow a long
+            try {
+                Long.parseLong(value);
+            } catch (NumberFormatException e) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns true if the value is a number, that is <code>Double.parseDouble(value)</code> 
+     * does not throw. The value may not be reproduced exactly from the double.
+     * @param value the sample value
+     * @return true if the value can be stored as a double along with its text
+     */
+    public static boolean isDouble(String value) {
+        try {
+            Double.parseDouble(value);
+            return true;
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Returns true if <code>Double.toString(Double.parseDouble(value)).equals(value)</code>.
+     * @param value the sample value
+     * @return true if the value can be stored as a double
+     */
+    public static boolean isExactDouble(String value) {
+        if (value.length() == 0) {
+            return false;
+        }
+        char first = value.charAt(0);
+        if ((first < '0' || first > '9') && first != '-' && first != 'N' && first != 'I') {
+            return false;
+        }
+        try {
+            return Double.toString(Double.parseDouble(value)).equals(value);
+        } catch (NumberFormatException e) {
+            return false;
+        }
+    }
+}
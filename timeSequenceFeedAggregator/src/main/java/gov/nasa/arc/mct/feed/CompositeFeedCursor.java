@@ -0,0 +1,120 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FeedCursor} combining the cursors of several data providers, each over its own
+ * feeds. To keep the chunks aligned on time, only the cursors which are not ahead of the
+ * others are read, and samples are held back until every cursor has passed their time.
+ */
+final class CompositeFeedCursor implements FeedCursor {
+    private final List<FeedCursor> cursors;
+    private final Map<String, TreeMap<Long, Map<String, String>>> pendingData = new HashMap<String, TreeMap<Long, Map<String, String>>>();
+    private final long endTime;
+    private long position;
+    private volatile boolean closed;
+
+    /**
+     * @param cursors cursors over disjoint sets of feeds, positioned at startTime
+     * @param startTime start of the range in nanoseconds
+     * @param endTime end of the range in nanoseconds
+     */
+    CompositeFeedCursor(List<FeedCursor> cursors, long startTime, long endTime) {
+        this.cursors = new CopyOnWriteArrayList<FeedCursor>(cursors);
+        this.endTime = endTime;
+        this.position = startTime;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && (!cursors.isEmpty() || !pendingData.isEmpty());
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> next() {
+        if (!hasNext()) {
+            return Collections.emptyMap();
+        }
+        for (FeedCursor cursor : cursors) {
+            if (cursor.hasNext() && cursor.getPosition(TimeUnit.NANOSECONDS) <= position) {
+                for (Entry<String, SortedMap<Long, Map<String, String>>> entry : cursor.next().entrySet()) {
+                    TreeMap<Long, Map<String, String>> feedData = pendingData.get(entry.getKey());
+                    if (feedData == null) {
+                        feedData = new TreeMap<Long, Map<String, String>>();
+                        pendingData.put(entry.getKey(), feedData);
+                    }
+                    feedData.putAll(entry.getValue());
+                }
+            }
+            if (!cursor.hasNext()) {
+                cursors.remove(cursor);
+                cursor.close();
+            }
+        }
+
+        long chunkEnd = endTime == Long.MAX_VALUE ? Long.MAX_VALUE : endTime + 1;
+        for (FeedCursor cursor : cursors) {
+            chunkEnd = Math.min(chunkEnd, cursor.getPosition(TimeUnit.NANOSECONDS));
+        }
+
+        Map<String, SortedMap<Long, Map<String, String>>> chunk = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (Iterator<Entry<String, TreeMap<Long, Map<String, String>>>> it = pendingData.entrySet().iterator(); it.hasNext();) {
+            Entry<String, TreeMap<Long, Map<String, String>>> entry = it.next();
+            SortedMap<Long, Map<String, String>> feedChunk = entry.getValue().headMap(Long.valueOf(chunkEnd));
+            if (!feedChunk.isEmpty()) {
+                chunk.put(entry.getKey(), new TreeMap<Long, Map<String, String>>(feedChunk));
+                feedChunk.clear();
+            }
+            if (entry.getValue().isEmpty()) {
+                it.remove();
+            }
+        }
+        position = chunkEnd;
+        return chunk;
+    }
+
+    @Override
+    public long getPosition(TimeUnit timeUnit) {
+        return timeUnit.convert(position, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        for (FeedCursor cursor : cursors) {
+            cursor.close();
+        }
+    }
+}
@@ -22,18 +22,25 @@
 package gov.nasa.arc.mct.feed;
 
 import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.api.feed.ChangeTrackingFeedAggregator;
 import gov.nasa.arc.mct.api.feed.DataArchive;
 import gov.nasa.arc.mct.api.feed.DataProvider;
 import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+import gov.nasa.arc.mct.api.feed.DecimatingFeedAggregator;
 import gov.nasa.arc.mct.api.feed.FeedAggregator;
+import gov.nasa.arc.mct.api.feed.FeedCursor;
 import gov.nasa.arc.mct.api.feed.FeedDataArchive;
+import gov.nasa.arc.mct.api.feed.LatestValueFeedAggregator;
+import gov.nasa.arc.mct.api.feed.StreamingFeedAggregator;
 import gov.nasa.arc.mct.buffer.internal.DataBuffer;
 import gov.nasa.arc.mct.buffer.internal.DataBufferFactory;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
 import gov.nasa.arc.mct.buffer.util.ElapsedTimer;
 
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Iterator;
@@ -42,21 +49,25 @@ import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
 import java.util.Properties;
+import java.util.Queue;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.Vector;
-import java.util.concurrent.LinkedBlockingQueue;
-import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
 import java.util.concurrent.TimeUnit;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 import org.osgi.service.component.ComponentContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
-public final class FeedAggregatorService implements FeedDataArchive, FeedAggregator {
+public final class FeedAggregatorService implements FeedDataArchive, FeedAggregator, LatestValueFeedAggregator, StreamingFeedAggregator, DecimatingFeedAggregator, ChangeTrackingFeedAggregator {
     private static Logger LOGGER = LoggerFactory.getLogger(FeedAggregatorService.class.getName());
     private static final Logger PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.feedAggregator");
     private static final Logger READ_PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.read.feedAggregator");
@@ -70,13 +81,16 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
                                                       // possibility of
                                                       // accessing from multiple
                                                       // threads.
-    private final Vector<DataArchive> dataArchives;
-    private final ThreadPoolExecutor bufferWorkers;
-    private LinkedBlockingQueue<Runnable> queue = new LinkedBlockingQueue<Runnable>();
-    private DataArchive dormantArchive;
+    /** The archives written to; the ingest lanes remove the archives that fill up while resets iterate. */
+    private final List<DataArchive> dataArchives;
+    private final IngestPipeline ingestPipeline;
+    /** The archives that filled up, which are written to again after the next reset. */
+    private final Queue<DataArchive> dormantArchives = new ConcurrentLinkedQueue<DataArchive>();
+    /** Set while the buffer full warning is shown or queued, so it is shown only once. */
+    private final AtomicBoolean bufferFullAlerted = new AtomicBoolean();
+    private final ConcurrentHashMap<String, AtomicLong> changeCounts = new ConcurrentHashMap<String, AtomicLong>();
     private RunMode currentRunMode;
     private Properties configProp;
-    private final AtomicInteger numOfWriteJobs = new AtomicInteger(0);
     
     private static enum RunMode {
         embedded, server;
@@ -116,12 +130,24 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     public FeedAggregatorService(Properties props) {
         this.configProp = props;
         this.dataProviders = new Vector<DataProvider>();
-        this.dataArchives = new Vector<DataArchive>();
         List<DataBuffer> dataBuffers = getDataBuffers();
-        this.dataArchives.addAll(dataBuffers);
+        this.dataArchives = new CopyOnWriteArrayList<DataArchive>(dataBuffers);
 
-        this.bufferWorkers = new ThreadPoolExecutor(1, 1, 1l, TimeUnit.SECONDS,
-                queue);
+        List<DataArchive> slowArchives = new ArrayList<DataArchive>();
+        for (DataArchive dataArchive : dataBuffers) {
+            if (dataArchive.getLOS() != LOS.fast) {
+                slowArchives.add(dataArchive);
+            }
+        }
+        this.ingestPipeline = new IngestPipeline(slowArchives, props, new IngestPipeline.BufferFullHandler() {
+            @Override
+            public void bufferFull(DataArchive dataArchive, BufferFullException e) {
+                // removed before it is made dormant, so a reset in between cannot put it back twice
+                dataArchives.remove(dataArchive);
+                dormantArchives.add(dataArchive);
+                bufferFullAlert(e.getMessage());
+            }
+        });
         this.dataProviders.addAll(dataBuffers);
         String runMode = configProp.getProperty("runMode");
         this.currentRunMode = Enum.valueOf(RunMode.class, runMode);
@@ -188,20 +214,180 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     @Override
     public Map<String, List<Map<String, String>>> getData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
             long endTime) {
+        Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = getProviderData(feedIDs, timeUnit, startTime, endTime, 0);
+        Map<String, List<Map<String, String>>> returnedData = new HashMap<String, List<Map<String,String>>>();
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry: obtainedValues.entrySet()) {
+            returnedData.put(entry.getKey(), new LinkedList<Map<String,String>>(entry.getValue().values()));
+        }
+        return returnedData;
+    }
+
+    /**
+     * Queries the data providers as {@link #getData(Set, TimeUnit, long, long)} does. Data buffers
+     * decimate the samples in their partitions; the samples of other providers are decimated here.
+     */
+    @Override
+    public Map<String, List<Map<String, String>>> getDecimatedData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int bucketCount) {
+        Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = getProviderData(feedIDs, timeUnit, startTime, endTime, bucketCount);
+        Map<String, List<Map<String, String>>> returnedData = new HashMap<String, List<Map<String,String>>>();
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry: obtainedValues.entrySet()) {
+            returnedData.put(entry.getKey(), new LinkedList<Map<String,String>>(entry.getValue().values()));
+        }
+        return returnedData;
+    }
+
+    private Map<String, SortedMap<Long, Map<String, String>>> getDecimatedData(DataProvider dataRetrieval, Set<String> feedIDs,
+            TimeUnit timeUnit, long startTime, long endTime, int bucketCount) {
+        if (dataRetrieval instanceof DataBuffer) {
+            return DataBuffer.class.cast(dataRetrieval).getDecimatedData(feedIDs, startTime, endTime, timeUnit, bucketCount);
+        }
+        long start = TimeUnit.NANOSECONDS.convert(startTime, timeUnit);
+        long end = TimeUnit.NANOSECONDS.convert(endTime, timeUnit);
+        Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = dataRetrieval.getData(feedIDs, startTime, endTime, timeUnit);
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry : obtainedValues.entrySet()) {
+            SampleDecimator decimator = new SampleDecimator(start, end, bucketCount);
+            decimator.addAll(entry.getValue());
+            SortedMap<Long, Map<String, String>> feedData = decimator.getData();
+            // keep the sample before the start time, which the decimator drops
+            SortedMap<Long, Map<String, String>> precedingData = entry.getValue().headMap(start);
+            if (!precedingData.isEmpty()) {
+                feedData.put(precedingData.lastKey(), precedingData.get(precedingData.lastKey()));
+            }
+            entry.setValue(feedData);
+        }
+        return obtainedValues;
+    }
+
+    /**
+     * Opens a cursor over the same samples as {@link #getData(Set, TimeUnit, long, long)}. Each
+     * feed is read from the first data provider, in order of level of service, which fully
+     * covers the time span. The other feeds are read from the slowest provider, which is
+     * where getData ends up taking them from when it has samples of them.
+     */
+    @Override
+    public FeedCursor openCursor(Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int chunkSize) {
+        Set<String> remainingFeedIDs = new HashSet<String>(feedIDs);
+        List<FeedCursor> cursors = new ArrayList<FeedCursor>();
+        DataProvider slowestProvider = null;
+        for (DataProvider dataRetrieval : dataProviders) {
+            slowestProvider = dataRetrieval;
+            if (remainingFeedIDs.isEmpty()) { continue; }
+            Set<String> coveredFeedIDs = new HashSet<String>();
+            for (String feedID : remainingFeedIDs) {
+                if (dataRetrieval.isFullyWithinTimeSpan(feedID, startTime, timeUnit)) {
+                    coveredFeedIDs.add(feedID);
+                }
+            }
+            if (!coveredFeedIDs.isEmpty()) {
+                remainingFeedIDs.removeAll(coveredFeedIDs);
+                cursors.add(openCursor(dataRetrieval, coveredFeedIDs, timeUnit, startTime, endTime, chunkSize));
+            }
+        }
+        if (!remainingFeedIDs.isEmpty()) {
+            if (slowestProvider instanceof StreamingFeedAggregator) {
+                cursors.add(openCursor(slowestProvider, remainingFeedIDs, timeUnit, startTime, endTime, chunkSize));
+            } else {
+                // a provider which cannot stream may not have all the samples: merge as getData does
+                cursors.add(new MaterializedFeedCursor(getProviderData(remainingFeedIDs, timeUnit, startTime, endTime, 0),
+                                TimeUnit.NANOSECONDS.convert(startTime, timeUnit), TimeUnit.NANOSECONDS.convert(endTime, timeUnit), chunkSize));
+            }
+        }
+        if (cursors.size() == 1) {
+            return cursors.get(0);
+        }
+        return new CompositeFeedCursor(cursors, TimeUnit.NANOSECONDS.convert(startTime, timeUnit), TimeUnit.NANOSECONDS.convert(endTime, timeUnit));
+    }
+
+    private FeedCursor openCursor(DataProvider dataRetrieval, Set<String> feedIDs, TimeUnit timeUnit, long startTime, long endTime, int chunkSize) {
+        if (dataRetrieval instanceof StreamingFeedAggregator) {
+            return StreamingFeedAggregator.class.cast(dataRetrieval).openCursor(feedIDs, timeUnit, startTime, endTime, chunkSize);
+        }
+        return new MaterializedFeedCursor(dataRetrieval.getData(feedIDs, startTime, endTime, timeUnit),
+                        TimeUnit.NANOSECONDS.convert(startTime, timeUnit), TimeUnit.NANOSECONDS.convert(endTime, timeUnit), chunkSize);
+    }
+
+    /**
+     * Returns the latest samples kept by the data providers which cache them, in order of
+     * their level of service. Providers which do not cache the latest samples are not asked.
+     */
+    @Override
+    public Map<String, Map<String, String>> getLatest(Set<String> feedIDs) {
+        Set<String> remainingFeedIDs = new HashSet<String>(feedIDs);
+        Map<String, Map<String, String>> returnedData = new HashMap<String, Map<String, String>>();
+        for (DataProvider dataRetrieval : dataProviders) {
+            if (dataRetrieval instanceof LatestValueFeedAggregator) {
+                Map<String, Map<String, String>> obtainedValues = LatestValueFeedAggregator.class.cast(dataRetrieval).getLatest(remainingFeedIDs);
+                returnedData.putAll(obtainedValues);
+                remainingFeedIDs.removeAll(obtainedValues.keySet());
+                if (remainingFeedIDs.isEmpty()) { break; }
+            }
+        }
+        return returnedData;
+    }
+
+    /**
+     * Returns the number of times data has been put for each feed since the service started.
+     */
+    @Override
+    public Map<String, Long> getChangeCounts(Set<String> feedIDs) {
+        Map<String, Long> counts = new HashMap<String, Long>();
+        for (String feedID : feedIDs) {
+            AtomicLong count = changeCounts.get(feedID);
+            if (count != null) {
+                counts.put(feedID, count.get());
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * Returns every feed if the data provider queried first, which holds the latest samples, is a
+     * data buffer returning the sample preceding a query.
+     */
+    @Override
+    public Set<String> getFeedsHeldForward(Set<String> feedIDs) {
+        DataProvider latestProvider;
+        synchronized (dataProviders) {
+            latestProvider = dataProviders.isEmpty() ? null : dataProviders.get(0);
+        }
+        if (latestProvider instanceof DataBuffer && DataBuffer.class.cast(latestProvider).includesPrecedingSample()) {
+            return new HashSet<String>(feedIDs);
+        }
+        return Collections.emptySet();
+    }
+
+    private void countChange(String feedID) {
+        AtomicLong count = changeCounts.get(feedID);
+        if (count == null) {
+            AtomicLong newCount = new AtomicLong();
+            count = changeCounts.putIfAbsent(feedID, newCount);
+            if (count == null) {
+                count = newCount;
+            }
+        }
+        count.incrementAndGet();
+    }
+
+    /**
+     * Queries the data providers in order of their level of service until every feed is covered,
+     * decimating the samples into bucketCount buckets if it is positive.
+     */
+    private Map<String, SortedMap<Long, Map<String, String>>> getProviderData(Set<String> feedIDs, TimeUnit timeUnit, long startTime,
+            long endTime, int bucketCount) {
         final ElapsedTimer timer = new ElapsedTimer();
         
         feedIDs = new HashSet<String>(feedIDs);
         int feedSize = feedIDs.size();
-        Map<String, List<Map<String, String>>> returnedData = new HashMap<String, List<Map<String,String>>>();
+        Map<String, SortedMap<Long, Map<String, String>>> returnedData = new HashMap<String, SortedMap<Long, Map<String,String>>>();
         for (DataProvider dataRetrieval : dataProviders) {
             timer.startInterval();
 
-            Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = dataRetrieval
-                    .getData(feedIDs, startTime, endTime, timeUnit);
+            Map<String, SortedMap<Long, Map<String, String>>> obtainedValues = bucketCount > 0
+                    ? getDecimatedData(dataRetrieval, feedIDs, timeUnit, startTime, endTime, bucketCount)
+                    : dataRetrieval.getData(feedIDs, startTime, endTime, timeUnit);
             
-            for (Entry<String, SortedMap<Long, Map<String, String>>> entry: obtainedValues.entrySet()) {
-                returnedData.put(entry.getKey(), new LinkedList<Map<String,String>>(entry.getValue().values()));
-            }
+            returnedData.putAll(obtainedValues);
             filterObtainedFeeds(dataRetrieval, feedIDs, obtainedValues, timeUnit, startTime);
             
             timer.stopInterval();
@@ -230,33 +416,32 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
 
     @Override
     public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) {
-        PERF_LOGGER.debug("Queue size {}", queue.size());
         Map<Long, Map<String, String>> entries = new HashMap<Long, Map<String, String>>();
         entries.put(Long.valueOf(time), value);
         putData(feedID, timeUnit, entries);
     }
 
     /**
-     * Asynchronously putting data into the data buffer.
+     * Asynchronously putting data into the data buffer. The memory buffer is written at once,
+     * the other buffers through the {@link IngestPipeline}, which may block or drop the write
+     * when it is full.
      */
     @Override
     public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
-        PERF_LOGGER.debug("Queue size {}", queue.size());
+        PERF_LOGGER.debug("Queue size {}", ingestPipeline.getQueueDepth());
         DataArchive db = this.dataArchives.get(0);
         try {
             db.putData(feedID, timeUnit, entries);
         } catch (BufferFullException e) {
             LOGGER.error("Memory buffer should not be full", e);
         }
-        PutDataTask task = new PutDataTask(feedID, timeUnit, entries);
-        numOfWriteJobs.incrementAndGet();
-        bufferWorkers.execute(task);
+        countChange(feedID);
+        ingestPipeline.submit(feedID, timeUnit, entries);
     }
 
     @Override
-    public void putData(final Map<String, Map<Long, Map<String, String>>> value, final TimeUnit timeUnit,
-            final Runnable callback) {
-        PERF_LOGGER.debug("Queue size {}", queue.size());
+    public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, Runnable callback) {
+        PERF_LOGGER.debug("Queue size {}", ingestPipeline.getQueueDepth());
         if (!value.isEmpty()) {
             DataArchive db = this.dataArchives.get(0);
             try {
@@ -264,47 +449,30 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
             } catch (BufferFullException e) {
                 LOGGER.error("Memory buffer should not be full", e);
             }
-            if (dataArchives.size() == 1) {
-                callback.run();
-            } else {
-                Runnable bulkInsert = new Runnable() {
+            for (String feedID : value.keySet()) {
+                countChange(feedID);
+            }
+            ingestPipeline.submit(value, timeUnit, callback);
+        }
+    }
+    
+    private void bufferFullAlert(final String msg) {
+        if (currentRunMode == RunMode.embedded) {
+            // called from the ingest writers; show a single dialog on the event dispatch thread
+            if (bufferFullAlerted.compareAndSet(false, true)) {
+                SwingUtilities.invokeLater(new Runnable() {
+                    @Override
                     public void run() {
                         try {
-                            for (Iterator<DataArchive> it = dataArchives.iterator(); it.hasNext();) {
-                                DataArchive dataArchive = it.next();
-                                if (dataArchive.getLOS() == LOS.fast) {
-                                    continue;
-                                }
-                                try {
-                                    if (it.hasNext()) {
-                                        dataArchive.putData(value, timeUnit, null);
-                                    } else {
-                                        dataArchive.putData(value, timeUnit, callback);
-                                    }
-                                } catch (BufferFullException e) {
-                                    dormantArchive = dataArchive;
-                                    it.remove();
-                                    bufferFullAlert(e.getMessage());
-                                }
-                            }
+                            JOptionPane.showMessageDialog(null, msg, DIALOG_WINDOW_TITLE, JOptionPane.WARNING_MESSAGE);
                         } finally {
-                            synchronized(numOfWriteJobs) {
-                                if (numOfWriteJobs.decrementAndGet() == 0) {
-                                    numOfWriteJobs.notifyAll();
-                                }
-                            }
+                            bufferFullAlerted.set(false);
                         }
                     }
-                };
-                numOfWriteJobs.incrementAndGet();
-                bufferWorkers.execute(bulkInsert);
+                });
+            } else {
+                LOGGER.error(msg);
             }
-        }
-    }
-    
-    private void bufferFullAlert(String msg) {
-        if (currentRunMode == RunMode.embedded) {
-            JOptionPane.showMessageDialog(null, msg, DIALOG_WINDOW_TITLE, JOptionPane.WARNING_MESSAGE);
         } else {
             LOGGER.error(msg);
         }
@@ -315,10 +483,11 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
         for (DataArchive dataArchive: dataArchives) {
             dataArchive.reset();
         }
-        if (dormantArchive != null) {
+        DataArchive dormantArchive;
+        while ((dormantArchive = dormantArchives.poll()) != null) {
             dormantArchive.reset();
             dataArchives.add(1, dormantArchive);
-            dormantArchive = null;
+            ingestPipeline.resume(dormantArchive);
         }
     }
 
@@ -332,58 +501,11 @@ public final class FeedAggregatorService implements FeedDataArchive, FeedAggrega
     }
 
     public void shutdown() {
-        synchronized(numOfWriteJobs) {
-            while (numOfWriteJobs.get() > 0) {
-                try {
-                    numOfWriteJobs.wait();
-                } catch (InterruptedException e) {
-                    LOGGER.error("InterruptedException during shutdown", e);
-                }
-            }
-        }
+        ingestPipeline.shutdown();
         for (DataProvider dataProvider: dataProviders) {
             if (dataProvider instanceof DataBuffer) {
                 DataBuffer.class.cast(dataProvider).closeBuffer();
             }
         }
     }
-
-    private final class PutDataTask implements Runnable {
-        private final String feedID;
-        private final TimeUnit timeUnit;
-        private final Map<Long, Map<String, String>> entries;
-
-        public PutDataTask(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
-            this.feedID = feedID;
-            this.timeUnit = timeUnit;
-            this.entries = entries;
-        }
-
-        @Override
-        public void run() {
-            try {
-                if (dataArchives.size() > 1) {
-                    for (Iterator<DataArchive> it = dataArchives.iterator(); it.hasNext();) {
-                        DataArchive dataArchive = it.next();
-                        if (dataArchive.getLOS() == LOS.fast) {
-                            continue;
-                        }
-                        try {
-                            dataArchive.putData(feedID, timeUnit, entries);
-                        } catch (BufferFullException e) {
-                            dormantArchive = dataArchive;
-                            it.remove();
-                            bufferFullAlert(e.getMessage());
-                        }
-                    }
-                }
-            } finally {
-                synchronized(this) {
-                    if (numOfWriteJobs.decrementAndGet() == 0) {
-                        this.notifyAll();
-                    }
-                }
-            }
-        }
-    }
 }
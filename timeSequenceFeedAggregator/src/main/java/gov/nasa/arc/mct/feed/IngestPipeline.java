@@ -0,0 +1,450 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.api.feed.DataArchive;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Writes the samples accepted by the {@link FeedAggregatorService} to its slower archives
+ * in the background.
+ * <p>
+ * Each archive has its own writer lanes, so a slow archive does not hold up the others,
+ * and a feed always goes to the same lane of an archive, which keeps its samples in order.
+ * Each lane has a bounded queue; when it is full the overflow policy either blocks the
+ * caller until there is room (back-pressure), drops the oldest waiting write, or drops the
+ * new one. Writes with a completion callback are never dropped. A lane writer coalesces
+ * the writes waiting in its queue, up to a number of samples, into one bulk write.
+ * <p>
+ * Configured by the feed properties <code>ingest.lanes</code>,
+ * <code>ingest.queue.capacity</code>, <code>ingest.overflow.policy</code> and
+ * <code>ingest.coalesce.samples</code>. Queue depth, dropped writes and the latency from
+ * queueing to writing are logged to the <code>gov.nasa.arc.mct.performance.feedAggregator</code>
+ * logger and available from the getters.
+ */
+final class IngestPipeline {
+    private static final Logger LOGGER = LoggerFactory.getLogger(IngestPipeline.class);
+    private static final Logger PERF_LOGGER = LoggerFactory.getLogger("gov.nasa.arc.mct.performance.feedAggregator");
+
+    static final String LANES_PROPERTY = "ingest.lanes";
+    static final String QUEUE_CAPACITY_PROPERTY = "ingest.queue.capacity";
+    static final String OVERFLOW_POLICY_PROPERTY = "ingest.overflow.policy";
+    static final String COALESCE_SAMPLES_PROPERTY = "ingest.coalesce.samples";
+    private static final int DEFAULT_LANES = 2;
+    private static final int DEFAULT_QUEUE_CAPACITY = 1024;
+    private static final int DEFAULT_COALESCE_SAMPLES = 512;
+
+    /** What a full lane does with a new write. */
+    static enum OverflowPolicy {
+        /** Wait until the lane has room. */
+        block,
+        /** Drop the oldest write waiting in the lane. */
+        dropOldest,
+        /** Drop the new write. */
+        dropNewest;
+    }
+
+    /**
+     * Told when an archive runs out of space; the pipeline stops writing to it until it is resumed.
+     * Called once per archive, by the lane writer which found it full, even if several lanes do.
+     */
+    static interface BufferFullHandler {
+        void bufferFull(DataArchive archive, BufferFullException e);
+    }
+
+    /** Runs a callback once every part of a bulk write has been written. */
+    private static final class Completion {
+        private final AtomicInteger remainingParts;
+        private final Runnable callback;
+
+        Completion(int parts, Runnable callback) {
+            this.remainingParts = new AtomicInteger(parts);
+            this.callback = callback;
+        }
+
+        void partDone() {
+            if (remainingParts.decrementAndGet() == 0) {
+                callback.run();
+            }
+        }
+    }
+
+    private static final class Write {
+        final Map<String, Map<Long, Map<String, String>>> value;
+        final TimeUnit timeUnit;
+        final int samples;
+        final long queuedNanos = System.nanoTime();
+        final Completion completion;
+
+        Write(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, Completion completion) {
+            this.value = value;
+            this.timeUnit = timeUnit;
+            this.completion = completion;
+            int count = 0;
+            for (Map<Long, Map<String, String>> entries : value.values()) {
+                count += entries.size();
+            }
+            this.samples = count;
+        }
+    }
+
+    private final class Lane implements Runnable {
+        private final ArchiveLanes owner;
+        private final BlockingQueue<Write> queue;
+
+        Lane(ArchiveLanes owner, int capacity) {
+            this.owner = owner;
+            this.queue = new ArrayBlockingQueue<Write>(capacity);
+        }
+
+        void offer(Write write) {
+            pendingWrites.incrementAndGet();
+            try {
+                if (policy == OverflowPolicy.block || write.completion != null) {
+                    queue.put(write);
+                } else if (policy == OverflowPolicy.dropNewest) {
+                    if (!queue.offer(write)) {
+                        dropped(write);
+                    }
+                } else {
+                    while (!queue.offer(write)) {
+                        Write oldest = queue.peek();
+                        if (oldest == null || oldest.completion != null || !queue.remove(oldest)) {
+                            queue.put(write);
+                            break;
+                        }
+                        dropped(oldest);
+                    }
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                dropped(write);
+            }
+        }
+
+        @Override
+        public void run() {
+            List<Write> batch = new ArrayList<Write>();
+            Write next = null;
+            while (true) {
+                try {
+                    if (next == null) {
+                        next = queue.take();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                batch.add(next);
+                int samples = next.samples;
+                TimeUnit timeUnit = next.timeUnit;
+                next = null;
+                while (samples < coalesceSamples && (next = queue.poll()) != null && next.timeUnit == timeUnit) {
+                    batch.add(next);
+                    samples += next.samples;
+                    next = null;
+                }
+                write(owner, batch, samples);
+                batch.clear();
+            }
+        }
+    }
+
+    /** The lanes of one archive. */
+    private final class ArchiveLanes {
+        final DataArchive archive;
+        final Lane[] lanes;
+        final AtomicBoolean suspended = new AtomicBoolean();
+
+        ArchiveLanes(DataArchive archive, int laneCount, int capacity) {
+            this.archive = archive;
+            this.lanes = new Lane[laneCount];
+            for (int i = 0; i < laneCount; i++) {
+                lanes[i] = new Lane(this, capacity);
+            }
+        }
+
+        Lane getLane(String feedID) {
+            return lanes[(feedID.hashCode() & Integer.MAX_VALUE) % lanes.length];
+        }
+    }
+
+    private final List<ArchiveLanes> archives = new ArrayList<ArchiveLanes>();
+    private final List<Thread> threads = new ArrayList<Thread>();
+    private final BufferFullHandler bufferFullHandler;
+    private final OverflowPolicy policy;
+    private final int coalesceSamples;
+
+    private final AtomicInteger pendingWrites = new AtomicInteger();
+    private final AtomicLong droppedWrites = new AtomicLong();
+    private final AtomicLong writtenSamples = new AtomicLong();
+    private final AtomicLong bulkWrites = new AtomicLong();
+    private final AtomicLong totalLatencyNanos = new AtomicLong();
+    private final AtomicLong maxLatencyNanos = new AtomicLong();
+
+    /**
+     * Creates the pipeline and starts its writers.
+     * @param archives the archives to write to
+     * @param config the feed properties
+     * @param bufferFullHandler told when an archive is full
+     */
+    IngestPipeline(List<? extends DataArchive> archives, Properties config, BufferFullHandler bufferFullHandler) {
+        this.bufferFullHandler = bufferFullHandler;
+        int laneCount = Math.max(1, getInt(config, LANES_PROPERTY, DEFAULT_LANES));
+        int capacity = Math.max(1, getInt(config, QUEUE_CAPACITY_PROPERTY, DEFAULT_QUEUE_CAPACITY));
+        this.coalesceSamples = getInt(config, COALESCE_SAMPLES_PROPERTY, DEFAULT_COALESCE_SAMPLES);
+        this.policy = getOverflowPolicy(config);
+
+        for (DataArchive archive : archives) {
+            ArchiveLanes archiveLanes = new ArchiveLanes(archive, laneCount, capacity);
+            this.archives.add(archiveLanes);
+            for (int i = 0; i < laneCount; i++) {
+                Thread thread = new Thread(archiveLanes.lanes[i], "MCT feed ingest " + archive.getLOS() + " lane " + i);
+                thread.setDaemon(true);
+                threads.add(thread);
+            }
+        }
+        for (Thread thread : threads) {
+            thread.start();
+        }
+    }
+
+    private static OverflowPolicy getOverflowPolicy(Properties config) {
+        String value = config.getProperty(OVERFLOW_POLICY_PROPERTY, OverflowPolicy.block.name()).trim();
+        try {
+            return OverflowPolicy.valueOf(value);
+        } catch (IllegalArgumentException e) {
+            LOGGER.warn("Unknown {} {}, using {}", new Object[] { OVERFLOW_POLICY_PROPERTY, value, OverflowPolicy.block });
+            return OverflowPolicy.block;
+        }
+    }
+
+    private static int getInt(Properties config, String key, int defaultValue) {
+        String value = config.getProperty(key);
+        return value == null ? defaultValue : Integer.parseInt(value.trim());
+    }
+
+    /**
+     * Queues samples of one feed for every archive that is not suspended.
+     */
+    void submit(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>(2);
+        value.put(feedID, entries);
+        for (ArchiveLanes archiveLanes : archives) {
+            if (!archiveLanes.suspended.get()) {
+                archiveLanes.getLane(feedID).offer(new Write(value, timeUnit, null));
+            }
+        }
+    }
+
+    /**
+     * Queues samples of several feeds for every archive that is not suspended. The callback
+     * runs once they have all been written, at once if there is nothing to write to.
+     */
+    void submit(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, Runnable callback) {
+        Map<Lane, Map<String, Map<Long, Map<String, String>>>> parts = new HashMap<Lane, Map<String, Map<Long, Map<String, String>>>>();
+        for (ArchiveLanes archiveLanes : archives) {
+            if (archiveLanes.suspended.get()) {
+                continue;
+            }
+            for (Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+                Lane lane = archiveLanes.getLane(entry.getKey());
+                Map<String, Map<Long, Map<String, String>>> part = parts.get(lane);
+                if (part == null) {
+                    part = new HashMap<String, Map<Long, Map<String, String>>>();
+                    parts.put(lane, part);
+                }
+                part.put(entry.getKey(), entry.getValue());
+            }
+        }
+        if (parts.isEmpty()) {
+            if (callback != null) {
+                callback.run();
+            }
+            return;
+        }
+        Completion completion = callback == null ? null : new Completion(parts.size(), callback);
+        for (Entry<Lane, Map<String, Map<Long, Map<String, String>>>> part : parts.entrySet()) {
+            part.getKey().offer(new Write(part.getValue(), timeUnit, completion));
+        }
+    }
+
+    private void write(ArchiveLanes owner, List<Write> batch, int samples) {
+        Write first = batch.get(0);
+        Map<String, Map<Long, Map<String, String>>> value = first.value;
+        if (batch.size() > 1) {
+            value = new HashMap<String, Map<Long, Map<String, String>>>();
+            for (Write write : batch) {
+                for (Entry<String, Map<Long, Map<String, String>>> entry : write.value.entrySet()) {
+                    Map<Long, Map<String, String>> entries = value.get(entry.getKey());
+                    if (entries == null) {
+                        value.put(entry.getKey(), new HashMap<Long, Map<String, String>>(entry.getValue()));
+                    } else {
+                        entries.putAll(entry.getValue());
+                    }
+                }
+            }
+        }
+
+        try {
+            if (!owner.suspended.get()) {
+                owner.archive.putData(value, first.timeUnit, null);
+                writtenSamples.addAndGet(samples);
+            }
+        } catch (BufferFullException e) {
+            // the other lanes of the archive may find it full at the same time
+            if (owner.suspended.compareAndSet(false, true)) {
+                bufferFullHandler.bufferFull(owner.archive, e);
+            }
+        } catch (RuntimeException e) {
+            LOGGER.error("Writing " + samples + " samples to the " + owner.archive.getLOS() + " archive failed", e);
+        }
+
+        long latency = System.nanoTime() - first.queuedNanos;
+        bulkWrites.incrementAndGet();
+        totalLatencyNanos.addAndGet(latency);
+        long max = maxLatencyNanos.get();
+        while (latency > max && !maxLatencyNanos.compareAndSet(max, latency)) {
+            max = maxLatencyNanos.get();
+        }
+        if (PERF_LOGGER.isDebugEnabled()) {
+            PERF_LOGGER.debug("Wrote {} samples from {} queued writes to the {} archive {} ms after queueing; queue depth {}",
+                    new Object[] { samples, batch.size(), owner.archive.getLOS(), TimeUnit.NANOSECONDS.toMillis(latency), getQueueDepth() });
+        }
+
+        for (Write write : batch) {
+            if (write.completion != null) {
+                write.completion.partDone();
+            }
+            finished();
+        }
+    }
+
+    private void dropped(Write write) {
+        long dropped = droppedWrites.incrementAndGet();
+        if ((dropped & (dropped - 1)) == 0) {
+            LOGGER.warn("Feed ingest queue full, {} writes dropped so far", dropped);
+        }
+        PERF_LOGGER.debug("Dropped a write of {} samples; queue depth {}", write.samples, getQueueDepth());
+        finished();
+    }
+
+    private void finished() {
+        if (pendingWrites.decrementAndGet() == 0) {
+            synchronized (pendingWrites) {
+                pendingWrites.notifyAll();
+            }
+        }
+    }
+
+    /**
+     * Resumes writing to an archive suspended because it was full.
+     */
+    void resume(DataArchive archive) {
+        for (ArchiveLanes archiveLanes : archives) {
+            if (archiveLanes.archive == archive) {
+                archiveLanes.suspended.set(false);
+            }
+        }
+    }
+
+    /**
+     * Waits until every queued write has been written or dropped.
+     */
+    void awaitIdle() throws InterruptedException {
+        synchronized (pendingWrites) {
+            while (pendingWrites.get() > 0) {
+                pendingWrites.wait(100);
+            }
+        }
+    }
+
+    /**
+     * Writes what is queued and stops the writers.
+     */
+    void shutdown() {
+        try {
+            awaitIdle();
+        } catch (InterruptedException e) {
+            LOGGER.error("InterruptedException during shutdown", e);
+            Thread.currentThread().interrupt();
+        }
+        for (Thread thread : threads) {
+            thread.interrupt();
+        }
+    }
+
+    /**
+     * Returns the number of writes waiting in all lanes.
+     */
+    int getQueueDepth() {
+        int depth = 0;
+        for (ArchiveLanes archiveLanes : archives) {
+            for (Lane lane : archiveLanes.lanes) {
+                depth += lane.queue.size();
+            }
+        }
+        return depth;
+    }
+
+    long getDroppedWrites() {
+        return droppedWrites.get();
+    }
+
+    long getWrittenSamples() {
+        return writtenSamples.get();
+    }
+
+    /**
+     * Returns the mean time from queueing a write to writing it.
+     */
+    long getMeanLatency(TimeUnit timeUnit) {
+        long writes = bulkWrites.get();
+        return writes == 0 ? 0 : timeUnit.convert(totalLatencyNanos.get() / writes, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Returns the longest time from queueing a write to writing it.
+     */
+    long getMaxLatency(TimeUnit timeUnit) {
+        return timeUnit.convert(maxLatencyNanos.get(), TimeUnit.NANOSECONDS);
+    }
+
+    OverflowPolicy getOverflowPolicy() {
+        return policy;
+    }
+}
@@ -0,0 +1,112 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FeedCursor} over samples which have already been read, for data providers which
+ * cannot stream. It only bounds the size of the chunks handed to the caller.
+ */
+final class MaterializedFeedCursor implements FeedCursor {
+    private final Map<String, SortedMap<Long, Map<String, String>>> data;
+    private final long endTime;
+    private final int chunkSize;
+    private long position;
+    private volatile boolean closed;
+
+    /**
+     * @param data samples per feed, keyed by their time in nanoseconds
+     * @param startTime start of the range in nanoseconds
+     * @param endTime end of the range in nanoseconds
+     * @param chunkSize maximum number of samples per feed and chunk, 0 for no limit
+     */
+    MaterializedFeedCursor(Map<String, SortedMap<Long, Map<String, String>>> data, long startTime, long endTime, int chunkSize) {
+        this.data = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (Entry<String, SortedMap<Long, Map<String, String>>> entry : data.entrySet()) {
+            if (!entry.getValue().isEmpty()) {
+                this.data.put(entry.getKey(), new TreeMap<Long, Map<String, String>>(entry.getValue()));
+            }
+        }
+        this.endTime = endTime;
+        this.chunkSize = chunkSize > 0 ? chunkSize : Integer.MAX_VALUE;
+        this.position = startTime;
+    }
+
+    @Override
+    public boolean hasNext() {
+        return !closed && !data.isEmpty();
+    }
+
+    @Override
+    public Map<String, SortedMap<Long, Map<String, String>>> next() {
+        if (!hasNext()) {
+            return Collections.emptyMap();
+        }
+        long chunkEnd = endTime == Long.MAX_VALUE ? Long.MAX_VALUE : endTime + 1;
+        for (SortedMap<Long, Map<String, String>> feedData : data.values()) {
+            if (feedData.size() > chunkSize) {
+                Iterator<Long> times = feedData.keySet().iterator();
+                for (int i = 1; i < chunkSize; i++) {
+                    times.next();
+                }
+                chunkEnd = Math.min(chunkEnd, times.next().longValue() + 1);
+            }
+        }
+        // the first samples may precede the start time
+        chunkEnd = Math.max(chunkEnd, position);
+
+        Map<String, SortedMap<Long, Map<String, String>>> chunk = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        for (Iterator<Entry<String, SortedMap<Long, Map<String, String>>>> it = data.entrySet().iterator(); it.hasNext();) {
+            Entry<String, SortedMap<Long, Map<String, String>>> entry = it.next();
+            SortedMap<Long, Map<String, String>> feedChunk = entry.getValue().headMap(Long.valueOf(chunkEnd));
+            if (!feedChunk.isEmpty()) {
+                chunk.put(entry.getKey(), new TreeMap<Long, Map<String, String>>(feedChunk));
+                feedChunk.clear();
+            }
+            if (entry.getValue().isEmpty()) {
+                it.remove();
+            }
+        }
+        position = chunkEnd;
+        return chunk;
+    }
+
+    @Override
+    public long getPosition(TimeUnit timeUnit) {
+        return timeUnit.convert(position, TimeUnit.NANOSECONDS);
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+    }
+}
@@ -0,0 +1,415 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.disk.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.buffer.config.FastDiskBufferEnv;
+import gov.nasa.arc.mct.buffer.internal.Rollup;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sleepycat.persist.EntityStore;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class PartitionFastDiskBufferTest {
+    private PartitionFastDiskBuffer partition;
+    private String testFeedID1 = "TestPui1";
+    private String testFeedID2 = "TestPui2";
+    private File bufferLocation;
+    private Properties prop;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("buffer.partitions", "1");
+        prop.put("buffer.time.millis", "-1");
+        bufferLocation = File.createTempFile("mct-buffer", "");
+        bufferLocation.delete();
+        bufferLocation.mkdir();
+        prop.put("buffer.disk.loc", bufferLocation.toString());
+        partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (partition != null) {
+            partition.removeBuffer();
+        }
+        delete(bufferLocation);
+    }
+
+    private void delete(File f) {
+        if (f.isDirectory()) {
+            for (File f2 : f.listFiles()) {
+                delete(f2);
+            }
+        }
+        f.delete();
+    }
+
+    private void put(String feedID, long time, Map<String, String> value) throws BufferFullException {
+        Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+        feedData.put(time, value);
+        partition.putData(Collections.singletonMap(feedID, feedData), TimeUnit.MILLISECONDS);
+    }
+
+    private SortedMap<Long, Map<String, String>> get(String feedID, long startTime, long endTime) {
+        return partition.getData(Collections.singleton(feedID), TimeUnit.MILLISECONDS, startTime, endTime).get(feedID);
+    }
+
+    @Test
+    public void roundTripTest() throws BufferFullException {
+        long time = 1300000000123L;
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", "1.3");
+        value.put("time", Long.toString(time));
+        value.put("isValid", "true");
+        value.put("status", "ok");
+        value.put("RenderingInfo", "ffffff&ok&00ff00&true&true&1.30");
+        value.put("count", "-42");
+        value.put("text", "007");
+        value.put("empty", "");
+        value.put("huge", "1.0E10");
+        value.put("nan", "NaN");
+        value.put("none", null);
+        put(testFeedID1, time, value);
+
+        SortedMap<Long, Map<String, String>> returnData = get(testFeedID1, time, time);
+        Assert.assertEquals(returnData.size(), 1);
+        Assert.assertEquals(returnData.firstKey().longValue(), TimeUnit.NANOSECONDS.convert(time, TimeUnit.MILLISECONDS));
+        Assert.assertEquals(returnData.get(returnData.firstKey()), value);
+        Assert.assertNull(get(testFeedID2, time, time));
+    }
+
+    @Test
+    public void rangeAcrossBlocksTest() throws BufferFullException {
+        long spanMillis = TimeUnit.MILLISECONDS.convert(PartitionFastDiskBuffer.BLOCK_SPAN_NANOS, TimeUnit.NANOSECONDS);
+        Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+        int count = PartitionFastDiskBuffer.BLOCK_SIZE * 3 + 5;
+        for (int i = 0; i < count; i++) {
+            long time = i * spanMillis / 50;
+            feedData.put(time, Collections.singletonMap("value", Integer.toString(i)));
+        }
+        partition.putData(Collections.singletonMap(testFeedID1, feedData), TimeUnit.MILLISECONDS);
+        put(testFeedID2, 5, Collections.singletonMap("value", "other"));
+
+        SortedMap<Long, Map<String, String>> all = get(testFeedID1, 0, Long.MAX_VALUE / 1000000L);
+        Assert.assertEquals(all.size(), count);
+
+        long start = 70 * spanMillis / 50;
+        long end = 150 * spanMillis / 50;
+        SortedMap<Long, Map<String, String>> range = get(testFeedID1, start, end);
+        Assert.assertEquals(range.size(), 81);
+        int expected = 70;
+        for (Map<String, String> sample : range.values()) {
+            Assert.assertEquals(sample.get("value"), Integer.toString(expected++));
+        }
+
+        Assert.assertNull(get(testFeedID1, count * spanMillis, count * spanMillis * 2));
+    }
+
+    @Test
+    public void overlappingWritesTest() throws BufferFullException {
+        Map<Long, Map<String, String>> first = new TreeMap<Long, Map<String, String>>();
+        for (long t = 10; t <= 30; t += 10) {
+            first.put(t, Collections.singletonMap("value", "first" + t));
+        }
+        Map<Long, Map<String, String>> second = new TreeMap<Long, Map<String, String>>();
+        second.put(10L, Collections.singletonMap("value", "second10"));
+        second.put(15L, Collections.singletonMap("value", "second15"));
+        second.put(5L, Collections.singletonMap("value", "second5"));
+        partition.putData(Collections.singletonMap(testFeedID1, first), TimeUnit.MILLISECONDS);
+        partition.putData(Collections.singletonMap(testFeedID1, second), TimeUnit.MILLISECONDS);
+        put(testFeedID1, 10, Collections.singletonMap("value", "third10"));
+
+        SortedMap<Long, Map<String, String>> returnData = get(testFeedID1, 0, 100);
+        Assert.assertEquals(returnData.size(), 5);
+        String[] expected = { "second5", "third10", "second15", "first20", "first30" };
+        int i = 0;
+        for (Map<String, String> sample : returnData.values()) {
+            Assert.assertEquals(sample.get("value"), expected[i++]);
+        }
+    }
+
+    @Test
+    public void lastDataTest() throws BufferFullException {
+        Map<Long, Map<String, String>> first = new TreeMap<Long, Map<String, String>>();
+        for (long t = 10; t <= 30; t += 10) {
+            first.put(t, Collections.singletonMap("value", Long.toString(t)));
+        }
+        Map<Long, Map<String, String>> second = new TreeMap<Long, Map<String, String>>();
+        second.put(5L, Collections.singletonMap("value", "5"));
+        second.put(25L, Collections.singletonMap("value", "25"));
+        partition.putData(Collections.singletonMap(testFeedID1, first), TimeUnit.MILLISECONDS);
+        partition.putData(Collections.singletonMap(testFeedID1, second), TimeUnit.MILLISECONDS);
+
+        Assert.assertEquals(lastValue(0, 27), "25");
+        Assert.assertEquals(lastValue(0, 22), "20");
+        Assert.assertEquals(lastValue(0, 100), "30");
+        Assert.assertEquals(lastValue(6, 9), null);
+        Assert.assertEquals(lastValue(0, 7), "5");
+    }
+
+    @Test
+    public void batchedWritesTest() throws BufferFullException {
+        partition.removeBuffer();
+        prop.put("buffer.disk.batch.size", "3");
+        prop.put("buffer.disk.batch.flush.millis", "-1");
+        partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+
+        put(testFeedID1, 10, Collections.singletonMap("value", "10"));
+        put(testFeedID1, 20, Collections.singletonMap("value", "20"));
+        put(testFeedID2, 20, Collections.singletonMap("value", "other"));
+        Assert.assertEquals(get(testFeedID1, 0, 100).size(), 2);
+        Assert.assertEquals(lastValue(0, 100), "20");
+        Assert.assertEquals(writtenSamples(testFeedID1), 0);
+
+        put(testFeedID1, 30, Collections.singletonMap("value", "30"));
+        Assert.assertEquals(writtenSamples(testFeedID1), 3);
+        Assert.assertEquals(writtenSamples(testFeedID2), 0);
+
+        put(testFeedID1, 20, Collections.singletonMap("value", "20b"));
+        Assert.assertEquals(get(testFeedID1, 20, 20).get(TimeUnit.NANOSECONDS.convert(20, TimeUnit.MILLISECONDS)).get("value"), "20b");
+
+        partition.inactive();
+        Assert.assertEquals(writtenSamples(testFeedID2), 1);
+        Assert.assertEquals(get(testFeedID1, 0, 100).size(), 3);
+        Assert.assertEquals(get(testFeedID1, 20, 20).get(TimeUnit.NANOSECONDS.convert(20, TimeUnit.MILLISECONDS)).get("value"), "20b");
+    }
+
+    @Test
+    public void flushIntervalTest() throws Exception {
+        partition.removeBuffer();
+        prop.put("buffer.disk.batch.size", "1000");
+        prop.put("buffer.disk.batch.flush.millis", "20");
+        partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+
+        put(testFeedID1, 10, Collections.singletonMap("value", "10"));
+        long deadline = System.currentTimeMillis() + 5000;
+        while (writtenSamples(testFeedID1) == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        Assert.assertEquals(writtenSamples(testFeedID1), 1);
+    }
+
+    @Test
+    public void removeWhileFlushingTest() throws Exception {
+        partition.removeBuffer();
+        prop.put("buffer.disk.batch.size", "1000000");
+        prop.put("buffer.disk.batch.flush.millis", "-1");
+        prop.put("buffer.rollup.millis", "1000");
+        for (int round = 0; round < 10; round++) {
+            partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+            Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+            for (int feed = 0; feed < 20; feed++) {
+                Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+                for (long t = 0; t < 500; t++) {
+                    feedData.put(t, Collections.singletonMap("value", Long.toString(t)));
+                }
+                value.put("feed" + feed, feedData);
+            }
+            partition.putData(value, TimeUnit.MILLISECONDS);
+
+            // flushes the pending samples and rollups on another thread, as the flush timer does
+            final PartitionFastDiskBuffer flushed = partition;
+            final AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+            Thread flush = new Thread() {
+                @Override
+                public void run() {
+                    try {
+                        flushed.flushPendingSamples();
+                    } catch (Throwable t) {
+                        failure.set(t);
+                    }
+                }
+            };
+            flush.start();
+            Thread.sleep(round);
+            partition.removeBuffer();
+            flush.join(10000);
+            Assert.assertFalse(flush.isAlive());
+            Assert.assertNull(failure.get());
+            Assert.assertTrue(partition.isClosed());
+        }
+        partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+        Assert.assertNull(get("feed0", 0, 1000));
+    }
+
+    @Test
+    public void decimatedDataTest() throws BufferFullException {
+        long spanMillis = TimeUnit.MILLISECONDS.convert(PartitionFastDiskBuffer.BLOCK_SPAN_NANOS, TimeUnit.NANOSECONDS);
+        Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+        int count = PartitionFastDiskBuffer.BLOCK_SIZE * 3 + 5;
+        for (int i = 0; i < count; i++) {
+            long time = i * spanMillis / 50;
+            feedData.put(time, Collections.singletonMap(FeedProvider.NORMALIZED_VALUE_KEY, Double.toString(Math.sin(i / 7.0))));
+        }
+        partition.putData(Collections.singletonMap(testFeedID1, feedData), TimeUnit.MILLISECONDS);
+
+        long start = 30 * spanMillis / 50;
+        long end = (count - 20) * spanMillis / 50;
+        SampleDecimator decimator = new SampleDecimator(TimeUnit.MILLISECONDS.toNanos(start), TimeUnit.MILLISECONDS.toNanos(end), 10);
+        decimator.addAll(get(testFeedID1, start, end));
+
+        SortedMap<Long, Map<String, String>> decimated = partition.getDecimatedData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, start, end, 10).get(testFeedID1);
+        Assert.assertEquals(decimated, decimator.getData());
+        Assert.assertTrue(decimated.size() <= 10 * 4);
+        Assert.assertNull(partition.getDecimatedData(Collections.singleton(testFeedID2), TimeUnit.MILLISECONDS, start, end, 10).get(testFeedID2));
+    }
+
+    @Test
+    public void rollupTest() throws BufferFullException {
+        partition.removeBuffer();
+        prop.put("buffer.rollup.millis", "1000,100");
+        partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+        Assert.assertEquals(partition.getRollupResolutions(), new long[] { TimeUnit.MILLISECONDS.toNanos(100), TimeUnit.MILLISECONDS.toNanos(1000) });
+
+        Map<Long, Map<String, String>> feedData = new HashMap<Long, Map<String, String>>();
+        for (int i = 0; i < 250; i++) {
+            feedData.put(10000L + i * 10, Collections.singletonMap(FeedProvider.NORMALIZED_VALUE_KEY, Integer.toString(i % 7)));
+        }
+        partition.putData(Collections.singletonMap(testFeedID1, feedData), TimeUnit.MILLISECONDS);
+
+        SortedMap<Long, Rollup> pending = getRollups(testFeedID1, 1);
+        Assert.assertEquals(pending.size(), 3);
+        Assert.assertEquals(pending.firstKey().longValue(), TimeUnit.MILLISECONDS.toNanos(10000));
+        Assert.assertEquals(pending.get(pending.lastKey()).getCount(), 50);
+        Assert.assertEquals(getRollups(testFeedID1, 0).size(), 25);
+
+        // written on flush, and read back the same
+        partition.inactive();
+        SortedMap<Long, Rollup> written = getRollups(testFeedID1, 1);
+        Assert.assertEquals(written.keySet(), pending.keySet());
+        for (Long intervalStart : pending.keySet()) {
+            Rollup expected = pending.get(intervalStart);
+            Rollup actual = written.get(intervalStart);
+            Assert.assertEquals(actual.getCount(), expected.getCount());
+            Assert.assertEquals(actual.getSum(), expected.getSum());
+            Assert.assertEquals(actual.getMin(), expected.getMin());
+            Assert.assertEquals(actual.getMax(), expected.getMax());
+            Assert.assertEquals(actual.getSamples(), expected.getSamples());
+        }
+
+        // later samples of a written interval are merged into it, before and after the next flush
+        put(testFeedID1, 12995, Collections.singletonMap(FeedProvider.NORMALIZED_VALUE_KEY, "100"));
+        for (int flush = 0; flush < 2; flush++) {
+            Rollup rollup = getRollups(testFeedID1, 1).get(TimeUnit.MILLISECONDS.toNanos(12000));
+            Assert.assertEquals(rollup.getCount(), 51);
+            Assert.assertEquals(rollup.getMax(), 100.0);
+            Assert.assertEquals(rollup.getMaxTime(), TimeUnit.MILLISECONDS.toNanos(12995));
+            partition.inactive();
+        }
+        Assert.assertTrue(getRollups(testFeedID2, 1).isEmpty());
+    }
+
+    @Test
+    public void legacyDataTest() throws Exception {
+        partition.closeBuffer();
+        partition = null;
+
+        // a partition written by earlier versions, with one entity per sample
+        FastDiskBufferEnv legacyEnv = new FastDiskBufferEnv(prop, 0);
+        for (int i = 0; i < legacyEnv.getConcurrencyDegree(); i++) {
+            String storeName = String.valueOf(i);
+            Assert.assertFalse(legacyEnv.hasDiskStore(storeName));
+            EntityStore store = legacyEnv.openDiskStore(storeName);
+            PersistentBufferObjectAccess access = new PersistentBufferObjectAccess(store);
+            for (long t = 10; t <= 30; t += 10) {
+                Map<String, String> value = new HashMap<String, String>();
+                value.put("value", "legacy" + t);
+                PersistentBufferObject pObj = new PersistentBufferObject();
+                pObj.setKey(new PersistentBufferKey(testFeedID1, TimeUnit.NANOSECONDS.convert(t, TimeUnit.MILLISECONDS)));
+                pObj.setData(value);
+                access.pIdx.putNoReturn(pObj);
+            }
+            legacyEnv.closeDatabase(store);
+            Assert.assertTrue(legacyEnv.hasDiskStore(storeName));
+        }
+        legacyEnv.closeEnvironment();
+
+        partition = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+        put(testFeedID1, 40, Collections.singletonMap("value", "40"));
+        put(testFeedID1, 50, Collections.singletonMap("value", "50"));
+
+        SortedMap<Long, Map<String, String>> returnData = get(testFeedID1, 0, 100);
+        String[] expected = { "legacy10", "legacy20", "legacy30", "40", "50" };
+        Assert.assertEquals(returnData.size(), expected.length);
+        int i = 0;
+        for (Map<String, String> sample : returnData.values()) {
+            Assert.assertEquals(sample.get("value"), expected[i++]);
+        }
+        Assert.assertEquals(get(testFeedID1, 15, 35).size(), 2);
+        Assert.assertNull(get(testFeedID2, 0, 100));
+
+        Assert.assertEquals(lastValue(0, 100), "50");
+        Assert.assertEquals(lastValue(0, 35), "legacy30");
+        Assert.assertEquals(lastValue(0, 15), "legacy10");
+    }
+
+    private SortedMap<Long, Rollup> getRollups(String feedID, int tier) {
+        SortedMap<Long, Rollup> rollups = partition.getRollups(Collections.singleton(feedID), TimeUnit.MILLISECONDS, 0, 20000, tier).get(feedID);
+        return rollups == null ? new TreeMap<Long, Rollup>() : rollups;
+    }
+
+    /**
+     * Counts the samples of a feed that have reached the disk, using a second handle on
+     * the same partition which does not see the first one's pending samples.
+     */
+    private int writtenSamples(String feedID) {
+        PartitionFastDiskBuffer reader = new PartitionFastDiskBuffer(new FastDiskBufferEnv(prop, 0));
+        try {
+            SortedMap<Long, Map<String, String>> data = reader.getData(Collections.singleton(feedID),
+                            TimeUnit.MILLISECONDS, 0, Long.MAX_VALUE / 1000000L).get(feedID);
+            return data == null ? 0 : data.size();
+        } finally {
+            reader.closeBuffer();
+        }
+    }
+
+    private String lastValue(long startTime, long endTime) {
+        SortedMap<Long, Map<String, String>> lastData = partition.getLastData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, startTime, endTime).get(testFeedID1);
+        Assert.assertNotNull(lastData);
+        if (lastData.isEmpty()) {
+            return null;
+        }
+        Assert.assertEquals(lastData.size(), 1);
+        return lastData.get(lastData.firstKey()).get("value");
+    }
+}
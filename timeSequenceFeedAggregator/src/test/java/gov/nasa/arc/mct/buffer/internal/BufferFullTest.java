@@ -35,7 +35,6 @@ import java.util.Map;
 import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
-import java.util.Vector;
 import java.util.concurrent.TimeUnit;
 
 import org.slf4j.Logger;
@@ -47,7 +46,7 @@ import org.testng.annotations.Test;
 
 public class BufferFullTest {
     private FeedAggregatorService feedAggregatorService;
-    private Vector<DataArchive> dataArchives;
+    private List<DataArchive> dataArchives;
     private MockLogger mockLogger;
     private File bufferLocation;
     
@@ -107,10 +106,10 @@ public class BufferFullTest {
     }
     
     @SuppressWarnings("unchecked")
-    private Vector<DataArchive> getDataArchives() throws Exception {
+    private List<DataArchive> getDataArchives() throws Exception {
         Field f = feedAggregatorService.getClass().getDeclaredField("dataArchives");
         f.setAccessible(true);
-        return (Vector<DataArchive>)f.get(feedAggregatorService);
+        return (List<DataArchive>)f.get(feedAggregatorService);
     }
     
     private static class MockLogger implements Logger {
@@ -0,0 +1,227 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.buffer.config.MemoryBufferEnv;
+import gov.nasa.arc.mct.buffer.memory.internal.MemoryDataBufferHelper;
+import gov.nasa.arc.mct.buffer.memory.internal.PartitionColumnarMemoryBuffer;
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class ColumnarMemoryDataBufferTest {
+    private DataBuffer dataBuffer;
+    private String testFeedID1 = "TestPui1";
+    private String testFeedID2 = "TestPui2";
+    private Properties prop;
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("memory.buffer.partition", "1");
+        prop.put("memory.buffer.time.millis", "-1");
+        prop.put("memory.buffer.store", "columnar");
+        dataBuffer = new DataBuffer(new MemoryBufferEnv(prop), new MemoryDataBufferHelper());
+        if (dataBuffer.isDataBufferClose()) {
+            dataBuffer.reset();
+        }
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (dataBuffer != null) {
+            dataBuffer.reset();
+        }
+        DataBufferFactory.reset();
+    }
+
+    @Test
+    public void columnarPartitionSelectedTest() {
+        Assert.assertTrue(dataBuffer.currentParition instanceof PartitionColumnarMemoryBuffer);
+    }
+
+    @Test
+    public void roundTripTest() throws BufferFullException {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", "1.3");
+        value.put("status", "ok");
+        value.put("time", "1300000000123");
+        value.put("text", "1.30");
+        long time = System.currentTimeMillis();
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time, value);
+
+        List<Map<String, String>> returnData = dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, time, time + 100).get(testFeedID1);
+
+        Assert.assertEquals(returnData.size(), 1);
+        Assert.assertNotSame(returnData.get(0), value);
+        Assert.assertEquals(returnData.get(0), value);
+    }
+
+    @Test
+    public void columnTypeChangeTest() throws BufferFullException {
+        long time = 1000;
+        String[] values = { "1", "2.5", "-7", "abc", "1E10", "0" };
+        for (int i = 0; i < values.length; i++) {
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time + i, Collections.singletonMap("value", values[i]));
+        }
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time + values.length, Collections.singletonMap("status", "ok"));
+
+        List<Map<String, String>> returnData = dataBuffer.getData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, time, time + 100).get(testFeedID1);
+        Assert.assertEquals(returnData.size(), values.length + 1);
+        for (int i = 0; i < values.length; i++) {
+            Assert.assertEquals(returnData.get(i), Collections.singletonMap("value", values[i]));
+        }
+        Assert.assertEquals(returnData.get(values.length), Collections.singletonMap("status", "ok"));
+    }
+
+    @Test
+    public void outOfOrderAndRangeTest() throws BufferFullException {
+        long[] times = { 50, 10, 30, 20, 40, 30 };
+        for (long t : times) {
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, t, Collections.singletonMap("value", Long.toString(t)));
+        }
+        dataBuffer.putData(testFeedID2, TimeUnit.MILLISECONDS, 25, Collections.singletonMap("value", "x"));
+
+        SortedMap<Long, Map<String, String>> returnData = dataBuffer.getData(Collections.singleton(testFeedID1), 20, 40,
+                        TimeUnit.MILLISECONDS).get(testFeedID1);
+        Assert.assertEquals(returnData.size(), 3);
+        long expected = 20;
+        for (Map.Entry<Long, Map<String, String>> entry : returnData.entrySet()) {
+            Assert.assertEquals(entry.getKey().longValue(), TimeUnit.NANOSECONDS.convert(expected, TimeUnit.MILLISECONDS));
+            Assert.assertEquals(entry.getValue().get("value"), Long.toString(expected));
+            expected += 10;
+        }
+
+        Assert.assertNull(dataBuffer.getData(Collections.singleton(testFeedID1), 51, 60, TimeUnit.MILLISECONDS).get(testFeedID1));
+    }
+
+    @Test
+    public void lastDataTest() throws BufferFullException {
+        for (long t = 10; t <= 50; t += 10) {
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, t, Collections.singletonMap("value", Long.toString(t)));
+        }
+        SortedMap<Long, Map<String, String>> lastData = dataBuffer.currentParition.getLastData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, 0, 35).get(testFeedID1);
+        Assert.assertEquals(lastData.size(), 1);
+        Assert.assertEquals(lastData.get(lastData.firstKey()).get("value"), "30");
+
+        Assert.assertNull(dataBuffer.currentParition.getLastData(Collections.singleton(testFeedID1),
+                        TimeUnit.MILLISECONDS, 0, 5).get(testFeedID1));
+    }
+
+    @Test
+    public void decimatedDataTest() throws BufferFullException {
+        long time0 = 1000000;
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> value = new HashMap<String, String>();
+            // integral values first, then floating point and text values, which change the column type
+            String data = i < 300 ? Integer.toString(i % 37) : (i % 50 == 0 ? "n/a" : Double.toString(Math.sin(i / 20.0)));
+            value.put(FeedProvider.NORMALIZED_VALUE_KEY, data);
+            value.put("status", "ok");
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time0 + i, value);
+        }
+
+        long start = time0 + 10;
+        long end = time0 + 989;
+        SortedMap<Long, Map<String, String>> all = dataBuffer.getData(Collections.singleton(testFeedID1), start, end, TimeUnit.MILLISECONDS).get(testFeedID1);
+        SampleDecimator decimator = new SampleDecimator(TimeUnit.MILLISECONDS.toNanos(start), TimeUnit.MILLISECONDS.toNanos(end), 25);
+        decimator.addAll(all);
+
+        SortedMap<Long, Map<String, String>> decimated = dataBuffer.getDecimatedData(Collections.singleton(testFeedID1), start, end, TimeUnit.MILLISECONDS, 25).get(testFeedID1);
+        Assert.assertEquals(decimated, decimator.getData());
+        Assert.assertTrue(decimated.size() <= 25 * 4);
+    }
+
+    @Test
+    public void rollupDecimatedDataTest() throws BufferFullException {
+        dataBuffer.reset();
+        prop.put("memory.buffer.rollup.millis", "10");
+        dataBuffer = new DataBuffer(new MemoryBufferEnv(prop), new MemoryDataBufferHelper());
+        Assert.assertEquals(dataBuffer.currentParition.getRollupResolutions(), new long[] { TimeUnit.MILLISECONDS.toNanos(10) });
+
+        long time0 = 1000000;
+        for (int i = 0; i < 1200; i++) {
+            Map<String, String> value = new HashMap<String, String>();
+            value.put(FeedProvider.NORMALIZED_VALUE_KEY, i % 50 == 0 ? "n/a" : Double.toString(Math.sin(i / 20.0)));
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time0 + i, value);
+        }
+
+        // buckets of exactly 40 ms starting on an interval: the rollups give the same samples as a full scan
+        long start = TimeUnit.MILLISECONDS.toNanos(time0 + 100);
+        long end = start + 999999980L;
+        SampleDecimator decimator = new SampleDecimator(start, end, 25);
+        Assert.assertEquals(decimator.getBucketWidth(), TimeUnit.MILLISECONDS.toNanos(40));
+        decimator.addAll(dataBuffer.getData(Collections.singleton(testFeedID1), start, end, TimeUnit.NANOSECONDS).get(testFeedID1));
+        Assert.assertEquals(dataBuffer.getDecimatedData(Collections.singleton(testFeedID1), start, end, TimeUnit.NANOSECONDS, 25).get(testFeedID1),
+                        decimator.getData());
+
+        // unaligned buckets: still real samples, at most four per bucket, including the extremes of the range
+        start = TimeUnit.MILLISECONDS.toNanos(time0 + 7);
+        end = TimeUnit.MILLISECONDS.toNanos(time0 + 1093);
+        SortedMap<Long, Map<String, String>> all = dataBuffer.getData(Collections.singleton(testFeedID1), start, end, TimeUnit.NANOSECONDS).get(testFeedID1);
+        SortedMap<Long, Map<String, String>> decimated = dataBuffer.getDecimatedData(Collections.singleton(testFeedID1), start, end, TimeUnit.NANOSECONDS, 20).get(testFeedID1);
+        Assert.assertTrue(decimated.size() <= 20 * 4);
+        Assert.assertEquals(decimated.firstKey(), all.firstKey());
+        Assert.assertEquals(decimated.lastKey(), all.lastKey());
+        double min = Double.POSITIVE_INFINITY;
+        double max = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<Long, Map<String, String>> entry : all.entrySet()) {
+            double value = SampleDecimator.getValue(entry.getValue());
+            if (!Double.isNaN(value)) {
+                min = Math.min(min, value);
+                max = Math.max(max, value);
+            }
+        }
+        double decimatedMin = Double.POSITIVE_INFINITY;
+        double decimatedMax = Double.NEGATIVE_INFINITY;
+        for (Map.Entry<Long, Map<String, String>> entry : decimated.entrySet()) {
+            Assert.assertEquals(entry.getValue(), all.get(entry.getKey()));
+            double value = SampleDecimator.getValue(entry.getValue());
+            if (!Double.isNaN(value)) {
+                decimatedMin = Math.min(decimatedMin, value);
+                decimatedMax = Math.max(decimatedMax, value);
+            }
+        }
+        Assert.assertEquals(decimatedMin, min);
+        Assert.assertEquals(decimatedMax, max);
+
+        Assert.assertEquals(dataBuffer.currentParition.getRollups(Collections.singleton(testFeedID1), TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE, 0).get(testFeedID1).size(), 120);
+        dataBuffer.reset();
+        Assert.assertTrue(dataBuffer.currentParition.getRollups(Collections.singleton(testFeedID1), TimeUnit.NANOSECONDS, 0, Long.MAX_VALUE, 0).isEmpty());
+    }
+}
@@ -0,0 +1,160 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Map.Entry;
+import java.util.Properties;
+import java.util.Set;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+public class DataBufferCursorTest {
+    private DataBuffer dataBuffer;
+    private String testFeedID1 = "TestPui1";
+    private String testFeedID2 = "TestPui2";
+
+    @BeforeMethod
+    public void setup() throws IOException {
+        Properties prop = new Properties();
+        prop.load(ClassLoader.getSystemResourceAsStream("properties/testFeed.properties"));
+        prop.put("memory.buffer.partition", "2");
+        prop.put("memory.buffer.time.millis", "-1");
+        dataBuffer = DataBufferFactory.getMemoryDataBuffer(prop);
+        if (dataBuffer.isDataBufferClose()) {
+            dataBuffer.reset();
+        }
+    }
+
+    @AfterMethod
+    public void reset() {
+        if (dataBuffer != null) {
+            dataBuffer.reset();
+        }
+        DataBufferFactory.reset();
+    }
+
+    private void putSamples(String feedID, long startTime, long endTime, long step) throws BufferFullException {
+        Map<Long, Map<String, String>> entries = new HashMap<Long, Map<String, String>>();
+        for (long time = startTime; time < endTime; time += step) {
+            entries.put(time, Collections.singletonMap("value", Long.toString(time)));
+        }
+        dataBuffer.putData(feedID, TimeUnit.MILLISECONDS, entries);
+    }
+
+    /**
+     * Reads a cursor to the end, checking that the chunks are bounded and aligned on time.
+     */
+    private Map<String, SortedMap<Long, Map<String, String>>> readAll(FeedCursor cursor, int chunkSize) {
+        Map<String, SortedMap<Long, Map<String, String>>> allData = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        long position = cursor.getPosition(TimeUnit.NANOSECONDS);
+        boolean first = true;
+        while (cursor.hasNext()) {
+            Map<String, SortedMap<Long, Map<String, String>>> chunk = cursor.next();
+            long nextPosition = cursor.getPosition(TimeUnit.NANOSECONDS);
+            Assert.assertTrue(nextPosition >= position);
+            for (Entry<String, SortedMap<Long, Map<String, String>>> entry : chunk.entrySet()) {
+                SortedMap<Long, Map<String, String>> feedChunk = entry.getValue();
+                Assert.assertTrue(feedChunk.size() <= chunkSize);
+                Assert.assertTrue(first || feedChunk.firstKey().longValue() >= position);
+                Assert.assertTrue(feedChunk.lastKey().longValue() < nextPosition);
+                SortedMap<Long, Map<String, String>> feedData = allData.get(entry.getKey());
+                if (feedData == null) {
+                    feedData = new TreeMap<Long, Map<String, String>>();
+                    allData.put(entry.getKey(), feedData);
+                }
+                Assert.assertTrue(feedData.isEmpty() || feedData.lastKey().longValue() < feedChunk.firstKey().longValue());
+                feedData.putAll(feedChunk);
+            }
+            position = nextPosition;
+            first = false;
+        }
+        Assert.assertTrue(cursor.next().isEmpty());
+        return allData;
+    }
+
+    @Test
+    public void chunksAcrossPartitionsTest() throws BufferFullException, InterruptedException {
+        putSamples(testFeedID1, 1000, 1100, 1);
+        putSamples(testFeedID2, 1000, 1100, 10);
+        dataBuffer.prepareForNextPartition();
+        dataBuffer.moveToNextPartition();
+        putSamples(testFeedID1, 1100, 1200, 1);
+        putSamples(testFeedID2, 1100, 1200, 10);
+
+        Set<String> feedIDs = new HashSet<String>(Arrays.asList(testFeedID1, testFeedID2));
+        FeedCursor cursor = dataBuffer.openCursor(feedIDs, TimeUnit.MILLISECONDS, 1000, 1199, 30);
+        Map<String, SortedMap<Long, Map<String, String>>> allData = readAll(cursor, 30);
+
+        Assert.assertEquals(allData.get(testFeedID1).size(), 200);
+        Assert.assertEquals(allData.get(testFeedID2).size(), 20);
+        Assert.assertEquals(allData, dataBuffer.getData(feedIDs, 1000, 1199, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    public void unlimitedChunkTest() throws BufferFullException {
+        putSamples(testFeedID1, 1000, 1100, 1);
+
+        FeedCursor cursor = dataBuffer.openCursor(Collections.singleton(testFeedID1), TimeUnit.MILLISECONDS, 1010, 1049, 0);
+        Assert.assertTrue(cursor.hasNext());
+        Map<String, SortedMap<Long, Map<String, String>>> chunk = cursor.next();
+        Assert.assertEquals(chunk.get(testFeedID1).size(), 40);
+        Assert.assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    public void precedingSampleTest() throws BufferFullException {
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, 500, Collections.singletonMap("value", "1"));
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, 1500, Collections.singletonMap("value", "2"));
+
+        FeedCursor cursor = dataBuffer.openCursor(Collections.singleton(testFeedID1), TimeUnit.MILLISECONDS, 1000, 2000, 10);
+        SortedMap<Long, Map<String, String>> feedData = readAll(cursor, 10).get(testFeedID1);
+        Assert.assertEquals(feedData.size(), 2);
+        Assert.assertEquals(feedData.firstKey().longValue(), TimeUnit.MILLISECONDS.toNanos(500));
+    }
+
+    @Test
+    public void closeTest() throws BufferFullException {
+        putSamples(testFeedID1, 1000, 1100, 1);
+
+        FeedCursor cursor = dataBuffer.openCursor(Collections.singleton(testFeedID1), TimeUnit.MILLISECONDS, 1000, 1099, 10);
+        Assert.assertEquals(cursor.next().get(testFeedID1).size(), 10);
+        Assert.assertEquals(cursor.getPosition(TimeUnit.MILLISECONDS), 1009);
+        cursor.close();
+        Assert.assertFalse(cursor.hasNext());
+        Assert.assertTrue(cursor.next().isEmpty());
+    }
+}
@@ -37,6 +37,7 @@ import java.util.Properties;
 import java.util.Set;
 import java.util.SortedMap;
 import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
 import java.util.concurrent.TimeUnit;
 
 import org.mockito.Mock;
@@ -70,6 +71,7 @@ public class FeedAggregatorServiceTest {
         bufferLocation.delete();
         Assert.assertTrue(bufferLocation.mkdir());
         prop.put("buffer.disk.loc", bufferLocation.toString());
+        prop.put("ingest.lanes", "2");
         dataBuffer = DataBufferFactory.getFastDiskDataBuffer(prop);
         if (dataBuffer.isDataBufferClose()) {
             dataBuffer.reset();
@@ -179,6 +181,33 @@ public class FeedAggregatorServiceTest {
         assertHasSameValue(returnValue, value);
     }
     
+    @Test(groups="feedAggregatorServiceTest")
+    public void severalLanesTest() throws InterruptedException {
+        // the two lanes of the disk buffer update the metadata of the same partition at once
+        long time = System.currentTimeMillis();
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+        for (int feed = 0; feed < 20; feed++) {
+            Map<Long, Map<String, String>> samples = new HashMap<Long, Map<String, String>>();
+            for (int i = 0; i < 100; i++) {
+                samples.put(time + i, Collections.singletonMap("value", Integer.toString(i)));
+            }
+            value.put("feed" + feed, samples);
+        }
+        final CountDownLatch written = new CountDownLatch(1);
+        feedAggregatorService.putData(value, TimeUnit.MILLISECONDS, new Runnable() {
+            @Override
+            public void run() {
+                written.countDown();
+            }
+        });
+        Assert.assertTrue(written.await(10, TimeUnit.SECONDS));
+
+        Map<String, List<Map<String, String>>> returnData = dataBuffer.getData(value.keySet(), TimeUnit.MILLISECONDS, time, time + 99);
+        for (String feedID : value.keySet()) {
+            Assert.assertEquals(returnData.get(feedID).size(), 100, feedID);
+        }
+    }
+    
     private void assertHasSameValue(Map<String, String> actualValue, Map<String, String> expectedValue) {
         Assert.assertEquals(actualValue.size(), expectedValue.size());
 
@@ -28,8 +28,10 @@ import gov.nasa.arc.mct.buffer.memory.internal.MemoryDataBufferHelper;
 import gov.nasa.arc.mct.buffer.memory.internal.PartitionMemoryBuffer;
 
 import java.io.IOException;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
@@ -284,6 +286,64 @@ public class MemoryDataBufferTest {
             Assert.assertTrue(getDataTask.isPassed());
         }
 
+    @Test
+    public void latestValueTest() throws BufferFullException {
+        Map<Long, Map<String, String>> data = new HashMap<Long, Map<String, String>>();
+        data.put(30L, Collections.singletonMap("value", "30"));
+        data.put(10L, Collections.singletonMap("value", "10"));
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, data);
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, 20, Collections.singletonMap("value", "20"));
+        dataBuffer.putData(Collections.singletonMap(testFeedID2, Collections.singletonMap(5L, Collections.singletonMap("value", "5"))),
+                        TimeUnit.SECONDS, null);
+
+        Map<String, Map<String, String>> latest = dataBuffer.getLatest(new HashSet<String>(Arrays.asList(testFeedID1, testFeedID2, "other")));
+        Assert.assertEquals(latest.size(), 2);
+        Assert.assertEquals(latest.get(testFeedID1).get("value"), "30");
+        Assert.assertEquals(latest.get(testFeedID2).get("value"), "5");
+
+        dataBuffer.reset();
+        Assert.assertTrue(dataBuffer.getLatest(Collections.singleton(testFeedID1)).isEmpty());
+
+        // samples which are only in a partition are looked up and cached
+        Map<String, Map<Long, Map<String, String>>> partitionData = new HashMap<String, Map<Long, Map<String, String>>>();
+        partitionData.put(testFeedID1, data);
+        dataBuffer.currentParition.putData(partitionData, TimeUnit.MILLISECONDS);
+        Assert.assertEquals(dataBuffer.getLatest(Collections.singleton(testFeedID1)).get(testFeedID1).get("value"), "30");
+        Assert.assertEquals(dataBuffer.latestValues.get(testFeedID1).get("value"), "30");
+    }
+
+    @Test
+    public void latestValueOnlyCachedWhenWrittenTest() throws BufferFullException, InterruptedException {
+        int partition = dataBuffer.currentParition.getBufferEnv().getCurrentBufferPartition();
+        dataBuffer.coordinator.closeWrites(partition);
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, 40, Collections.singletonMap("value", "40"));
+        Assert.assertNull(dataBuffer.latestValues.get(testFeedID1));
+        Assert.assertTrue(dataBuffer.getLatest(Collections.singleton(testFeedID1)).isEmpty());
+
+        dataBuffer.coordinator.openWrites(partition);
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, 50, Collections.singletonMap("value", "50"));
+        Assert.assertEquals(dataBuffer.latestValues.get(testFeedID1).get("value"), "50");
+    }
+
+    @Test
+    public void latestValueIsSnapshotTest() throws BufferFullException {
+        Map<String, String> value = new HashMap<String, String>();
+        value.put("value", "1");
+        dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, 40, value);
+
+        // changing the written map afterwards does not change the cached sample
+        value.put("value", "2");
+        Map<String, String> latest = dataBuffer.getLatest(Collections.singleton(testFeedID1)).get(testFeedID1);
+        Assert.assertEquals(latest.get("value"), "1");
+        try {
+            latest.put("value", "3");
+            Assert.fail("latest sample must not be modifiable");
+        } catch (UnsupportedOperationException e) {
+            // expected
+        }
+        Assert.assertEquals(dataBuffer.getLatest(Collections.singleton(testFeedID1)).get(testFeedID1).get("value"), "1");
+    }
+
     @Test
     public void getLastDataSubrangeTest() throws BufferFullException {
         PartitionMemoryBuffer buffer = new PartitionMemoryBuffer(env);
@@ -0,0 +1,195 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class PartitionAccessCoordinatorTest {
+
+    @Test
+    public void concurrentReadersAndWritersTest() throws InterruptedException {
+        PartitionAccessCoordinator coordinator = new PartitionAccessCoordinator(2);
+        Assert.assertTrue(coordinator.enterRead(0));
+        Assert.assertTrue(coordinator.enterRead(0));
+        Assert.assertTrue(coordinator.enterWrite(0));
+        Assert.assertTrue(coordinator.enterWrite(1));
+        coordinator.exitRead(0);
+        coordinator.exitRead(0);
+        coordinator.exitWrite(0);
+        coordinator.exitWrite(1);
+
+        // nothing in progress, must not block
+        coordinator.awaitPartition(0);
+        coordinator.awaitPartition(1);
+    }
+
+    @Test
+    public void closeWritesTest() throws InterruptedException {
+        final PartitionAccessCoordinator coordinator = new PartitionAccessCoordinator(2);
+        Assert.assertTrue(coordinator.enterWrite(1));
+        Assert.assertTrue(coordinator.enterRead(1));
+
+        final CountDownLatch done = new CountDownLatch(1);
+        Thread mover = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.closeWrites(1);
+                    done.countDown();
+                } catch (InterruptedException e) {
+                    Assert.fail("not interrupted");
+                }
+            }
+        };
+        mover.start();
+        Assert.assertFalse(done.await(200, TimeUnit.MILLISECONDS));
+
+        // a write to another partition does not help
+        Assert.assertTrue(coordinator.enterWrite(0));
+        coordinator.exitWrite(0);
+        Assert.assertFalse(done.await(100, TimeUnit.MILLISECONDS));
+
+        // new writes to the closing partition are refused
+        Assert.assertFalse(coordinator.enterWrite(1));
+
+        // readers are not waited for
+        coordinator.exitWrite(1);
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        coordinator.exitRead(1);
+
+        Assert.assertFalse(coordinator.enterWrite(1));
+        Assert.assertTrue(coordinator.enterRead(1));
+        coordinator.exitRead(1);
+        coordinator.openWrites(1);
+        Assert.assertTrue(coordinator.enterWrite(1));
+        coordinator.exitWrite(1);
+    }
+
+    @Test
+    public void resetTest() throws InterruptedException {
+        final PartitionAccessCoordinator coordinator = new PartitionAccessCoordinator(2);
+        Assert.assertTrue(coordinator.enterRead(0));
+        Assert.assertTrue(coordinator.enterMaintenance());
+
+        final CountDownLatch resetStarted = new CountDownLatch(1);
+        final AtomicBoolean resetDone = new AtomicBoolean(false);
+        Thread resetter = new Thread() {
+            @Override
+            public void run() {
+                resetStarted.countDown();
+                try {
+                    coordinator.beginReset();
+                } catch (InterruptedException e) {
+                    return;
+                }
+                resetDone.set(true);
+                coordinator.endReset();
+            }
+        };
+        resetter.start();
+        Assert.assertTrue(resetStarted.await(5, TimeUnit.SECONDS));
+        while (!coordinator.isResetting()) {
+            Thread.sleep(10);
+        }
+
+        Assert.assertFalse(coordinator.enterRead(1));
+        Assert.assertFalse(coordinator.enterWrite(0));
+        Assert.assertFalse(coordinator.enterMaintenance());
+
+        coordinator.exitMaintenance();
+        Thread.sleep(100);
+        Assert.assertFalse(resetDone.get());
+        coordinator.exitRead(0);
+        resetter.join(5000);
+        Assert.assertTrue(resetDone.get());
+
+        Assert.assertFalse(coordinator.isResetting());
+        Assert.assertTrue(coordinator.enterWrite(0));
+        coordinator.exitWrite(0);
+    }
+
+    @Test
+    public void interruptedResetTest() throws InterruptedException {
+        final PartitionAccessCoordinator coordinator = new PartitionAccessCoordinator(2);
+        Assert.assertTrue(coordinator.enterRead(0));
+
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        Thread resetter = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.beginReset();
+                    coordinator.endReset();
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        };
+        resetter.start();
+        while (!coordinator.isResetting()) {
+            Thread.sleep(10);
+        }
+        resetter.interrupt();
+        resetter.join(5000);
+        Assert.assertFalse(resetter.isAlive());
+        Assert.assertTrue(interrupted.get());
+
+        // the reset was given up, so the buffer is usable again
+        Assert.assertFalse(coordinator.isResetting());
+        Assert.assertTrue(coordinator.enterWrite(1));
+        coordinator.exitWrite(1);
+        coordinator.exitRead(0);
+    }
+
+    @Test
+    public void interruptedCloseWritesTest() throws InterruptedException {
+        final PartitionAccessCoordinator coordinator = new PartitionAccessCoordinator(2);
+        Assert.assertTrue(coordinator.enterWrite(1));
+
+        final AtomicBoolean interrupted = new AtomicBoolean(false);
+        Thread mover = new Thread() {
+            @Override
+            public void run() {
+                try {
+                    coordinator.closeWrites(1);
+                } catch (InterruptedException e) {
+                    interrupted.set(true);
+                }
+            }
+        };
+        mover.start();
+        while (coordinator.enterWrite(1)) {
+            coordinator.exitWrite(1);
+            Thread.sleep(10);
+        }
+        mover.interrupt();
+        mover.join(5000);
+        Assert.assertFalse(mover.isAlive());
+        Assert.assertTrue(interrupted.get());
+        coordinator.exitWrite(1);
+    }
+}
@@ -22,6 +22,7 @@
 package gov.nasa.arc.mct.buffer.internal;
 
 import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.components.FeedProvider;
 
 import java.io.IOException;
 import java.util.Collections;
@@ -29,6 +30,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Properties;
+import java.util.SortedMap;
 import java.util.concurrent.TimeUnit;
 
 import org.testng.Assert;
@@ -113,4 +115,35 @@ public class ReadMultipleMemoryPartitionsTest {
         
         Assert.assertEquals(data2.size(), 4);
     }
+    
+    @Test
+    public void decimatedDataTest() throws BufferFullException, InterruptedException {
+        long time0 = 1000000;
+        for (int i = 0; i < 1000; i++) {
+            if (i == 600) {
+                dataBuffer.prepareForNextPartition();
+                dataBuffer.moveToNextPartition();
+            }
+            Map<String, String> value = new HashMap<String, String>();
+            value.put(FeedProvider.NORMALIZED_VALUE_KEY, Double.toString(Math.sin(i / 20.0)));
+            value.put("status", "ok");
+            dataBuffer.putData(testFeedID1, TimeUnit.MILLISECONDS, time0 + i, value);
+        }
+        
+        SortedMap<Long, Map<String, String>> all = dataBuffer.getData(Collections.singleton(testFeedID1), time0, time0 + 999, TimeUnit.MILLISECONDS).get(testFeedID1);
+        Assert.assertEquals(all.size(), 1000);
+        SampleDecimator decimator = new SampleDecimator(TimeUnit.MILLISECONDS.toNanos(time0), TimeUnit.MILLISECONDS.toNanos(time0 + 999), 16);
+        decimator.addAll(all);
+        
+        SortedMap<Long, Map<String, String>> decimated = dataBuffer.getDecimatedData(Collections.singleton(testFeedID1), time0, time0 + 999, TimeUnit.MILLISECONDS, 16).get(testFeedID1);
+        Assert.assertEquals(decimated, decimator.getData());
+        Assert.assertTrue(decimated.size() <= 16 * 4);
+        
+        // the sample before the start time is included, as by getData
+        decimated = dataBuffer.getDecimatedData(Collections.singleton(testFeedID1), time0 + 999, time0 + 2000, TimeUnit.MILLISECONDS, 16).get(testFeedID1);
+        Assert.assertEquals(decimated.size(), 1);
+        List<Map<String, String>> decimatedList = dataBuffer.getDecimatedData(Collections.singleton(testFeedID1), TimeUnit.MILLISECONDS, time0 + 1500, time0 + 2000, 16).get(testFeedID1);
+        Assert.assertEquals(decimatedList.size(), 1);
+        Assert.assertEquals(decimatedList.get(0), all.get(all.lastKey()));
+    }
 }
@@ -0,0 +1,133 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.SortedMap;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class RollupStoreTest {
+    private static final String FEED = "feed";
+
+    private static Map<String, String> sample(String value) {
+        return Collections.singletonMap(FeedProvider.NORMALIZED_VALUE_KEY, value);
+    }
+
+    @Test
+    public void tiersTest() {
+        RollupStore store = new RollupStore(new long[] { 100, 0, 10 }, TimeUnit.NANOSECONDS);
+        Assert.assertEquals(store.getResolutions(), new long[] { 10, 100 });
+        Assert.assertFalse(store.hasNoTiers());
+        Assert.assertTrue(store.isEmpty());
+
+        for (long time = 0; time < 250; time++) {
+            store.add(FEED, time, sample(Long.toString(time % 7)));
+        }
+        store.add(FEED, 255, sample("n/a"));
+
+        SortedMap<Long, Rollup> fine = store.get(FEED, 0, 0, 1000);
+        Assert.assertEquals(fine.size(), 26);
+        Rollup first = fine.get(0L);
+        Assert.assertEquals(first.getCount(), 10);
+        Assert.assertEquals(first.getMin(), 0.0);
+        Assert.assertEquals(first.getMax(), 6.0);
+        Assert.assertEquals(first.getMinTime(), 0);
+        Assert.assertEquals(first.getMaxTime(), 6);
+        Assert.assertEquals(first.getSamples().keySet().toString(), "[0, 6, 9]");
+
+        SortedMap<Long, Rollup> coarse = store.get(FEED, 1, 100, 1000);
+        Assert.assertEquals(coarse.keySet().toString(), "[100, 200]");
+        Rollup last = coarse.get(200L);
+        Assert.assertEquals(last.getCount(), 51);
+        Assert.assertEquals(last.getValueCount(), 50);
+        Assert.assertEquals(last.getSamples().lastKey().longValue(), 255);
+        Assert.assertTrue(store.get("other", 1, 0, 1000).isEmpty());
+
+        // a coarse interval summarizes the fine intervals it contains
+        Rollup merged = new Rollup();
+        for (Rollup rollup : store.get(FEED, 0, 100, 199).values()) {
+            merged.merge(rollup);
+        }
+        Rollup stored = coarse.get(100L);
+        Assert.assertEquals(merged.getCount(), stored.getCount());
+        Assert.assertEquals(merged.getMean(), stored.getMean(), 1e-9);
+        Assert.assertEquals(merged.getSamples(), stored.getSamples());
+    }
+
+    @Test
+    public void copiesTest() {
+        RollupStore store = new RollupStore(new long[] { 10 }, TimeUnit.NANOSECONDS);
+        store.add(FEED, 1, sample("1"));
+        store.get(FEED, 0, 0, 10).get(0L).add(2, 5, sample("5"));
+        Assert.assertEquals(store.get(FEED, 0, 0, 10).get(0L).getCount(), 1);
+    }
+
+    @Test
+    public void drainAndClearTest() {
+        RollupStore store = new RollupStore(new long[] { 1, 2 }, TimeUnit.MILLISECONDS);
+        store.add(FEED, TimeUnit.MILLISECONDS.toNanos(3), sample("1"));
+        List<Map<String, NavigableMap<Long, Rollup>>> drained = store.drain();
+        Assert.assertEquals(drained.size(), 2);
+        Assert.assertEquals(drained.get(0).get(FEED).firstKey().longValue(), TimeUnit.MILLISECONDS.toNanos(3));
+        Assert.assertEquals(drained.get(1).get(FEED).firstKey().longValue(), TimeUnit.MILLISECONDS.toNanos(2));
+        Assert.assertTrue(store.isEmpty());
+
+        store.add(FEED, 3, sample("1"));
+        Assert.assertFalse(store.isEmpty());
+        store.clear();
+        Assert.assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void noTiersTest() {
+        RollupStore store = new RollupStore(new long[0], TimeUnit.MILLISECONDS);
+        Assert.assertTrue(store.hasNoTiers());
+        store.add(FEED, 1, sample("1"));
+        Assert.assertTrue(store.isEmpty());
+    }
+
+    @Test
+    public void intervalStartTest() {
+        Assert.assertEquals(RollupStore.getIntervalStart(25, 10), 20);
+        Assert.assertEquals(RollupStore.getIntervalStart(20, 10), 20);
+        Assert.assertEquals(RollupStore.getIntervalStart(-1, 10), -10);
+        Assert.assertEquals(RollupStore.getIntervalStart(-10, 10), -10);
+    }
+
+    @Test
+    public void chooseTierTest() {
+        long[] resolutions = { 10, 100, 1000 };
+        Assert.assertEquals(RollupStore.chooseTier(resolutions, 5), -1);
+        Assert.assertEquals(RollupStore.chooseTier(resolutions, 10), 0);
+        Assert.assertEquals(RollupStore.chooseTier(resolutions, 999), 1);
+        Assert.assertEquals(RollupStore.chooseTier(resolutions, 5000), 2);
+        Assert.assertEquals(RollupStore.chooseTier(new long[0], 5000), -1);
+    }
+}
@@ -0,0 +1,109 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.internal;
+
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class SampleDecimatorTest {
+    private static Map<String, String> sample(String value) {
+        return Collections.singletonMap(FeedProvider.NORMALIZED_VALUE_KEY, value);
+    }
+
+    @Test
+    public void firstMinMaxLastTest() {
+        SampleDecimator decimator = new SampleDecimator(0, 99, 2);
+        String[] values = { "5", "9", "1", "7", "3" };
+        for (int i = 0; i < values.length; i++) {
+            decimator.add(i * 10, sample(values[i]));
+        }
+        // second bucket
+        decimator.add(60, sample("4"));
+        decimator.add(70, sample("4"));
+
+        SortedMap<Long, Map<String, String>> data = decimator.getData();
+        Assert.assertEquals(data.keySet().toArray(), new Long[] { 0L, 10L, 20L, 40L, 60L, 70L });
+        Assert.assertEquals(data.get(10L), sample("9"));
+        Assert.assertEquals(data.get(20L), sample("1"));
+    }
+
+    @Test
+    public void nonNumericTest() {
+        SampleDecimator decimator = new SampleDecimator(0, 99, 1);
+        decimator.add(0, sample("text"));
+        decimator.add(10, sample("2"));
+        decimator.add(20, Collections.<String, String>emptyMap());
+        decimator.add(30, sample("1"));
+        decimator.add(40, sample("NaN"));
+
+        SortedMap<Long, Map<String, String>> data = decimator.getData();
+        Assert.assertEquals(data.keySet().toArray(), new Long[] { 0L, 10L, 30L, 40L });
+    }
+
+    @Test
+    public void rangeTest() {
+        SampleDecimator decimator = new SampleDecimator(100, 199, 10);
+        Assert.assertEquals(decimator.getBucket(99), -1);
+        Assert.assertEquals(decimator.getBucket(100), 0);
+        Assert.assertEquals(decimator.getBucket(199), 9);
+        Assert.assertEquals(decimator.getBucket(200), -1);
+        decimator.add(50, sample("1"));
+        decimator.add(250, sample("1"));
+        Assert.assertTrue(decimator.getData().isEmpty());
+
+        // more buckets than time units
+        decimator = new SampleDecimator(0, 2, 10);
+        Assert.assertEquals(decimator.getBucket(2), 2);
+        // a range longer than Long.MAX_VALUE
+        decimator = new SampleDecimator(Long.MIN_VALUE, Long.MAX_VALUE, 10);
+        Assert.assertEquals(decimator.getBucket(Long.MIN_VALUE), 0);
+        Assert.assertEquals(decimator.getBucket(Long.MAX_VALUE), 9);
+    }
+
+    @Test
+    public void mergeTest() {
+        SampleDecimator all = new SampleDecimator(0, 999, 7);
+        SampleDecimator even = new SampleDecimator(0, 999, 7);
+        SampleDecimator odd = new SampleDecimator(0, 999, 7);
+        for (int i = 0; i < 1000; i++) {
+            Map<String, String> sample = sample(Double.toString(Math.sin(i / 10.0)));
+            all.add(i, sample);
+            (i % 2 == 0 ? even : odd).add(i, sample);
+        }
+        SampleDecimator merged = new SampleDecimator(0, 999, 7);
+        merged.addAll(odd.getData());
+        merged.addAll(even.getData());
+        Assert.assertEquals(merged.getData(), all.getData());
+        Assert.assertTrue(all.getData().size() <= 7 * 4);
+    }
+
+    @Test(expectedExceptions = IllegalArgumentException.class)
+    public void noBucketTest() {
+        new SampleDecimator(0, 1, 0);
+    }
+}
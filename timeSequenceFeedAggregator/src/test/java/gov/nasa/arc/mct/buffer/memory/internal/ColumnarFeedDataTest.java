@@ -0,0 +1,169 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.buffer.memory.internal;
+
+import gov.nasa.arc.mct.api.feed.FeedSample;
+import gov.nasa.arc.mct.buffer.internal.SampleDecimator;
+import gov.nasa.arc.mct.components.FeedProvider;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.SortedMap;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class ColumnarFeedDataTest {
+
+    private static Map<String, String> sample(String value, String renderingInfo) {
+        Map<String, String> sample = new HashMap<String, String>();
+        if (value != null) {
+            sample.put(FeedProvider.NORMALIZED_VALUE_KEY, value);
+        }
+        sample.put(FeedProvider.NORMALIZED_RENDERING_INFO, renderingInfo);
+        sample.put(FeedProvider.NORMALIZED_IS_VALID_KEY, "true");
+        return sample;
+    }
+
+    private static Map<String, String> timedSample(long time, String value, String renderingInfo) {
+        Map<String, String> sample = sample(value, renderingInfo);
+        sample.put(FeedProvider.NORMALIZED_TIME_KEY, Long.toString(time));
+        return sample;
+    }
+
+    @Test
+    public void numericSamplesAreTypedTest() {
+        ColumnarFeedData feedData = new ColumnarFeedData(new StringDictionary());
+        Map<Long, Map<String, String>> expected = new HashMap<Long, Map<String, String>>();
+        expected.put(0L, timedSample(1000, "1", "-16777216&ok&-16711936&true&true&1"));
+        expected.put(1L, timedSample(1001, "1.5", "-16777216&ok&-16711936&true&true&1.50"));
+        expected.put(2L, timedSample(1002, "1.50", "-65536&LOS&-65536&false&false&---"));
+        for (long time = 0; time < 3; time++) {
+            feedData.put(time, expected.get(time));
+        }
+        
+        SortedMap<Long, Map<String, String>> data = feedData.getData(0, 2, Integer.MAX_VALUE);
+        Assert.assertEquals(data, expected);
+        for (long time = 0; time < 3; time++) {
+            Assert.assertTrue(data.get(time) instanceof FeedSample);
+            Assert.assertEquals(((FeedSample) data.get(time)).getTime(), 1000 + time);
+        }
+        FeedSample sample = (FeedSample) data.get(1L);
+        Assert.assertEquals(sample.getValue(), 1.5);
+        Assert.assertEquals(sample.getRenderedValue(), 1.5);
+        Assert.assertTrue(sample.isValid());
+        Assert.assertTrue(sample.isPlottable());
+        sample = (FeedSample) data.get(2L);
+        Assert.assertFalse(sample.isValid());
+        Assert.assertFalse(sample.isPlottable());
+        
+        // integral values, one of them beyond the precision of a double
+        feedData = new ColumnarFeedData(new StringDictionary());
+        expected.clear();
+        expected.put(0L, timedSample(1000, "1", "-16777216&ok&-16711936&true&true&1"));
+        expected.put(1L, timedSample(1001, Long.toString(Long.MAX_VALUE), "-16777216&ok&-16711936&true&true&" + Long.MAX_VALUE));
+        feedData.put(0, expected.get(0L));
+        feedData.put(1, expected.get(1L));
+        data = feedData.getData(0, 1, Integer.MAX_VALUE);
+        Assert.assertEquals(data, expected);
+        Assert.assertEquals(((FeedSample) data.get(0L)).getValue(), 1.0);
+        Assert.assertEquals(((FeedSample) data.get(1L)).getValue(), (double) Long.MAX_VALUE);
+        
+        // a rendering info coded as a whole is not read in primitive form
+        feedData = new ColumnarFeedData(new StringDictionary());
+        feedData.put(0, timedSample(1000, "2", "no rendering info"));
+        sample = (FeedSample) feedData.getData(0, 0, 1).get(0L);
+        Assert.assertFalse(sample.hasRenderingInfo());
+        Assert.assertEquals(sample, timedSample(1000, "2", "no rendering info"));
+        
+        // a value which is not a number
+        feedData = new ColumnarFeedData(new StringDictionary());
+        feedData.put(0, timedSample(1000, "ON", "-16777216&ok&-16711936&true&true&ON"));
+        Assert.assertFalse(feedData.getData(0, 0, 1).get(0L) instanceof FeedSample);
+    }
+
+    @Test
+    public void renderingInfoPrefixCodedTest() {
+        StringDictionary dictionary = new StringDictionary();
+        ColumnarFeedData feedData = new ColumnarFeedData(dictionary);
+        Map<Long, Map<String, String>> expected = new HashMap<Long, Map<String, String>>();
+        for (int i = 0; i < 1000; i++) {
+            String value = Double.toString(i / 10.0);
+            Map<String, String> sample = sample(value, "-16777216&ok&-16711936&true&true&" + value);
+            feedData.put(i, sample);
+            expected.put(Long.valueOf(i), sample);
+        }
+        // formatted differently from the value, without a value, or not a rendering info
+        expected.put(1000L, sample("1.5", "-16777216&ok&-16711936&true&true&1.50"));
+        expected.put(1001L, sample(null, "-65536&LOS&-65536&false&false&---"));
+        for (long time = 1000; time < 1002; time++) {
+            feedData.put(time, expected.get(time));
+        }
+        
+        // the prefixes and the validity flag
+        Assert.assertEquals(dictionary.size(), 3);
+        SortedMap<Long, Map<String, String>> data = feedData.getData(0, 1001, Integer.MAX_VALUE);
+        Assert.assertEquals(data, expected);
+        
+        expected.put(1002L, sample("1", "no rendering info"));
+        feedData.put(1002, expected.get(1002L));
+        Assert.assertEquals(feedData.getData(0, 1002, Integer.MAX_VALUE), expected);
+    }
+
+    @Test
+    public void formattedNumbersStayPrimitiveTest() {
+        StringDictionary dictionary = new StringDictionary();
+        ColumnarFeedData feedData = new ColumnarFeedData(dictionary);
+        // starts as a long column, which becomes a double column at "1.5"
+        String[] values = { "0", "1", "1.5", "1.50", "0.0001", "12345678.9", "-7", "9007199254740993", "abc", "NaN" };
+        Map<Long, Map<String, String>> expected = new HashMap<Long, Map<String, String>>();
+        for (int i = 0; i < values.length; i++) {
+            Map<String, String> sample = new HashMap<String, String>();
+            sample.put(FeedProvider.NORMALIZED_VALUE_KEY, values[i]);
+            feedData.put(values.length - i, sample);
+            expected.put(Long.valueOf(values.length - i), sample);
+        }
+        Assert.assertEquals(feedData.getData(0, values.length, Integer.MAX_VALUE), expected);
+        // no value was coded
+        Assert.assertEquals(dictionary.size(), 0);
+        
+        // the minimum and maximum are found from the doubles
+        SortedMap<Long, Map<String, String>> decimated = feedData.getDecimatedData(new SampleDecimator(0, values.length, 1));
+        Assert.assertEquals(decimated.keySet(), new HashSet<Long>(Arrays.asList(1L, 3L, 4L, 10L)));
+        Assert.assertEquals(decimated.get(3L), expected.get(3L));
+        Assert.assertEquals(decimated.get(4L), expected.get(4L));
+    }
+
+    @Test
+    public void renderingInfoInsertedTest() {
+        ColumnarFeedData feedData = new ColumnarFeedData(new StringDictionary());
+        Map<Long, Map<String, String>> expected = new HashMap<Long, Map<String, String>>();
+        for (int i = 100; i >= 0; i--) {
+            Map<String, String> sample = sample(Integer.toString(i), "-16777216&ok&-16711936&true&true&" + (i % 2 == 0 ? "even" : Integer.toString(i)));
+            feedData.put(i, sample);
+            expected.put(Long.valueOf(i), sample);
+        }
+        Assert.assertEquals(feedData.getData(0, 100, Integer.MAX_VALUE), expected);
+    }
+}
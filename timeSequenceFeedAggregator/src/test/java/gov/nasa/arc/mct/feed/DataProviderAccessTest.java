@@ -27,8 +27,14 @@ import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
 import java.io.File;
 import java.io.IOException;
 import java.lang.reflect.Field;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
 import java.util.Properties;
+import java.util.Set;
 import java.util.Vector;
+import java.util.concurrent.TimeUnit;
 
 import org.mockito.Mock;
 import org.mockito.Mockito;
@@ -95,6 +101,39 @@ public class DataProviderAccessTest {
         Assert.assertEquals(providers.size(), numOfProvidersBefore);
     }
     
+    @Test
+    public void changeCountsTest() {
+        Set<String> feeds = new HashSet<String>();
+        feeds.add("a");
+        feeds.add("b");
+        Assert.assertTrue(service.getChangeCounts(feeds).isEmpty());
+
+        service.putData("a", TimeUnit.MILLISECONDS, 1L, Collections.singletonMap("value", "1"));
+        Map<String, Long> counts = service.getChangeCounts(feeds);
+        Assert.assertEquals(counts.size(), 1);
+        long a = counts.get("a");
+
+        Map<String, Map<Long, Map<String, String>>> value = new HashMap<String, Map<Long, Map<String, String>>>();
+        value.put("b", Collections.singletonMap(2L, Collections.singletonMap("value", "2")));
+        service.putData(value, TimeUnit.MILLISECONDS, null);
+        counts = service.getChangeCounts(feeds);
+        Assert.assertEquals(counts.get("a").longValue(), a);
+        Assert.assertTrue(counts.containsKey("b"));
+
+        service.putData("a", TimeUnit.MILLISECONDS, 3L, Collections.singletonMap("value", "3"));
+        Assert.assertTrue(service.getChangeCounts(feeds).get("a") > a);
+    }
+
+    @Test
+    public void feedsHeldForwardTest() throws SecurityException, IllegalArgumentException, NoSuchFieldException, IllegalAccessException {
+        Set<String> feeds = Collections.singleton("a");
+        Assert.assertEquals(service.getFeedsHeldForward(feeds), feeds);
+
+        // a provider queried before the buffers may not return preceding samples
+        getProviders().add(0, dataProvider);
+        Assert.assertTrue(service.getFeedsHeldForward(feeds).isEmpty());
+    }
+
     @SuppressWarnings("unchecked")
     private Vector<DataProvider> getProviders() throws SecurityException, NoSuchFieldException, IllegalArgumentException, IllegalAccessException {
         Field field = FeedAggregatorService.class.getDeclaredField("dataProviders");
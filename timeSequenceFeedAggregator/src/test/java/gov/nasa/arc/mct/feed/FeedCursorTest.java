@@ -0,0 +1,104 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import gov.nasa.arc.mct.api.feed.FeedCursor;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.TimeUnit;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+public class FeedCursorTest {
+    private static SortedMap<Long, Map<String, String>> samples(long startTime, long endTime, long step) {
+        SortedMap<Long, Map<String, String>> samples = new TreeMap<Long, Map<String, String>>();
+        for (long time = startTime; time < endTime; time += step) {
+            samples.put(time, Collections.singletonMap("value", Long.toString(time)));
+        }
+        return samples;
+    }
+
+    @Test
+    public void materializedCursorTest() {
+        Map<String, SortedMap<Long, Map<String, String>>> data = new HashMap<String, SortedMap<Long, Map<String, String>>>();
+        data.put("a", samples(0, 100, 1));
+        data.put("b", samples(0, 100, 25));
+        FeedCursor cursor = new MaterializedFeedCursor(data, 0, 99, 40);
+
+        Map<String, SortedMap<Long, Map<String, String>>> chunk = cursor.next();
+        Assert.assertEquals(chunk.get("a").size(), 40);
+        Assert.assertEquals(chunk.get("b").size(), 2);
+        Assert.assertEquals(cursor.getPosition(TimeUnit.NANOSECONDS), 40);
+        chunk = cursor.next();
+        Assert.assertEquals(chunk.get("a").size(), 40);
+        Assert.assertEquals(chunk.get("b").size(), 2);
+        chunk = cursor.next();
+        Assert.assertEquals(chunk.get("a").size(), 20);
+        Assert.assertNull(chunk.get("b"));
+        Assert.assertFalse(cursor.hasNext());
+    }
+
+    @Test
+    public void compositeCursorTest() {
+        FeedCursor dense = new MaterializedFeedCursor(Collections.singletonMap("a", samples(0, 100, 1)), 0, 99, 10);
+        FeedCursor sparse = new MaterializedFeedCursor(Collections.singletonMap("b", samples(0, 100, 5)), 0, 99, 10);
+        FeedCursor cursor = new CompositeFeedCursor(Arrays.asList(dense, sparse), 0, 99);
+
+        int aCount = 0;
+        int bCount = 0;
+        long position = 0;
+        while (cursor.hasNext()) {
+            Map<String, SortedMap<Long, Map<String, String>>> chunk = cursor.next();
+            long nextPosition = cursor.getPosition(TimeUnit.NANOSECONDS);
+            for (SortedMap<Long, Map<String, String>> feedChunk : chunk.values()) {
+                Assert.assertTrue(feedChunk.firstKey().longValue() >= position);
+                Assert.assertTrue(feedChunk.lastKey().longValue() < nextPosition);
+            }
+            if (chunk.containsKey("a")) {
+                aCount += chunk.get("a").size();
+            }
+            if (chunk.containsKey("b")) {
+                bCount += chunk.get("b").size();
+            }
+            position = nextPosition;
+        }
+        Assert.assertEquals(aCount, 100);
+        Assert.assertEquals(bCount, 20);
+    }
+
+    @Test
+    public void closeTest() {
+        FeedCursor child = new MaterializedFeedCursor(Collections.singletonMap("a", samples(0, 100, 1)), 0, 99, 10);
+        FeedCursor cursor = new CompositeFeedCursor(Collections.singletonList(child), 0, 99);
+        cursor.next();
+        cursor.close();
+        Assert.assertFalse(cursor.hasNext());
+        Assert.assertFalse(child.hasNext());
+        Assert.assertTrue(cursor.next().isEmpty());
+    }
+}
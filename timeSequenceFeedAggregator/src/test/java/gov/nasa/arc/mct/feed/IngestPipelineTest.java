@@ -0,0 +1,262 @@
+/*******************************************************************************
+ * Mission Control Technologies, Copyright (c) 2009-2012, United States Government
+ * as represented by the Administrator of the National Aeronautics and Space 
+ * Administration. All rights reserved.
+ *
+ * The MCT platform is licensed under the Apache License, Version 2.0 (the 
+ * "License"); you may not use this file except in compliance with the License. 
+ * You may obtain a copy of the License at 
+ * http://www.apache.org/licenses/LICENSE-2.0.
+ *
+ * Unless required by applicable law or agreed to in writing, software 
+ * distributed under the License is distributed on an "AS IS" BASIS, WITHOUT 
+ * WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied. See the 
+ * License for the specific language governing permissions and limitations under 
+ * the License.
+ *
+ * MCT includes source code licensed under additional open source licenses. See 
+ * the MCT Open Source Licenses file included with this distribution or the About 
+ * MCT Licenses dialog available at runtime from the MCT Help menu for additional 
+ * information. 
+ *******************************************************************************/
+package gov.nasa.arc.mct.feed;
+
+import gov.nasa.arc.mct.api.feed.BufferFullException;
+import gov.nasa.arc.mct.api.feed.DataArchive;
+import gov.nasa.arc.mct.api.feed.DataProvider.LOS;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.TreeMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.Test;
+
+public class IngestPipelineTest {
+    private IngestPipeline pipeline;
+
+    /** Records the samples written to it; the first write waits for {@link #release}. */
+    private static class RecordingArchive implements DataArchive {
+        final CountDownLatch writing = new CountDownLatch(1);
+        final CountDownLatch release = new CountDownLatch(1);
+        final Map<String, List<Long>> written = new TreeMap<String, List<Long>>();
+        final AtomicInteger writes = new AtomicInteger();
+        volatile boolean full;
+
+        @Override
+        public LOS getLOS() {
+            return LOS.slow;
+        }
+
+        @Override
+        public void putData(Map<String, Map<Long, Map<String, String>>> value, TimeUnit timeUnit, Runnable callback) throws BufferFullException {
+            writing.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                throw new AssertionError(e);
+            }
+            if (full) {
+                throw new BufferFullException("full");
+            }
+            writes.incrementAndGet();
+            synchronized (written) {
+                for (Map.Entry<String, Map<Long, Map<String, String>>> entry : value.entrySet()) {
+                    List<Long> times = written.get(entry.getKey());
+                    if (times == null) {
+                        times = new ArrayList<Long>();
+                        written.put(entry.getKey(), times);
+                    }
+                    times.addAll(new TreeMap<Long, Map<String, String>>(entry.getValue()).keySet());
+                }
+            }
+            if (callback != null) {
+                callback.run();
+            }
+        }
+
+        @Override
+        public void putData(String feedID, TimeUnit timeUnit, Map<Long, Map<String, String>> entries) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void putData(String feedID, TimeUnit timeUnit, long time, Map<String, String> value) {
+            throw new UnsupportedOperationException();
+        }
+
+        @Override
+        public void reset() {
+        }
+
+        List<Long> getWritten(String feedID) {
+            synchronized (written) {
+                return written.get(feedID);
+            }
+        }
+    }
+
+    private static class CountingHandler implements IngestPipeline.BufferFullHandler {
+        final AtomicInteger calls = new AtomicInteger();
+
+        @Override
+        public void bufferFull(DataArchive archive, BufferFullException e) {
+            calls.incrementAndGet();
+        }
+    }
+
+    private IngestPipeline createPipeline(RecordingArchive archive, String policy, int lanes, int capacity) {
+        Properties config = new Properties();
+        config.setProperty(IngestPipeline.OVERFLOW_POLICY_PROPERTY, policy);
+        config.setProperty(IngestPipeline.LANES_PROPERTY, Integer.toString(lanes));
+        config.setProperty(IngestPipeline.QUEUE_CAPACITY_PROPERTY, Integer.toString(capacity));
+        pipeline = new IngestPipeline(Collections.singletonList(archive), config, new CountingHandler());
+        return pipeline;
+    }
+
+    private static Map<Long, Map<String, String>> sample(long time) {
+        return Collections.singletonMap(time, Collections.singletonMap("value", Long.toString(time)));
+    }
+
+    @AfterMethod
+    public void tearDown() {
+        if (pipeline != null) {
+            pipeline.shutdown();
+            pipeline = null;
+        }
+    }
+
+    @Test
+    public void orderAndCoalesceTest() throws InterruptedException {
+        RecordingArchive archive = new RecordingArchive();
+        createPipeline(archive, "block", 2, 1000);
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(0));
+        Assert.assertTrue(archive.writing.await(5, TimeUnit.SECONDS));
+        for (long time = 1; time < 100; time++) {
+            pipeline.submit("a", TimeUnit.MILLISECONDS, sample(time));
+            pipeline.submit("b", TimeUnit.MILLISECONDS, sample(time));
+        }
+        archive.release.countDown();
+        pipeline.awaitIdle();
+
+        List<Long> expected = new ArrayList<Long>();
+        for (long time = 0; time < 100; time++) {
+            expected.add(time);
+        }
+        Assert.assertEquals(archive.getWritten("a"), expected);
+        Assert.assertEquals(archive.getWritten("b"), expected.subList(1, 100));
+        Assert.assertTrue(archive.writes.get() < 10, "writes were not coalesced: " + archive.writes.get());
+        Assert.assertEquals(pipeline.getWrittenSamples(), 199);
+        Assert.assertEquals(pipeline.getQueueDepth(), 0);
+        Assert.assertTrue(pipeline.getMaxLatency(TimeUnit.NANOSECONDS) >= pipeline.getMeanLatency(TimeUnit.NANOSECONDS));
+    }
+
+    @Test
+    public void dropNewestTest() throws InterruptedException {
+        RecordingArchive archive = new RecordingArchive();
+        createPipeline(archive, "dropNewest", 1, 1);
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(0));
+        Assert.assertTrue(archive.writing.await(5, TimeUnit.SECONDS));
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(1));
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(2));
+        Assert.assertEquals(pipeline.getDroppedWrites(), 1);
+        archive.release.countDown();
+        pipeline.awaitIdle();
+        Assert.assertEquals(archive.getWritten("a"), Arrays.asList(0L, 1L));
+    }
+
+    @Test
+    public void dropOldestTest() throws InterruptedException {
+        RecordingArchive archive = new RecordingArchive();
+        createPipeline(archive, "dropOldest", 1, 1);
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(0));
+        Assert.assertTrue(archive.writing.await(5, TimeUnit.SECONDS));
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(1));
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(2));
+        Assert.assertEquals(pipeline.getDroppedWrites(), 1);
+        archive.release.countDown();
+        pipeline.awaitIdle();
+        Assert.assertEquals(archive.getWritten("a"), Arrays.asList(0L, 2L));
+    }
+
+    @Test
+    public void callbackTest() throws InterruptedException {
+        RecordingArchive archive = new RecordingArchive();
+        archive.release.countDown();
+        createPipeline(archive, "block", 4, 1);
+        final CountDownLatch done = new CountDownLatch(1);
+        for (int i = 0; i < 10; i++) {
+            Map<String, Map<Long, Map<String, String>>> value = new TreeMap<String, Map<Long, Map<String, String>>>();
+            for (int feed = 0; feed < 20; feed++) {
+                value.put("feed" + feed, sample(i));
+            }
+            pipeline.submit(value, TimeUnit.MILLISECONDS, i < 9 ? null : new Runnable() {
+                @Override
+                public void run() {
+                    done.countDown();
+                }
+            });
+        }
+        Assert.assertTrue(done.await(5, TimeUnit.SECONDS));
+        pipeline.awaitIdle();
+        Assert.assertEquals(pipeline.getDroppedWrites(), 0);
+        for (int i = 0; i < 20; i++) {
+            Assert.assertEquals(archive.getWritten("feed" + i).size(), 10);
+        }
+    }
+
+    @Test
+    public void bufferFullTest() throws InterruptedException {
+        RecordingArchive archive = new RecordingArchive();
+        archive.full = true;
+        archive.release.countDown();
+        CountingHandler handler = new CountingHandler();
+        pipeline = new IngestPipeline(Collections.singletonList(archive), new Properties(), handler);
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(0));
+        pipeline.awaitIdle();
+        Assert.assertEquals(handler.calls.get(), 1);
+
+        // suspended until resumed
+        archive.full = false;
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(1));
+        pipeline.awaitIdle();
+        Assert.assertNull(archive.getWritten("a"));
+        pipeline.resume(archive);
+        pipeline.submit("a", TimeUnit.MILLISECONDS, sample(2));
+        pipeline.awaitIdle();
+        Assert.assertEquals(archive.getWritten("a"), Collections.singletonList(2L));
+        Assert.assertEquals(handler.calls.get(), 1);
+    }
+
+    @Test
+    public void bufferFullOnSeveralLanesTest() throws InterruptedException {
+        RecordingArchive archive = new RecordingArchive();
+        archive.full = true;
+        CountingHandler handler = new CountingHandler();
+        Properties config = new Properties();
+        config.setProperty(IngestPipeline.LANES_PROPERTY, "4");
+        pipeline = new IngestPipeline(Collections.singletonList(archive), config, handler);
+        for (int i = 0; i < 40; i++) {
+            pipeline.submit("feed" + i, TimeUnit.MILLISECONDS, sample(i));
+        }
+        archive.release.countDown();
+        pipeline.awaitIdle();
+        Assert.assertEquals(handler.calls.get(), 1);
+    }
+
+    @Test
+    public void unknownOverflowPolicyTest() {
+        RecordingArchive archive = new RecordingArchive();
+        archive.release.countDown();
+        createPipeline(archive, "dropEverything", 1, 10);
+        Assert.assertEquals(pipeline.getOverflowPolicy(), IngestPipeline.OverflowPolicy.block);
+    }
+}